@@ -0,0 +1,220 @@
+package meshgen;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * A spatial hash of 2D or 3D points for finding pairs that agree within an epsilon in every coordinate,
+ * which is the test equalsApprox() makes on vectors.
+ * Points are binned into cells a few times wider than epsilon, so a point's close neighbors lie in its own cell
+ * or, where it is within epsilon of a face of its cell, in the cell across that face. A query probes only those
+ * cells (usually one to three) instead of testing every other point, which makes finding all close pairs
+ * near-linear rather than quadratic.
+ * Points with a NaN coordinate (used for missing entries) are left out.
+ */
+class ApproxPointGrid {
+	private final float[] coords;
+	private final int dim;
+	private final int count;
+	private final float epsilon;
+	/** Side of the cells, as a multiple of epsilon. */
+	private static final double CELL_SCALE = 4;
+
+	private final double cellSize;
+	/** How close to a face of its cell a point must be to probe the cell across it: epsilon, with room for rounding. */
+	private final double margin;
+
+	/** Hash table of occupied cells: their integer coordinates, and the first point of each one's list. */
+	private final long[] slotCells;
+	private final int[] slotHeads;
+	private final int mask;
+	/** The next point in the same cell, or -1; lists run from high to low point index. */
+	private final int[] next;
+
+	/**
+	 * @param coords The points, dim floats each; the array is kept, not copied.
+	 * @param dim 2 or 3.
+	 */
+	ApproxPointGrid(float[] coords, int dim, float epsilon) {
+		this.coords = coords;
+		this.dim = dim;
+		this.count = coords.length / dim;
+		this.epsilon = epsilon;
+		this.cellSize = epsilon * CELL_SCALE;
+		this.margin = epsilon * 1.01 / cellSize;
+
+		int capacity = Integer.highestOneBit(Math.max(2 * count, 16) - 1) << 1;
+		slotCells = new long[capacity * dim];
+		slotHeads = new int[capacity];
+		Arrays.fill(slotHeads, -1);
+		mask = capacity - 1;
+		next = new int[count];
+
+		long[] cell = new long[dim];
+		for (int i = 0; i < count; i++) {
+			if (!cellOf(coords, i * dim, cell)) {
+				next[i] = -1;
+				continue;
+			}
+			int slot = findSlot(cell, true);
+			next[i] = slotHeads[slot];
+			slotHeads[slot] = i;
+		}
+	}
+
+	/**
+	 * Returns the number of points indexed, including any left out for being NaN.
+	 */
+	int size() {
+		return count;
+	}
+
+	/**
+	 * Computes the cell of a point, returning false if it has a NaN coordinate.
+	 */
+	private boolean cellOf(float[] p, int offset, long[] cell) {
+		for (int d = 0; d < dim; d++) {
+			float c = p[offset + d];
+			if (c != c) {
+				return false;
+			}
+			// Out-of-range values saturate, which only merges cells far beyond any real mesh
+			cell[d] = (long) Math.floor(c / cellSize);
+		}
+		return true;
+	}
+
+	/**
+	 * Computes the range of cells to probe around a point along each axis, as offsets -1 or 0 in low and 0 or 1
+	 * in high, returning false if the point has a NaN coordinate.
+	 */
+	private boolean neighborhoodOf(float[] p, int offset, long[] cell, int[] low, int[] high) {
+		for (int d = 0; d < dim; d++) {
+			float c = p[offset + d];
+			if (c != c) {
+				return false;
+			}
+			double scaled = c / cellSize;
+			double floor = Math.floor(scaled);
+			cell[d] = (long) floor;
+			low[d] = scaled - floor < margin ? -1 : 0;
+			high[d] = floor + 1 - scaled < margin ? 1 : 0;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the slot of a cell, or -1 if it is empty and insert is false.
+	 */
+	private int findSlot(long[] cell, boolean insert) {
+		long h = 0;
+		for (int d = 0; d < dim; d++) {
+			h = (h + cell[d]) * 0x9E3779B97F4A7C15L;
+		}
+		int slot = (int) (h ^ (h >>> 32)) & mask;
+		while (true) {
+			if (slotHeads[slot] < 0) {
+				if (!insert) {
+					return -1;
+				}
+				System.arraycopy(cell, 0, slotCells, slot * dim, dim);
+				return slot;
+			}
+			boolean match = true;
+			for (int d = 0; d < dim && match; d++) {
+				match = slotCells[slot * dim + d] == cell[d];
+			}
+			if (match) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	/**
+	 * Returns true if point i and the point at p[offset] agree within epsilon in every coordinate.
+	 */
+	boolean approxEquals(int i, float[] p, int offset) {
+		for (int d = 0; d < dim; d++) {
+			if (!(Math.abs(coords[i * dim + d] - p[offset + d]) < epsilon)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns true if points i and j of coords, dim floats each, agree within epsilon in every coordinate.
+	 */
+	static boolean approxEquals(float[] coords, int dim, int i, int j, float epsilon) {
+		for (int d = 0; d < dim; d++) {
+			if (!(Math.abs(coords[i * dim + d] - coords[j * dim + d]) < epsilon)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Receives the points found by forEachNear().
+	 */
+	interface Visitor {
+		/**
+		 * @return false to stop the search.
+		 */
+		boolean visit(int index);
+	}
+
+	/**
+	 * Calls visitor with every point with an index above minIndex that agrees with the point at p[offset]
+	 * within epsilon, in no particular order.
+	 * @return false if the visitor stopped the search.
+	 */
+	boolean forEachNear(float[] p, int offset, int minIndex, Visitor visitor) {
+		long[] center = new long[dim];
+		int[] low = new int[dim], high = new int[dim];
+		if (!neighborhoodOf(p, offset, center, low, high)) {
+			return true;
+		}
+		// Step through the cells of the neighborhood like an odometer, starting from its low corner
+		int[] step = low.clone();
+		long[] cell = new long[dim];
+		while (true) {
+			for (int d = 0; d < dim; d++) {
+				cell[d] = center[d] + step[d];
+			}
+			int slot = findSlot(cell, false);
+			if (slot >= 0) {
+				for (int j = slotHeads[slot]; j > minIndex; j = next[j]) {
+					if (approxEquals(j, p, offset) && !visitor.visit(j)) {
+						return false;
+					}
+				}
+			}
+			int d = 0;
+			while (d < dim && step[d] == high[d]) {
+				step[d] = low[d];
+				d++;
+			}
+			if (d == dim) {
+				return true;
+			}
+			step[d]++;
+		}
+	}
+
+	/**
+	 * Returns the number of pairs of points (i, j), i < j, that agree within epsilon, the same count as
+	 * testing all pairs. Runs in parallel.
+	 */
+	long countApproxEqualPairs() {
+		return IntStream.range(0, count).parallel().mapToLong(i -> {
+			long[] found = new long[1];
+			forEachNear(coords, i * dim, i, j -> {
+				found[0]++;
+				return true;
+			});
+			return found[0];
+		}).sum();
+	}
+}
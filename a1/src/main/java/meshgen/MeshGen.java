@@ -1,9 +1,101 @@
 package meshgen;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Command Line Mesh Generator Utility
+ *
+ * Streams a tessellated parametric surface to an OBJ file:
+ * meshgen <sphere|cylinder|torus|plane> [-n <divisions>] [-m <divisions>] [-r <radius>] [-t <threads>] -o <path>
+ * Bands of the mesh are generated in parallel and written in order, so meshes of hundreds of millions of
+ * triangles can be written in bounded memory, and the output does not depend on the thread count.
+ */
 public class MeshGen {
+	// Default Surface Generation Values
+	public static final int DEFAULT_DIV_LAT = 8;
+	public static final int DEFAULT_DIV_LONG = 12;
+	public static final float DEFAULT_INNER_RADIUS = 0.25f;
+
+	// Surface Modifiers
+	public static final String INPUT_ARG_LAT = "-m";
+	public static final String INPUT_ARG_LONG = "-n";
+	public static final String INPUT_ARG_INNER_RADIUS = "-r";
+	public static final String INPUT_ARG_THREADS = "-t";
+
+	// Surface Output
+	public static final String INPUT_ARG_FILE_OUTPUT = "-o";
+	public static final int MINIMUM_ARG_COUNT = 3;
+
+	public static void main(String[] args) {
+		// Check For A Minimal Amount Of Arguments
+		if (args == null || args.length < MINIMUM_ARG_COUNT) {
+			System.out.println("Arguments To Program Must Be At The Very Least:");
+			System.out.println("meshgen <sphere|cylinder|torus|plane> " + INPUT_ARG_FILE_OUTPUT + " <path>");
+			System.out.println("Options: " + INPUT_ARG_LONG + " <divisions> " + INPUT_ARG_LAT + " <divisions> "
+					+ INPUT_ARG_INNER_RADIUS + " <torus inner radius> " + INPUT_ARG_THREADS + " <threads>");
+			return;
+		}
+
+		String surfaceName = null;
+		String fileOut = null;
+		int divisionsLongitude = DEFAULT_DIV_LONG;
+		int divisionsLatitude = DEFAULT_DIV_LAT;
+		float innerRadius = DEFAULT_INNER_RADIUS;
+		int threads = Runtime.getRuntime().availableProcessors();
+
+		// Parse The Input Arguments
+		try {
+			for (int i = 0; i < args.length; i++) {
+				String arg = args[i].toLowerCase();
+				boolean hasValue = i + 1 < args.length;
+				switch (arg) {
+				case INPUT_ARG_LAT:
+					if (hasValue) divisionsLatitude = Integer.parseInt(args[++i]);
+					break;
+				case INPUT_ARG_LONG:
+					if (hasValue) divisionsLongitude = Integer.parseInt(args[++i]);
+					break;
+				case INPUT_ARG_INNER_RADIUS:
+					if (hasValue) innerRadius = Float.parseFloat(args[++i]);
+					break;
+				case INPUT_ARG_THREADS:
+					if (hasValue) threads = Integer.parseInt(args[++i]);
+					break;
+				case INPUT_ARG_FILE_OUTPUT:
+					if (hasValue) fileOut = args[++i];
+					break;
+				default:
+					surfaceName = arg;
+					break;
+				}
+			}
+		} catch (NumberFormatException e) {
+			System.out.println("Expected A Number: " + e.getMessage());
+			return;
+		}
+
+		// Mandatory Surface And Output File
+		if (surfaceName == null) {
+			System.out.println("No Surface Given To Generate");
+			return;
+		}
+		if (fileOut == null) {
+			System.out.println("Expected An Output File");
+			return;
+		}
 
-    public static void main(String[] args) {
-        // TODO
-    }
+		try {
+			ParametricSurface surface = ParametricSurface.create(surfaceName, divisionsLongitude, divisionsLatitude, innerRadius);
+			String header = "meshgen " + surfaceName + " " + INPUT_ARG_LONG + " " + divisionsLongitude + " "
+					+ INPUT_ARG_LAT + " " + divisionsLatitude
+					+ (surfaceName.equals("torus") ? " " + INPUT_ARG_INNER_RADIUS + " " + innerRadius : "");
+			new StreamingMeshGenerator(surface, threads).write(Paths.get(fileOut), header);
+		} catch (IllegalArgumentException e) {
+			System.out.println(e.getMessage());
+		} catch (IOException e) {
+			System.out.println("Could Not Write Output File: " + e.getMessage());
+		}
+	}
 
 }
@@ -0,0 +1,181 @@
+package meshgen;
+
+/**
+ * A growable buffer of OBJ text, encoded as ASCII bytes as it is appended.
+ * Numbers are formatted directly into the buffer without creating Strings, which is most of the cost of
+ * writing large meshes with OBJMesh.writeOBJ(). Floats are written with up to 6 decimal places, which
+ * keeps every significant digit of coordinates of magnitude around 1.
+ * A chunk can be cleared and refilled, so a few of them can be recycled to write a file of any size.
+ */
+public class OBJChunk {
+	/** Magnitude above which floats are written with Float.toString() rather than in fixed point. */
+	private static final float FIXED_POINT_LIMIT = 1e9f;
+
+	private byte[] data;
+	private int length;
+
+	/**
+	 * Constructs an empty chunk with room for capacity bytes.
+	 */
+	public OBJChunk(int capacity) {
+		data = new byte[Math.max(capacity, 64)];
+	}
+
+	/**
+	 * Returns the bytes appended so far, in data()[0, length()).
+	 */
+	public byte[] data() {
+		return data;
+	}
+
+	/**
+	 * Returns the number of bytes appended so far.
+	 */
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * Empties this chunk, keeping its storage.
+	 */
+	public void clear() {
+		length = 0;
+	}
+
+	private void reserve(int count) {
+		if (length + count > data.length) {
+			byte[] newData = new byte[Math.max(length + count, data.length * 2)];
+			System.arraycopy(data, 0, newData, 0, length);
+			data = newData;
+		}
+	}
+
+	/**
+	 * Appends a string of ASCII characters, such as a comment line.
+	 */
+	public void append(String s) {
+		reserve(s.length());
+		for (int i = 0; i < s.length(); i++) {
+			data[length++] = (byte) s.charAt(i);
+		}
+	}
+
+	private void appendLong(long value) {
+		reserve(20);
+		if (value < 0) {
+			data[length++] = '-';
+			value = -value;
+		}
+		int start = length;
+		do {
+			data[length++] = (byte) ('0' + value % 10);
+			value /= 10;
+		} while (value != 0);
+		// The digits were written least significant first
+		for (int i = start, j = length - 1; i < j; i++, j--) {
+			byte b = data[i];
+			data[i] = data[j];
+			data[j] = b;
+		}
+	}
+
+	private void appendFloat(float value) {
+		if (!(Math.abs(value) < FIXED_POINT_LIMIT)) {
+			append(Float.toString(value));
+			return;
+		}
+		long scaled = Math.round(Math.abs((double) value) * 1e6);
+		if (value < 0 && scaled != 0) {
+			reserve(1);
+			data[length++] = '-';
+		}
+		appendLong(scaled / 1000000);
+		long fraction = scaled % 1000000;
+		reserve(7);
+		data[length++] = '.';
+		// Always at least one decimal, as Float.toString() does, and no trailing zeros after it
+		int digits = 6;
+		while (digits > 1 && fraction % 10 == 0) {
+			fraction /= 10;
+			digits--;
+		}
+		for (int i = digits - 1; i >= 0; i--) {
+			data[length + i] = (byte) ('0' + fraction % 10);
+			fraction /= 10;
+		}
+		length += digits;
+	}
+
+	private void appendSpace() {
+		reserve(1);
+		data[length++] = ' ';
+	}
+
+	private void appendNewline() {
+		reserve(1);
+		data[length++] = '\n';
+	}
+
+	/**
+	 * Appends a "v" line.
+	 */
+	public void vertex(float x, float y, float z) {
+		append("v");
+		appendSpace();
+		appendFloat(x);
+		appendSpace();
+		appendFloat(y);
+		appendSpace();
+		appendFloat(z);
+		appendNewline();
+	}
+
+	/**
+	 * Appends a "vt" line.
+	 */
+	public void uv(float u, float v) {
+		append("vt");
+		appendSpace();
+		appendFloat(u);
+		appendSpace();
+		appendFloat(v);
+		appendNewline();
+	}
+
+	/**
+	 * Appends a "vn" line.
+	 */
+	public void normal(float x, float y, float z) {
+		append("vn");
+		appendSpace();
+		appendFloat(x);
+		appendSpace();
+		appendFloat(y);
+		appendSpace();
+		appendFloat(z);
+		appendNewline();
+	}
+
+	/**
+	 * Appends an "f" line for a triangle whose vertices each use the same 1-based index for their position and
+	 * normal, and their own index for texture coordinates.
+	 */
+	public void face(long p0, long t0, long p1, long t1, long p2, long t2) {
+		append("f");
+		faceVertex(p0, t0);
+		faceVertex(p1, t1);
+		faceVertex(p2, t2);
+		appendNewline();
+	}
+
+	private void faceVertex(long p, long t) {
+		appendSpace();
+		appendLong(p);
+		reserve(1);
+		data[length++] = '/';
+		appendLong(t);
+		reserve(1);
+		data[length++] = '/';
+		appendLong(p);
+	}
+}
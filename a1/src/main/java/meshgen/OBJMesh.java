@@ -1,8 +1,7 @@
 package meshgen;
 
 import java.util.ArrayList;
-import java.util.TreeSet;
-import java.util.Iterator;
+import java.util.Arrays;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
@@ -251,7 +250,8 @@ public class OBJMesh {
 			System.out.println("Verifying mesh...");
 		}
 
-		int nPos = 0, nDupPos = 0;
+		int nPos = 0;
+		long nDupPos = 0;
 		if (positions != null && !positions.isEmpty()) {
 			nPos = positions.size();
 
@@ -267,12 +267,9 @@ public class OBJMesh {
 				}
 			}
 
-			for (int i=0; i<positions.size(); i++) {
-				for (int j=i+1; j<positions.size(); j++) {
-					if (positions.get(i).equalsApprox(positions.get(j))) {
-						nDupPos++;
-					}
-				}
+			// Only reported in verbose mode; a spatial hash avoids testing all pairs
+			if (verbose) {
+				nDupPos = new ApproxPointGrid(pack3(positions), 3, EPSILON).countApproxEqualPairs();
 			}
 		}
 		if (verbose) {
@@ -341,15 +338,10 @@ public class OBJMesh {
 		boolean[] posUsed = new boolean[nPos];
 		boolean[] uvUsed = new boolean[nUVs];
 		boolean[] normalUsed = new boolean[nNormals];
-		ArrayList<TreeSet<Integer>> normalsAtPosition = new ArrayList<>(nPos);
-		ArrayList<TreeSet<Integer>> uvsAtPosition = new ArrayList<>(nPos);
-
-		if (verbose) {
-			for (int i=0; i<nPos; i++) {
-				normalsAtPosition.add(new TreeSet<>());
-				uvsAtPosition.add(new TreeSet<>());
-			}
-		}
+		// (position << 32 | index) for each texture coordinate and normal referenced at a position
+		long[] uvsAtPosition = new long[verbose ? 16 : 0];
+		long[] normalsAtPosition = new long[verbose ? 16 : 0];
+		int nUVsAtPosition = 0, nNormalsAtPosition = 0;
 
 		int nFaces = 0;
 		boolean isTriMesh = true;
@@ -431,7 +423,10 @@ public class OBJMesh {
 							}
 						} else if (posIndexValid && verbose) {
 							uvUsed[uvIndex] = true;
-							uvsAtPosition.get(posIndex).add(uvIndex);
+							if (nUVsAtPosition == uvsAtPosition.length) {
+								uvsAtPosition = Arrays.copyOf(uvsAtPosition, 2 * nUVsAtPosition);
+							}
+							uvsAtPosition[nUVsAtPosition++] = (long) posIndex << 32 | uvIndex;
 						}
 					}
 
@@ -447,7 +442,10 @@ public class OBJMesh {
 							}
 						} else if (posIndexValid && verbose) {
 							normalUsed[normalIndex] = true;
-							normalsAtPosition.get(posIndex).add(normalIndex);
+							if (nNormalsAtPosition == normalsAtPosition.length) {
+								normalsAtPosition = Arrays.copyOf(normalsAtPosition, 2 * nNormalsAtPosition);
+							}
+							normalsAtPosition[nNormalsAtPosition++] = (long) posIndex << 32 | normalIndex;
 						}
 					}
 				}
@@ -455,33 +453,10 @@ public class OBJMesh {
 		}
 
 		if (verbose) {
-			int nDupUVs = 0;
-			int nDupNormals = 0;
-			for (int i=0; i<nPos; i++) {
-				TreeSet<Integer> uvts = uvsAtPosition.get(i);
-				while(!uvts.isEmpty()) {
-					int uv1 = uvts.pollFirst();
-					Iterator<Integer> uvit = uvts.iterator();
-					while (uvit.hasNext()) {
-						int uv2 = uvit.next();
-						if (uvs.get(uv1).equalsApprox(uvs.get(uv2))) {
-							nDupUVs++;
-						}
-					}
-				}
-
-				TreeSet<Integer> nts = normalsAtPosition.get(i);
-				while(!nts.isEmpty()) {
-					int n1 = nts.pollFirst();
-					Iterator<Integer> nit = nts.iterator();
-					while (nit.hasNext()) {
-						int n2 = nit.next();
-						if (normals.get(n1).equalsApprox(normals.get(n2))) {
-							nDupNormals++;
-						}
-					}
-				}
-			}
+			long nDupUVs = nUVs == 0 ? 0
+					: countDuplicatesAtPositions(uvsAtPosition, nUVsAtPosition, pack2(uvs), 2);
+			long nDupNormals = nNormals == 0 ? 0
+					: countDuplicatesAtPositions(normalsAtPosition, nNormalsAtPosition, pack3(normals), 3);
 
 			if (nDupUVs > 0) {
 				System.out.println("Warning: mesh contains " + nDupUVs + " pairs of duplicate texture coordinates.");
@@ -529,6 +504,63 @@ public class OBJMesh {
 		return isValid;
 	}
 
+	/** The tolerance of equalsApprox(), which isValid() uses to find duplicates. */
+	private static final float EPSILON = 1e-5f;
+
+	/**
+	 * Copies vectors into a flat array for an ApproxPointGrid, with NaN for null entries.
+	 */
+	private static float[] pack3(ArrayList<Vector3> vectors) {
+		float[] coords = new float[3 * vectors.size()];
+		for (int i=0; i<vectors.size(); i++) {
+			Vector3 v = vectors.get(i);
+			coords[3*i] = v == null ? Float.NaN : v.x;
+			coords[3*i+1] = v == null ? Float.NaN : v.y;
+			coords[3*i+2] = v == null ? Float.NaN : v.z;
+		}
+		return coords;
+	}
+
+	private static float[] pack2(ArrayList<Vector2> vectors) {
+		float[] coords = new float[2 * vectors.size()];
+		for (int i=0; i<vectors.size(); i++) {
+			Vector2 v = vectors.get(i);
+			coords[2*i] = v == null ? Float.NaN : v.x;
+			coords[2*i+1] = v == null ? Float.NaN : v.y;
+		}
+		return coords;
+	}
+
+	/**
+	 * Counts the pairs of distinct attributes referenced at the same position that are approximately equal.
+	 * @param entries (position << 32 | attribute index) for each reference, in entries[0, n); sorted in place.
+	 * @param coords The attributes, dim floats each.
+	 */
+	private static long countDuplicatesAtPositions(long[] entries, int n, float[] coords, int dim) {
+		Arrays.parallelSort(entries, 0, n);
+		long nDup = 0;
+		int start = 0;
+		while (start < n) {
+			// Collect the distinct attributes of one position at the front of its run
+			int end = start + 1, nDistinct = 1;
+			while (end < n && (entries[end] >>> 32) == (entries[start] >>> 32)) {
+				if (entries[end] != entries[start + nDistinct - 1]) {
+					entries[start + nDistinct++] = entries[end];
+				}
+				end++;
+			}
+			for (int a = start; a < start + nDistinct; a++) {
+				for (int b = a + 1; b < start + nDistinct; b++) {
+					if (ApproxPointGrid.approxEquals(coords, dim, (int) entries[a], (int) entries[b], EPSILON)) {
+						nDup++;
+					}
+				}
+			}
+			start = end;
+		}
+		return nDup;
+	}
+
 	/**
 	 * Returns true if two OBJMeshes are equivalent.
 	 * Equivalent means all of the following are true:
@@ -540,7 +572,8 @@ public class OBJMesh {
 	 * All floating point comparisons are assumed to match if within the epsilon value provided.
 	 * @warning This method assumes that m1.isValid() and m2.isValid() are both true.
 	 * @warning This method may return false incorrectly if both m1 and m2 have coincident faces with differing UVs or normals.
-	 * @note This method does a brute force comparison between all faces of both input meshes...be patient if using large meshes.
+	 * @note Only faces sharing a vertex position are compared, which are found through a spatial hash, so this takes
+	 * roughly linear time; the result and diagnostics are the same as comparing every pair of faces in order.
 	 */
 	public static boolean compare(OBJMesh m1, OBJMesh m2, boolean verbose, float eps) {
 		if (verbose) {
@@ -557,10 +590,13 @@ public class OBJMesh {
 		}
 
 		boolean[] m2matches = new boolean[m2.faces.size()];
+		FaceLocator inM2 = new FaceLocator(m2, eps);
 		for (int i1=0; i1<m1.faces.size(); i1++) {
 			OBJFace f1 = m1.faces.get(i1);
 			boolean foundMatch = false;
-			for (int i2=0; !foundMatch && i2<m2.faces.size(); i2++) {
+			int nCandidates = inM2.find(m1.getPosition(f1, 0));
+			for (int c=0; !foundMatch && c<nCandidates; c++) {
+				int i2 = inM2.candidate(c);
 				OBJFace f2 = m2.faces.get(i2);
 				CompareFacesResult comp = compareFaces(m1, f1, m2, f2, eps);
 
@@ -618,11 +654,14 @@ public class OBJMesh {
 			}
 		}
 
+		FaceLocator inM1 = new FaceLocator(m1, eps);
 		for (int i2=0; i2<m2.faces.size(); i2++) {
 			if (m2matches[i2]) continue;
 			OBJFace f2 = m2.faces.get(i2);
 			boolean foundMatch = false;
-			for (int i1=0; !foundMatch && i1<m1.faces.size(); i1++) {
+			int nCandidates = inM1.find(m2.getPosition(f2, 0));
+			for (int c=0; !foundMatch && c<nCandidates; c++) {
+				int i1 = inM1.candidate(c);
 				OBJFace f1 = m1.faces.get(i1);
 				CompareFacesResult comp = compareFaces(m1, f1, m2, f2, eps);
 
@@ -646,6 +685,83 @@ public class OBJMesh {
 		return meshesMatch;
 	}
 
+	/**
+	 * Finds the faces of a mesh that could match a face of another mesh, for compare().
+	 * A matching face has a vertex at every vertex position of the other face, so it uses a position within
+	 * eps of the other face's first vertex. Those positions are looked up in a spatial hash, which leaves a few
+	 * candidate faces to compare instead of all of them.
+	 */
+	private static class FaceLocator {
+		private final ApproxPointGrid grid;
+		/** The faces using position i are facesAt[facesStart[i], facesStart[i+1]). */
+		private final int[] facesStart, facesAt;
+		/** The last query in which each face was found, to report it once. */
+		private final int[] seen;
+		private int query;
+		private int[] found = new int[16];
+		private int nFound;
+		private final float[] point = new float[3];
+
+		FaceLocator(OBJMesh m, float eps) {
+			int nPos = m.positions.size();
+			// Nothing is within a non-positive eps of anything, so there is nothing to index
+			grid = eps > 0 ? new ApproxPointGrid(pack3(m.positions), 3, eps) : null;
+			facesStart = new int[nPos + 1];
+			for (OBJFace f : m.faces) {
+				for (int k=0; k<f.numVerts(); k++) {
+					facesStart[f.positions[k] - OBJFace.indexBase + 1]++;
+				}
+			}
+			for (int i=0; i<nPos; i++) {
+				facesStart[i+1] += facesStart[i];
+			}
+			facesAt = new int[facesStart[nPos]];
+			int[] next = Arrays.copyOf(facesStart, nPos);
+			for (int i=0; i<m.faces.size(); i++) {
+				OBJFace f = m.faces.get(i);
+				for (int k=0; k<f.numVerts(); k++) {
+					facesAt[next[f.positions[k] - OBJFace.indexBase]++] = i;
+				}
+			}
+			seen = new int[m.faces.size()];
+		}
+
+		/**
+		 * Finds the faces using a position within eps of p, and returns how many there are.
+		 * Their indices are then given by candidate(0) to candidate(n-1), in increasing order.
+		 */
+		int find(Vector3 p) {
+			nFound = 0;
+			query++;
+			if (grid != null) {
+				point[0] = p.x;
+				point[1] = p.y;
+				point[2] = p.z;
+				grid.forEachNear(point, 0, -1, this::addFacesAt);
+				Arrays.sort(found, 0, nFound);
+			}
+			return nFound;
+		}
+
+		int candidate(int i) {
+			return found[i];
+		}
+
+		private boolean addFacesAt(int position) {
+			for (int k=facesStart[position]; k<facesStart[position+1]; k++) {
+				int face = facesAt[k];
+				if (seen[face] != query) {
+					seen[face] = query;
+					if (nFound == found.length) {
+						found = Arrays.copyOf(found, 2 * nFound);
+					}
+					found[nFound++] = face;
+				}
+			}
+			return true;
+		}
+	}
+
 	private enum CompareFacesResult {
 		Mismatch, // The face positions do not match
 		Match, // The face positions match; if the face has UVs/normals, these match as well
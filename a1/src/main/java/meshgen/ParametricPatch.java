@@ -0,0 +1,191 @@
+package meshgen;
+
+/**
+ * A surface patch parametrized over the unit square, tessellated as an n by m grid of quads split into triangles.
+ * The grid has n columns of quads along u and m rows along v, and row j of vertices lies at v = j / m.
+ * The edge u = 1 may be glued to u = 0 (wrapU), and likewise v (wrapV), in which case the vertices on the
+ * seam share positions and normals but keep separate texture coordinates.
+ * The rows v = 0 and v = 1 may also collapse to a single pole vertex; quads touching a pole become triangles.
+ *
+ * All indices are computed in closed form from the grid, so any range of rows can be written on its own,
+ * which lets StreamingMeshGenerator write a patch band by band without holding it in memory.
+ * Positions and normals share one numbering; texture coordinates are a full (n + 1) by (m + 1) grid.
+ * eval() must give (dP/du x dP/dv) pointing outwards, so that the triangles are counter-clockwise.
+ */
+public abstract class ParametricPatch {
+	/** Number of quads along u and along v. */
+	public final int n, m;
+	/** Whether the u = 1 edge is glued to u = 0, and the v = 1 edge to v = 0. */
+	public final boolean wrapU, wrapV;
+	/** Whether the row v = 0, or the row v = 1, is a single pole vertex. */
+	public final boolean poleStart, poleEnd;
+
+	/**
+	 * @throws IllegalArgumentException if the grid is too small for the seams and poles requested.
+	 */
+	protected ParametricPatch(int n, int m, boolean wrapU, boolean wrapV, boolean poleStart, boolean poleEnd) {
+		if (n < (wrapU ? 3 : 1) || m < (wrapV ? 3 : (poleStart && poleEnd ? 2 : 1))) {
+			throw new IllegalArgumentException("Too few divisions: " + n + " by " + m);
+		}
+		if (wrapV && (poleStart || poleEnd)) {
+			throw new IllegalArgumentException("A patch wrapped along v cannot have poles");
+		}
+		this.n = n;
+		this.m = m;
+		this.wrapU = wrapU;
+		this.wrapV = wrapV;
+		this.poleStart = poleStart;
+		this.poleEnd = poleEnd;
+	}
+
+	/**
+	 * Evaluates the surface at (u, v), writing the position to out[0..2], the unit normal to out[3..5],
+	 * and the texture coordinates to out[6..7].
+	 */
+	public abstract void eval(float u, float v, float[] out);
+
+	/**
+	 * Returns true if row j of vertices is a pole.
+	 */
+	public boolean isPole(int j) {
+		return (poleStart && j == 0) || (poleEnd && j == m);
+	}
+
+	/**
+	 * Returns the number of rows of distinct positions (the last row is row 0 again when wrapped along v).
+	 */
+	public int positionRows() {
+		return wrapV ? m : m + 1;
+	}
+
+	/**
+	 * Returns the number of distinct positions in row j.
+	 */
+	public int positionRowLength(int j) {
+		return isPole(j) ? 1 : (wrapU ? n : n + 1);
+	}
+
+	/**
+	 * Returns the number of positions in the rows before row j.
+	 */
+	private long positionRowOffset(int j) {
+		long full = wrapU ? n : n + 1;
+		return j * full - (poleStart && j > 0 ? full - 1 : 0);
+	}
+
+	/**
+	 * Returns the number of distinct positions (and normals) of this patch.
+	 */
+	public long positionCount() {
+		int rows = positionRows();
+		return positionRowOffset(rows - 1) + positionRowLength(rows - 1);
+	}
+
+	/**
+	 * Returns the number of texture coordinates of this patch.
+	 */
+	public long uvCount() {
+		return (long) (n + 1) * (m + 1);
+	}
+
+	/**
+	 * Returns the number of triangles in row j of quads.
+	 */
+	public int faceRowLength(int j) {
+		return isPole(j) || isPole(j + 1) ? n : 2 * n;
+	}
+
+	/**
+	 * Returns the number of triangles of this patch.
+	 */
+	public long faceCount() {
+		return (long) n * (2 * m - (poleStart ? 1 : 0) - (poleEnd ? 1 : 0));
+	}
+
+	/**
+	 * Returns the 0-based index of the position of grid vertex (i, j).
+	 */
+	public long positionIndex(int i, int j) {
+		if (wrapV && j == m) {
+			j = 0;
+		}
+		if (isPole(j)) {
+			return positionRowOffset(j);
+		}
+		if (wrapU && i == n) {
+			i = 0;
+		}
+		return positionRowOffset(j) + i;
+	}
+
+	/**
+	 * Returns the 0-based index of the texture coordinates of grid vertex (i, j).
+	 */
+	public long uvIndex(int i, int j) {
+		return (long) j * (n + 1) + i;
+	}
+
+	/**
+	 * Appends "v" lines for position rows [rowStart, rowEnd).
+	 * @param scratch An array of at least 8 floats.
+	 */
+	public void writePositions(OBJChunk out, int rowStart, int rowEnd, float[] scratch) {
+		for (int j = rowStart; j < rowEnd; j++) {
+			for (int i = 0, len = positionRowLength(j); i < len; i++) {
+				eval((float) i / n, (float) j / m, scratch);
+				out.vertex(scratch[0], scratch[1], scratch[2]);
+			}
+		}
+	}
+
+	/**
+	 * Appends "vn" lines for position rows [rowStart, rowEnd), in the same order as writePositions().
+	 * @param scratch An array of at least 8 floats.
+	 */
+	public void writeNormals(OBJChunk out, int rowStart, int rowEnd, float[] scratch) {
+		for (int j = rowStart; j < rowEnd; j++) {
+			for (int i = 0, len = positionRowLength(j); i < len; i++) {
+				eval((float) i / n, (float) j / m, scratch);
+				out.normal(scratch[3], scratch[4], scratch[5]);
+			}
+		}
+	}
+
+	/**
+	 * Appends "vt" lines for rows [rowStart, rowEnd) of the m + 1 rows of texture coordinates.
+	 * @param scratch An array of at least 8 floats.
+	 */
+	public void writeUVs(OBJChunk out, int rowStart, int rowEnd, float[] scratch) {
+		for (int j = rowStart; j < rowEnd; j++) {
+			for (int i = 0; i <= n; i++) {
+				eval((float) i / n, (float) j / m, scratch);
+				out.uv(scratch[6], scratch[7]);
+			}
+		}
+	}
+
+	/**
+	 * Appends "f" lines for rows [rowStart, rowEnd) of the m rows of quads.
+	 * @param positionBase Number of positions (and normals) written before this patch.
+	 * @param uvBase Number of texture coordinates written before this patch.
+	 */
+	public void writeFaces(OBJChunk out, int rowStart, int rowEnd, long positionBase, long uvBase) {
+		// OBJ indices start at 1
+		long p = positionBase + 1, t = uvBase + 1;
+		for (int j = rowStart; j < rowEnd; j++) {
+			boolean poleBelow = isPole(j), poleAbove = isPole(j + 1);
+			for (int i = 0; i < n; i++) {
+				long pa = p + positionIndex(i, j), pb = p + positionIndex(i + 1, j);
+				long pc = p + positionIndex(i + 1, j + 1), pd = p + positionIndex(i, j + 1);
+				long ta = t + uvIndex(i, j), tb = t + uvIndex(i + 1, j);
+				long tc = t + uvIndex(i + 1, j + 1), td = t + uvIndex(i, j + 1);
+				if (!poleAbove) {
+					out.face(pa, ta, pc, tc, pd, td);
+				}
+				if (!poleBelow) {
+					out.face(pa, ta, pb, tb, pc, tc);
+				}
+			}
+		}
+	}
+}
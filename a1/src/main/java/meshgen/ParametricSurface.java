@@ -0,0 +1,193 @@
+package meshgen;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A surface made of one or more parametric patches, with factories for the surfaces MeshGen can generate.
+ * Surfaces follow the conventions of the other generators in the course: y is up, the seam of revolved
+ * surfaces is on the -z side, and u increases counter-clockwise seen from +y.
+ */
+public class ParametricSurface {
+	/** The patches of this surface, in the order they are written. */
+	public final List<ParametricPatch> patches;
+
+	public ParametricSurface(ParametricPatch... patches) {
+		this.patches = Collections.unmodifiableList(Arrays.asList(patches));
+	}
+
+	/**
+	 * Returns the total number of positions, which is also the number of normals.
+	 */
+	public long positionCount() {
+		long count = 0;
+		for (ParametricPatch p : patches) {
+			count += p.positionCount();
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the total number of texture coordinates.
+	 */
+	public long uvCount() {
+		long count = 0;
+		for (ParametricPatch p : patches) {
+			count += p.uvCount();
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the total number of triangles.
+	 */
+	public long faceCount() {
+		long count = 0;
+		for (ParametricPatch p : patches) {
+			count += p.faceCount();
+		}
+		return count;
+	}
+
+	/**
+	 * Creates a surface by name: "sphere", "cylinder", "torus" or "plane".
+	 * @param n Divisions in longitude (around the y axis), or along x for the plane.
+	 * @param m Divisions in latitude (along the y axis, or around the tube of the torus), or along z for the plane.
+	 * @param innerRadius The radius of the tube of the torus; unused by other surfaces.
+	 * @throws IllegalArgumentException if the name is unknown or there are too few divisions.
+	 */
+	public static ParametricSurface create(String name, int n, int m, float innerRadius) {
+		switch (name) {
+		case "sphere":
+			return sphere(n, m);
+		case "cylinder":
+			return cylinder(n, m);
+		case "torus":
+			return torus(n, m, innerRadius);
+		case "plane":
+			return plane(n, m);
+		default:
+			throw new IllegalArgumentException("Unknown surface: " + name);
+		}
+	}
+
+	/**
+	 * A unit sphere centered at the origin, with poles on the y axis.
+	 * Texture coordinates are longitude and latitude, v = 0 at the south pole.
+	 */
+	public static ParametricSurface sphere(int n, int m) {
+		return new ParametricSurface(new ParametricPatch(n, m, true, false, true, true) {
+			@Override
+			public void eval(float u, float v, float[] out) {
+				double theta = 2 * Math.PI * u, phi = Math.PI * v;
+				float r = (float) Math.sin(phi);
+				out[0] = out[3] = -r * (float) Math.sin(theta);
+				out[1] = out[4] = (float) -Math.cos(phi);
+				out[2] = out[5] = -r * (float) Math.cos(theta);
+				out[6] = u;
+				out[7] = v;
+			}
+		});
+	}
+
+	/**
+	 * A cylinder of radius 1 around the y axis, from y = -1 to y = 1, with caps.
+	 * The side maps to v in [0, 0.5]; the bottom and top caps map to disks of radius 0.25 centered at
+	 * (0.25, 0.75) and (0.75, 0.75).
+	 * @param m Divisions of the side along y; the caps are single fans.
+	 */
+	public static ParametricSurface cylinder(int n, int m) {
+		ParametricPatch side = new ParametricPatch(n, m, true, false, false, false) {
+			@Override
+			public void eval(float u, float v, float[] out) {
+				double theta = 2 * Math.PI * u;
+				out[0] = out[3] = (float) -Math.sin(theta);
+				out[1] = 2 * v - 1;
+				out[4] = 0;
+				out[2] = out[5] = (float) -Math.cos(theta);
+				out[6] = u;
+				out[7] = 0.5f * v;
+			}
+		};
+		// On the caps v runs from the center to the rim, and u turns the way that makes the normal face out
+		ParametricPatch bottom = new ParametricPatch(n, 1, true, false, true, false) {
+			@Override
+			public void eval(float u, float v, float[] out) {
+				double theta = 2 * Math.PI * u;
+				float x = v * (float) -Math.sin(theta), z = v * (float) -Math.cos(theta);
+				out[0] = x;
+				out[1] = -1;
+				out[2] = z;
+				out[3] = 0;
+				out[4] = -1;
+				out[5] = 0;
+				out[6] = (x + 1) * 0.25f;
+				out[7] = (z + 1) * 0.25f + 0.5f;
+			}
+		};
+		ParametricPatch top = new ParametricPatch(n, 1, true, false, true, false) {
+			@Override
+			public void eval(float u, float v, float[] out) {
+				double theta = 2 * Math.PI * u;
+				float x = v * (float) Math.sin(theta), z = v * (float) -Math.cos(theta);
+				out[0] = x;
+				out[1] = 1;
+				out[2] = z;
+				out[3] = 0;
+				out[4] = 1;
+				out[5] = 0;
+				out[6] = (x + 1) * 0.25f + 0.5f;
+				out[7] = (1 - z) * 0.25f + 0.5f;
+			}
+		};
+		return new ParametricSurface(side, bottom, top);
+	}
+
+	/**
+	 * A torus around the y axis whose tube is centered on the unit circle in the xz plane.
+	 * u goes around the y axis and v around the tube, starting on its outside.
+	 * @param innerRadius The radius of the tube, in (0, 1).
+	 */
+	public static ParametricSurface torus(int n, int m, final float innerRadius) {
+		if (!(innerRadius > 0 && innerRadius < 1)) {
+			throw new IllegalArgumentException("Torus inner radius must be in (0, 1): " + innerRadius);
+		}
+		return new ParametricSurface(new ParametricPatch(n, m, true, true, false, false) {
+			@Override
+			public void eval(float u, float v, float[] out) {
+				double theta = 2 * Math.PI * u, phi = 2 * Math.PI * v;
+				float sinTheta = (float) Math.sin(theta), cosTheta = (float) Math.cos(theta);
+				float sinPhi = (float) Math.sin(phi), cosPhi = (float) Math.cos(phi);
+				float r = 1 + innerRadius * cosPhi;
+				out[0] = -r * sinTheta;
+				out[1] = innerRadius * sinPhi;
+				out[2] = -r * cosTheta;
+				out[3] = -cosPhi * sinTheta;
+				out[4] = sinPhi;
+				out[5] = -cosPhi * cosTheta;
+				out[6] = u;
+				out[7] = v;
+			}
+		});
+	}
+
+	/**
+	 * The square [-1, 1] x [-1, 1] in the xz plane, facing +y, with u along +x and v along -z.
+	 */
+	public static ParametricSurface plane(int n, int m) {
+		return new ParametricSurface(new ParametricPatch(n, m, false, false, false, false) {
+			@Override
+			public void eval(float u, float v, float[] out) {
+				out[0] = 2 * u - 1;
+				out[1] = 0;
+				out[2] = 1 - 2 * v;
+				out[3] = 0;
+				out[4] = 1;
+				out[5] = 0;
+				out[6] = u;
+				out[7] = v;
+			}
+		});
+	}
+}
@@ -0,0 +1,155 @@
+package meshgen;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Writes a ParametricSurface to an OBJ file without building it in memory first.
+ * The file is written in the same layout as OBJMesh.writeOBJ(): all positions, then texture coordinates,
+ * then normals, then faces. Each section is cut into bands of rows that worker threads format into
+ * OBJChunks, and the chunks are written to the file in order, so the output is identical for any number of
+ * threads. At most a fixed window of chunks is in flight, and written chunks are recycled, so memory use
+ * depends on the band size and thread count but not on the size of the mesh.
+ */
+public class StreamingMeshGenerator {
+	/** Roughly how many OBJ lines each band holds. */
+	public static final int LINES_PER_BAND = 1 << 15;
+
+	private static final int POSITIONS = 0, UVS = 1, NORMALS = 2, FACES = 3;
+
+	private final ParametricSurface surface;
+	private final int threads;
+
+	/**
+	 * @param threads The number of worker threads, at least 1.
+	 */
+	public StreamingMeshGenerator(ParametricSurface surface, int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("Need at least one thread");
+		}
+		this.surface = surface;
+		this.threads = threads;
+	}
+
+	/**
+	 * Writes the surface to the given file, replacing it if it exists.
+	 * @param header A comment placed at the top of the file, or null.
+	 * @throws IOException if there is a problem writing the file.
+	 */
+	public void write(Path path, String header) throws IOException {
+		ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, "meshgen-worker");
+			t.setDaemon(true);
+			return t;
+		});
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			new Writer(pool, channel).write(header);
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * The state of one write(): the chunks in flight, in file order, and the chunks free for reuse.
+	 */
+	private class Writer {
+		private final ExecutorService pool;
+		private final FileChannel channel;
+		private final int window = 2 * threads;
+		private final ArrayDeque<Future<OBJChunk>> pending = new ArrayDeque<>();
+		private final ConcurrentLinkedQueue<OBJChunk> free = new ConcurrentLinkedQueue<>();
+
+		Writer(ExecutorService pool, FileChannel channel) {
+			this.pool = pool;
+			this.channel = channel;
+		}
+
+		void write(String header) throws IOException {
+			OBJChunk first = new OBJChunk(256);
+			if (header != null) {
+				first.append("# " + header + "\n");
+			}
+			first.append("# " + surface.positionCount() + " positions, " + surface.uvCount() + " uvs, "
+					+ surface.faceCount() + " triangles\n");
+			writeChunk(first);
+
+			for (int section = POSITIONS; section <= FACES; section++) {
+				long positionBase = 0, uvBase = 0;
+				for (ParametricPatch patch : surface.patches) {
+					int rows = section == FACES ? patch.m : (section == UVS ? patch.m + 1 : patch.positionRows());
+					int rowLength = section == UVS ? patch.n + 1 : 2 * patch.n;
+					int rowsPerBand = Math.max(1, LINES_PER_BAND / rowLength);
+					for (int start = 0; start < rows; start += rowsPerBand) {
+						submit(section, patch, start, Math.min(rows, start + rowsPerBand), positionBase, uvBase);
+					}
+					positionBase += patch.positionCount();
+					uvBase += patch.uvCount();
+				}
+			}
+			while (!pending.isEmpty()) {
+				writeNext();
+			}
+		}
+
+		private void submit(final int section, final ParametricPatch patch, final int start, final int end,
+				final long positionBase, final long uvBase) throws IOException {
+			if (pending.size() >= window) {
+				writeNext();
+			}
+			pending.add(pool.submit(() -> {
+				OBJChunk chunk = free.poll();
+				if (chunk == null) {
+					chunk = new OBJChunk(LINES_PER_BAND * 48);
+				}
+				float[] scratch = new float[8];
+				switch (section) {
+				case POSITIONS:
+					patch.writePositions(chunk, start, end, scratch);
+					break;
+				case UVS:
+					patch.writeUVs(chunk, start, end, scratch);
+					break;
+				case NORMALS:
+					patch.writeNormals(chunk, start, end, scratch);
+					break;
+				default:
+					patch.writeFaces(chunk, start, end, positionBase, uvBase);
+					break;
+				}
+				return chunk;
+			}));
+		}
+
+		private void writeNext() throws IOException {
+			OBJChunk chunk;
+			try {
+				chunk = pending.poll().get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while generating mesh", e);
+			} catch (ExecutionException e) {
+				throw new IOException("Failed to generate mesh", e.getCause());
+			}
+			writeChunk(chunk);
+			chunk.clear();
+			free.add(chunk);
+		}
+
+		private void writeChunk(OBJChunk chunk) throws IOException {
+			ByteBuffer buffer = ByteBuffer.wrap(chunk.data(), 0, chunk.length());
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+	}
+}
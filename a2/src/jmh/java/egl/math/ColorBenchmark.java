@@ -0,0 +1,64 @@
+package egl.math;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Conversions Between Byte, Packed Integer And Floating Point Colors, As Done Per Pixel By Image Output
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ColorBenchmark {
+	private final Colord linear = new Colord(0.18, 0.5, 0.9);
+	private final Colord scratch = new Colord();
+	private final Colorf linearf = new Colorf(0.18f, 0.5f, 0.9f);
+	private final Colorf scratchf = new Colorf();
+	private final Color color = new Color(46, 128, 230);
+	private int argb = 0xff2e80e6;
+
+	@Benchmark
+	public Color toColor() {
+		return linear.toColor();
+	}
+	@Benchmark
+	public Color toColorFloat() {
+		return linearf.toColor();
+	}
+	@Benchmark
+	public Colord fromColor() {
+		return scratch.set(color);
+	}
+	@Benchmark
+	public Colord gammaCorrect() {
+		scratch.set(linear);
+		scratch.gammaCorrect(2.2);
+		return scratch;
+	}
+	@Benchmark
+	public int gammaCorrectToInt() {
+		scratchf.set(linearf);
+		scratchf.gammaCorrect(2.2f);
+		return scratchf.toColor().toIntRGB();
+	}
+	@Benchmark
+	public Color fromInt() {
+		return color.setIntARGB(argb);
+	}
+	@Benchmark
+	public int toInt() {
+		return color.toIntRGB();
+	}
+}
@@ -0,0 +1,77 @@
+package egl.math;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Checks Which Temporaries Of The Allocating Convenience Methods Escape
+ * <br>Every Benchmark Builds Short-Lived Objects That Never Leave It, So With Escape Analysis They Should
+ * Cost No Allocation. Each Runs Twice, In A Default Fork And In One With -XX:-DoEscapeAnalysis. Run With
+ * The GC Profiler And Compare gc.alloc.rate.norm: Bytes Per Operation That Remain In The Default Fork
+ * Are Objects The JIT Could Not Remove, Usually Because A Call Was Not Inlined. A Rise In Those Numbers
+ * After A Change Is A Regression Even When The Time Does Not Move.</br>
+ * <pre>
+ * gradle jmh -Pjmh.args="EscapeAnalysis -prof gc"
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EscapeAnalysisBenchmark {
+	private final Matrix4 m = Matrix4.createRotationY(0.6f).mulAfter(Matrix4.createTranslation(1, 2, 3));
+	private final Vector3 a = new Vector3(1, 2, 3), b = new Vector3(-2, 0.5f, 4);
+	private final Quat q1 = Quat.createRotationZ(0.4f), q2 = Quat.createRotationY(2.1f);
+	private float t = 0.37f;
+
+	@Benchmark
+	public float getTransThenDot() {
+		return m.getTrans().dot(a);
+	}
+	@Benchmark
+	@Fork(value = 1, jvmArgsAppend = "-XX:-DoEscapeAnalysis")
+	public float getTransThenDotNoEscapeAnalysis() {
+		return m.getTrans().dot(a);
+	}
+
+	@Benchmark
+	public float cloneChain() {
+		return a.clone().sub(b).cross(a).len();
+	}
+	@Benchmark
+	@Fork(value = 1, jvmArgsAppend = "-XX:-DoEscapeAnalysis")
+	public float cloneChainNoEscapeAnalysis() {
+		return a.clone().sub(b).cross(a).len();
+	}
+
+	@Benchmark
+	public float slerpAllocating() {
+		return Quat.slerp(q1, q2, t).w;
+	}
+	@Benchmark
+	@Fork(value = 1, jvmArgsAppend = "-XX:-DoEscapeAnalysis")
+	public float slerpAllocatingNoEscapeAnalysis() {
+		return Quat.slerp(q1, q2, t).w;
+	}
+
+	@Benchmark
+	public float mulPosOfClone() {
+		return m.mulPos(a.clone()).x;
+	}
+	@Benchmark
+	@Fork(value = 1, jvmArgsAppend = "-XX:-DoEscapeAnalysis")
+	public float mulPosOfCloneNoEscapeAnalysis() {
+		return m.mulPos(a.clone()).x;
+	}
+}
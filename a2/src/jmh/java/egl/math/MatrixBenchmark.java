@@ -0,0 +1,132 @@
+package egl.math;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Matrix4 And Matrix4d Products, Inverses And Transforms
+ * <br>The invert Benchmarks Run The Same Matrix Through Each Fast Path Its Flags Allow, And Through The
+ * General One With The Flags Cleared. The transform Benchmarks Compare A mulPos Loop Over Vector3s
+ * With The Bulk Kernel Over A Packed Array.</br>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatrixBenchmark {
+	@Param({"1024"})
+	public int count;
+
+	private final Matrix4 a = new Matrix4(), b = new Matrix4(), out = new Matrix4();
+	private final Matrix4 rigid = new Matrix4(), scaled = new Matrix4(), affine = new Matrix4(), projective = new Matrix4();
+	private final Matrix4d ad = new Matrix4d(), bd = new Matrix4d(), outd = new Matrix4d();
+	private final Matrix4d affined = new Matrix4d();
+
+	private Vector3[] vectors;
+	private float[] packed, packedOut;
+	private double[] packedd, packedOutd;
+
+	@Setup
+	public void setup() {
+		Matrix4.createTranslation(1, -2, 3, rigid).mulBefore(Matrix4.createRotationX(0.3f)).mulBefore(Matrix4.createRotationZ(1.1f));
+		scaled.set(rigid).mulBefore(Matrix4.createScale(2.5f));
+		affine.set(scaled).mulBefore(Matrix4.createScale(1, 0.5f, 3));
+		projective.set(Matrix4.createPerspectiveFOV(1.2f, 1.5f, 0.1f, 100)).mulBefore(affine);
+		a.set(affine);
+		b.set(projective);
+		Matrix4d.createTranslation(1, -2, 3, affined).mulBefore(Matrix4d.createRotationX(0.3)).mulBefore(Matrix4d.createRotationZ(1.1))
+			.mulBefore(Matrix4d.createScale(2.5, 1.25, 7.5));
+		ad.set(affined);
+		bd.set(Matrix4d.createPerspectiveFOV(1.2, 1.5, 0.1, 100)).mulBefore(affined);
+
+		vectors = new Vector3[count];
+		packed = new float[count * 3];
+		packedOut = new float[count * 3];
+		packedd = new double[count * 3];
+		packedOutd = new double[count * 3];
+		for(int i = 0;i < count;i++) {
+			vectors[i] = new Vector3(i, -0.5f * i, 1 - i);
+			packedd[3 * i] = packed[3 * i] = i;
+			packedd[3 * i + 1] = packed[3 * i + 1] = -0.5f * i;
+			packedd[3 * i + 2] = packed[3 * i + 2] = 1 - i;
+		}
+	}
+
+	@Benchmark
+	public Matrix4 mulInto() {
+		return a.mulBefore(b, out);
+	}
+	@Benchmark
+	public Matrix4 mulAllocating() {
+		return a.clone().mulBefore(b);
+	}
+	@Benchmark
+	public Matrix4d mulIntoDouble() {
+		return ad.mulBefore(bd, outd);
+	}
+
+	@Benchmark
+	public Matrix4 invertGeneral() {
+		return out.set(affine).setFlags(0).invert();
+	}
+	@Benchmark
+	public Matrix4 invertAffine() {
+		return out.set(affine).invert();
+	}
+	@Benchmark
+	public Matrix4 invertUniformScale() {
+		return out.set(scaled).invert();
+	}
+	@Benchmark
+	public Matrix4 invertRigid() {
+		return out.set(rigid).invert();
+	}
+	@Benchmark
+	public Matrix4d invertGeneralDouble() {
+		return outd.set(affined).setFlags(0).invert();
+	}
+	@Benchmark
+	public Matrix4d invertAffineDouble() {
+		return outd.set(affined).invert();
+	}
+
+	@Benchmark
+	public void transformPerVector(Blackhole bh) {
+		Vector3 v = new Vector3();
+		for(int i = 0;i < count;i++) bh.consume(b.mulPos(v.set(vectors[i])));
+	}
+	@Benchmark
+	public float[] transformBulk() {
+		b.transformPositions(packed, 0, packedOut, 0, count, 3);
+		return packedOut;
+	}
+	@Benchmark
+	public float[] transformBulkAffine() {
+		a.transformPositions(packed, 0, packedOut, 0, count, 3);
+		return packedOut;
+	}
+	@Benchmark
+	public double[] transformBulkDouble() {
+		bd.transformPositions(packedd, 0, packedOutd, 0, count, 3);
+		return packedOutd;
+	}
+	@Benchmark
+	public float[] transformNormalsBulk() {
+		a.transformNormals(packed, 0, packedOut, 0, count, 3);
+		return packedOut;
+	}
+}
@@ -0,0 +1,99 @@
+package egl.math;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Quaternion Interpolation, Polar Decomposition And Keyframe Blending
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RotationBenchmark {
+	@Param({"256"})
+	public int count;
+
+	private final Quat q1 = Quat.createRotationZ(0.4f).mul(Quat.createRotationX(-1.2f));
+	private final Quat q2 = Quat.createRotationY(2.1f).mul(Quat.createRotationX(0.3f));
+	private final Quat out = new Quat();
+	private float t = 0.37f;
+
+	private final Matrix3 axes = new Matrix3(), rotation = new Matrix3(), stretch = new Matrix3();
+
+	private float[] keys, ratios, palette;
+	private int[] from, to;
+
+	@Setup
+	public void setup() {
+		Matrix4.createRotationX(0.8f).mulBefore(Matrix4.createScale(2, 0.5f, 3)).mulBefore(Matrix4.createRotationY(-0.3f)).getAxes(axes);
+		axes.m[3] += 0.4f;
+
+		Transform a = new Transform(new Vector3(1, 2, 3), q1, new Vector3(2));
+		Transform b = new Transform(new Vector3(-4, 0, 1), q2, new Vector3(1, 3, 0.5f));
+		keys = new float[2 * Transform.PACKED_SIZE];
+		a.pack(keys, 0);
+		b.pack(keys, Transform.PACKED_SIZE);
+		from = new int[count];
+		to = new int[count];
+		ratios = new float[count];
+		palette = new float[16 * count];
+		for(int i = 0;i < count;i++) {
+			from[i] = i % 2;
+			to[i] = 1 - i % 2;
+			ratios[i] = (i + 0.5f) / count;
+		}
+	}
+
+	@Benchmark
+	public Quat slerpAllocating() {
+		return Quat.slerp(q1, q2, t);
+	}
+	@Benchmark
+	public Quat slerpInto() {
+		return Quat.slerp(q1, q2, t, out);
+	}
+	@Benchmark
+	public Quat slerpFast() {
+		return Quat.slerpFast(q1, q2, t, out);
+	}
+	@Benchmark
+	public Quat nlerp() {
+		return Quat.nlerp(q1, q2, t, out);
+	}
+
+	@Benchmark
+	public Matrix3 polarDecomposition() {
+		axes.polar_decomp(rotation, stretch);
+		return stretch;
+	}
+
+	@Benchmark
+	public float[] interpolateTRSSlerp() {
+		Transform.interpolateTRS(keys, from, to, ratios, count, Transform.ROTATION_SLERP, palette, 0);
+		return palette;
+	}
+	@Benchmark
+	public float[] interpolateTRSSlerpFast() {
+		Transform.interpolateTRS(keys, from, to, ratios, count, Transform.ROTATION_SLERP_FAST, palette, 0);
+		return palette;
+	}
+	@Benchmark
+	public float[] interpolateTRSNlerp() {
+		Transform.interpolateTRS(keys, from, to, ratios, count, Transform.ROTATION_NLERP, palette, 0);
+		return palette;
+	}
+}
@@ -0,0 +1,94 @@
+package egl.math;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Vector3 And Vector3d Arithmetic Chains, And Iteration Over Many Vectors
+ * <br>Each Chain Is Written Twice: Cloning At Each Step As Much Caller Code Does, And In Place On Scratch
+ * Vectors. Run With The GC Profiler To See Which Clones Escape Analysis Removes.</br>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VectorBenchmark {
+	@Param({"4096"})
+	public int count;
+
+	private final Vector3 a = new Vector3(1, 2, 3), b = new Vector3(-2, 0.5f, 4), c = new Vector3(0.3f, -1, 2);
+	private final Vector3 scratch = new Vector3(), scratch2 = new Vector3();
+	private final Vector3d ad = new Vector3d(1, 2, 3), bd = new Vector3d(-2, 0.5, 4), cd = new Vector3d(0.3, -1, 2);
+	private final Vector3d scratchd = new Vector3d(), scratch2d = new Vector3d();
+
+	private ArrayList<Vector3> list;
+	private Vec3fArray array;
+
+	@Setup
+	public void setup() {
+		list = new ArrayList<>(count);
+		array = new Vec3fArray(count);
+		for(int i = 0;i < count;i++) {
+			list.add(new Vector3(i, -0.5f * i, 1 - i));
+			array.add(i, -0.5f * i, 1 - i);
+		}
+	}
+
+	@Benchmark
+	public float chainCloning() {
+		return a.clone().sub(b).cross(c.clone().add(a)).normalize().addMultiple(0.5f, b).dot(c);
+	}
+	@Benchmark
+	public float chainInPlace() {
+		return scratch.set(a).sub(b).cross(scratch2.set(c).add(a)).normalize().addMultiple(0.5f, b).dot(c);
+	}
+	@Benchmark
+	public double chainCloningDouble() {
+		return ad.clone().sub(bd).cross(cd.clone().add(ad)).normalize().addMultiple(0.5, bd).dot(cd);
+	}
+	@Benchmark
+	public double chainInPlaceDouble() {
+		return scratchd.set(ad).sub(bd).cross(scratch2d.set(cd).add(ad)).normalize().addMultiple(0.5, bd).dot(cd);
+	}
+
+	@Benchmark
+	public float sumList() {
+		float sum = 0;
+		for(Vector3 v : list) sum += v.x + v.y + v.z;
+		return sum;
+	}
+	@Benchmark
+	public float sumListBoxed() {
+		float sum = 0;
+		for(Vector3 v : list) for(Float f : v) sum += f;
+		return sum;
+	}
+	@Benchmark
+	public float sumArrayCursor() {
+		float sum = 0;
+		Vec3fArray.Cursor cur = array.cursor();
+		while(cur.next()) sum += cur.x() + cur.y() + cur.z();
+		return sum;
+	}
+	@Benchmark
+	public float sumArrayData() {
+		float sum = 0;
+		float[] data = array.data();
+		for(int i = 0, n = array.size() * 3;i < n;i++) sum += data[i];
+		return sum;
+	}
+}
@@ -537,19 +537,36 @@ public class Matrix3 implements Cloneable {
 	 * Algorithm from:
 	 *    N. Higham, Computing the Polar Decomposition---with Applications
 	 *    SIAM J. Sci. Stat. Comput. 7:4 (Oct 1986) 
+	 * outQ and outP must not be this.
 	 */
 	public void polar_decomp(Matrix3 outQ, Matrix3 outP) {
 	    final float TOL = 1e-6f;
-	    Matrix3 Xprev = new Matrix3();
-	    Matrix3 X = new Matrix3(this);
-	    Matrix3 Y = new Matrix3();
+	    // outQ holds the iterate X and outP its inverse transpose Y, so nothing is allocated;
+	    // the step from X to (X + Y) / 2 is (Y - X) / 2
+	    outQ.set(this);
+	    float step, norm;
 	    do {
-	    	Y.set(X).invert();
-	    	Xprev.set(X);
-	    	X.interpolate(X, Y.transpose(), 0.5f);
-	    } while (X.clone().sub(Xprev).norm1() > TOL * Xprev.norm1());
-	    outQ.set(X);
-	    outP.set(X).transpose().mulBefore(this);
+	    	outP.set(outQ).invert().transpose();
+	    	step = 0.5f * norm1OfDifference(outP, outQ);
+	    	norm = outQ.norm1();
+	    	outQ.interpolate(outQ, outP, 0.5f);
+	    } while (step > TOL * norm);
+	    outP.set(outQ).transpose().mulBefore(this);
+	}
+	
+	/**
+	 * The 1-norm of the difference of two matrices, without forming it
+	 * @return the norm
+	 */
+	private static float norm1OfDifference(Matrix3 a, Matrix3 b) {
+		float norm = 0;
+		for (int c = 0; c < SIZE; c++) {
+			float sum = 0;
+			for (int r = 0; r < SIZE; r++)
+				sum += Math.abs(a.m[index(r,c)] - b.m[index(r,c)]);
+			norm = Math.max(norm, sum);
+		}
+		return norm;
 	}
 
 	/**
@@ -0,0 +1,230 @@
+package egl.math;
+
+/**
+ * A 3-component single-precision vector holding only its three floats
+ * <br>Unlike {@link Vector3} it is not a List, so it carries no modCount and never boxes,
+ * at the cost of not working with generic collection code. Use it for bulk data and
+ * hot loops; {@link Vec3fArray} stores many of them without any per-vector object.</br>
+ *
+ */
+public final class Vec3f implements Cloneable {
+	public static final int NUM_COMPONENTS = 3;
+
+	/**
+	 * Coordinates of the vector
+	 */
+	public float x, y, z;
+
+	/**
+	 * Inline constructor
+	 * @param _x X coordinate
+	 * @param _y Y coordinate
+	 * @param _z Z coordinate
+	 */
+	public Vec3f(float _x, float _y, float _z) {
+		x = _x;
+		y = _y;
+		z = _z;
+	}
+
+	/**
+	 * Copy constructor
+	 * @param v Vector
+	 */
+	public Vec3f(Vec3f v) {
+		this(v.x, v.y, v.z);
+	}
+
+	/**
+	 * Copy constructor
+	 * @param v Vector
+	 */
+	public Vec3f(Vector3 v) {
+		this(v.x, v.y, v.z);
+	}
+
+	/**
+	 * Zero vector constructor
+	 */
+	public Vec3f() {
+		this(0, 0, 0);
+	}
+
+	@Override
+	public String toString() {
+		return "{"+x+", "+y+", "+z+"}f";
+	}
+
+	/**
+	 * Inline setter
+	 * @param _x X coordinate
+	 * @param _y Y coordinate
+	 * @param _z Z coordinate
+	 * @return This
+	 */
+	public Vec3f set(float _x, float _y, float _z) {
+		x = _x;
+		y = _y;
+		z = _z;
+		return this;
+	}
+
+	/**
+	 * Copy setter
+	 * @param v Vector
+	 * @return This
+	 */
+	public Vec3f set(Vec3f v) {
+		return set(v.x, v.y, v.z);
+	}
+
+	/**
+	 * Copy setter
+	 * @param v Vector
+	 * @return This
+	 */
+	public Vec3f set(Vector3 v) {
+		return set(v.x, v.y, v.z);
+	}
+
+	/**
+	 * Set this vector to the zero vector
+	 * @return This
+	 */
+	public Vec3f setZero() {
+		return set(0, 0, 0);
+	}
+
+	/**
+	 * Copy this vector into a list-backed vector
+	 * @param out Non-null output vector
+	 * @return Out
+	 */
+	public Vector3 toVector3(Vector3 out) {
+		return out.set(x, y, z);
+	}
+
+	/**
+	 * In-place addition
+	 * @param v Vector
+	 * @return This
+	 */
+	public Vec3f add(Vec3f v) {
+		x += v.x;
+		y += v.y;
+		z += v.z;
+		return this;
+	}
+
+	/**
+	 * In-place scaled addition
+	 * <pre>
+	 * This = This + s * v
+	 * </pre>
+	 * @param s Scaling factor
+	 * @param v Vector
+	 * @return This
+	 */
+	public Vec3f addMultiple(float s, Vec3f v) {
+		x += s * v.x;
+		y += s * v.y;
+		z += s * v.z;
+		return this;
+	}
+
+	/**
+	 * In-place subtraction
+	 * @param v Vector
+	 * @return This
+	 */
+	public Vec3f sub(Vec3f v) {
+		x -= v.x;
+		y -= v.y;
+		z -= v.z;
+		return this;
+	}
+
+	/**
+	 * In-place scaling
+	 * @param s Scaling factor
+	 * @return This
+	 */
+	public Vec3f mul(float s) {
+		x *= s;
+		y *= s;
+		z *= s;
+		return this;
+	}
+
+	/**
+	 * This vector's dot product with another
+	 * @param v Vector
+	 * @return Dot product
+	 */
+	public float dot(Vec3f v) {
+		return x * v.x + y * v.y + z * v.z;
+	}
+
+	/**
+	 * This vector's dot product with itself
+	 * @return Squared length
+	 */
+	public float lenSq() {
+		return x * x + y * y + z * z;
+	}
+
+	/**
+	 * @return Length of this vector
+	 */
+	public float len() {
+		return (float)Math.sqrt(lenSq());
+	}
+
+	/**
+	 * In-place cross product
+	 * <pre>
+	 * This = cross(This,v)
+	 * </pre>
+	 * @param v Vector
+	 * @return This
+	 */
+	public Vec3f cross(Vec3f v) {
+		return set(
+			y * v.z - z * v.y,
+			z * v.x - x * v.z,
+			x * v.y - y * v.x
+			);
+	}
+
+	/**
+	 * In-place normalization
+	 * @return This
+	 */
+	public Vec3f normalize() {
+		return mul(1 / len());
+	}
+
+	/**
+	 * Checks component equality between this vector and another
+	 * @param v Vector
+	 * @return True if all components equal
+	 */
+	public boolean equals(Vec3f v) {
+		return x == v.x && y == v.y && z == v.z;
+	}
+
+	/**
+	 * Checks approximate component equality between this vector and another
+	 * @param v Vector
+	 * @param epsilon Approximation Factor
+	 * @return True if maximum difference between components less than epsilon in magnitude
+	 */
+	public boolean equalsApprox(Vec3f v, float epsilon) {
+		return Math.abs(x - v.x) < epsilon && Math.abs(y - v.y) < epsilon && Math.abs(z - v.z) < epsilon;
+	}
+
+	@Override
+	public Vec3f clone() {
+		return new Vec3f(this);
+	}
+}
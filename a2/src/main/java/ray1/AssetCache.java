@@ -0,0 +1,90 @@
+package ray1;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Keeps meshes and texture images that have been loaded from disk, so that a
+ * file used by several surfaces, or by several scenes rendered by the same
+ * process (see RenderDaemon), is read only once.  An entry is reloaded if its
+ * file has been modified since it was read.
+ *
+ * The cached objects are shared, so they must not be modified by their users.
+ */
+public class AssetCache {
+
+	private static class Entry<T> {
+		final T value;
+		final long lastModified;
+
+		Entry(T value, long lastModified) {
+			this.value = value;
+			this.lastModified = lastModified;
+		}
+	}
+
+	private static final HashMap<String, Entry<OBJMesh>> meshes = new HashMap<String, Entry<OBJMesh>>();
+	private static final HashMap<String, Entry<BufferedImage>> images = new HashMap<String, Entry<BufferedImage>>();
+
+	/** The number of requests served from the cache and from disk, for reporting. */
+	private static int hits = 0, misses = 0;
+
+	/**
+	 * Return the mesh in an OBJ file, reading it if it is not cached.
+	 *
+	 * @param fileName the absolute name of the file
+	 */
+	public static synchronized OBJMesh getMesh(String fileName) throws IOException {
+		long lastModified = new File(fileName).lastModified();
+		Entry<OBJMesh> e = meshes.get(fileName);
+		if (e != null && e.lastModified == lastModified) {
+			hits++;
+			return e.value;
+		}
+		misses++;
+		OBJMesh mesh = new OBJMesh(fileName);
+		meshes.put(fileName, new Entry<OBJMesh>(mesh, lastModified));
+		return mesh;
+	}
+
+	/**
+	 * Return the image in a file, reading it if it is not cached.
+	 *
+	 * @param fileName the absolute name of the file
+	 */
+	public static synchronized BufferedImage getImage(String fileName) throws IOException {
+		File f = new File(fileName);
+		long lastModified = f.lastModified();
+		Entry<BufferedImage> e = images.get(fileName);
+		if (e != null && e.lastModified == lastModified) {
+			hits++;
+			return e.value;
+		}
+		misses++;
+		BufferedImage image = ImageIO.read(f);
+		if (image == null)
+			throw new IOException("Unsupported image format: " + fileName);
+		images.put(fileName, new Entry<BufferedImage>(image, lastModified));
+		return image;
+	}
+
+	/**
+	 * Remove everything from the cache.
+	 */
+	public static synchronized void clear() {
+		meshes.clear();
+		images.clear();
+	}
+
+	/**
+	 * Describe what the cache holds and how often it has been used.
+	 */
+	public static synchronized String describe() {
+		return meshes.size() + " meshes and " + images.size() + " images cached, "
+				+ hits + " hits, " + misses + " misses";
+	}
+}
@@ -1,6 +1,7 @@
 package ray1;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
@@ -246,7 +247,8 @@ public class OBJMesh {
 			System.out.println("Verifying mesh...");
 		}
 
-		int nPos = 0, nDupPos = 0;
+		int nPos = 0;
+		long nDupPos = 0;
 		if (positions != null && !positions.isEmpty()) {
 			nPos = positions.size();
 
@@ -259,12 +261,9 @@ public class OBJMesh {
 				}
 			}
 
-			for (int i=0; i<positions.size(); i++) {
-				for (int j=i+1; j<positions.size(); j++) {
-					if (positions.get(i).equalsApprox(positions.get(j))) {
-						nDupPos++;
-					}
-				}
+			// Only reported in verbose mode; a spatial hash avoids testing all pairs
+			if (verbose) {
+				nDupPos = new ApproxPointGrid(pack3(positions), 3, EPSILON).countApproxEqualPairs();
 			}
 		}
 		if (verbose) {
@@ -443,6 +442,23 @@ public class OBJMesh {
 		return true;
 	}
 
+	/** The tolerance of equalsApprox(), which isValid() uses to find duplicates. */
+	private static final float EPSILON = 1e-5f;
+
+	/**
+	 * Copies vectors into a flat array for an ApproxPointGrid, with NaN for null entries.
+	 */
+	private static float[] pack3(ArrayList<Vector3> vectors) {
+		float[] coords = new float[3 * vectors.size()];
+		for (int i=0; i<vectors.size(); i++) {
+			Vector3 v = vectors.get(i);
+			coords[3*i] = v == null ? Float.NaN : v.x;
+			coords[3*i+1] = v == null ? Float.NaN : v.y;
+			coords[3*i+2] = v == null ? Float.NaN : v.z;
+		}
+		return coords;
+	}
+
 	/**
 	 * Returns true if two OBJMeshes are equivalent.
 	 * Equivalent means all of the following are true:
@@ -451,7 +467,8 @@ public class OBJMesh {
 	 * 3) For each face in m2, a face exists in m1 with the same vertex positions, texture coordinates, and normals (if applicable)
 	 * If verbose is true and this method returns false, the reason the meshes are not equivalent will be printed.
 	 * @warning This method assumes that m1.isValid() and m2.isValid() are both true.
-	 * @note This method does a brute force comparison between all faces of both input meshes...be patient if using large meshes.
+	 * @note Only faces sharing a vertex position are compared, which are found through a spatial hash, so this takes
+	 * roughly linear time; the result and diagnostics are the same as comparing every pair of faces in order.
 	 */
 	public static boolean compare(OBJMesh m1, OBJMesh m2, boolean verbose) {
 		if (m1.faces.size() != m2.faces.size()) {
@@ -461,10 +478,13 @@ public class OBJMesh {
 			return false;
 		}
 
+		FaceLocator inM2 = new FaceLocator(m2, EPSILON);
 		for (int i1=0; i1<m1.faces.size(); i1++) {
 			OBJFace f1 = m1.faces.get(i1);
 			boolean foundMatch = false;
-			for (int i2=0; !foundMatch && i2<m2.faces.size(); i2++) {
+			int nCandidates = inM2.find(m1.getPosition(f1, 0));
+			for (int c=0; !foundMatch && c<nCandidates; c++) {
+				int i2 = inM2.candidate(c);
 				OBJFace f2 = m2.faces.get(i2);
 				int comp = compareFaces(m1, f1, m2, f2);
 				if (comp == 2 && verbose) {
@@ -483,10 +503,13 @@ public class OBJMesh {
 			}
 		}
 
+		FaceLocator inM1 = new FaceLocator(m1, EPSILON);
 		for (int i2=0; i2<m2.faces.size(); i2++) {
 			OBJFace f2 = m2.faces.get(i2);
 			boolean foundMatch = false;
-			for (int i1=0; !foundMatch && i1<m1.faces.size(); i1++) {
+			int nCandidates = inM1.find(m2.getPosition(f2, 0));
+			for (int c=0; !foundMatch && c<nCandidates; c++) {
+				int i1 = inM1.candidate(c);
 				OBJFace f1 = m1.faces.get(i1);
 				int comp = compareFaces(m1, f1, m2, f2);
 				if (comp == 2 && verbose) {
@@ -508,6 +531,83 @@ public class OBJMesh {
 		return true;
 	}
 
+	/**
+	 * Finds the faces of a mesh that could match a face of another mesh, for compare().
+	 * A matching face has a vertex at every vertex position of the other face, so it uses a position within
+	 * eps of the other face's first vertex. Those positions are looked up in a spatial hash, which leaves a few
+	 * candidate faces to compare instead of all of them.
+	 */
+	private static class FaceLocator {
+		private final ApproxPointGrid grid;
+		/** The faces using position i are facesAt[facesStart[i], facesStart[i+1]). */
+		private final int[] facesStart, facesAt;
+		/** The last query in which each face was found, to report it once. */
+		private final int[] seen;
+		private int query;
+		private int[] found = new int[16];
+		private int nFound;
+		private final float[] point = new float[3];
+
+		FaceLocator(OBJMesh m, float eps) {
+			int nPos = m.positions.size();
+			// Nothing is within a non-positive eps of anything, so there is nothing to index
+			grid = eps > 0 ? new ApproxPointGrid(pack3(m.positions), 3, eps) : null;
+			facesStart = new int[nPos + 1];
+			for (OBJFace f : m.faces) {
+				for (int k=0; k<f.numVerts(); k++) {
+					facesStart[f.positions[k] - OBJFace.indexBase + 1]++;
+				}
+			}
+			for (int i=0; i<nPos; i++) {
+				facesStart[i+1] += facesStart[i];
+			}
+			facesAt = new int[facesStart[nPos]];
+			int[] next = Arrays.copyOf(facesStart, nPos);
+			for (int i=0; i<m.faces.size(); i++) {
+				OBJFace f = m.faces.get(i);
+				for (int k=0; k<f.numVerts(); k++) {
+					facesAt[next[f.positions[k] - OBJFace.indexBase]++] = i;
+				}
+			}
+			seen = new int[m.faces.size()];
+		}
+
+		/**
+		 * Finds the faces using a position within eps of p, and returns how many there are.
+		 * Their indices are then given by candidate(0) to candidate(n-1), in increasing order.
+		 */
+		int find(Vector3 p) {
+			nFound = 0;
+			query++;
+			if (grid != null) {
+				point[0] = p.x;
+				point[1] = p.y;
+				point[2] = p.z;
+				grid.forEachNear(point, 0, -1, this::addFacesAt);
+				Arrays.sort(found, 0, nFound);
+			}
+			return nFound;
+		}
+
+		int candidate(int i) {
+			return found[i];
+		}
+
+		private boolean addFacesAt(int position) {
+			for (int k=facesStart[position]; k<facesStart[position+1]; k++) {
+				int face = facesAt[k];
+				if (seen[face] != query) {
+					seen[face] = query;
+					if (nFound == found.length) {
+						found = Arrays.copyOf(found, 2 * nFound);
+					}
+					found[nFound++] = face;
+				}
+			}
+			return true;
+		}
+	}
+
 	/**
 	 * Returns 0 if the input faces are not equivalent.
 	 * Returns 1 if the input faces are equivalent.
@@ -3,6 +3,7 @@ package ray1;
 import java.io.File;
 import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -456,6 +457,14 @@ public class Parser {
 					foundMethod.invoke(resultingObject,
 							new Object[] { childValue });
 
+				} catch (InvocationTargetException e) {
+					// The setter rejected its value (for instance a texture file that cannot
+					// be read); fail the parse rather than render a scene missing it
+					if (e.getCause() instanceof RuntimeException)
+						throw (RuntimeException) e.getCause();
+					System.err.println("Error invoking the method "
+							+ foundMethod.getName() + ".");
+					e.printStackTrace();
 				} catch (Exception e) {
 					System.err.println("Error invoking the method "
 							+ foundMethod.getName() + ".");
@@ -163,6 +163,8 @@ public class RayTracer {
 
 			// Parse the input file
 			Scene scene = (Scene) parser.parse(sceneWorkspace.getFile(), Scene.class);
+			if (scene == null)
+				continue;
 			
 			// Initialize the scene
 			scene.init();
@@ -171,15 +173,29 @@ public class RayTracer {
 			renderImage(scene);
 
 			// Write the image out
-			if (writeHDR)
-			{
-				scene.getImage().writeHDR(sceneWorkspace.getFile() + ".exr");
-			}
-			else
-			{
-				scene.getImage().write(sceneWorkspace.getFile() + ".png");
-			}
+			writeImage(scene);
+		}
+	}
+
+	/**
+	 * Write the rendered image of the current scene next to its scene file.
+	 *
+	 * @param scene The scene that has been rendered
+	 * @return the name of the file written
+	 */
+	public String writeImage(Scene scene) {
+		String fileName;
+		if (writeHDR)
+		{
+			fileName = sceneWorkspace.getFile() + ".exr";
+			scene.getImage().writeHDR(fileName);
+		}
+		else
+		{
+			fileName = sceneWorkspace.getFile() + ".png";
+			scene.getImage().write(fileName);
 		}
+		return fileName;
 	}
 	
 	/**
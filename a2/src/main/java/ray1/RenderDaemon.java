@@ -0,0 +1,160 @@
+package ray1;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A long-running ray tracer that renders scenes on request, so that a series of
+ * renders (for instance, previews while a scene is edited) pays for starting the
+ * JVM, loading classes and compiling the tracer only once.  Meshes and textures
+ * are kept in the AssetCache between jobs, so unchanged files are not read again.
+ *
+ * The daemon listens on a port of the loopback interface and handles one
+ * connection at a time.  A client sends commands, one per line:
+ *
+ *   path/to/scene.xml   render a scene (resolved like a RayTracer argument)
+ *   stats               report what the asset cache holds
+ *   clear               empty the asset cache
+ *   shutdown            stop the daemon
+ *
+ * and gets back one line per command.  For a scene this is
+ *
+ *   ok <output file> parse=<ms> init=<ms> render=<ms> write=<ms> total=<ms>
+ *
+ * or "error <message>" if it could not be rendered.  For example:
+ *
+ *   echo data/scenes/ray1/one-sphere.xml | nc localhost 4620
+ *
+ * Usage: java ray1.RenderDaemon [-port n] [-p path | -pnull]
+ */
+public class RenderDaemon {
+
+	/** The port listened on if none is given. */
+	public static final int DEFAULT_PORT = 4620;
+
+	private final String root;
+	private final RayTracer rayTracer = new RayTracer();
+	private final Parser parser = new Parser();
+	private boolean running = true;
+
+	public RenderDaemon(String root) {
+		this.root = root;
+	}
+
+	public static void main(String[] args) throws IOException {
+		int port = DEFAULT_PORT;
+		String root = RayTracer.directory;
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i].toLowerCase()) {
+			case "-port":
+				port = Integer.parseInt(args[++i]);
+				break;
+			case "-p":
+				root = args[++i];
+				break;
+			case "-pnull":
+				root = null;
+				break;
+			default:
+				System.out.println("Usage: java ray1.RenderDaemon [-port n] [-p path | -pnull]");
+				return;
+			}
+		}
+		new RenderDaemon(root).serve(port);
+	}
+
+	/**
+	 * Accept connections and handle their commands until a shutdown command.
+	 *
+	 * @param port the port to listen on
+	 */
+	public void serve(int port) throws IOException {
+		try (ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+			System.out.println("Render daemon listening on " + server.getLocalSocketAddress());
+			while (running) {
+				try (Socket socket = server.accept()) {
+					handle(socket);
+				} catch (IOException e) {
+					System.err.println("Connection failed: " + e);
+				}
+			}
+		}
+	}
+
+	private void handle(Socket socket) throws IOException {
+		BufferedReader in = new BufferedReader(
+				new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+		PrintWriter out = new PrintWriter(
+				new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true);
+		String line;
+		while (running && (line = in.readLine()) != null) {
+			line = line.trim();
+			if (line.isEmpty())
+				continue;
+			switch (line) {
+			case "stats":
+				out.println("ok " + AssetCache.describe());
+				break;
+			case "clear":
+				AssetCache.clear();
+				out.println("ok");
+				break;
+			case "shutdown":
+				running = false;
+				out.println("ok");
+				break;
+			default:
+				out.println(render(line));
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Render one scene and describe the result.
+	 *
+	 * @param fileName the scene file, relative to the root
+	 * @return the reply to send to the client
+	 */
+	public String render(String fileName) {
+		try {
+			RayTracer.sceneWorkspace = new RayTracer.ScenePath(root, fileName);
+			if (!RayTracer.sceneWorkspace.file.toFile().isFile())
+				return "error no such scene: " + RayTracer.sceneWorkspace.getFile();
+
+			long start = System.nanoTime();
+			Parser.references.clear();
+			Scene scene = (Scene) parser.parse(RayTracer.sceneWorkspace.getFile(), Scene.class);
+			if (scene == null)
+				return "error could not parse " + RayTracer.sceneWorkspace.getFile();
+			long parsed = System.nanoTime();
+			scene.init();
+			long initialized = System.nanoTime();
+			rayTracer.renderImage(scene);
+			long rendered = System.nanoTime();
+			String output = rayTracer.writeImage(scene);
+			long written = System.nanoTime();
+
+			return "ok " + output
+					+ " parse=" + millis(start, parsed)
+					+ " init=" + millis(parsed, initialized)
+					+ " render=" + millis(initialized, rendered)
+					+ " write=" + millis(rendered, written)
+					+ " total=" + millis(start, written);
+		} catch (Throwable e) {
+			e.printStackTrace();
+			return "error " + e;
+		}
+	}
+
+	private static String millis(long from, long to) {
+		return ((to - from) / 1000000) + "ms";
+	}
+}
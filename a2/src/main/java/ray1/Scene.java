@@ -69,6 +69,10 @@ public class Scene {
 	public void addBRDF(BRDF toAdd) { brdfs.add(toAdd); }
 	public List<BRDF> getBrdfs() { return this.brdfs; }
 	
+	/** The acceleration structure, built by init. */
+	protected UniformGrid grid = null;
+	public UniformGrid getGrid() { return this.grid; }
+
 	/** Image to be produced by the renderer **/
 	protected Image outputImage;
 	public Image getImage() { return this.outputImage; }
@@ -97,8 +101,12 @@ public class Scene {
 		//initialize surfaces
 		for ( Surface surface : getSurfaces()) {
 			surface.init();
+			surface.computeBoundingBox();
 		}
 		
+		//build the acceleration grid from the surfaces' bounds
+		grid = new UniformGrid(getSurfaces());
+		
 		//initialize shaders
 		for (Shader shader : getShaders()) {
 			shader.init();
@@ -137,6 +145,13 @@ public class Scene {
 	}
 	
 	private boolean intersect(IntersectionRecord outRecord, Ray rayIn, boolean anyIntersection) {
+		// Use the grid once init has built it
+		if (grid != null)
+			return grid.intersect(outRecord, rayIn, anyIntersection);
+		return intersectSurfaces(outRecord, rayIn, anyIntersection);
+	}
+	
+	private boolean intersectSurfaces(IntersectionRecord outRecord, Ray rayIn, boolean anyIntersection) {
 		// TODO#A2: 1) Loop through all surfaces in the scene.
 		//		    2) Intersect each with a copy of the given ray.
 		//		    3) If there was an intersection, check the modified IntersectionRecord to see
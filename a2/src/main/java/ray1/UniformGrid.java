@@ -0,0 +1,296 @@
+package ray1;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import egl.math.Vector3d;
+import ray1.surface.Surface;
+
+/**
+ * A uniform grid over the bounding boxes of a scene's surfaces, traversed with
+ * a 3D-DDA [Amanatides and Woo 1987] so that each ray is tested only against
+ * the surfaces in the cells it passes through.
+ *
+ * The grid has about DENSITY cells per surface, shaped to the proportions of
+ * the scene's bounds.  The surfaces overlapping each cell are stored in one
+ * array, indexed by the start of each cell's run.  Surfaces without bounds are
+ * tested against every ray before the grid is walked.
+ *
+ * The closest hit is found by walking cells front to back and stopping at the
+ * first cell that ends beyond the closest hit so far.  A surface that spans
+ * several cells is tested only once per ray, using a per-thread record of the
+ * last ray each surface was tested against.  For shadow rays, the walk stops
+ * at the first hit of any kind.
+ */
+public class UniformGrid {
+
+	/** The number of cells per surface. */
+	public static final double DENSITY = 4;
+
+	/** The largest number of cells along any axis. */
+	public static final int MAX_RESOLUTION = 512;
+
+	/** Surfaces with bounds, placed in the grid. */
+	private final Surface[] surfaces;
+
+	/** Surfaces without bounds, tested against every ray. */
+	private final Surface[] unbounded;
+
+	/** The bounds of the grid and the size of each cell. */
+	private final double[] min = new double[3];
+	private final double[] max = new double[3];
+	private final double[] cellSize = new double[3];
+
+	/** The number of cells along each axis. */
+	private final int[] resolution = new int[3];
+
+	/**
+	 * The surfaces overlapping cell c are surfaces[cellSurfaces[cellStart[c]]]
+	 * through surfaces[cellSurfaces[cellStart[c + 1] - 1]].
+	 */
+	private final int[] cellStart;
+	private final int[] cellSurfaces;
+
+	/** For each thread, the last ray each surface was tested against. */
+	private final ThreadLocal<Mailbox> mailboxes;
+
+	private static class Mailbox {
+		final int[] lastRay;
+		int rayId = 0;
+
+		Mailbox(int n) {
+			lastRay = new int[n];
+		}
+
+		int nextRay() {
+			if (rayId == Integer.MAX_VALUE) {
+				Arrays.fill(lastRay, 0);
+				rayId = 0;
+			}
+			return ++rayId;
+		}
+	}
+
+	/**
+	 * Build a grid over the given surfaces, whose bounds must already have been
+	 * computed.
+	 *
+	 * @param in the surfaces to place in the grid
+	 */
+	public UniformGrid(List<Surface> in) {
+		ArrayList<Surface> bounded = new ArrayList<Surface>();
+		ArrayList<Surface> others = new ArrayList<Surface>();
+		Arrays.fill(min, Double.POSITIVE_INFINITY);
+		Arrays.fill(max, Double.NEGATIVE_INFINITY);
+		for (Surface s : in) {
+			Vector3d lo = s.getMinBound(), hi = s.getMaxBound();
+			if (lo == null || hi == null || !isFinite(lo) || !isFinite(hi)) {
+				others.add(s);
+				continue;
+			}
+			bounded.add(s);
+			for (int a = 0; a < 3; a++) {
+				min[a] = Math.min(min[a], component(lo, a));
+				max[a] = Math.max(max[a], component(hi, a));
+			}
+		}
+		surfaces = bounded.toArray(new Surface[bounded.size()]);
+		unbounded = others.toArray(new Surface[others.size()]);
+		final int n = surfaces.length;
+		mailboxes = ThreadLocal.withInitial(() -> new Mailbox(n));
+
+		if (n == 0) {
+			cellStart = new int[] { 0, 0 };
+			cellSurfaces = new int[0];
+			Arrays.fill(min, 0);
+			Arrays.fill(max, 0);
+			Arrays.fill(resolution, 1);
+			return;
+		}
+
+		chooseResolution(n);
+
+		// Count the surfaces in each cell, then place them
+		int[] range = new int[6];
+		cellStart = new int[resolution[0] * resolution[1] * resolution[2] + 1];
+		for (int i = 0; i < n; i++) {
+			cellRange(surfaces[i], range);
+			for (int z = range[2]; z <= range[5]; z++)
+				for (int y = range[1]; y <= range[4]; y++)
+					for (int x = range[0]; x <= range[3]; x++)
+						cellStart[cellIndex(x, y, z) + 1]++;
+		}
+		for (int c = 1; c < cellStart.length; c++)
+			cellStart[c] += cellStart[c - 1];
+
+		cellSurfaces = new int[cellStart[cellStart.length - 1]];
+		int[] next = Arrays.copyOf(cellStart, cellStart.length - 1);
+		for (int i = 0; i < n; i++) {
+			cellRange(surfaces[i], range);
+			for (int z = range[2]; z <= range[5]; z++)
+				for (int y = range[1]; y <= range[4]; y++)
+					for (int x = range[0]; x <= range[3]; x++)
+						cellSurfaces[next[cellIndex(x, y, z)]++] = i;
+		}
+	}
+
+	/**
+	 * Choose the number of cells along each axis, about DENSITY * n in all, with
+	 * cells as close to cubes as possible.  Axes along which the scene is flat
+	 * get a single cell.
+	 */
+	private void chooseResolution(int n) {
+		double largest = Math.max(max[0] - min[0], Math.max(max[1] - min[1], max[2] - min[2]));
+		double pad = Math.max(largest, 1) * 1e-6;
+		double volume = 1;
+		int dims = 0;
+		boolean[] flat = new boolean[3];
+		for (int a = 0; a < 3; a++) {
+			// Pad the bounds slightly so surfaces on the boundary are inside
+			min[a] -= pad;
+			max[a] += pad;
+			flat[a] = max[a] - min[a] <= 1e-3 * largest;
+			if (!flat[a]) {
+				volume *= max[a] - min[a];
+				dims++;
+			}
+		}
+		double cellsPerUnit = dims == 0 ? 0 : Math.pow(DENSITY * n / volume, 1.0 / dims);
+		for (int a = 0; a < 3; a++) {
+			resolution[a] = flat[a] ? 1 : (int) Math.max(1, Math.min(MAX_RESOLUTION,
+					Math.round((max[a] - min[a]) * cellsPerUnit)));
+			cellSize[a] = (max[a] - min[a]) / resolution[a];
+		}
+	}
+
+	/**
+	 * Set range to the first and last cell a surface overlaps along each axis:
+	 * x0, y0, z0, x1, y1, z1.
+	 */
+	private void cellRange(Surface s, int[] range) {
+		for (int a = 0; a < 3; a++) {
+			range[a] = cellCoordinate(a, component(s.getMinBound(), a));
+			range[a + 3] = cellCoordinate(a, component(s.getMaxBound(), a));
+		}
+	}
+
+	private int cellCoordinate(int axis, double p) {
+		int c = (int) Math.floor((p - min[axis]) / cellSize[axis]);
+		return Math.max(0, Math.min(resolution[axis] - 1, c));
+	}
+
+	private int cellIndex(int x, int y, int z) {
+		return (z * resolution[1] + y) * resolution[0] + x;
+	}
+
+	private static double component(Vector3d v, int axis) {
+		return axis == 0 ? v.x : axis == 1 ? v.y : v.z;
+	}
+
+	private static boolean isFinite(Vector3d v) {
+		return !Double.isInfinite(v.x) && !Double.isInfinite(v.y) && !Double.isInfinite(v.z)
+				&& !Double.isNaN(v.x) && !Double.isNaN(v.y) && !Double.isNaN(v.z);
+	}
+
+	/**
+	 * Intersect a ray with the surfaces in the grid.  If anyIntersection is
+	 * false, outRecord is set to the first intersection; otherwise the search
+	 * stops at the first intersection found.  If there is no intersection
+	 * outRecord is unchanged.
+	 *
+	 * @param outRecord the output IntersectionRecord
+	 * @param rayIn the ray to intersect
+	 * @param anyIntersection whether any intersection will do
+	 * @return true if an intersection is found
+	 */
+	public boolean intersect(IntersectionRecord outRecord, Ray rayIn, boolean anyIntersection) {
+		Ray ray = new Ray(rayIn);
+		IntersectionRecord record = new IntersectionRecord();
+		boolean hit = false;
+
+		for (Surface s : unbounded) {
+			if (s.intersect(record, ray)) {
+				if (anyIntersection)
+					return true;
+				hit = true;
+				outRecord.set(record);
+				ray.end = record.t;
+			}
+		}
+		if (surfaces.length == 0)
+			return hit;
+
+		// Clip the ray to the grid
+		double[] origin = { ray.origin.x, ray.origin.y, ray.origin.z };
+		double[] direction = { ray.direction.x, ray.direction.y, ray.direction.z };
+		double t0 = ray.start, t1 = ray.end;
+		for (int a = 0; a < 3; a++) {
+			if (direction[a] == 0) {
+				if (origin[a] < min[a] || origin[a] > max[a])
+					return hit;
+				continue;
+			}
+			double tNear = (min[a] - origin[a]) / direction[a];
+			double tFar = (max[a] - origin[a]) / direction[a];
+			if (tNear > tFar) {
+				double tmp = tNear;
+				tNear = tFar;
+				tFar = tmp;
+			}
+			t0 = Math.max(t0, tNear);
+			t1 = Math.min(t1, tFar);
+		}
+		if (t0 > t1)
+			return hit;
+
+		// Set up the walk from the cell where the ray enters
+		int[] cell = new int[3], step = new int[3];
+		double[] tNext = new double[3], tDelta = new double[3];
+		for (int a = 0; a < 3; a++) {
+			cell[a] = cellCoordinate(a, origin[a] + t0 * direction[a]);
+			if (direction[a] > 0) {
+				step[a] = 1;
+				tNext[a] = (min[a] + (cell[a] + 1) * cellSize[a] - origin[a]) / direction[a];
+				tDelta[a] = cellSize[a] / direction[a];
+			} else if (direction[a] < 0) {
+				step[a] = -1;
+				tNext[a] = (min[a] + cell[a] * cellSize[a] - origin[a]) / direction[a];
+				tDelta[a] = -cellSize[a] / direction[a];
+			} else {
+				step[a] = 0;
+				tNext[a] = Double.POSITIVE_INFINITY;
+				tDelta[a] = Double.POSITIVE_INFINITY;
+			}
+		}
+
+		Mailbox mailbox = mailboxes.get();
+		int rayId = mailbox.nextRay();
+		while (true) {
+			int c = cellIndex(cell[0], cell[1], cell[2]);
+			for (int k = cellStart[c]; k < cellStart[c + 1]; k++) {
+				int i = cellSurfaces[k];
+				if (mailbox.lastRay[i] == rayId)
+					continue;
+				mailbox.lastRay[i] = rayId;
+				if (surfaces[i].intersect(record, ray)) {
+					if (anyIntersection)
+						return true;
+					hit = true;
+					outRecord.set(record);
+					ray.end = record.t;
+				}
+			}
+
+			// Step to the next cell along the axis whose boundary is nearest
+			int a = tNext[0] < tNext[1] ? (tNext[0] < tNext[2] ? 0 : 2) : (tNext[1] < tNext[2] ? 1 : 2);
+			double tExit = tNext[a];
+			if (tExit >= ray.end || tExit > t1)
+				return hit;
+			cell[a] += step[a];
+			if (cell[a] < 0 || cell[a] >= resolution[a])
+				return hit;
+			tNext[a] += tDelta[a];
+		}
+	}
+}
@@ -1,11 +1,10 @@
 package ray1.shader;
 
 import java.awt.image.BufferedImage;
-import java.io.File;
-
-import javax.imageio.ImageIO;
+import java.io.IOException;
 
 import ray1.shader.Texture;
+import ray1.AssetCache;
 import ray1.RayTracer;
 import egl.math.Colorf;
 import egl.math.Vector2;
@@ -22,15 +21,17 @@ public abstract class Texture {
 	protected BufferedImage image;
 	/** Return the BufferedImage used for lookup. */
 	public BufferedImage getImage() { return image; }
-	/** Set the BufferedImage from a given file on disk. */
+	/**
+	 * Set the BufferedImage from a given file on disk.
+	 *
+	 * @throws IllegalArgumentException if the file cannot be read as an image
+	 */
 	public void setImage(String filename) {
 		System.out.println("Loading: " + RayTracer.sceneWorkspace.resolve(filename));
 		try {
-			File f = new File(RayTracer.sceneWorkspace.resolve(filename));
-			image = ImageIO.read(f);
-		} catch (Exception e) {
-			System.err.println("Error loading texture: " + e);
-			System.exit(1);
+			image = AssetCache.getImage(RayTracer.sceneWorkspace.resolve(filename));
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Error loading texture " + filename, e);
 		}
 	}
 	
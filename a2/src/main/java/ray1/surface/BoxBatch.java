@@ -0,0 +1,198 @@
+package ray1.surface;
+
+import java.util.Arrays;
+import java.util.List;
+
+import ray1.Ray;
+
+/**
+ * Many axis-aligned boxes stored as separate arrays of corner coordinates,
+ * with kernels that intersect one ray with all of them, or many rays with one
+ * of them.  The slab test needs a min and a max per axis, which C2 does not
+ * compile to SIMD code, so the kernels first cull the boxes with the
+ * discriminant pass of SphereBatch on their bounding spheres, and then do the
+ * slab test only for boxes whose bounding sphere the ray's line hits.
+ *
+ * A ray hits a box where it enters it, or where it leaves it if it starts
+ * inside, as long as that is in [ray.start, ray.end]; a miss is reported as
+ * positive infinity.
+ */
+public class BoxBatch {
+
+	/** The number of boxes. */
+	private final int size;
+
+	/** The smallest and largest corners of the boxes. */
+	private final double[] minX, minY, minZ, maxX, maxY, maxZ;
+
+	/** Spheres around the boxes, slightly enlarged so rounding cannot cull a hit. */
+	private final SphereBatch bounds;
+
+	/** How much the bounding spheres are enlarged, relative to their radius. */
+	private static final double BOUNDS_MARGIN = 1e-6;
+
+	/**
+	 * Create a batch from arrays of corners, which are copied.
+	 */
+	public BoxBatch(double[] minX, double[] minY, double[] minZ, double[] maxX, double[] maxY, double[] maxZ) {
+		size = minX.length;
+		this.minX = Arrays.copyOf(minX, size);
+		this.minY = Arrays.copyOf(minY, size);
+		this.minZ = Arrays.copyOf(minZ, size);
+		this.maxX = Arrays.copyOf(maxX, size);
+		this.maxY = Arrays.copyOf(maxY, size);
+		this.maxZ = Arrays.copyOf(maxZ, size);
+		bounds = boundingSpheres();
+	}
+
+	/**
+	 * Create a batch from Box surfaces.
+	 */
+	public BoxBatch(List<Box> boxes) {
+		size = boxes.size();
+		minX = new double[size];
+		minY = new double[size];
+		minZ = new double[size];
+		maxX = new double[size];
+		maxY = new double[size];
+		maxZ = new double[size];
+		for (int i = 0; i < size; i++) {
+			Box b = boxes.get(i);
+			minX[i] = b.minPt.x;
+			minY[i] = b.minPt.y;
+			minZ[i] = b.minPt.z;
+			maxX[i] = b.maxPt.x;
+			maxY[i] = b.maxPt.y;
+			maxZ[i] = b.maxPt.z;
+		}
+		bounds = boundingSpheres();
+	}
+
+	private SphereBatch boundingSpheres() {
+		double[] cx = new double[size], cy = new double[size], cz = new double[size], r = new double[size];
+		for (int i = 0; i < size; i++) {
+			cx[i] = 0.5 * (minX[i] + maxX[i]);
+			cy[i] = 0.5 * (minY[i] + maxY[i]);
+			cz[i] = 0.5 * (minZ[i] + maxZ[i]);
+			double hx = maxX[i] - cx[i], hy = maxY[i] - cy[i], hz = maxZ[i] - cz[i];
+			r[i] = Math.sqrt(hx * hx + hy * hy + hz * hz) * (1 + BOUNDS_MARGIN);
+		}
+		return new SphereBatch(cx, cy, cz, r);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Intersect one ray with every box.
+	 *
+	 * @param ray the ray
+	 * @param tOut receives the ray parameter of the hit with each box, or
+	 *   infinity for a miss; it must have at least size() elements
+	 */
+	public void intersect(Ray ray, double[] tOut) {
+		bounds.discriminants(ray, tOut);
+		final double ox = ray.origin.x, oy = ray.origin.y, oz = ray.origin.z;
+		final double ix = 1 / ray.direction.x, iy = 1 / ray.direction.y, iz = 1 / ray.direction.z;
+		for (int i = 0; i < size; i++)
+			tOut[i] = tOut[i] < 0 ? Double.POSITIVE_INFINITY
+					: slab(i, ox, oy, oz, ix, iy, iz, ray.start, ray.end);
+	}
+
+	/**
+	 * Find the first box hit by a ray.
+	 *
+	 * @param ray the ray
+	 * @param scratch an array of at least size() elements to work in
+	 * @return the index of the box, or -1 if the ray hits none; its hit is
+	 *   at scratch[index]
+	 */
+	public int intersectFirst(Ray ray, double[] scratch) {
+		intersect(ray, scratch);
+		return SphereBatch.indexOfMin(scratch, size);
+	}
+
+	/**
+	 * Intersect many rays with one box.  The rays are given as arrays of
+	 * origins and directions and share the interval [tMin, tMax].
+	 *
+	 * @param box the index of the box
+	 * @param tOut receives the ray parameter of each ray's hit, or infinity
+	 */
+	public void intersectRays(int box, int count, double[] ox, double[] oy, double[] oz,
+			double[] dx, double[] dy, double[] dz, double tMin, double tMax, double[] tOut) {
+		bounds.discriminants(box, count, ox, oy, oz, dx, dy, dz, tOut);
+		for (int i = 0; i < count; i++)
+			tOut[i] = tOut[i] < 0 ? Double.POSITIVE_INFINITY
+					: slab(box, ox[i], oy[i], oz[i], 1 / dx[i], 1 / dy[i], 1 / dz[i], tMin, tMax);
+	}
+
+	/**
+	 * Do the slab test for one ray, given by its origin and reciprocal
+	 * direction, and one box.
+	 *
+	 * @return the ray parameter of the hit, or infinity for a miss
+	 */
+	private double slab(int i, double ox, double oy, double oz, double ix, double iy, double iz,
+			double tMin, double tMax) {
+		double x0 = (minX[i] - ox) * ix, x1 = (maxX[i] - ox) * ix;
+		double y0 = (minY[i] - oy) * iy, y1 = (maxY[i] - oy) * iy;
+		double z0 = (minZ[i] - oz) * iz, z1 = (maxZ[i] - oz) * iz;
+		double tNear = Math.max(Math.max(Math.min(x0, x1), Math.min(y0, y1)), Math.min(z0, z1));
+		double tFar = Math.min(Math.min(Math.max(x0, x1), Math.max(y0, y1)), Math.max(z0, z1));
+		return hit(tNear, tFar, tMin, tMax);
+	}
+
+	/**
+	 * Return where a ray that is inside a box for t in [tNear, tFar] hits it,
+	 * if that is in [tMin, tMax], or infinity otherwise.
+	 */
+	private static double hit(double tNear, double tFar, double tMin, double tMax) {
+		if (!(tNear <= tFar))
+			return Double.POSITIVE_INFINITY;
+		double t = tNear >= tMin ? tNear : tFar;
+		return t >= tMin && t <= tMax ? t : Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Intersect one ray with one box, without the batch kernels.
+	 *
+	 * @return the ray parameter of the hit, or infinity for a miss
+	 */
+	public double intersectScalar(Ray ray, int box) {
+		double tNear = Double.NEGATIVE_INFINITY, tFar = Double.POSITIVE_INFINITY;
+		double[] lo = { minX[box], minY[box], minZ[box] }, hi = { maxX[box], maxY[box], maxZ[box] };
+		double[] o = { ray.origin.x, ray.origin.y, ray.origin.z };
+		double[] d = { ray.direction.x, ray.direction.y, ray.direction.z };
+		for (int a = 0; a < 3; a++) {
+			double t0 = (lo[a] - o[a]) / d[a], t1 = (hi[a] - o[a]) / d[a];
+			if (t0 > t1) {
+				double tmp = t0;
+				t0 = t1;
+				t1 = tmp;
+			}
+			tNear = Math.max(tNear, t0);
+			tFar = Math.min(tFar, t1);
+		}
+		return hit(tNear, tFar, ray.start, ray.end);
+	}
+
+	/**
+	 * Find the first box hit by a ray, testing the boxes one at a time.
+	 *
+	 * @return the index of the box, or -1 if the ray hits none
+	 */
+	public int intersectFirstScalar(Ray ray) {
+		int best = -1;
+		double bestT = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < size; i++) {
+			double t = intersectScalar(ray, i);
+			if (t < bestT) {
+				bestT = t;
+				best = i;
+			}
+		}
+		return best;
+	}
+}
@@ -3,6 +3,7 @@ package ray1.surface;
 import ray1.IntersectionRecord;
 import ray1.Ray;
 import egl.math.Vector3;
+import egl.math.Vector3d;
 
 public class Cylinder extends Surface {
 
@@ -35,6 +36,16 @@ public class Cylinder extends Surface {
     return false;
   }
 
+  /**
+   * Compute the bounds of the cylinder, whose axis is parallel to z.  The
+   * bounds extend a full height above and below the center, so they hold
+   * whether the center is taken to be the middle or the bottom of the axis.
+   */
+  public void computeBoundingBox() {
+    minBound = new Vector3d(center.x - radius, center.y - radius, center.z - height);
+    maxBound = new Vector3d(center.x + radius, center.y + radius, center.z + height);
+  }
+
   /**
    * @see Object#toString()
    */
@@ -3,6 +3,7 @@ package ray1.surface;
 import java.io.IOException;
 import java.util.ArrayList;
 
+import ray1.AssetCache;
 import ray1.OBJMesh;
 import ray1.OBJMesh.OBJFileFormatException;
 import ray1.OBJFace;
@@ -45,7 +46,7 @@ public class Mesh extends Surface {
 	 */
 	public void setData(String fileName) throws OBJFileFormatException, IOException {
 		System.out.println("Loading " + RayTracer.sceneWorkspace.resolve(fileName));
-		this.mesh = new OBJMesh(RayTracer.sceneWorkspace.resolve(fileName));
+		this.mesh = AssetCache.getMesh(RayTracer.sceneWorkspace.resolve(fileName));
 	}
 	
 	public boolean intersect(IntersectionRecord outRecord, Ray rayIn) {	return false; }
@@ -3,6 +3,7 @@ package ray1.surface;
 import ray1.IntersectionRecord;
 import ray1.Ray;
 import egl.math.Vector3;
+import egl.math.Vector3d;
 
 /**
  * Represents a sphere as a center and a radius.
@@ -39,6 +40,14 @@ public class Sphere extends Surface {
 	return false;
   }
   
+  /**
+   * Compute the bounds of the sphere: its center plus or minus the radius.
+   */
+  public void computeBoundingBox() {
+    minBound = new Vector3d(center.x - radius, center.y - radius, center.z - radius);
+    maxBound = new Vector3d(center.x + radius, center.y + radius, center.z + radius);
+  }
+
   /**
    * @see Object#toString()
    */
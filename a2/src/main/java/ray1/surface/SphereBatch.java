@@ -0,0 +1,248 @@
+package ray1.surface;
+
+import java.util.Arrays;
+import java.util.List;
+
+import ray1.Ray;
+
+/**
+ * Many spheres stored as separate arrays of centers and squared radii, with
+ * kernels that intersect one ray with all of them, or many rays with one of
+ * them, in a single loop.
+ *
+ * Each kernel makes two passes.  The first computes only the discriminant of
+ * every quadratic (BoxBatch uses it too, to cull boxes by their bounding
+ * spheres); it has no branches or conditional selects and reads and
+ * writes consecutive array elements, so HotSpot's C2 compiler turns it into
+ * SIMD code as wide as the machine supports (it can be limited with
+ * -XX:MaxVectorSize, for instance to 32 bytes for AVX2 or 64 for AVX-512).
+ * The second pass solves the quadratic only where the discriminant is not
+ * negative, which for most rays is a small fraction of the spheres.  The
+ * scalar methods compute the same results one sphere at a time, as a
+ * reference and for batches too small for the kernel to pay.
+ *
+ * A ray hits a sphere at the smallest root of the quadratic that lies in
+ * [ray.start, ray.end]; a miss is reported as positive infinity.
+ */
+public class SphereBatch {
+
+	/**
+	 * Batches of fewer spheres than this are intersected one sphere at a time
+	 * by intersect and intersectFirst, since below it the two passes of the
+	 * kernel cost more than they save.  BatchBenchmark, in the tests, measures
+	 * the crossover.
+	 */
+	public static int SCALAR_THRESHOLD = 64;
+
+	/** The number of spheres. */
+	private final int size;
+
+	/** The centers and squared radii of the spheres. */
+	private final double[] cx, cy, cz, r2;
+
+	/**
+	 * Create a batch from arrays of centers and radii, which are copied.
+	 */
+	public SphereBatch(double[] cx, double[] cy, double[] cz, double[] radius) {
+		size = cx.length;
+		this.cx = Arrays.copyOf(cx, size);
+		this.cy = Arrays.copyOf(cy, size);
+		this.cz = Arrays.copyOf(cz, size);
+		r2 = new double[size];
+		for (int i = 0; i < size; i++)
+			r2[i] = radius[i] * radius[i];
+	}
+
+	/**
+	 * Create a batch from Sphere surfaces.
+	 */
+	public SphereBatch(List<Sphere> spheres) {
+		size = spheres.size();
+		cx = new double[size];
+		cy = new double[size];
+		cz = new double[size];
+		r2 = new double[size];
+		for (int i = 0; i < size; i++) {
+			Sphere s = spheres.get(i);
+			cx[i] = s.center.x;
+			cy[i] = s.center.y;
+			cz[i] = s.center.z;
+			r2[i] = (double) s.radius * s.radius;
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Intersect one ray with every sphere.
+	 *
+	 * @param ray the ray
+	 * @param tOut receives the ray parameter of the hit with each sphere, or
+	 *   infinity for a miss; it must have at least size() elements
+	 */
+	public void intersect(Ray ray, double[] tOut) {
+		if (size < SCALAR_THRESHOLD) {
+			for (int i = 0; i < size; i++)
+				tOut[i] = intersectScalar(ray, i);
+			return;
+		}
+		discriminants(ray, tOut);
+		final double ox = ray.origin.x, oy = ray.origin.y, oz = ray.origin.z;
+		final double dx = ray.direction.x, dy = ray.direction.y, dz = ray.direction.z;
+		final double a = dx * dx + dy * dy + dz * dz;
+		for (int i = 0; i < size; i++) {
+			double disc = tOut[i];
+			if (disc < 0) {
+				tOut[i] = Double.POSITIVE_INFINITY;
+				continue;
+			}
+			double px = ox - cx[i], py = oy - cy[i], pz = oz - cz[i];
+			double b = px * dx + py * dy + pz * dz;
+			tOut[i] = root(b, Math.sqrt(disc), a, ray.start, ray.end);
+		}
+	}
+
+	/**
+	 * Compute the discriminant of the quadratic for a ray and each sphere,
+	 * which is negative exactly when the ray's line misses the sphere.  This
+	 * is the loop that is compiled to SIMD code.
+	 */
+	void discriminants(Ray ray, double[] out) {
+		final double ox = ray.origin.x, oy = ray.origin.y, oz = ray.origin.z;
+		final double dx = ray.direction.x, dy = ray.direction.y, dz = ray.direction.z;
+		final double a = dx * dx + dy * dy + dz * dz;
+		for (int i = 0; i < size; i++) {
+			double px = ox - cx[i], py = oy - cy[i], pz = oz - cz[i];
+			// Half of the usual b, which saves the factors of 2 and 4
+			double b = px * dx + py * dy + pz * dz;
+			double c = px * px + py * py + pz * pz - r2[i];
+			out[i] = b * b - a * c;
+		}
+	}
+
+	/**
+	 * Compute the discriminant of the quadratic for each of many rays and one
+	 * sphere, like discriminants(Ray, double[]).
+	 */
+	void discriminants(int sphere, int count, double[] ox, double[] oy, double[] oz,
+			double[] dx, double[] dy, double[] dz, double[] out) {
+		final double scx = cx[sphere], scy = cy[sphere], scz = cz[sphere], sr2 = r2[sphere];
+		for (int i = 0; i < count; i++) {
+			double px = ox[i] - scx, py = oy[i] - scy, pz = oz[i] - scz;
+			double a = dx[i] * dx[i] + dy[i] * dy[i] + dz[i] * dz[i];
+			double b = px * dx[i] + py * dy[i] + pz * dz[i];
+			double c = px * px + py * py + pz * pz - sr2;
+			out[i] = b * b - a * c;
+		}
+	}
+
+	/**
+	 * Find the first sphere hit by a ray.
+	 *
+	 * @param ray the ray
+	 * @param scratch an array of at least size() elements to work in
+	 * @return the index of the sphere, or -1 if the ray hits none; its hit is
+	 *   at scratch[index]
+	 */
+	public int intersectFirst(Ray ray, double[] scratch) {
+		if (size < SCALAR_THRESHOLD) {
+			int best = -1;
+			for (int i = 0; i < size; i++) {
+				scratch[i] = intersectScalar(ray, i);
+				if (scratch[i] < Double.POSITIVE_INFINITY && (best < 0 || scratch[i] < scratch[best]))
+					best = i;
+			}
+			return best;
+		}
+		intersect(ray, scratch);
+		return indexOfMin(scratch, size);
+	}
+
+	/**
+	 * Intersect many rays with one sphere.  The rays are given as arrays of
+	 * origins and directions and share the interval [tMin, tMax].
+	 *
+	 * @param sphere the index of the sphere
+	 * @param tOut receives the ray parameter of each ray's hit, or infinity
+	 */
+	public void intersectRays(int sphere, int count, double[] ox, double[] oy, double[] oz,
+			double[] dx, double[] dy, double[] dz, double tMin, double tMax, double[] tOut) {
+		discriminants(sphere, count, ox, oy, oz, dx, dy, dz, tOut);
+		final double scx = cx[sphere], scy = cy[sphere], scz = cz[sphere];
+		for (int i = 0; i < count; i++) {
+			double disc = tOut[i];
+			if (disc < 0) {
+				tOut[i] = Double.POSITIVE_INFINITY;
+				continue;
+			}
+			double px = ox[i] - scx, py = oy[i] - scy, pz = oz[i] - scz;
+			double a = dx[i] * dx[i] + dy[i] * dy[i] + dz[i] * dz[i];
+			double b = px * dx[i] + py * dy[i] + pz * dz[i];
+			tOut[i] = root(b, Math.sqrt(disc), a, tMin, tMax);
+		}
+	}
+
+	/**
+	 * Return the smaller root of a x^2 + 2 b x + c that lies in [tMin, tMax],
+	 * given s = sqrt(b^2 - a c), or infinity if neither does.
+	 */
+	private static double root(double b, double s, double a, double tMin, double tMax) {
+		double t = (-b - s) / a;
+		if (t < tMin)
+			t = (-b + s) / a;
+		return t >= tMin && t <= tMax ? t : Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Intersect one ray with one sphere, without the batch kernels.
+	 *
+	 * @return the ray parameter of the hit, or infinity for a miss
+	 */
+	public double intersectScalar(Ray ray, int sphere) {
+		double px = ray.origin.x - cx[sphere], py = ray.origin.y - cy[sphere], pz = ray.origin.z - cz[sphere];
+		double dx = ray.direction.x, dy = ray.direction.y, dz = ray.direction.z;
+		double a = dx * dx + dy * dy + dz * dz;
+		double b = px * dx + py * dy + pz * dz;
+		double c = px * px + py * py + pz * pz - r2[sphere];
+		double disc = b * b - a * c;
+		if (disc < 0)
+			return Double.POSITIVE_INFINITY;
+		return root(b, Math.sqrt(disc), a, ray.start, ray.end);
+	}
+
+	/**
+	 * Find the first sphere hit by a ray, testing the spheres one at a time.
+	 *
+	 * @return the index of the sphere, or -1 if the ray hits none
+	 */
+	public int intersectFirstScalar(Ray ray) {
+		int best = -1;
+		double bestT = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < size; i++) {
+			double t = intersectScalar(ray, i);
+			if (t < bestT) {
+				bestT = t;
+				best = i;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Return the index of the smallest of the first n values, or -1 if none is
+	 * finite.  The minimum is found by a loop that vectorizes, then located.
+	 */
+	static int indexOfMin(double[] values, int n) {
+		double min = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < n; i++)
+			min = Math.min(min, values[i]);
+		if (min == Double.POSITIVE_INFINITY)
+			return -1;
+		for (int i = 0; i < n; i++)
+			if (values[i] == min)
+				return i;
+		return -1;
+	}
+}
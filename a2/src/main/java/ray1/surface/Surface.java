@@ -2,6 +2,7 @@ package ray1.surface;
 
 import java.util.ArrayList;
 
+import egl.math.Vector3d;
 import ray1.IntersectionRecord;
 import ray1.Ray;
 import ray1.shader.Shader;
@@ -23,6 +24,24 @@ public abstract class Surface {
 	public void init() {
 		// do nothing
 	}
+
+	/**
+	 * The axis-aligned bounds of this surface, used to place it in the scene's
+	 * acceleration grid.  Both are null if the surface is unbounded or does not
+	 * compute its bounds, in which case it is tested against every ray.
+	 */
+	protected Vector3d minBound = null;
+	protected Vector3d maxBound = null;
+	public Vector3d getMinBound() { return minBound; }
+	public Vector3d getMaxBound() { return maxBound; }
+
+	/**
+	 * Set minBound and maxBound to the bounds of this surface.  The default
+	 * leaves them null, treating the surface as unbounded.
+	 */
+	public void computeBoundingBox() {
+		// do nothing
+	}
 	
 	/**
 	 * Tests this surface for intersection with ray. If an intersection is found
@@ -3,6 +3,7 @@ package ray1.surface;
 import ray1.IntersectionRecord;
 import ray1.Ray;
 import egl.math.Vector3;
+import egl.math.Vector3d;
 import ray1.shader.Shader;
 import ray1.OBJFace;
 
@@ -65,6 +66,19 @@ public class Triangle extends Surface {
 	  return false;
   }
 
+  /**
+   * Compute the bounds of the triangle's three vertices.
+   */
+  public void computeBoundingBox() {
+    minBound = new Vector3d(Double.POSITIVE_INFINITY);
+    maxBound = new Vector3d(Double.NEGATIVE_INFINITY);
+    for (int i = 0; i < 3; i++) {
+      Vector3 v = owner.getMesh().getPosition(face, i);
+      minBound.set(Math.min(minBound.x, v.x), Math.min(minBound.y, v.y), Math.min(minBound.z, v.z));
+      maxBound.set(Math.max(maxBound.x, v.x), Math.max(maxBound.y, v.y), Math.max(maxBound.z, v.z));
+    }
+  }
+
   /**
    * @see Object#toString()
    */
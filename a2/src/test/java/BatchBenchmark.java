@@ -0,0 +1,116 @@
+import java.util.Random;
+
+import ray1.Ray;
+import ray1.surface.BoxBatch;
+import ray1.surface.SphereBatch;
+
+/**
+ * Measures the batch intersection kernels in SphereBatch and BoxBatch against
+ * their scalar versions, for one ray against many primitives.  For spheres it
+ * also times intersectFirst as called by default, which tests batches smaller
+ * than SphereBatch.SCALAR_THRESHOLD one sphere at a time; the "kernel" column
+ * forces the kernel at every count, to show where it starts to pay.
+ *
+ * To compare SIMD widths, run it with the vector size limited, for instance
+ *   java -XX:MaxVectorSize=16 BatchBenchmark   (SSE)
+ *   java -XX:MaxVectorSize=32 BatchBenchmark   (AVX2)
+ *   java -XX:MaxVectorSize=64 BatchBenchmark   (AVX-512)
+ * and with -XX:-UseSuperWord to see the kernels without vectorization.
+ *
+ * The compiled kernels are shared by every count run in one JVM, and code
+ * compiled for small batches runs large ones poorly (and the reverse), so
+ * crossover points are best measured with one count per run.
+ *
+ * Usage: java BatchBenchmark [primitive count ...]
+ */
+public class BatchBenchmark {
+
+    /** The number of rays traced in each timed run. */
+    private static final int RAYS = 1 << 14;
+
+    /** The number of untimed runs to let the JIT compile the kernels. */
+    private static final int WARMUP_RUNS = 10;
+
+    /** The number of timed runs, of which the fastest is reported. */
+    private static final int RUNS = 10;
+
+    public static void main(String[] args) {
+        int[] counts = { 4, 8, 16, 32, 64, 128, 256, 1024, 4096 };
+        if (args.length > 0) {
+            counts = new int[args.length];
+            for (int i = 0; i < args.length; i++)
+                counts[i] = Integer.parseInt(args[i]);
+        }
+
+        final int threshold = SphereBatch.SCALAR_THRESHOLD;
+        System.out.println("SphereBatch.SCALAR_THRESHOLD = " + threshold);
+        System.out.println(String.format("%-8s %8s %14s %14s %8s %14s %8s", "kind", "count",
+                "scalar ns/ray", "kernel ns/ray", "speedup", "default ns/ray", "speedup"));
+        for (int n : counts) {
+            Random random = new Random(n);
+            Ray[] rays = randomRays(random);
+
+            double[] cx = new double[n], cy = new double[n], cz = new double[n], r = new double[n];
+            double[] x0 = new double[n], y0 = new double[n], z0 = new double[n];
+            double[] x1 = new double[n], y1 = new double[n], z1 = new double[n];
+            for (int i = 0; i < n; i++) {
+                cx[i] = random.nextDouble() * 10 - 5;
+                cy[i] = random.nextDouble() * 10 - 5;
+                cz[i] = random.nextDouble() * 10 - 5;
+                r[i] = 0.05 + 0.2 * random.nextDouble();
+                x0[i] = cx[i] - r[i]; y0[i] = cy[i] - r[i]; z0[i] = cz[i] - r[i];
+                x1[i] = cx[i] + r[i]; y1[i] = cy[i] + r[i]; z1[i] = cz[i] + r[i];
+            }
+            SphereBatch spheres = new SphereBatch(cx, cy, cz, r);
+            BoxBatch boxes = new BoxBatch(x0, y0, z0, x1, y1, z1);
+            double[] scratch = new double[n];
+
+            double scalar = time(() -> { long h = 0; for (Ray ray : rays) h += spheres.intersectFirstScalar(ray); return h; });
+            double chosen = time(() -> { long h = 0; for (Ray ray : rays) h += spheres.intersectFirst(ray, scratch); return h; });
+            SphereBatch.SCALAR_THRESHOLD = 0;
+            double kernel = time(() -> { long h = 0; for (Ray ray : rays) h += spheres.intersectFirst(ray, scratch); return h; });
+            SphereBatch.SCALAR_THRESHOLD = threshold;
+            System.out.println(String.format("%-8s %8d %14.1f %14.1f %7.2fx %14.1f %7.2fx", "sphere", n,
+                    scalar, kernel, scalar / kernel, chosen, scalar / chosen));
+
+            scalar = time(() -> { long h = 0; for (Ray ray : rays) h += boxes.intersectFirstScalar(ray); return h; });
+            kernel = time(() -> { long h = 0; for (Ray ray : rays) h += boxes.intersectFirst(ray, scratch); return h; });
+            System.out.println(String.format("%-8s %8d %14.1f %14.1f %7.2fx", "box", n,
+                    scalar, kernel, scalar / kernel));
+        }
+    }
+
+    private static Ray[] randomRays(Random random) {
+        Ray[] rays = new Ray[RAYS];
+        for (int i = 0; i < RAYS; i++) {
+            Ray ray = new Ray();
+            ray.origin.set(random.nextDouble() * 20 - 10, random.nextDouble() * 20 - 10, 20);
+            ray.direction.set(random.nextDouble() * 10 - 5, random.nextDouble() * 10 - 5, 0).sub(ray.origin).normalize();
+            ray.makeOffsetRay();
+            rays[i] = ray;
+        }
+        return rays;
+    }
+
+    private interface Run {
+        long run();
+    }
+
+    /** Some result of every run, so the JIT cannot remove the work. */
+    private static long sink;
+
+    /**
+     * Return the fastest time of RUNS runs, in nanoseconds per ray.
+     */
+    private static double time(Run run) {
+        for (int i = 0; i < WARMUP_RUNS; i++)
+            sink += run.run();
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            sink += run.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return (double) best / RAYS;
+    }
+}
@@ -0,0 +1,159 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import ray1.Ray;
+import ray1.surface.BoxBatch;
+import ray1.surface.SphereBatch;
+
+public class BatchKernelTests {
+
+    static final int N = 200;
+    static final int RAYS = 2000;
+
+    static Ray randomRay(Random random, int i) {
+        Ray ray = new Ray();
+        ray.origin.set(random.nextDouble() * 20 - 10, random.nextDouble() * 20 - 10, random.nextDouble() * 20 - 10);
+        // Aim at the primitives, with some rays along the axes
+        if (i % 10 == 0)
+            ray.direction.set(i % 30 == 0 ? 1 : 0, i % 30 == 10 ? 1 : 0, i % 30 == 20 ? -1 : 0);
+        else
+            ray.direction.set(random.nextDouble() * 10 - 5, random.nextDouble() * 10 - 5, random.nextDouble() * 10 - 5).sub(ray.origin);
+        ray.makeOffsetRay();
+        if (i % 7 == 0)
+            ray.end = random.nextDouble() * 20;
+        return ray;
+    }
+
+    static double[][] randomSpheres(Random random) {
+        double[][] s = new double[4][N];
+        for (int i = 0; i < N; i++) {
+            s[0][i] = random.nextDouble() * 10 - 5;
+            s[1][i] = random.nextDouble() * 10 - 5;
+            s[2][i] = random.nextDouble() * 10 - 5;
+            s[3][i] = 0.1 + random.nextDouble();
+        }
+        return s;
+    }
+
+    @Test
+    public void testSphereBatch() {
+        System.out.println("\nTest SphereBatch against its scalar version.");
+        System.out.println("==============================================");
+        Random random = new Random(1);
+        double[][] s = randomSpheres(random);
+        SphereBatch batch = new SphereBatch(s[0], s[1], s[2], s[3]);
+        double[] t = new double[N];
+        int hits = 0;
+        for (int i = 0; i < RAYS; i++) {
+            Ray ray = randomRay(random, i);
+            batch.intersect(ray, t);
+            for (int k = 0; k < N; k++)
+                assertEquals(batch.intersectScalar(ray, k), t[k], 1e-9);
+            int first = batch.intersectFirst(ray, t);
+            assertEquals(batch.intersectFirstScalar(ray), first);
+            if (first >= 0)
+                hits++;
+        }
+        assertTrue(hits > RAYS / 4);
+        System.out.println("All tests passed.\n");
+    }
+
+    @Test
+    public void testSmallSphereBatch() {
+        System.out.println("\nTest SphereBatch below its scalar threshold, both ways.");
+        System.out.println("==============================================");
+        Random random = new Random(4);
+        double[][] s = randomSpheres(random);
+        int n = SphereBatch.SCALAR_THRESHOLD / 2;
+        SphereBatch batch = new SphereBatch(Arrays.copyOf(s[0], n), Arrays.copyOf(s[1], n),
+                Arrays.copyOf(s[2], n), Arrays.copyOf(s[3], n));
+        double[] scalar = new double[n], kernel = new double[n];
+        int threshold = SphereBatch.SCALAR_THRESHOLD;
+        try {
+            for (int i = 0; i < RAYS; i++) {
+                Ray ray = randomRay(random, i);
+                SphereBatch.SCALAR_THRESHOLD = threshold;
+                int first = batch.intersectFirst(ray, scalar);
+                SphereBatch.SCALAR_THRESHOLD = 0;
+                assertEquals(first, batch.intersectFirst(ray, kernel));
+                assertEquals(batch.intersectFirstScalar(ray), first);
+                if (first >= 0)
+                    assertEquals(kernel[first], scalar[first], 1e-9);
+                for (int k = 0; k < n; k++)
+                    assertEquals(kernel[k], scalar[k], 1e-9);
+            }
+        } finally {
+            SphereBatch.SCALAR_THRESHOLD = threshold;
+        }
+        System.out.println("All tests passed.\n");
+    }
+
+    @Test
+    public void testBoxBatch() {
+        System.out.println("\nTest BoxBatch against its scalar version.");
+        System.out.println("==============================================");
+        Random random = new Random(2);
+        double[][] s = randomSpheres(random);
+        double[][] lo = new double[3][N], hi = new double[3][N];
+        for (int a = 0; a < 3; a++)
+            for (int k = 0; k < N; k++) {
+                lo[a][k] = s[a][k] - s[3][k];
+                hi[a][k] = s[a][k] + s[3][k] * random.nextDouble();
+            }
+        BoxBatch batch = new BoxBatch(lo[0], lo[1], lo[2], hi[0], hi[1], hi[2]);
+        double[] t = new double[N];
+        int hits = 0;
+        for (int i = 0; i < RAYS; i++) {
+            Ray ray = randomRay(random, i);
+            batch.intersect(ray, t);
+            for (int k = 0; k < N; k++)
+                assertEquals(batch.intersectScalar(ray, k), t[k], 1e-9);
+            int first = batch.intersectFirst(ray, t);
+            assertEquals(batch.intersectFirstScalar(ray), first);
+            if (first >= 0)
+                hits++;
+        }
+        assertTrue(hits > RAYS / 4);
+        System.out.println("All tests passed.\n");
+    }
+
+    @Test
+    public void testManyRaysOneSphereOrBox() {
+        System.out.println("\nTest batches with many rays against one sphere or box.");
+        System.out.println("==============================================");
+        Random random = new Random(3);
+        double[][] s = randomSpheres(random);
+        SphereBatch spheres = new SphereBatch(s[0], s[1], s[2], s[3]);
+        double[][] lo = new double[3][N], hi = new double[3][N];
+        for (int a = 0; a < 3; a++)
+            for (int k = 0; k < N; k++) {
+                lo[a][k] = s[a][k] - s[3][k];
+                hi[a][k] = s[a][k] + s[3][k];
+            }
+        BoxBatch boxes = new BoxBatch(lo[0], lo[1], lo[2], hi[0], hi[1], hi[2]);
+        double[] ox = new double[RAYS], oy = new double[RAYS], oz = new double[RAYS];
+        double[] dx = new double[RAYS], dy = new double[RAYS], dz = new double[RAYS];
+        Ray[] rays = new Ray[RAYS];
+        for (int i = 0; i < RAYS; i++) {
+            rays[i] = randomRay(random, i);
+            rays[i].end = Double.POSITIVE_INFINITY;
+            ox[i] = rays[i].origin.x; oy[i] = rays[i].origin.y; oz[i] = rays[i].origin.z;
+            dx[i] = rays[i].direction.x; dy[i] = rays[i].direction.y; dz[i] = rays[i].direction.z;
+        }
+        double[] t = new double[RAYS];
+        for (int k = 0; k < N; k += 17) {
+            spheres.intersectRays(k, RAYS, ox, oy, oz, dx, dy, dz, Ray.EPSILON, Double.POSITIVE_INFINITY, t);
+            for (int i = 0; i < RAYS; i++)
+                assertEquals(spheres.intersectScalar(rays[i], k), t[i], 1e-9);
+            boxes.intersectRays(k, RAYS, ox, oy, oz, dx, dy, dz, Ray.EPSILON, Double.POSITIVE_INFINITY, t);
+            for (int i = 0; i < RAYS; i++)
+                assertEquals(boxes.intersectScalar(rays[i], k), t[i], 1e-9);
+        }
+        System.out.println("All tests passed.\n");
+    }
+}
@@ -0,0 +1,118 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import egl.math.Matrix3;
+import egl.math.Matrix4;
+import egl.math.Matrix4d;
+import egl.math.Quat;
+
+public class MatrixInverseTests {
+
+    static Matrix4d rigid() {
+        return Matrix4d.createTranslation(1, -2, 3)
+            .mulBefore(Matrix4d.createRotationX(0.3))
+            .mulBefore(Matrix4d.createRotationZ(1.1));
+    }
+
+    static Matrix4d uniformScale() {
+        return rigid().mulBefore(Matrix4d.createScale(2.5)).mulAfter(Matrix4d.createRotationY(-0.7));
+    }
+
+    static Matrix4d affine() {
+        return uniformScale().mulBefore(Matrix4d.createScale(1, 0.5, 3));
+    }
+
+    static Matrix4d projective() {
+        return Matrix4d.createPerspectiveFOV(1.2, 1.5, 0.1, 100).mulBefore(affine());
+    }
+
+    /** Invert with the fast path the flags select, and with the general one. */
+    static void checkInverse(Matrix4d m) {
+        Matrix4d fast = m.clone().invert();
+        Matrix4d general = m.clone().setFlags(0).invert();
+        for (int i = 0; i < 16; i++)
+            assertEquals(general.m[i], fast.m[i], 1e-12);
+        assertEquals(m.getFlags(), fast.getFlags());
+
+        Matrix4d identity = fast.clone().mulBefore(m);
+        for (int i = 0; i < 16; i++)
+            assertEquals(i % 5 == 0 ? 1 : 0, identity.m[i], 1e-12);
+    }
+
+    @Test
+    public void testFlags() {
+        System.out.println("\nTest Matrix4d flags through products and detection.");
+        System.out.println("==============================================");
+        assertTrue(new Matrix4d().isRigid());
+        assertTrue(rigid().isRigid());
+        assertFalse(uniformScale().isRigid());
+        assertTrue(uniformScale().isUniformScale());
+        assertFalse(affine().isUniformScale());
+        assertTrue(affine().isAffine());
+        assertFalse(projective().isAffine());
+        assertFalse(rigid().transpose().isAffine());
+
+        // Detection agrees with what the products kept
+        for (Matrix4d m : new Matrix4d[] { rigid(), uniformScale(), affine(), projective() })
+            assertEquals(m.getFlags(), new Matrix4d(m.m).detectFlags().getFlags());
+
+        // Writing m directly leaves the flags stale until they are detected again
+        Matrix4d m = rigid();
+        m.m[0] = 2;
+        assertTrue(m.isRigid());
+        assertEquals(Matrix4d.FLAG_AFFINE, m.detectFlags().getFlags());
+        System.out.println("All tests passed.\n");
+    }
+
+    @Test
+    public void testInverses() {
+        System.out.println("\nTest Matrix4d fast inverses against the general one.");
+        System.out.println("==============================================");
+        checkInverse(rigid());
+        checkInverse(uniformScale());
+        checkInverse(affine());
+        checkInverse(projective());
+
+        // The explicit routines, without relying on the flags
+        Matrix4d m = new Matrix4d(rigid().m);
+        assertEquals(0, m.getFlags());
+        Matrix4d inverse = rigid().invert();
+        Matrix4d r = m.clone().invertRigid(), a = m.clone().invertAffine();
+        for (int i = 0; i < 16; i++) {
+            assertEquals(inverse.m[i], r.m[i], 1e-12);
+            assertEquals(inverse.m[i], a.m[i], 1e-12);
+        }
+        System.out.println("All tests passed.\n");
+    }
+
+    @Test
+    public void testNormalMatrix() {
+        System.out.println("\nTest Matrix4 normal matrices against the inverse transpose.");
+        System.out.println("==============================================");
+        Matrix4d[] cases = { rigid(), uniformScale(), affine() };
+        for (Matrix4d md : cases) {
+            Matrix4 m = new Matrix4();
+            for (int i = 0; i < 16; i++)
+                m.m[i] = (float) md.m[i];
+            m.setFlags(md.getFlags());
+
+            Matrix3 expected = m.getAxes().invert().transpose();
+            Matrix3 n = m.normalMatrix(new Matrix3());
+            for (int i = 0; i < 9; i++)
+                assertEquals(expected.m[i], n.m[i], 1e-5);
+
+            Matrix4 n4 = m.normalMatrix(new Matrix4());
+            Matrix4 expected4 = m.clone().setFlags(0).invert().transpose();
+            for (int i = 0; i < 16; i++)
+                assertEquals(expected4.m[i], n4.m[i], 1e-4);
+        }
+
+        // Rotation matrices from quaternions are detected as rigid
+        Matrix4 q = new Quat(0.2f, 0.5f, -0.3f, 0.8f).toRotationMatrix(Matrix4.createScale(3));
+        assertTrue(q.isRigid());
+        System.out.println("All tests passed.\n");
+    }
+}
@@ -8,6 +8,12 @@ import org.junit.runners.Suite;
     SphereTests.class,
     TriangleTests.class,
     SceneTests.class,
+    UniformGridTests.class,
+    BatchKernelTests.class,
+    TransformKernelTests.class,
+    MatrixInverseTests.class,
+    TransformTests.class,
+    VecArrayTests.class,
     LambertianTests.class,
 })
 
@@ -0,0 +1,150 @@
+import static org.junit.Assert.assertEquals;
+
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.util.Random;
+
+import org.junit.Test;
+
+import egl.math.Matrix4;
+import egl.math.Matrix4d;
+import egl.math.Vector3;
+import egl.math.Vector3d;
+
+public class TransformKernelTests {
+
+    static final int N = 100;
+    static final int STRIDE = 5;
+
+    static Matrix4d affine() {
+        return Matrix4d.createTranslation(1, -2, 3)
+            .mulBefore(Matrix4d.createRotationX(0.3))
+            .mulBefore(Matrix4d.createRotationZ(1.1))
+            .mulBefore(Matrix4d.createScale(2, 0.5, 3));
+    }
+
+    static Matrix4d projective() {
+        return Matrix4d.createPerspectiveFOV(1.2, 1.5, 0.1, 100).mulBefore(affine());
+    }
+
+    static double[] xyz(Vector3d v) {
+        return new double[] { v.x, v.y, v.z };
+    }
+
+    static double[] xyz(Vector3 v) {
+        return new double[] { v.x, v.y, v.z };
+    }
+
+    static double[] randomVectors(Random random) {
+        double[] v = new double[N * STRIDE + 2];
+        for (int i = 0; i < v.length; i++)
+            v[i] = random.nextDouble() * 10 - 5;
+        return v;
+    }
+
+    static void checkDouble(Matrix4d m, double[] src) {
+        Matrix4d normalMatrix = m.clone();
+        normalMatrix.m[3] = normalMatrix.m[7] = normalMatrix.m[11] = 0;
+        normalMatrix.detectFlags().invert().transpose();
+        double[] pos = new double[src.length], dir = new double[src.length], nrm = src.clone();
+        m.transformPositions(src, 2, pos, 2, N, STRIDE);
+        m.transformDirections(src, 2, dir, 2, N, STRIDE);
+        m.transformNormals(nrm, 2, nrm, 2, N, STRIDE);
+
+        DoubleBuffer buf = DoubleBuffer.allocate(src.length);
+        buf.put(src);
+        m.transformPositions(buf, 2, buf, 2, N, STRIDE);
+
+        Vector3d min = new Vector3d(), max = new Vector3d();
+        m.transformBounds(src, 2, N, STRIDE, min, max);
+        Vector3d expectMin = new Vector3d(Double.POSITIVE_INFINITY), expectMax = new Vector3d(Double.NEGATIVE_INFINITY);
+        for (int i = 0, k = 2; i < N; i++, k += STRIDE) {
+            Vector3d p = m.mulPos(new Vector3d(src[k], src[k + 1], src[k + 2]));
+            Vector3d d = m.mulDir(new Vector3d(src[k], src[k + 1], src[k + 2]));
+            Vector3d n = normalMatrix.mulDir(new Vector3d(src[k], src[k + 1], src[k + 2]));
+            for (int a = 0; a < 3; a++) {
+                assertEquals(xyz(p)[a], pos[k + a], 1e-9);
+                assertEquals(xyz(p)[a], buf.get(k + a), 1e-9);
+                assertEquals(xyz(d)[a], dir[k + a], 1e-9);
+                assertEquals(xyz(n)[a], nrm[k + a], 1e-9);
+            }
+            expectMin.x = Math.min(expectMin.x, p.x); expectMax.x = Math.max(expectMax.x, p.x);
+            expectMin.y = Math.min(expectMin.y, p.y); expectMax.y = Math.max(expectMax.y, p.y);
+            expectMin.z = Math.min(expectMin.z, p.z); expectMax.z = Math.max(expectMax.z, p.z);
+        }
+        TestUtils.assertVector3dEqual(expectMin, min);
+        TestUtils.assertVector3dEqual(expectMax, max);
+
+        // Elements between the vectors are left alone
+        for (int k = 0; k < src.length; k++)
+            if (k < 2 || (k - 2) % STRIDE >= 3)
+                assertEquals(0, pos[k], 0);
+    }
+
+    @Test
+    public void testDoubleKernels() {
+        System.out.println("\nTest Matrix4d bulk transforms against per-vector ones.");
+        System.out.println("==============================================");
+        Random random = new Random(1);
+        checkDouble(affine(), randomVectors(random));
+        checkDouble(projective(), randomVectors(random));
+        System.out.println("All tests passed.\n");
+    }
+
+    @Test
+    public void testFloatKernels() {
+        System.out.println("\nTest Matrix4 bulk transforms against per-vector ones.");
+        System.out.println("==============================================");
+        Random random = new Random(2);
+        for (Matrix4d md : new Matrix4d[] { affine(), projective() }) {
+            Matrix4 m = new Matrix4();
+            for (int i = 0; i < 16; i++)
+                m.m[i] = (float) md.m[i];
+            m.detectFlags();
+            Matrix4 normalMatrix = m.clone();
+            normalMatrix.m[3] = normalMatrix.m[7] = normalMatrix.m[11] = 0;
+            normalMatrix.detectFlags().invert().transpose();
+            float[] src = new float[N * 3];
+            for (int i = 0; i < src.length; i++)
+                src[i] = (float) (random.nextDouble() * 10 - 5);
+            float[] pos = src.clone(), nrm = new float[src.length];
+            m.transformPositions(pos, 0, pos, 0, N, 3);
+            FloatBuffer buf = FloatBuffer.wrap(src.clone());
+            m.transformDirections(buf, 0, buf, 0, N, 3);
+            m.transformNormals(src, 0, nrm, 0, N, 3);
+            for (int i = 0; i < N; i++) {
+                Vector3 p = m.mulPos(new Vector3(src[3 * i], src[3 * i + 1], src[3 * i + 2]));
+                Vector3 d = m.mulDir(new Vector3(src[3 * i], src[3 * i + 1], src[3 * i + 2]));
+                Vector3 n = normalMatrix.mulDir(new Vector3(src[3 * i], src[3 * i + 1], src[3 * i + 2]));
+                for (int a = 0; a < 3; a++) {
+                    assertEquals(xyz(p)[a], pos[3 * i + a], 1e-4 * (1 + Math.abs(xyz(p)[a])));
+                    assertEquals(xyz(d)[a], buf.get(3 * i + a), 1e-4 * (1 + Math.abs(xyz(d)[a])));
+                    assertEquals(xyz(n)[a], nrm[3 * i + a], 1e-4 * (1 + Math.abs(xyz(n)[a])));
+                }
+            }
+        }
+        System.out.println("All tests passed.\n");
+    }
+
+    @Test
+    public void testTransformBox() {
+        System.out.println("\nTest Matrix4d.transformBox against its corners.");
+        System.out.println("==============================================");
+        Vector3d lo = new Vector3d(-1, 0.5, -2), hi = new Vector3d(3, 1, 0.25);
+        double[] corners = new double[24];
+        for (int c = 0; c < 8; c++) {
+            corners[3 * c] = (c & 1) == 0 ? lo.x : hi.x;
+            corners[3 * c + 1] = (c & 2) == 0 ? lo.y : hi.y;
+            corners[3 * c + 2] = (c & 4) == 0 ? lo.z : hi.z;
+        }
+        for (Matrix4d m : new Matrix4d[] { affine(), projective() }) {
+            Vector3d min = new Vector3d(), max = new Vector3d();
+            Vector3d expectMin = new Vector3d(), expectMax = new Vector3d();
+            m.transformBox(lo, hi, min, max);
+            m.transformBounds(corners, 0, 8, 3, expectMin, expectMax);
+            TestUtils.assertVector3dEqual(expectMin, min);
+            TestUtils.assertVector3dEqual(expectMax, max);
+        }
+        System.out.println("All tests passed.\n");
+    }
+}
@@ -0,0 +1,130 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import egl.math.Matrix3;
+import egl.math.Matrix4;
+import egl.math.Quat;
+import egl.math.Transform;
+import egl.math.Vector3;
+
+public class TransformTests {
+
+    static Quat start() {
+        return Quat.createRotationZ(0.4f).mul(Quat.createRotationX(-1.2f));
+    }
+
+    static void assertQuat(Quat expected, Quat actual, float eps) {
+        // q and -q are the same rotation
+        float sign = expected.w * actual.w + expected.x * actual.x + expected.y * actual.y + expected.z * actual.z < 0 ? -1 : 1;
+        assertEquals(expected.w, sign * actual.w, eps);
+        assertEquals(expected.x, sign * actual.x, eps);
+        assertEquals(expected.y, sign * actual.y, eps);
+        assertEquals(expected.z, sign * actual.z, eps);
+    }
+
+    @Test
+    public void testSlerp() {
+        System.out.println("\nTest Quat slerp, slerpFast and nlerp.");
+        System.out.println("==============================================");
+        // Rotating start() further about Y by angle a, in steps of t * a
+        for (float a : new float[] { 0.005f, 0.5f, 2f, 3.1f, 5f }) {
+            Quat q1 = start(), q2 = start().mul(Quat.createRotationY(a));
+            for (int i = 0; i <= 10; i++) {
+                float t = i / 10f;
+                // The shorter arc turns the other way once a passes PI
+                float angle = a > Math.PI ? (float)(t * (a - 2 * Math.PI)) : t * a;
+                Quat expected = start().mul(Quat.createRotationY(angle));
+
+                Quat out = new Quat();
+                assertSame(out, Quat.slerp(q1, q2, t, out));
+                assertQuat(expected, out, 2e-6f);
+                assertQuat(expected, Quat.slerp(q1, q2, t), 2e-6f);
+                assertQuat(expected, Quat.slerpFast(q1, q2, t, out), 2e-6f);
+
+                Quat n = Quat.nlerp(q1, q2, t, out);
+                assertEquals(1, n.len(), 1e-6f);
+                if (i == 0 || i == 10 || i == 5)
+                    assertQuat(expected, n, 2e-6f);
+            }
+
+            // Output aliasing an input
+            Quat alias = new Quat(q1);
+            assertQuat(Quat.slerp(q1, q2, 0.3f), Quat.slerp(alias, q2, 0.3f, alias), 0);
+        }
+    }
+
+    @Test
+    public void testPolarDecomposition() {
+        System.out.println("\nTest Matrix3 polar decomposition.");
+        System.out.println("==============================================");
+        Matrix3 a = Matrix4.createRotationX(0.8f)
+            .mulBefore(Matrix4.createScale(2, 0.5f, 3))
+            .mulBefore(Matrix4.createRotationY(-0.3f))
+            .getAxes();
+        a.m[3] += 0.4f;
+        Matrix3 q = new Matrix3(), p = new Matrix3();
+        a.polar_decomp(q, p);
+
+        Matrix3 qtq = new Matrix3(q).transpose().mulBefore(q);
+        Matrix3 qp = new Matrix3(q).mulBefore(p);
+        for (int i = 0; i < 9; i++) {
+            assertEquals(i % 4 == 0 ? 1 : 0, qtq.m[i], 1e-5f);
+            assertEquals(a.m[i], qp.m[i], 1e-5f);
+        }
+        // The stretch is symmetric
+        assertEquals(p.m[1], p.m[3], 1e-5f);
+        assertEquals(p.m[2], p.m[6], 1e-5f);
+        assertEquals(p.m[5], p.m[7], 1e-5f);
+    }
+
+    @Test
+    public void testDecompose() {
+        System.out.println("\nTest Transform decomposition of matrices.");
+        System.out.println("==============================================");
+        Transform expected = new Transform(new Vector3(1, -2, 0.5f), start(), new Vector3(2, 0.5f, -3));
+        Matrix4 m = expected.toMatrix(new Matrix4());
+        Matrix4 reference = Matrix4.createTranslation(1, -2, 0.5f)
+            .mulBefore(start().toRotationMatrix(new Matrix4()))
+            .mulBefore(Matrix4.createScale(2, 0.5f, -3));
+        for (int i = 0; i < 16; i++)
+            assertEquals(reference.m[i], m.m[i], 1e-5f);
+
+        // The reflection may come back on another axis, but the matrix must not change
+        Matrix4 back = new Transform().set(m).toMatrix(new Matrix4());
+        for (int i = 0; i < 16; i++)
+            assertEquals(m.m[i], back.m[i], 1e-5f);
+    }
+
+    @Test
+    public void testInterpolateTRS() {
+        System.out.println("\nTest Transform palette interpolation.");
+        System.out.println("==============================================");
+        Transform[] frames = {
+            new Transform(),
+            new Transform(new Vector3(1, 2, 3), start(), new Vector3(2)),
+            new Transform(new Vector3(-4, 0, 1), Quat.createRotationY(2.5f), new Vector3(1, 3, 0.5f)),
+        };
+        float[] keys = new float[frames.length * Transform.PACKED_SIZE];
+        for (int i = 0; i < frames.length; i++) {
+            frames[i].pack(keys, i * Transform.PACKED_SIZE);
+            assertEquals(frames[i].toString(), new Transform().unpack(keys, i * Transform.PACKED_SIZE).toString());
+        }
+        int[] from = { 0, 1, 2, 1 };
+        int[] to = { 1, 2, 0, 1 };
+        float[] t = { 0.25f, 0.5f, 0.9f, 0.7f };
+
+        for (int mode : new int[] { Transform.ROTATION_SLERP, Transform.ROTATION_NLERP, Transform.ROTATION_SLERP_FAST }) {
+            float[] palette = new float[16 * (from.length + 1)];
+            Transform.interpolateTRS(keys, from, to, t, from.length, mode, palette, 16);
+            for (int i = 0; i < from.length; i++) {
+                Matrix4 expected = new Transform()
+                    .interpolate(frames[from[i]], frames[to[i]], t[i], mode)
+                    .toMatrix(new Matrix4());
+                for (int j = 0; j < 16; j++)
+                    assertEquals(expected.m[j], palette[16 * (i + 1) + j], 1e-5f);
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Test;
+
+import egl.math.Vector3d;
+import ray1.IntersectionRecord;
+import ray1.Ray;
+import ray1.UniformGrid;
+import ray1.surface.Surface;
+
+public class UniformGridTests {
+
+    /**
+     * A sphere with its own intersection code, so these tests do not depend on
+     * ray1.surface.Sphere.
+     */
+    static class TestSphere extends Surface {
+        final Vector3d center;
+        final double radius;
+
+        TestSphere(Vector3d center, double radius) {
+            this.center = center;
+            this.radius = radius;
+        }
+
+        public boolean intersect(IntersectionRecord outRecord, Ray ray) {
+            Vector3d oc = new Vector3d(ray.origin).sub(center);
+            double a = ray.direction.lenSq();
+            double b = 2 * ray.direction.dot(oc);
+            double c = oc.lenSq() - radius * radius;
+            double disc = b * b - 4 * a * c;
+            if (disc < 0)
+                return false;
+            double sq = Math.sqrt(disc);
+            double t = (-b - sq) / (2 * a);
+            if (t < ray.start || t > ray.end)
+                t = (-b + sq) / (2 * a);
+            if (t < ray.start || t > ray.end)
+                return false;
+            outRecord.t = t;
+            outRecord.surface = this;
+            return true;
+        }
+
+        public void computeBoundingBox() {
+            minBound = new Vector3d(center).sub(radius);
+            maxBound = new Vector3d(center).add(radius);
+        }
+    }
+
+    /** A surface that hits every ray at t = 100, and has no bounds. */
+    static class TestBackdrop extends Surface {
+        public boolean intersect(IntersectionRecord outRecord, Ray ray) {
+            if (100 < ray.start || 100 > ray.end)
+                return false;
+            outRecord.t = 100;
+            outRecord.surface = this;
+            return true;
+        }
+    }
+
+    static boolean linearIntersect(ArrayList<Surface> surfaces, IntersectionRecord outRecord, Ray rayIn, boolean any) {
+        Ray ray = new Ray(rayIn);
+        IntersectionRecord record = new IntersectionRecord();
+        boolean hit = false;
+        for (Surface s : surfaces) {
+            if (s.intersect(record, ray)) {
+                if (any)
+                    return true;
+                hit = true;
+                outRecord.set(record);
+                ray.end = record.t;
+            }
+        }
+        return hit;
+    }
+
+    static ArrayList<Surface> randomSpheres(Random random, int n, double size) {
+        ArrayList<Surface> surfaces = new ArrayList<Surface>();
+        for (int i = 0; i < n; i++) {
+            TestSphere s = new TestSphere(new Vector3d(
+                    random.nextDouble() * 10 - 5, random.nextDouble() * 10 - 5, random.nextDouble() * 10 - 5),
+                    size * (0.2 + random.nextDouble()));
+            s.computeBoundingBox();
+            surfaces.add(s);
+        }
+        return surfaces;
+    }
+
+    static void checkAgainstLinear(ArrayList<Surface> surfaces, Random random, int rays) {
+        UniformGrid grid = new UniformGrid(surfaces);
+        int hits = 0;
+        for (int i = 0; i < rays; i++) {
+            Vector3d origin = new Vector3d(
+                    random.nextDouble() * 20 - 10, random.nextDouble() * 20 - 10, random.nextDouble() * 20 - 10);
+            // Aim most rays at the region where the surfaces are
+            Vector3d direction = new Vector3d(
+                    random.nextDouble() * 10 - 5, random.nextDouble() * 10 - 5, random.nextDouble() * 10 - 5).sub(origin);
+            // Some rays along the axes, to exercise the zero-direction cases
+            if (i % 10 == 0) {
+                double sign = random.nextBoolean() ? 1 : -1;
+                int axis = i / 10 % 3;
+                direction.set(axis == 0 ? sign : 0, axis == 1 ? sign : 0, axis == 2 ? sign : 0);
+            }
+            Ray ray = new Ray(origin, direction);
+            ray.makeOffsetRay();
+            if (i % 7 == 0)
+                ray.end = random.nextDouble() * 10;
+
+            IntersectionRecord expected = new IntersectionRecord();
+            IntersectionRecord actual = new IntersectionRecord();
+            boolean expectedHit = linearIntersect(surfaces, expected, ray, false);
+            assertEquals(expectedHit, grid.intersect(actual, ray, false));
+            assertEquals(expectedHit, grid.intersect(new IntersectionRecord(), ray, true));
+            if (expectedHit) {
+                hits++;
+                TestUtils.assertDoublesEqual(expected.t, actual.t);
+                assertTrue(expected.surface == actual.surface);
+            }
+        }
+        // Make sure the test is not vacuous
+        assertTrue(hits > rays / 10);
+    }
+
+    @Test
+    public void testMatchesLinearSearch() {
+        System.out.println("\nTest UniformGrid against a linear search.");
+        System.out.println("==============================================");
+        Random random = new Random(1);
+        checkAgainstLinear(randomSpheres(random, 500, 0.3), random, 20000);
+        System.out.println("All tests passed.\n");
+    }
+
+    @Test
+    public void testLargeAndUnboundedSurfaces() {
+        System.out.println("\nTest UniformGrid with large and unbounded surfaces.");
+        System.out.println("==============================================");
+        Random random = new Random(2);
+        ArrayList<Surface> surfaces = randomSpheres(random, 100, 0.2);
+        surfaces.addAll(randomSpheres(random, 5, 4));
+        surfaces.add(new TestBackdrop());
+        checkAgainstLinear(surfaces, random, 20000);
+        System.out.println("All tests passed.\n");
+    }
+
+    @Test
+    public void testFlatScene() {
+        System.out.println("\nTest UniformGrid on a scene that is flat along one axis.");
+        System.out.println("==============================================");
+        Random random = new Random(3);
+        ArrayList<Surface> surfaces = new ArrayList<Surface>();
+        for (int i = 0; i < 200; i++) {
+            TestSphere s = new TestSphere(new Vector3d(random.nextDouble() * 10 - 5, random.nextDouble() * 10 - 5, 0), 0);
+            s.computeBoundingBox();
+            surfaces.add(s);
+            TestSphere t = new TestSphere(new Vector3d(random.nextDouble() * 10 - 5, random.nextDouble() * 10 - 5, 0), 0.5);
+            t.computeBoundingBox();
+            surfaces.add(t);
+        }
+        checkAgainstLinear(surfaces, random, 5000);
+        System.out.println("All tests passed.\n");
+    }
+}
@@ -0,0 +1,110 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import egl.math.Matrix4;
+import egl.math.Matrix4d;
+import egl.math.Vec3d;
+import egl.math.Vec3dArray;
+import egl.math.Vec3f;
+import egl.math.Vec3fArray;
+import egl.math.Vector3;
+import egl.math.Vector3d;
+
+public class VecArrayTests {
+
+    @Test
+    public void testVec3f() {
+        System.out.println("\nTest Vec3f against Vector3.");
+        System.out.println("==============================================");
+        Vec3f a = new Vec3f(1, 2, 3), b = new Vec3f(-2, 0.5f, 4);
+        Vector3 va = new Vector3(1, 2, 3), vb = new Vector3(-2, 0.5f, 4);
+        assertEquals(va.dot(vb), a.dot(b), 0);
+        assertTrue(new Vec3f(va.clone().cross(vb)).equals(a.clone().cross(b)));
+        assertTrue(new Vec3f(va.clone().normalize()).equalsApprox(a.clone().normalize(), 1e-7f));
+        assertTrue(new Vec3f(va.clone().addMultiple(3, vb)).equals(a.clone().addMultiple(3, b)));
+        assertEquals(va.toString(), a.toString());
+    }
+
+    @Test
+    public void testGrowAndAccess() {
+        System.out.println("\nTest Vec3fArray growth, access and cursors.");
+        System.out.println("==============================================");
+        ArrayList<Vector3> list = new ArrayList<>();
+        Vec3fArray a = new Vec3fArray();
+        assertTrue(a.isEmpty());
+        for (int i = 0; i < 100; i++) {
+            list.add(new Vector3(i, -i, i * 0.5f));
+            assertEquals(i, a.add(list.get(i)));
+        }
+        assertEquals(100, a.size());
+        assertTrue(a.capacity() >= 100);
+        assertEquals(a.toString(), new Vec3fArray(list).toString());
+
+        Vector3 v = new Vector3();
+        for (int i = 0; i < 100; i++)
+            assertTrue(list.get(i).equals(a.get(i, v)));
+        assertEquals(-7, a.y(7), 0);
+
+        Vec3fArray.Cursor c = a.cursor();
+        int n = 0;
+        while (c.next()) {
+            assertEquals(n++, c.index());
+            c.set(c.x() + 1, c.y(), c.z());
+        }
+        assertEquals(100, n);
+        assertEquals(43, c.reset().seek(42).x(), 0);
+        assertFalse(c.seek(99).next());
+
+        a.addAll(a);
+        assertEquals(200, a.size());
+        assertEquals(a.x(3), a.x(103), 0);
+        a.trimToSize();
+        assertEquals(200, a.capacity());
+        a.resize(201);
+        assertEquals(0, a.z(200), 0);
+
+        try {
+            a.x(201);
+            assertTrue(false);
+        } catch (IndexOutOfBoundsException e) {
+        }
+    }
+
+    @Test
+    public void testTransforms() {
+        System.out.println("\nTest Vec3fArray and Vec3dArray bulk transforms and bounds.");
+        System.out.println("==============================================");
+        Matrix4 m = Matrix4.createRotationY(0.6f).mulAfter(Matrix4.createTranslation(1, 2, 3));
+        Vec3fArray a = new Vec3fArray(4);
+        a.add(0, 0, 0);
+        a.add(1, 0, 0);
+        a.add(0, -1, 2);
+        a.transformPositions(m);
+        Vector3 min = new Vector3(), max = new Vector3();
+        for (int i = 0; i < a.size(); i++) {
+            Vector3 expected = new Vector3(i == 1 ? 1 : 0, i == 2 ? -1 : 0, i == 2 ? 2 : 0);
+            m.mulPos(expected);
+            assertTrue(expected.equalsApprox(a.get(i, new Vector3())));
+        }
+        a.getBounds(min, max);
+        float[] data = a.toArray();
+        Vector3 kernelMin = new Vector3(), kernelMax = new Vector3();
+        new Matrix4().transformBounds(data, 0, a.size(), 3, kernelMin, kernelMax);
+        assertTrue(kernelMin.equals(min));
+        assertTrue(kernelMax.equals(max));
+
+        Matrix4d md = Matrix4d.createScale(2, 1, 0.5);
+        Vec3dArray d = new Vec3dArray();
+        d.add(new Vec3d(1, 1, 1));
+        d.add(new Vector3d(0, 2, 4));
+        d.transformNormals(md);
+        assertTrue(new Vec3d(0.5, 1, 2).equalsApprox(d.get(0, new Vec3d()), 1e-12));
+        d.transformDirections(md);
+        assertTrue(new Vector3d(0, 2, 4).equals(d.get(1, new Vector3d())));
+    }
+}
@@ -37,6 +37,15 @@ public class AnimationEngine {
 	 */
 	public final HashMap<String, AnimTimeline> timelines = new HashMap<>();
 
+	/**
+	 * Scratch Space For updateTransformations, Which Runs For Every Animated Object On Every Frame
+	 */
+	private final AnimKeyframe[] pair = new AnimKeyframe[2];
+	private final Vector3 trans1 = new Vector3(), trans2 = new Vector3();
+	private final Matrix3 axes = new Matrix3(), rot1 = new Matrix3(), rot2 = new Matrix3();
+	private final Matrix3 scale1 = new Matrix3(), scale2 = new Matrix3();
+	private final Quat rot1Q = new Quat(), rot2Q = new Quat(), rotQ = new Quat();
+
 	/**
 	 * An Animation Engine That Works Only On A Certain Scene
 	 * @param s The Working Scene
@@ -145,40 +154,32 @@ public class AnimationEngine {
 	 */
 	
 	public void updateTransformations() {
-		AnimKeyframe[] pair = new AnimKeyframe[2];
 	    for(AnimTimeline tl : timelines.values()) {
 	        tl.getSurroundingFrames(curFrame, pair);
 	           
 	        float r = getRatio(pair[0].frame, pair[1].frame, curFrame); 
 	           
 	        // Interpolate translations linearly
-            Vector3 trans1 = pair[0].transformation.getTrans();
-	        Vector3 trans2 = pair[1].transformation.getTrans();
-	        Vector3 transInterp = (new Vector3(trans1)).mul(1.0f - r).add(trans2.mul(r));
+	        pair[0].transformation.getTrans(trans1);
+	        pair[1].transformation.getTrans(trans2);
+	        trans1.mul(1.0f - r).add(trans2.mul(r));
 	            
 	        // Polar decompose axis matrices
-	        Matrix3 rot1 = new Matrix3();
-	        Matrix3 scale1 = new Matrix3();
-	        Matrix3 rot2 = new Matrix3();
-	        Matrix3 scale2 = new Matrix3();
-	        pair[0].transformation.getAxes().polar_decomp(rot1, scale1);
-	        pair[1].transformation.getAxes().polar_decomp(rot2, scale2);
+	        pair[0].transformation.getAxes(axes).polar_decomp(rot1, scale1);
+	        pair[1].transformation.getAxes(axes).polar_decomp(rot2, scale2);
 	            
 	        // Slerp rotation matrix and linear interpolate scales
-	        Quat rot1Q = new Quat(rot1);
-	        Quat rot2Q = new Quat(rot2);
-	        Matrix3 rotInterp = new Matrix3();
-	        Quat.slerp(rot1Q, rot2Q, r).toRotationMatrix(rotInterp);
-	        Matrix3 scaleInterp = new Matrix3();
-	        scaleInterp.interpolate(scale1, scale2, r);
+	        Quat.slerp(rot1Q.set(rot1), rot2Q.set(rot2), r, rotQ).toRotationMatrix(rot1);
+	        scale1.interpolate(scale1, scale2, r);
 	            
 	        // Combine interpolated R, S and T 
-	        Matrix3 axisInterp = new Matrix3();
-	        rotInterp.mulBefore(scaleInterp, axisInterp);
-	        Matrix4 res = new Matrix4(axisInterp);
-	        res.mulAfter(Matrix4.createTranslation(transInterp, new Matrix4()));
-	        
-	        tl.object.transformation.set(res);
+	        rot1.mulBefore(scale1, axes);
+	        tl.object.transformation.set(
+	        		axes.m[0], axes.m[3], axes.m[6], trans1.x,
+	        		axes.m[1], axes.m[4], axes.m[7], trans1.y,
+	        		axes.m[2], axes.m[5], axes.m[8], trans1.z,
+	        		0, 0, 0, 1
+	        		).setFlags(Matrix4.FLAG_AFFINE);
 
 	        scene.sendEvent(new SceneTransformationEvent(tl.object));
 	    }
@@ -27,7 +27,7 @@ public class SceneObject extends ACUniqueObject implements IXMLDocWriteable {
 	}
 	public void setMatrix(float[] m) {
 		if(m.length != 16) throw new AssertionError("Matrix Must Have 16 Values");
-		transformation.set(new Matrix4(m));
+		transformation.set(new Matrix4(m)).detectFlags();
 	}
 	
 	public void setParent(String s) {
@@ -43,6 +43,11 @@ public class RenderMesh implements IDisposable {
 	public final GLBuffer iBuffer = new GLBuffer(BufferTarget.ElementArrayBuffer, BufferUsageHint.StaticDraw, false);
 	public int vertexCount;
 	public int indexCount;
+	/**
+	 * The New Index Of Each Vertex Of The Mesh As Loaded, When MeshOptimizer Reordered
+	 * The Vertices Before build(), Else null
+	 */
+	public int[] vertexRemap;
 
 	public final Mesh sceneMesh;
 
@@ -57,6 +62,15 @@ public class RenderMesh implements IDisposable {
 		iBuffer.dispose();
 	}
 
+	/**
+	 * Uploads A Mesh Whose Vertices Were Reordered
+	 * @param data Reordered Mesh
+	 * @param remap New Index Of Each Original Vertex, As Returned By MeshOptimizer
+	 */
+	public void build(MeshData data, int[] remap) {
+		vertexRemap = remap;
+		build(data);
+	}
 	public void build(MeshData data) {
 		vertexCount = data.vertexCount;
 		indexCount = data.indexCount;
@@ -157,6 +171,14 @@ public class RenderMesh implements IDisposable {
 		vBufferTangentSpace.setAsVertex(VERTEX_SIZE_TANGENT_SPACE);
 		vBufferTangentSpace.setDataInitial(fb);
 	}
+	/**
+	 * Uploads Bone Indices And Weights, Four Of Each Per Vertex
+	 * <p>
+	 * Both buffers are in the vertex order of the mesh as loaded; they are moved with
+	 * vertexRemap to match the reordered vertex buffer.
+	 * @param indices Bone Indices Per Vertex
+	 * @param weights Bone Weights Per Vertex
+	 */
 	public void addSkinningInformation(FloatBuffer indices, FloatBuffer weights) {
 		ByteBuffer bb = NativeMem.createByteBuffer(vertexCount * VERTEX_SIZE_SKINNED);
 		indices.position(0);
@@ -164,6 +186,7 @@ public class RenderMesh implements IDisposable {
 		weights.position(0);
 		weights.limit(vertexCount * 4);
 		for(int i = 0;i < vertexCount;i++) {
+			bb.position((vertexRemap == null ? i : vertexRemap[i]) * VERTEX_SIZE_SKINNED);
 			bb.putFloat(indices.get());
 			bb.putFloat(indices.get());
 			bb.putFloat(indices.get());
@@ -173,7 +196,8 @@ public class RenderMesh implements IDisposable {
 			bb.putFloat(weights.get());
 			bb.putFloat(weights.get());
 		}
-		bb.flip();
+		bb.position(0);
+		bb.limit(vertexCount * VERTEX_SIZE_SKINNED);
 
 		vBufferSkinned.init();
 		vBufferSkinned.setAsVertex(VERTEX_SIZE_SKINNED);
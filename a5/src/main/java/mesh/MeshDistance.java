@@ -0,0 +1,293 @@
+package mesh;
+
+import java.util.Arrays;
+
+/**
+ * Measures How Far Apart Two Triangle Meshes Are
+ * <p>
+ * Distances are taken from sample points on one surface (its vertices and the centers of its triangles) to
+ * the closest point on the other. The triangles of the other surface are bucketed in a uniform grid, and
+ * each query searches outward from its cell only until no unvisited cell can hold anything closer, so a
+ * query costs about as much as the few triangles near it.
+ */
+public class MeshDistance {
+	/** Grid Cells Allowed Per Triangle, Which Bounds Memory For Long Thin Meshes */
+	private static final int MAX_CELLS_PER_TRIANGLE = 8;
+
+	private final float[] positions;
+	private final int[] triangles;
+	private final int triangleCount;
+
+	// Uniform Grid Of Triangle Lists Over The Bounding Box
+	private final double[] origin = new double[3];
+	private final int[] dims = new int[3];
+	private final double cellSize;
+	private final int[] cellStart, cellTriangles;
+
+	// Query Scratch Space: The Last Query Each Triangle Was Tested In
+	private final int[] testedIn;
+	private int query;
+
+	/**
+	 * Indexes A Mesh For Distance Queries
+	 * @param positions Vertex Positions, 3 Floats Each
+	 * @param triangles Vertex Indices, 3 Per Triangle
+	 * @param triangleCount Number Of Triangles To Use From The Start Of triangles
+	 */
+	public MeshDistance(float[] positions, int[] triangles, int triangleCount) {
+		this.positions = positions;
+		this.triangles = triangles;
+		this.triangleCount = triangleCount;
+		testedIn = new int[triangleCount];
+
+		// Bound The Mesh And Measure Its Triangles
+		double[] max = new double[3];
+		Arrays.fill(origin, Double.POSITIVE_INFINITY);
+		Arrays.fill(max, Double.NEGATIVE_INFINITY);
+		double extentSum = 0;
+		for (int t = 0; t < triangleCount; t++) {
+			double[] lo = { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY };
+			double[] hi = { Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY };
+			triangleBounds(t, lo, hi);
+			double extent = 0;
+			for (int d = 0; d < 3; d++) {
+				origin[d] = Math.min(origin[d], lo[d]);
+				max[d] = Math.max(max[d], hi[d]);
+				extent = Math.max(extent, hi[d] - lo[d]);
+			}
+			extentSum += extent;
+		}
+		if (triangleCount == 0) {
+			Arrays.fill(origin, 0);
+			Arrays.fill(max, 0);
+		}
+
+		// Cells About As Large As A Typical Triangle, Grown Until The Grid Is Not Too Large
+		double diagonal = Math.sqrt((max[0] - origin[0]) * (max[0] - origin[0])
+				+ (max[1] - origin[1]) * (max[1] - origin[1]) + (max[2] - origin[2]) * (max[2] - origin[2]));
+		double size = Math.max(triangleCount > 0 ? extentSum / triangleCount : 0, diagonal * 1e-6);
+		if (size == 0) size = 1;
+		long maxCells = (long) MAX_CELLS_PER_TRIANGLE * Math.max(triangleCount, 1);
+		while (true) {
+			long cells = 1;
+			for (int d = 0; d < 3; d++) {
+				dims[d] = (int) Math.min(Math.floor((max[d] - origin[d]) / size) + 1, Integer.MAX_VALUE);
+				cells *= dims[d];
+			}
+			if (cells <= maxCells) break;
+			size *= 1.5;
+		}
+		cellSize = size;
+
+		// Bucket The Triangles By The Cells Their Bounds Overlap
+		int[] lo = new int[3], hi = new int[3];
+		cellStart = new int[dims[0] * dims[1] * dims[2] + 1];
+		for (int t = 0; t < triangleCount; t++) {
+			triangleCells(t, lo, hi);
+			for (int z = lo[2]; z <= hi[2]; z++) {
+				for (int y = lo[1]; y <= hi[1]; y++) {
+					for (int x = lo[0]; x <= hi[0]; x++) {
+						cellStart[(z * dims[1] + y) * dims[0] + x + 1]++;
+					}
+				}
+			}
+		}
+		for (int c = 0; c < cellStart.length - 1; c++) {
+			cellStart[c + 1] += cellStart[c];
+		}
+		cellTriangles = new int[cellStart[cellStart.length - 1]];
+		int[] next = Arrays.copyOf(cellStart, cellStart.length - 1);
+		for (int t = 0; t < triangleCount; t++) {
+			triangleCells(t, lo, hi);
+			for (int z = lo[2]; z <= hi[2]; z++) {
+				for (int y = lo[1]; y <= hi[1]; y++) {
+					for (int x = lo[0]; x <= hi[0]; x++) {
+						cellTriangles[next[(z * dims[1] + y) * dims[0] + x]++] = t;
+					}
+				}
+			}
+		}
+	}
+
+	private void triangleBounds(int t, double[] lo, double[] hi) {
+		for (int k = 0; k < 3; k++) {
+			int v = triangles[3 * t + k] * 3;
+			for (int d = 0; d < 3; d++) {
+				lo[d] = Math.min(lo[d], positions[v + d]);
+				hi[d] = Math.max(hi[d], positions[v + d]);
+			}
+		}
+	}
+
+	private void triangleCells(int t, int[] loCell, int[] hiCell) {
+		double[] lo = { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY };
+		double[] hi = { Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY };
+		triangleBounds(t, lo, hi);
+		for (int d = 0; d < 3; d++) {
+			loCell[d] = cellOf(lo[d], d);
+			hiCell[d] = cellOf(hi[d], d);
+		}
+	}
+
+	private int cellOf(double c, int d) {
+		int cell = (int) Math.floor((c - origin[d]) / cellSize);
+		return Math.max(0, Math.min(dims[d] - 1, cell));
+	}
+
+	/**
+	 * Finds The Distance From A Point To The Closest Point On The Mesh
+	 * @return Distance, Or Infinity If The Mesh Has No Triangles
+	 */
+	public double distance(double px, double py, double pz) {
+		if (triangleCount == 0) return Double.POSITIVE_INFINITY;
+		query++;
+		double[] p = { px, py, pz };
+		int[] center = { cellOf(px, 0), cellOf(py, 1), cellOf(pz, 2) };
+		int[] lo = new int[3], hi = new int[3];
+		double bestSq = Double.POSITIVE_INFINITY;
+		for (int r = 0; ; r++) {
+			// Visit The Shell Of Cells At Chebyshev Distance r From The Center
+			boolean covered = true;
+			for (int d = 0; d < 3; d++) {
+				lo[d] = Math.max(0, center[d] - r);
+				hi[d] = Math.min(dims[d] - 1, center[d] + r);
+				covered &= lo[d] == 0 && hi[d] == dims[d] - 1;
+			}
+			for (int z = lo[2]; z <= hi[2]; z++) {
+				boolean zEdge = z == center[2] - r || z == center[2] + r;
+				for (int y = lo[1]; y <= hi[1]; y++) {
+					boolean yzEdge = zEdge || y == center[1] - r || y == center[1] + r;
+					for (int x = lo[0]; x <= hi[0]; x++) {
+						if (!yzEdge && x != center[0] - r && x != center[0] + r) continue;
+						int cell = (z * dims[1] + y) * dims[0] + x;
+						for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+							int t = cellTriangles[i];
+							if (testedIn[t] == query) continue;
+							testedIn[t] = query;
+							bestSq = Math.min(bestSq, distanceSqToTriangle(p, t));
+						}
+					}
+				}
+			}
+			if (covered) break;
+
+			// Anything Not Yet Visited Lies Beyond A Side Of The Visited Box That Has Cells Past It
+			double bound = Double.POSITIVE_INFINITY;
+			for (int d = 0; d < 3; d++) {
+				if (lo[d] > 0) bound = Math.min(bound, p[d] - (origin[d] + lo[d] * cellSize));
+				if (hi[d] < dims[d] - 1) bound = Math.min(bound, origin[d] + (hi[d] + 1) * cellSize - p[d]);
+			}
+			if (bound > 0 && bestSq <= bound * bound) break;
+		}
+		return Math.sqrt(bestSq);
+	}
+
+	/**
+	 * Squared Distance From A Point To A Triangle (Ericson, Real-Time Collision Detection, 5.1.5)
+	 */
+	private double distanceSqToTriangle(double[] p, int t) {
+		int ia = triangles[3 * t] * 3, ib = triangles[3 * t + 1] * 3, ic = triangles[3 * t + 2] * 3;
+		double ax = positions[ia], ay = positions[ia + 1], az = positions[ia + 2];
+		double abx = positions[ib] - ax, aby = positions[ib + 1] - ay, abz = positions[ib + 2] - az;
+		double acx = positions[ic] - ax, acy = positions[ic + 1] - ay, acz = positions[ic + 2] - az;
+		double apx = p[0] - ax, apy = p[1] - ay, apz = p[2] - az;
+
+		// A Triangle With No Area Is As Close As The Nearest Of Its Edges
+		double nx = aby * acz - abz * acy, ny = abz * acx - abx * acz, nz = abx * acy - aby * acx;
+		if (nx * nx + ny * ny + nz * nz == 0) {
+			return Math.min(distanceSqToSegment(apx, apy, apz, abx, aby, abz),
+					Math.min(distanceSqToSegment(apx, apy, apz, acx, acy, acz),
+							distanceSqToSegment(apx - abx, apy - aby, apz - abz, acx - abx, acy - aby, acz - abz)));
+		}
+
+		double d1 = abx * apx + aby * apy + abz * apz;
+		double d2 = acx * apx + acy * apy + acz * apz;
+		double s, u;
+		if (d1 <= 0 && d2 <= 0) {
+			s = 0; u = 0;
+		}
+		else {
+			double bpx = apx - abx, bpy = apy - aby, bpz = apz - abz;
+			double d3 = abx * bpx + aby * bpy + abz * bpz;
+			double d4 = acx * bpx + acy * bpy + acz * bpz;
+			double cpx = apx - acx, cpy = apy - acy, cpz = apz - acz;
+			double d5 = abx * cpx + aby * cpy + abz * cpz;
+			double d6 = acx * cpx + acy * cpy + acz * cpz;
+			double vc = d1 * d4 - d3 * d2;
+			double vb = d5 * d2 - d1 * d6;
+			double va = d3 * d6 - d5 * d4;
+			if (d3 >= 0 && d4 <= d3) {
+				s = 1; u = 0;
+			}
+			else if (vc <= 0 && d1 >= 0 && d3 <= 0) {
+				s = d1 / (d1 - d3); u = 0;
+			}
+			else if (d6 >= 0 && d5 <= d6) {
+				s = 0; u = 1;
+			}
+			else if (vb <= 0 && d2 >= 0 && d6 <= 0) {
+				s = 0; u = d2 / (d2 - d6);
+			}
+			else if (va <= 0 && (d4 - d3) >= 0 && (d5 - d6) >= 0) {
+				u = (d4 - d3) / ((d4 - d3) + (d5 - d6)); s = 1 - u;
+			}
+			else {
+				double denom = 1 / (va + vb + vc);
+				s = vb * denom; u = vc * denom;
+			}
+		}
+		double dx = apx - s * abx - u * acx;
+		double dy = apy - s * aby - u * acy;
+		double dz = apz - s * abz - u * acz;
+		return dx * dx + dy * dy + dz * dz;
+	}
+
+	/**
+	 * Squared Distance From A Point To A Segment, Both Given Relative To The Segment's Start
+	 */
+	private static double distanceSqToSegment(double px, double py, double pz, double ex, double ey, double ez) {
+		double lenSq = ex * ex + ey * ey + ez * ez;
+		double s = lenSq > 0 ? Math.max(0, Math.min(1, (px * ex + py * ey + pz * ez) / lenSq)) : 0;
+		double dx = px - s * ex, dy = py - s * ey, dz = pz - s * ez;
+		return dx * dx + dy * dy + dz * dz;
+	}
+
+	/**
+	 * Finds The Largest Distance From Sample Points Of One Mesh To This Mesh
+	 * @param positions Vertex Positions Of The Sampled Mesh, 3 Floats Each
+	 * @param triangles Vertex Indices Of The Sampled Mesh, 3 Per Triangle
+	 * @param triangleCount Number Of Triangles Of The Sampled Mesh
+	 * @return One-Sided Distance, Sampled At Vertices Used By Triangles And At Triangle Centers
+	 */
+	public double maxDistanceFrom(float[] positions, int[] triangles, int triangleCount) {
+		double max = 0;
+		boolean[] sampled = new boolean[positions.length / 3];
+		for (int t = 0; t < triangleCount; t++) {
+			double cx = 0, cy = 0, cz = 0;
+			for (int k = 0; k < 3; k++) {
+				int v = triangles[3 * t + k];
+				double x = positions[3 * v], y = positions[3 * v + 1], z = positions[3 * v + 2];
+				cx += x; cy += y; cz += z;
+				if (!sampled[v]) {
+					sampled[v] = true;
+					max = Math.max(max, distance(x, y, z));
+				}
+			}
+			max = Math.max(max, distance(cx / 3, cy / 3, cz / 3));
+		}
+		return max;
+	}
+
+	/**
+	 * Approximates The Hausdorff Distance Between Two Meshes
+	 * @return The Larger Of The Two One-Sided Distances, Each Sampled At Vertices And Triangle Centers
+	 */
+	public static double hausdorff(float[] positionsA, int[] trianglesA, int triangleCountA,
+			float[] positionsB, int[] trianglesB, int triangleCountB) {
+		double ab = new MeshDistance(positionsB, trianglesB, triangleCountB)
+				.maxDistanceFrom(positionsA, trianglesA, triangleCountA);
+		double ba = new MeshDistance(positionsA, trianglesA, triangleCountA)
+				.maxDistanceFrom(positionsB, trianglesB, triangleCountB);
+		return Math.max(ab, ba);
+	}
+}
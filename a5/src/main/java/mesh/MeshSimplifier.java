@@ -0,0 +1,784 @@
+package mesh;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import egl.NativeMem;
+import egl.math.Vector2;
+import egl.math.Vector3;
+import egl.math.Vector3i;
+
+/**
+ * Reduces The Triangle Count Of A Mesh With Quadric Error Edge Collapses
+ * <p>
+ * Follows Garland and Heckbert's quadric error metric: every position accumulates the area-weighted squared
+ * distances to the planes of its triangles, plus planes standing perpendicular to boundary and seam edges so
+ * that those outlines keep their shape. Edges are collapsed cheapest first from a heap. Each collapse moves
+ * one endpoint onto the other, so surviving vertices keep their original positions, UVs and normals and no
+ * attributes are interpolated.
+ * <p>
+ * Vertices that share a position are welded; where they differ in UVs or normals, the position lies on a
+ * seam. A collapse must carry every vertex of the moving position onto the vertex across the collapsed edge
+ * in the same triangle, which lets seams shorten along themselves but never tear or drift. Collapses that
+ * would pinch the surface, flip a triangle, or pull in a boundary are rejected.
+ * <p>
+ * Simplification is progressive: calling simplify() with decreasing targets gives a chain of levels of detail.
+ */
+public class MeshSimplifier {
+	/**
+	 * Weight Of Boundary And Seam Planes, Relative To Triangle Planes
+	 */
+	public static final double BOUNDARY_WEIGHT = 10;
+	/**
+	 * Smallest Cosine Of The Angle A Triangle's Normal May Turn Through In One Collapse
+	 */
+	public static final double MIN_NORMAL_COSINE = 0.2;
+
+	/**
+	 * One Level Of Detail Made By buildLODChain()
+	 */
+	public static class Level {
+		/**
+		 * The Simplified Mesh
+		 */
+		public final MeshData mesh;
+		/**
+		 * Number Of Triangles In The Mesh, Which May Be Above The Target If No More Collapses Were Possible
+		 */
+		public final int triangleCount;
+		/**
+		 * Approximate Hausdorff Distance To The Input Mesh
+		 */
+		public final double hausdorffError;
+
+		public Level(MeshData mesh, int triangleCount, double hausdorffError) {
+			this.mesh = mesh;
+			this.triangleCount = triangleCount;
+			this.hausdorffError = hausdorffError;
+		}
+	}
+
+	// Welded Positions ("Nodes")
+	private final int nodeCount;
+	private final float[] nodePositions;
+	private final double[] quadrics;
+	private final boolean[] border, locked, removed;
+	private final int[] version;
+	private final int[][] nodeTriangles;
+	private final int[] nodeTriangleCount;
+
+	// Vertices, Which Add Attributes To A Node
+	private final int vertexCount;
+	private final int[] vertexNode;
+	private final float[] vertexUVs, vertexNormals;
+
+	// Triangles Of Vertices, With -1 In Their First Corner Once Collapsed
+	private final int[] triangles;
+	private int triangleCount;
+
+	// The Input, As Triangles Of Nodes, For Measuring Error
+	private final int[] originalTriangles;
+	private final int originalTriangleCount;
+	private MeshDistance originalDistance;
+
+	private final CollapseQueue queue = new CollapseQueue();
+
+	// Scratch Space For Checking A Collapse
+	private int[] mapFrom = new int[4], mapTo = new int[4];
+	private int mapCount;
+	private final int[] mark;
+	private int stamp;
+
+	/**
+	 * Prepares A Mesh For Simplification
+	 * @param mesh Triangles With Positions And Optional UVs And Normals; It Is Copied, Not Modified
+	 */
+	public MeshSimplifier(MeshData mesh) {
+		this(readFloats(mesh.positions, mesh.vertexCount * 3),
+				mesh.hasUVs() ? readFloats(mesh.uvs, mesh.vertexCount * 2) : null,
+				mesh.hasNormals() ? readFloats(mesh.normals, mesh.vertexCount * 3) : null,
+				readInts(mesh.indices, mesh.indexCount));
+	}
+
+	/**
+	 * Prepares A Mesh For Simplification
+	 * @param mesh Faces With Positions And Optional UVs And Normals, Split Into Fans Of Triangles;
+	 * UVs And Normals Are Only Kept If Every Face Has Them
+	 */
+	public MeshSimplifier(OBJMesh mesh) {
+		this(new OBJVertices(mesh));
+	}
+
+	private MeshSimplifier(OBJVertices v) {
+		this(v.positions, v.uvs, v.normals, v.indices);
+	}
+
+	private MeshSimplifier(float[] positions, float[] uvs, float[] normals, int[] indices) {
+		vertexCount = positions.length / 3;
+		vertexUVs = uvs;
+		vertexNormals = normals;
+
+		// Weld Vertices With Identical Positions
+		vertexNode = new int[vertexCount];
+		int[] table = new int[Integer.highestOneBit(Math.max(2 * vertexCount, 16) - 1) << 1];
+		Arrays.fill(table, -1);
+		int mask = table.length - 1;
+		float[] welded = new float[vertexCount * 3];
+		int nodes = 0;
+		for (int i = 0; i < vertexCount; i++) {
+			int x = Float.floatToIntBits(positions[3 * i]);
+			int y = Float.floatToIntBits(positions[3 * i + 1]);
+			int z = Float.floatToIntBits(positions[3 * i + 2]);
+			int slot = ((x * 31 + y) * 31 + z) * 0x9E3779B9 >>> 7 & mask;
+			while (true) {
+				int n = table[slot];
+				if (n < 0) {
+					table[slot] = nodes;
+					System.arraycopy(positions, 3 * i, welded, 3 * nodes, 3);
+					vertexNode[i] = nodes++;
+					break;
+				}
+				if (Float.floatToIntBits(welded[3 * n]) == x && Float.floatToIntBits(welded[3 * n + 1]) == y
+						&& Float.floatToIntBits(welded[3 * n + 2]) == z) {
+					vertexNode[i] = n;
+					break;
+				}
+				slot = (slot + 1) & mask;
+			}
+		}
+		nodeCount = nodes;
+		nodePositions = Arrays.copyOf(welded, nodes * 3);
+
+		// Keep The Triangles That Span Three Distinct Positions
+		triangles = new int[indices.length - indices.length % 3];
+		for (int i = 0; i + 2 < indices.length; i += 3) {
+			int a = indices[i], b = indices[i + 1], c = indices[i + 2];
+			int na = vertexNode[a], nb = vertexNode[b], nc = vertexNode[c];
+			if (na == nb || nb == nc || nc == na) continue;
+			triangles[3 * triangleCount] = a;
+			triangles[3 * triangleCount + 1] = b;
+			triangles[3 * triangleCount + 2] = c;
+			triangleCount++;
+		}
+		originalTriangleCount = triangleCount;
+		originalTriangles = new int[triangleCount * 3];
+		for (int i = 0; i < originalTriangles.length; i++) {
+			originalTriangles[i] = vertexNode[triangles[i]];
+		}
+
+		// Triangles Around Each Node
+		nodeTriangleCount = new int[nodeCount];
+		for (int i = 0; i < triangleCount * 3; i++) {
+			nodeTriangleCount[vertexNode[triangles[i]]]++;
+		}
+		nodeTriangles = new int[nodeCount][];
+		for (int n = 0; n < nodeCount; n++) {
+			nodeTriangles[n] = new int[nodeTriangleCount[n]];
+			nodeTriangleCount[n] = 0;
+		}
+		for (int i = 0; i < triangleCount * 3; i++) {
+			int n = vertexNode[triangles[i]];
+			nodeTriangles[n][nodeTriangleCount[n]++] = i / 3;
+		}
+
+		border = new boolean[nodeCount];
+		locked = new boolean[nodeCount];
+		removed = new boolean[nodeCount];
+		version = new int[nodeCount];
+		mark = new int[nodeCount];
+
+		// Triangle Planes
+		quadrics = new double[nodeCount * 10];
+		double[] normal = new double[3];
+		for (int t = 0; t < triangleCount; t++) {
+			double area = triangleNormal(t, normal) / 2;
+			if (area == 0) continue;
+			double d = -dot(normal, nodePositions, node(t, 0));
+			for (int k = 0; k < 3; k++) {
+				addPlane(node(t, k), normal[0], normal[1], normal[2], d, area);
+			}
+		}
+
+		// Classify The Edges, Constrain Boundaries And Seams, And Queue Every Edge Both Ways
+		HashMap<Long, int[]> edges = new HashMap<>();
+		for (int t = 0; t < triangleCount; t++) {
+			for (int k = 0; k < 3; k++) {
+				int a = node(t, k), b = node(t, (k + 1) % 3);
+				long key = (long) Math.min(a, b) << 32 | Math.max(a, b);
+				int[] e = edges.get(key);
+				if (e == null) {
+					edges.put(key, new int[] { 1, t, -1 });
+				}
+				else if (e[0]++ == 1) {
+					e[2] = t;
+				}
+			}
+		}
+		for (java.util.Map.Entry<Long, int[]> entry : edges.entrySet()) {
+			int a = (int) (entry.getKey() >>> 32), b = (int) (long) entry.getKey();
+			int[] e = entry.getValue();
+			if (e[0] == 1) {
+				border[a] = border[b] = true;
+				addEdgePlane(a, b, e[1]);
+			}
+			else if (e[0] == 2) {
+				if (vertexAt(e[1], a) != vertexAt(e[2], a) || vertexAt(e[1], b) != vertexAt(e[2], b)) {
+					addEdgePlane(a, b, e[1]);
+					addEdgePlane(a, b, e[2]);
+				}
+			}
+			else {
+				// Edges Shared By More Than Two Triangles Are Left Alone
+				locked[a] = locked[b] = true;
+			}
+		}
+		for (long key : edges.keySet()) {
+			int a = (int) (key >>> 32), b = (int) key;
+			push(a, b);
+			push(b, a);
+		}
+	}
+
+	private static float[] readFloats(FloatBuffer buffer, int count) {
+		float[] values = new float[count];
+		for (int i = 0; i < count; i++) {
+			values[i] = buffer.get(i);
+		}
+		return values;
+	}
+
+	private static int[] readInts(IntBuffer buffer, int count) {
+		int[] values = new int[count];
+		for (int i = 0; i < count; i++) {
+			values[i] = buffer.get(i);
+		}
+		return values;
+	}
+
+	/**
+	 * The Distinct Position/UV/Normal Combinations Of An OBJMesh, As Vertices Of A Triangle List
+	 */
+	private static class OBJVertices {
+		float[] positions, uvs, normals;
+		int[] indices;
+
+		OBJVertices(OBJMesh mesh) {
+			boolean hasUVs = !mesh.uvs.isEmpty(), hasNormals = !mesh.normals.isEmpty();
+			int corners = 0;
+			for (OBJFace f : mesh.faces) {
+				hasUVs &= f.hasUVs();
+				hasNormals &= f.hasNormals();
+				corners += 3 * Math.max(0, f.numVerts() - 2);
+			}
+
+			HashMap<Vector3i, Integer> vertexMap = new HashMap<>();
+			ArrayList<Vector3i> vertices = new ArrayList<>();
+			indices = new int[corners];
+			int i = 0;
+			for (OBJFace f : mesh.faces) {
+				for (int k = 1; k + 1 < f.numVerts(); k++) {
+					for (int corner : new int[] { 0, k, k + 1 }) {
+						Vector3i v = new Vector3i(f.positions[corner] - OBJFace.indexBase,
+								hasUVs ? f.uvs[corner] - OBJFace.indexBase : -1,
+								hasNormals ? f.normals[corner] - OBJFace.indexBase : -1);
+						Integer index = vertexMap.get(v);
+						if (index == null) {
+							index = vertices.size();
+							vertexMap.put(v, index);
+							vertices.add(v);
+						}
+						indices[i++] = index;
+					}
+				}
+			}
+
+			positions = new float[vertices.size() * 3];
+			uvs = hasUVs ? new float[vertices.size() * 2] : null;
+			normals = hasNormals ? new float[vertices.size() * 3] : null;
+			for (int v = 0; v < vertices.size(); v++) {
+				Vector3i vert = vertices.get(v);
+				Vector3 p = mesh.positions.get(vert.x);
+				positions[3 * v] = p.x;
+				positions[3 * v + 1] = p.y;
+				positions[3 * v + 2] = p.z;
+				if (hasUVs) {
+					Vector2 uv = mesh.uvs.get(vert.y);
+					uvs[2 * v] = uv.x;
+					uvs[2 * v + 1] = uv.y;
+				}
+				if (hasNormals) {
+					Vector3 n = mesh.normals.get(vert.z);
+					normals[3 * v] = n.x;
+					normals[3 * v + 1] = n.y;
+					normals[3 * v + 2] = n.z;
+				}
+			}
+		}
+	}
+
+	private int node(int t, int corner) {
+		return vertexNode[triangles[3 * t + corner]];
+	}
+
+	/**
+	 * Finds Which Vertex A Triangle Uses At A Node
+	 * @return Vertex Index, Or -1 If The Triangle Does Not Touch The Node
+	 */
+	private int vertexAt(int t, int n) {
+		for (int k = 0; k < 3; k++) {
+			if (node(t, k) == n) return triangles[3 * t + k];
+		}
+		return -1;
+	}
+
+	private static double dot(double[] a, float[] b, int n) {
+		return a[0] * b[3 * n] + a[1] * b[3 * n + 1] + a[2] * b[3 * n + 2];
+	}
+
+	/**
+	 * Computes The Unit Normal Of A Triangle
+	 * @return Twice Its Area
+	 */
+	private double triangleNormal(int t, double[] out) {
+		int a = 3 * node(t, 0), b = 3 * node(t, 1), c = 3 * node(t, 2);
+		double e1x = nodePositions[b] - nodePositions[a], e1y = nodePositions[b + 1] - nodePositions[a + 1], e1z = nodePositions[b + 2] - nodePositions[a + 2];
+		double e2x = nodePositions[c] - nodePositions[a], e2y = nodePositions[c + 1] - nodePositions[a + 1], e2z = nodePositions[c + 2] - nodePositions[a + 2];
+		out[0] = e1y * e2z - e1z * e2y;
+		out[1] = e1z * e2x - e1x * e2z;
+		out[2] = e1x * e2y - e1y * e2x;
+		double len = Math.sqrt(out[0] * out[0] + out[1] * out[1] + out[2] * out[2]);
+		if (len > 0) {
+			out[0] /= len;
+			out[1] /= len;
+			out[2] /= len;
+		}
+		return len;
+	}
+
+	/**
+	 * Adds w Times The Squared Distance To The Plane ax + by + cz + d = 0 To A Node's Quadric
+	 */
+	private void addPlane(int n, double a, double b, double c, double d, double w) {
+		int q = 10 * n;
+		quadrics[q] += w * a * a;
+		quadrics[q + 1] += w * a * b;
+		quadrics[q + 2] += w * a * c;
+		quadrics[q + 3] += w * a * d;
+		quadrics[q + 4] += w * b * b;
+		quadrics[q + 5] += w * b * c;
+		quadrics[q + 6] += w * b * d;
+		quadrics[q + 7] += w * c * c;
+		quadrics[q + 8] += w * c * d;
+		quadrics[q + 9] += w * d * d;
+	}
+
+	/**
+	 * Adds The Plane Through Edge ab That Stands Perpendicular To Triangle t To Both Ends Of The Edge
+	 */
+	private void addEdgePlane(int a, int b, int t) {
+		double[] normal = new double[3];
+		if (triangleNormal(t, normal) == 0) return;
+		double ex = nodePositions[3 * b] - nodePositions[3 * a];
+		double ey = nodePositions[3 * b + 1] - nodePositions[3 * a + 1];
+		double ez = nodePositions[3 * b + 2] - nodePositions[3 * a + 2];
+		double lenSq = ex * ex + ey * ey + ez * ez;
+		double[] m = {
+			ey * normal[2] - ez * normal[1],
+			ez * normal[0] - ex * normal[2],
+			ex * normal[1] - ey * normal[0]
+		};
+		double len = Math.sqrt(m[0] * m[0] + m[1] * m[1] + m[2] * m[2]);
+		if (len == 0) return;
+		m[0] /= len;
+		m[1] /= len;
+		m[2] /= len;
+		double d = -dot(m, nodePositions, a);
+		addPlane(a, m[0], m[1], m[2], d, BOUNDARY_WEIGHT * lenSq);
+		addPlane(b, m[0], m[1], m[2], d, BOUNDARY_WEIGHT * lenSq);
+	}
+
+	/**
+	 * Evaluates The Sum Of Two Nodes' Quadrics At A Node's Position
+	 */
+	private double error(int u, int v, int at) {
+		double x = nodePositions[3 * at], y = nodePositions[3 * at + 1], z = nodePositions[3 * at + 2];
+		double[] q = quadrics;
+		int i = 10 * u, j = 10 * v;
+		double e = (q[i] + q[j]) * x * x + 2 * (q[i + 1] + q[j + 1]) * x * y + 2 * (q[i + 2] + q[j + 2]) * x * z
+				+ 2 * (q[i + 3] + q[j + 3]) * x + (q[i + 4] + q[j + 4]) * y * y + 2 * (q[i + 5] + q[j + 5]) * y * z
+				+ 2 * (q[i + 6] + q[j + 6]) * y + (q[i + 7] + q[j + 7]) * z * z + 2 * (q[i + 8] + q[j + 8]) * z
+				+ (q[i + 9] + q[j + 9]);
+		return Math.max(e, 0);
+	}
+
+	/**
+	 * Queues Moving Node u Onto Node v
+	 */
+	private void push(int u, int v) {
+		if (locked[u]) return;
+		queue.push(error(u, v, v), u, v, version[u], version[v]);
+	}
+
+	/**
+	 * Drops Collapsed Triangles From A Node's List
+	 */
+	private void compact(int n) {
+		int[] list = nodeTriangles[n];
+		int count = 0;
+		for (int i = 0; i < nodeTriangleCount[n]; i++) {
+			if (triangles[3 * list[i]] >= 0) list[count++] = list[i];
+		}
+		nodeTriangleCount[n] = count;
+	}
+
+	/**
+	 * Checks Whether Node u Can Be Moved Onto Node v, Leaving The Vertex Mapping For collapse() In mapFrom/mapTo
+	 */
+	private boolean canCollapse(int u, int v) {
+		compact(u);
+		compact(v);
+		int[] list = nodeTriangles[u];
+		int count = nodeTriangleCount[u];
+
+		// The Triangles On The Edge Say Which Vertex Of v Each Vertex Of u Becomes
+		int edgeTriangles = 0;
+		mapCount = 0;
+		for (int i = 0; i < count; i++) {
+			int t = list[i];
+			int wv = vertexAt(t, v);
+			if (wv < 0) continue;
+			edgeTriangles++;
+			int wu = vertexAt(t, u);
+			int m = mapIndex(wu);
+			if (m < 0) {
+				if (mapCount == mapFrom.length) {
+					mapFrom = Arrays.copyOf(mapFrom, 2 * mapCount);
+					mapTo = Arrays.copyOf(mapTo, 2 * mapCount);
+				}
+				mapFrom[mapCount] = wu;
+				mapTo[mapCount++] = wv;
+			}
+			else if (mapTo[m] != wv) {
+				return false;
+			}
+		}
+		if (edgeTriangles == 0) return false;
+
+		// Boundaries Only Shorten Along Themselves
+		if (border[u] && edgeTriangles != 1) return false;
+
+		// Every Vertex Of u Needs Somewhere To Go, Or A Seam Would Tear
+		for (int i = 0; i < count; i++) {
+			int t = list[i];
+			if (vertexAt(t, v) < 0 && mapIndex(vertexAt(t, u)) < 0) return false;
+		}
+
+		// Link Condition: u And v May Only Share The Neighbors Opposite The Edge
+		int around = ++stamp;
+		for (int i = 0; i < count; i++) {
+			for (int k = 0; k < 3; k++) {
+				mark[node(list[i], k)] = around;
+			}
+		}
+		int shared = 0, counted = ++stamp;
+		for (int i = 0; i < nodeTriangleCount[v]; i++) {
+			for (int k = 0; k < 3; k++) {
+				int n = node(nodeTriangles[v][i], k);
+				if (n != u && n != v && mark[n] == around) {
+					mark[n] = counted;
+					shared++;
+				}
+			}
+		}
+		if (shared != edgeTriangles) return false;
+
+		// No Remaining Triangle May Fold Over Or Collapse To A Line
+		double[] before = new double[3], after = new double[3];
+		for (int i = 0; i < count; i++) {
+			int t = list[i];
+			if (vertexAt(t, v) >= 0) continue;
+			double lenBefore = triangleNormal(t, before);
+			int k = node(t, 0) == u ? 0 : node(t, 1) == u ? 1 : 2;
+			int w = triangles[3 * t + k];
+			triangles[3 * t + k] = mapTo[mapIndex(w)];
+			double lenAfter = triangleNormal(t, after);
+			triangles[3 * t + k] = w;
+			if (lenAfter == 0 || (lenBefore > 0
+					&& before[0] * after[0] + before[1] * after[1] + before[2] * after[2] < MIN_NORMAL_COSINE)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private int mapIndex(int w) {
+		for (int m = 0; m < mapCount; m++) {
+			if (mapFrom[m] == w) return m;
+		}
+		return -1;
+	}
+
+	/**
+	 * Moves Node u Onto Node v, Using The Vertex Mapping Found By canCollapse()
+	 */
+	private void collapse(int u, int v) {
+		int[] list = nodeTriangles[u];
+		for (int i = 0; i < nodeTriangleCount[u]; i++) {
+			int t = list[i];
+			if (vertexAt(t, v) >= 0) {
+				triangles[3 * t] = -1;
+				triangleCount--;
+				continue;
+			}
+			for (int k = 0; k < 3; k++) {
+				if (node(t, k) == u) {
+					triangles[3 * t + k] = mapTo[mapIndex(triangles[3 * t + k])];
+				}
+			}
+			if (nodeTriangleCount[v] == nodeTriangles[v].length) {
+				nodeTriangles[v] = Arrays.copyOf(nodeTriangles[v], Math.max(4, 2 * nodeTriangleCount[v]));
+			}
+			nodeTriangles[v][nodeTriangleCount[v]++] = t;
+		}
+		nodeTriangles[u] = null;
+		nodeTriangleCount[u] = 0;
+		removed[u] = true;
+		for (int i = 0; i < 10; i++) {
+			quadrics[10 * v + i] += quadrics[10 * u + i];
+		}
+		version[v]++;
+
+		// Costs Of Every Edge At v Have Changed
+		compact(v);
+		int requeued = ++stamp;
+		for (int i = 0; i < nodeTriangleCount[v]; i++) {
+			for (int k = 0; k < 3; k++) {
+				int n = node(nodeTriangles[v][i], k);
+				if (n != v && mark[n] != requeued) {
+					mark[n] = requeued;
+					push(v, n);
+					push(n, v);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Collapses Edges, Cheapest First, Until The Mesh Has No More Than targetTriangles Triangles
+	 * @return False If The Target Could Not Be Reached Without Damaging The Mesh
+	 */
+	public boolean simplify(int targetTriangles) {
+		while (triangleCount > targetTriangles && queue.size > 0) {
+			queue.pop();
+			int u = queue.poppedFrom, v = queue.poppedTo;
+			if (removed[u] || removed[v] || version[u] != queue.poppedFromVersion || version[v] != queue.poppedToVersion) {
+				continue;
+			}
+			if (canCollapse(u, v)) {
+				collapse(u, v);
+			}
+		}
+		return triangleCount <= targetTriangles;
+	}
+
+	/**
+	 * Number Of Triangles Currently In The Mesh
+	 */
+	public int getTriangleCount() {
+		return triangleCount;
+	}
+
+	/**
+	 * Triangles Currently In The Mesh, As Triangles Of Nodes
+	 */
+	private int[] currentNodeTriangles() {
+		int[] out = new int[triangleCount * 3];
+		int i = 0;
+		for (int t = 0; t < triangles.length / 3; t++) {
+			if (triangles[3 * t] < 0) continue;
+			for (int k = 0; k < 3; k++) {
+				out[i++] = node(t, k);
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * Approximates The Hausdorff Distance Between The Current Mesh And The Input
+	 * @see MeshDistance#hausdorff
+	 */
+	public double getHausdorffError() {
+		if (originalDistance == null) {
+			originalDistance = new MeshDistance(nodePositions, originalTriangles, originalTriangleCount);
+		}
+		int[] current = currentNodeTriangles();
+		double toOriginal = originalDistance.maxDistanceFrom(nodePositions, current, triangleCount);
+		double fromOriginal = new MeshDistance(nodePositions, current, triangleCount)
+				.maxDistanceFrom(nodePositions, originalTriangles, originalTriangleCount);
+		return Math.max(toOriginal, fromOriginal);
+	}
+
+	/**
+	 * Copies The Current Mesh Into A New MeshData, Keeping Only The Vertices Still In Use
+	 */
+	public MeshData toMeshData() {
+		int[] remap = new int[vertexCount];
+		Arrays.fill(remap, -1);
+		MeshData data = new MeshData();
+		data.indexCount = triangleCount * 3;
+		data.indices = NativeMem.createIntBuffer(data.indexCount);
+		int used = 0, i = 0;
+		for (int t = 0; t < triangles.length / 3; t++) {
+			if (triangles[3 * t] < 0) continue;
+			for (int k = 0; k < 3; k++) {
+				int w = triangles[3 * t + k];
+				if (remap[w] < 0) remap[w] = used++;
+				data.indices.put(i++, remap[w]);
+			}
+		}
+
+		data.vertexCount = used;
+		data.positions = NativeMem.createFloatBuffer(used * 3);
+		data.uvs = vertexUVs == null ? null : NativeMem.createFloatBuffer(used * 2);
+		data.normals = vertexNormals == null ? null : NativeMem.createFloatBuffer(used * 3);
+		for (int w = 0; w < vertexCount; w++) {
+			int r = remap[w];
+			if (r < 0) continue;
+			int n = vertexNode[w];
+			for (int d = 0; d < 3; d++) {
+				data.positions.put(3 * r + d, nodePositions[3 * n + d]);
+				if (vertexNormals != null) data.normals.put(3 * r + d, vertexNormals[3 * w + d]);
+			}
+			if (vertexUVs != null) {
+				data.uvs.put(2 * r, vertexUVs[2 * w]);
+				data.uvs.put(2 * r + 1, vertexUVs[2 * w + 1]);
+			}
+		}
+		return data;
+	}
+
+	/**
+	 * Copies The Current Mesh Into A New OBJMesh, Keeping Only The Positions And Attributes Still In Use
+	 */
+	public OBJMesh toOBJMesh() {
+		OBJMesh mesh = new OBJMesh();
+		int[] nodeIndex = new int[nodeCount], vertexIndex = new int[vertexCount];
+		Arrays.fill(nodeIndex, -1);
+		Arrays.fill(vertexIndex, -1);
+		for (int t = 0; t < triangles.length / 3; t++) {
+			if (triangles[3 * t] < 0) continue;
+			OBJFace face = new OBJFace(3, vertexUVs != null, vertexNormals != null);
+			for (int k = 0; k < 3; k++) {
+				int w = triangles[3 * t + k], n = vertexNode[w];
+				if (nodeIndex[n] < 0) {
+					nodeIndex[n] = mesh.positions.size();
+					mesh.positions.add(new Vector3(nodePositions[3 * n], nodePositions[3 * n + 1], nodePositions[3 * n + 2]));
+				}
+				if (vertexIndex[w] < 0 && (vertexUVs != null || vertexNormals != null)) {
+					vertexIndex[w] = Math.max(mesh.uvs.size(), mesh.normals.size());
+					if (vertexUVs != null) {
+						mesh.uvs.add(new Vector2(vertexUVs[2 * w], vertexUVs[2 * w + 1]));
+					}
+					if (vertexNormals != null) {
+						mesh.normals.add(new Vector3(vertexNormals[3 * w], vertexNormals[3 * w + 1], vertexNormals[3 * w + 2]));
+					}
+				}
+				face.positions[k] = nodeIndex[n] + OBJFace.indexBase;
+				if (vertexUVs != null) face.uvs[k] = vertexIndex[w] + OBJFace.indexBase;
+				if (vertexNormals != null) face.normals[k] = vertexIndex[w] + OBJFace.indexBase;
+			}
+			mesh.faces.add(face);
+		}
+		return mesh;
+	}
+
+	/**
+	 * Simplifies A Mesh Into A Chain Of Levels Of Detail
+	 * @param mesh Input Mesh, Which Is Not Modified
+	 * @param targetTriangleCounts Triangle Budget Of Each Level
+	 * @return One Level Per Target, From The Most Detailed To The Least, Each Simplified From The One Before
+	 */
+	public static ArrayList<Level> buildLODChain(MeshData mesh, int... targetTriangleCounts) {
+		int[] targets = targetTriangleCounts.clone();
+		Arrays.sort(targets);
+		MeshSimplifier simplifier = new MeshSimplifier(mesh);
+		ArrayList<Level> levels = new ArrayList<>(targets.length);
+		for (int i = targets.length - 1; i >= 0; i--) {
+			simplifier.simplify(targets[i]);
+			levels.add(new Level(simplifier.toMeshData(), simplifier.getTriangleCount(), simplifier.getHausdorffError()));
+		}
+		return levels;
+	}
+
+	/**
+	 * A Binary Min-Heap Of Candidate Collapses, Stored In Parallel Arrays
+	 * <p>
+	 * Entries are never updated in place; they record the versions of their nodes when queued, and are
+	 * skipped when popped if either node has changed since.
+	 */
+	private static class CollapseQueue {
+		private double[] costs = new double[64];
+		private int[] from = new int[64], to = new int[64], fromVersion = new int[64], toVersion = new int[64];
+		int size;
+
+		int poppedFrom, poppedTo, poppedFromVersion, poppedToVersion;
+
+		void push(double cost, int u, int v, int uVersion, int vVersion) {
+			if (size == costs.length) {
+				int capacity = 2 * size;
+				costs = Arrays.copyOf(costs, capacity);
+				from = Arrays.copyOf(from, capacity);
+				to = Arrays.copyOf(to, capacity);
+				fromVersion = Arrays.copyOf(fromVersion, capacity);
+				toVersion = Arrays.copyOf(toVersion, capacity);
+			}
+			int i = size++;
+			while (i > 0) {
+				int parent = (i - 1) / 2;
+				if (costs[parent] <= cost) break;
+				move(parent, i);
+				i = parent;
+			}
+			costs[i] = cost;
+			from[i] = u;
+			to[i] = v;
+			fromVersion[i] = uVersion;
+			toVersion[i] = vVersion;
+		}
+
+		/**
+		 * Removes The Cheapest Entry Into The popped Fields
+		 */
+		void pop() {
+			poppedFrom = from[0];
+			poppedTo = to[0];
+			poppedFromVersion = fromVersion[0];
+			poppedToVersion = toVersion[0];
+
+			// Sift The Last Entry Down From The Root
+			int last = --size;
+			double cost = costs[last];
+			int i = 0;
+			while (true) {
+				int child = 2 * i + 1;
+				if (child >= size) break;
+				if (child + 1 < size && costs[child + 1] < costs[child]) child++;
+				if (cost <= costs[child]) break;
+				move(child, i);
+				i = child;
+			}
+			move(last, i);
+		}
+
+		private void move(int src, int dst) {
+			costs[dst] = costs[src];
+			from[dst] = from[src];
+			to[dst] = to[src];
+			fromVersion[dst] = fromVersion[src];
+			toVersion[dst] = toVersion[src];
+		}
+	}
+}
@@ -1,6 +1,8 @@
 package mesh;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
@@ -245,7 +247,13 @@ public class OBJMesh {
 			System.out.println("Verifying mesh...");
 		}
 
-		int nPos = 0, nDupPos = 0;
+		// Duplicates are only reported in verbose mode. They are counted with spatial hashes in the background
+		// while the other checks run, and collected where they are reported.
+		CompletableFuture<Long> dupPos = countDuplicatesAsync(verbose && positions != null ? pack3(positions) : null, 3);
+		CompletableFuture<Long> dupUVs = countDuplicatesAsync(verbose && uvs != null ? pack2(uvs) : null, 2);
+		CompletableFuture<Long> dupNormals = countDuplicatesAsync(verbose && normals != null ? pack3(normals) : null, 3);
+
+		int nPos = 0;
 		if (positions != null && !positions.isEmpty()) {
 			nPos = positions.size();
 
@@ -260,20 +268,12 @@ public class OBJMesh {
 					}
 				}
 			}
-
-			for (int i=0; i<positions.size(); i++) {
-				for (int j=i+1; j<positions.size(); j++) {
-					if (positions.get(i).equalsApprox(positions.get(j))) {
-						nDupPos++;
-					}
-				}
-			}
 		}
 		if (verbose) {
-			System.out.println("Info: mesh lists " + nPos + " vertex positions (including " + nDupPos + " pairs of duplicates).");
+			System.out.println("Info: mesh lists " + nPos + " vertex positions (including " + dupPos.join() + " pairs of duplicates).");
 		}
 
-		int nUVs = 0, nDupUVs = 0;
+		int nUVs = 0;
 		boolean unnormalizedUVs = false;
 		if (uvs != null && !uvs.isEmpty()) {
 			nUVs = uvs.size();
@@ -293,23 +293,15 @@ public class OBJMesh {
 					unnormalizedUVs = true;
 				}
 			}
-
-			for (int i=0; i<uvs.size(); i++) {
-				for (int j=i+1; j<uvs.size(); j++) {
-					if (uvs.get(i).equalsApprox(uvs.get(j))) {
-						nDupUVs++;
-					}
-				}
-			}
 		}
 		if (verbose) {
-			System.out.println("Info: mesh lists " + nUVs + " vertex texture coordinates (including " + nDupUVs + " pairs of duplicates).");
+			System.out.println("Info: mesh lists " + nUVs + " vertex texture coordinates (including " + dupUVs.join() + " pairs of duplicates).");
 			if (unnormalizedUVs) {
 				System.out.println("Warning: mesh contains UV coordinates outside the [0,1] range.");
 			}
 		}
 
-		int nNormals = 0, nDupNormals = 0;
+		int nNormals = 0;
 		boolean unnormalizedNormals = false;
 		if (normals != null && !normals.isEmpty()) {
 			nNormals = normals.size();
@@ -329,17 +321,9 @@ public class OBJMesh {
 					unnormalizedNormals = true;
 				}
 			}
-
-			for (int i=0; i<normals.size(); i++) {
-				for (int j=i+1; j<normals.size(); j++) {
-					if (normals.get(i).equalsApprox(normals.get(j))) {
-						nDupNormals++;
-					}
-				}
-			}
 		}
 		if (verbose) {
-			System.out.println("Info: mesh lists " + nNormals + " vertex normals (including " + nDupNormals + " pairs of duplicates).");
+			System.out.println("Info: mesh lists " + nNormals + " vertex normals (including " + dupNormals.join() + " pairs of duplicates).");
 			if (unnormalizedNormals) {
 				System.out.println("Warning: mesh contains normals that are not unit length.");
 			}
@@ -484,6 +468,44 @@ public class OBJMesh {
 		return isValid;
 	}
 
+	/** The tolerance of equalsApprox(), which isValid() uses to find duplicates. */
+	private static final float EPSILON = 1e-5f;
+
+	/**
+	 * Copies vectors into a flat array for an ApproxPointGrid, with NaN for null entries.
+	 */
+	private static float[] pack3(ArrayList<Vector3> vectors) {
+		float[] coords = new float[3 * vectors.size()];
+		for (int i=0; i<vectors.size(); i++) {
+			Vector3 v = vectors.get(i);
+			coords[3*i] = v == null ? Float.NaN : v.x;
+			coords[3*i+1] = v == null ? Float.NaN : v.y;
+			coords[3*i+2] = v == null ? Float.NaN : v.z;
+		}
+		return coords;
+	}
+
+	private static float[] pack2(ArrayList<Vector2> vectors) {
+		float[] coords = new float[2 * vectors.size()];
+		for (int i=0; i<vectors.size(); i++) {
+			Vector2 v = vectors.get(i);
+			coords[2*i] = v == null ? Float.NaN : v.x;
+			coords[2*i+1] = v == null ? Float.NaN : v.y;
+		}
+		return coords;
+	}
+
+	/**
+	 * Starts counting the pairs of approximately equal points in coords, dim floats each, on another thread.
+	 * @param coords The points, or null to skip counting and report 0.
+	 */
+	private static CompletableFuture<Long> countDuplicatesAsync(final float[] coords, final int dim) {
+		if (coords == null) {
+			return CompletableFuture.completedFuture(0L);
+		}
+		return CompletableFuture.supplyAsync(() -> new ApproxPointGrid(coords, dim, EPSILON).countApproxEqualPairs());
+	}
+
 	/**
 	 * Returns true if two OBJMeshes are equivalent.
 	 * Equivalent means all of the following are true:
@@ -495,7 +517,8 @@ public class OBJMesh {
 	 * All floating point comparisons are assumed to match if within the epsilon value provided.
 	 * @warning This method assumes that m1.isValid() and m2.isValid() are both true.
 	 * @warning This method may return false incorrectly if both m1 and m2 have coincident faces with differing UVs or normals.
-	 * @note This method does a brute force comparison between all faces of both input meshes...be patient if using large meshes.
+	 * @note Only faces sharing a vertex position are compared, which are found through a spatial hash, so this takes
+	 * roughly linear time; the result and diagnostics are the same as comparing every pair of faces in order.
 	 */
 	public static boolean compare(OBJMesh m1, OBJMesh m2, boolean verbose, float eps) {
 		if (verbose) {
@@ -512,10 +535,13 @@ public class OBJMesh {
 		}
 
 		boolean[] m2matches = new boolean[m2.faces.size()];
+		FaceLocator inM2 = new FaceLocator(m2, eps);
 		for (int i1=0; i1<m1.faces.size(); i1++) {
 			OBJFace f1 = m1.faces.get(i1);
 			boolean foundMatch = false;
-			for (int i2=0; !foundMatch && i2<m2.faces.size(); i2++) {
+			int nCandidates = inM2.find(m1.getPosition(f1, 0));
+			for (int c=0; !foundMatch && c<nCandidates; c++) {
+				int i2 = inM2.candidate(c);
 				OBJFace f2 = m2.faces.get(i2);
 				CompareFacesResult comp = compareFaces(m1, f1, m2, f2, eps);
 
@@ -573,11 +599,14 @@ public class OBJMesh {
 			}
 		}
 
+		FaceLocator inM1 = new FaceLocator(m1, eps);
 		for (int i2=0; i2<m2.faces.size(); i2++) {
 			if (m2matches[i2]) continue;
 			OBJFace f2 = m2.faces.get(i2);
 			boolean foundMatch = false;
-			for (int i1=0; !foundMatch && i1<m1.faces.size(); i1++) {
+			int nCandidates = inM1.find(m2.getPosition(f2, 0));
+			for (int c=0; !foundMatch && c<nCandidates; c++) {
+				int i1 = inM1.candidate(c);
 				OBJFace f1 = m1.faces.get(i1);
 				CompareFacesResult comp = compareFaces(m1, f1, m2, f2, eps);
 
@@ -601,6 +630,83 @@ public class OBJMesh {
 		return meshesMatch;
 	}
 
+	/**
+	 * Finds the faces of a mesh that could match a face of another mesh, for compare().
+	 * A matching face has a vertex at every vertex position of the other face, so it uses a position within
+	 * eps of the other face's first vertex. Those positions are looked up in a spatial hash, which leaves a few
+	 * candidate faces to compare instead of all of them.
+	 */
+	private static class FaceLocator {
+		private final ApproxPointGrid grid;
+		/** The faces using position i are facesAt[facesStart[i], facesStart[i+1]). */
+		private final int[] facesStart, facesAt;
+		/** The last query in which each face was found, to report it once. */
+		private final int[] seen;
+		private int query;
+		private int[] found = new int[16];
+		private int nFound;
+		private final float[] point = new float[3];
+
+		FaceLocator(OBJMesh m, float eps) {
+			int nPos = m.positions.size();
+			// Nothing is within a non-positive eps of anything, so there is nothing to index
+			grid = eps > 0 ? new ApproxPointGrid(pack3(m.positions), 3, eps) : null;
+			facesStart = new int[nPos + 1];
+			for (OBJFace f : m.faces) {
+				for (int k=0; k<f.numVerts(); k++) {
+					facesStart[f.positions[k] - OBJFace.indexBase + 1]++;
+				}
+			}
+			for (int i=0; i<nPos; i++) {
+				facesStart[i+1] += facesStart[i];
+			}
+			facesAt = new int[facesStart[nPos]];
+			int[] next = Arrays.copyOf(facesStart, nPos);
+			for (int i=0; i<m.faces.size(); i++) {
+				OBJFace f = m.faces.get(i);
+				for (int k=0; k<f.numVerts(); k++) {
+					facesAt[next[f.positions[k] - OBJFace.indexBase]++] = i;
+				}
+			}
+			seen = new int[m.faces.size()];
+		}
+
+		/**
+		 * Finds the faces using a position within eps of p, and returns how many there are.
+		 * Their indices are then given by candidate(0) to candidate(n-1), in increasing order.
+		 */
+		int find(Vector3 p) {
+			nFound = 0;
+			query++;
+			if (grid != null) {
+				point[0] = p.x;
+				point[1] = p.y;
+				point[2] = p.z;
+				grid.forEachNear(point, 0, -1, this::addFacesAt);
+				Arrays.sort(found, 0, nFound);
+			}
+			return nFound;
+		}
+
+		int candidate(int i) {
+			return found[i];
+		}
+
+		private boolean addFacesAt(int position) {
+			for (int k=facesStart[position]; k<facesStart[position+1]; k++) {
+				int face = facesAt[k];
+				if (seen[face] != query) {
+					seen[face] = query;
+					if (nFound == found.length) {
+						found = Arrays.copyOf(found, 2 * nFound);
+					}
+					found[nFound++] = face;
+				}
+			}
+			return true;
+		}
+	}
+
 	private enum CompareFacesResult {
 		Mismatch, // The face positions do not match
 		Match, // The face positions match; if the face has UVs/normals, these match as well
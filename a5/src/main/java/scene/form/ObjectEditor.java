@@ -182,7 +182,10 @@ public class ObjectEditor extends JPanel implements ValueUpdatable {
 							}
 						}
 					}
-					if(isChanged) scene.sendEvent(new SceneTransformationEvent(myObject));
+					if(isChanged) {
+						myObject.transformation.detectFlags();
+						scene.sendEvent(new SceneTransformationEvent(myObject));
+					}
 				}
 			};
 			for(int y = 0;y < 4;y++) {
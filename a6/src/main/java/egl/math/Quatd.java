@@ -422,7 +422,7 @@ public class Quatd extends AbstractList<Double> implements Cloneable {
 		m.m[6] = 2 * y * z - 2 * w * x;
 		m.m[8] = 2 * x * z - 2 * w * y;
 		m.m[9] = 2 * y * z + 2 * w * x;
-		return m;
+		return m.detectFlags();
 	}
 
 	@Override
@@ -0,0 +1,294 @@
+package egl.math;
+
+/**
+ * A Transformation Decomposed Into Translation, Rotation And Scale
+ * <pre>
+ * M = T * R * S
+ * </pre>
+ * Interpolating The Parts Separately Keeps In-Between Rotations Rigid, Which Interpolating Matrices Does Not.
+ * <br>Single Precision</br>
+ */
+public class Transform implements Cloneable {
+	/**
+	 * Floats Taken By One Packed Transform: Translation XYZ, Rotation WXYZ, Scale XYZ
+	 */
+	public static final int PACKED_SIZE = 10;
+	/**
+	 * Rotation Interpolation By {@link Quat#slerp(Quat, Quat, float, Quat)}
+	 */
+	public static final int ROTATION_SLERP = 0;
+	/**
+	 * Rotation Interpolation By {@link Quat#nlerp(Quat, Quat, float, Quat)}
+	 */
+	public static final int ROTATION_NLERP = 1;
+	/**
+	 * Rotation Interpolation By {@link Quat#slerpFast(Quat, Quat, float, Quat)}
+	 */
+	public static final int ROTATION_SLERP_FAST = 2;
+
+	/**
+	 * Translation, Applied Last
+	 */
+	public final Vector3 translation = new Vector3();
+	/**
+	 * Rotation, Applied After Scaling
+	 */
+	public final Quat rotation = new Quat();
+	/**
+	 * Scale Along The Local Axes, Applied First
+	 */
+	public final Vector3 scale = new Vector3(1);
+
+	/**
+	 * Identity Transform Constructor
+	 */
+	public Transform() {
+	}
+	/**
+	 * Copy Constructor
+	 * @param t Transform
+	 */
+	public Transform(Transform t) {
+		set(t);
+	}
+	/**
+	 * Parts Constructor
+	 * @param t [{@link Vector3 POS}] Translation
+	 * @param r Rotation
+	 * @param s [{@link Vector3 ARR}] Scale
+	 */
+	public Transform(Vector3 t, Quat r, Vector3 s) {
+		set(t, r, s);
+	}
+
+	@Override
+	public String toString() {
+		return "{T" + translation + ", R" + rotation + ", S" + scale + "}";
+	}
+
+	/**
+	 * Set This Transform To The Identity
+	 * @return This
+	 */
+	public Transform setIdentity() {
+		translation.set(0);
+		rotation.setIdentity();
+		scale.set(1);
+		return this;
+	}
+	/**
+	 * Copy Transform Into This Transform
+	 * @param t Transform
+	 * @return This
+	 */
+	public Transform set(Transform t) {
+		return set(t.translation, t.rotation, t.scale);
+	}
+	/**
+	 * Parts Setter
+	 * @param t [{@link Vector3 POS}] Translation
+	 * @param r Rotation
+	 * @param s [{@link Vector3 ARR}] Scale
+	 * @return This
+	 */
+	public Transform set(Vector3 t, Quat r, Vector3 s) {
+		translation.set(t);
+		rotation.set(r);
+		scale.set(s);
+		return this;
+	}
+	/**
+	 * Decompose An Affine Matrix Into This Transform
+	 * <br>The Rotation Comes From The Polar Decomposition Of The Axes, And The Scale From The Diagonal
+	 * Of The Remaining Stretch, So Any Shear Is Dropped. Reflections Become Negative Scales.</br>
+	 * @param m Affine Matrix
+	 * @return This
+	 */
+	public Transform set(Matrix4 m) {
+		Matrix3 q = new Matrix3(), p = new Matrix3();
+		m.getAxes().polar_decomp(q, p);
+		float sign = q.determinant() < 0 ? -1 : 1;
+		if(sign < 0) for(int i = 0;i < Matrix3.ELEMENTS;i++) q.m[i] = -q.m[i];
+		m.getTrans(translation);
+		rotation.set(q);
+		scale.set(sign * p.m[0], sign * p.m[4], sign * p.m[8]);
+		return this;
+	}
+
+	/**
+	 * Set This To An Interpolation Of Two Transforms
+	 * <br>Translation And Scale Are Interpolated Linearly, And Rotation Along The Shorter Arc.
+	 * a Or b May Be This.</br>
+	 * @param a Transform At t = 0
+	 * @param b Transform At t = 1
+	 * @param t Interpolation Ratio
+	 * @param rotationMode ROTATION_SLERP, ROTATION_NLERP Or ROTATION_SLERP_FAST
+	 * @return This
+	 */
+	public Transform interpolate(Transform a, Transform b, float t, int rotationMode) {
+		translation.set(
+				a.translation.x + (b.translation.x - a.translation.x) * t,
+				a.translation.y + (b.translation.y - a.translation.y) * t,
+				a.translation.z + (b.translation.z - a.translation.z) * t
+				);
+		scale.set(
+				a.scale.x + (b.scale.x - a.scale.x) * t,
+				a.scale.y + (b.scale.y - a.scale.y) * t,
+				a.scale.z + (b.scale.z - a.scale.z) * t
+				);
+		switch(rotationMode) {
+		case ROTATION_NLERP:
+			Quat.nlerp(a.rotation, b.rotation, t, rotation);
+			break;
+		case ROTATION_SLERP_FAST:
+			Quat.slerpFast(a.rotation, b.rotation, t, rotation);
+			break;
+		default:
+			Quat.slerp(a.rotation, b.rotation, t, rotation);
+			break;
+		}
+		return this;
+	}
+
+	/**
+	 * Compose This Transform Into A Matrix
+	 * @param out Non-Null Output Matrix
+	 * @return Out
+	 */
+	public Matrix4 toMatrix(Matrix4 out) {
+		write(
+				translation.x, translation.y, translation.z,
+				rotation.w, rotation.x, rotation.y, rotation.z,
+				scale.x, scale.y, scale.z,
+				out.m, 0);
+		float s = scale.x;
+		return out.setFlags(s == scale.y && s == scale.z ? (s * s == 1 ? Matrix4.FLAG_RIGID : Matrix4.FLAG_UNIFORM_SCALE) : Matrix4.FLAG_AFFINE);
+	}
+	/**
+	 * Write This Transform Into An Array As PACKED_SIZE Floats
+	 * @param keys Packed Transforms
+	 * @param off Index Of The First Float
+	 */
+	public void pack(float[] keys, int off) {
+		keys[off]     = translation.x;
+		keys[off + 1] = translation.y;
+		keys[off + 2] = translation.z;
+		keys[off + 3] = rotation.w;
+		keys[off + 4] = rotation.x;
+		keys[off + 5] = rotation.y;
+		keys[off + 6] = rotation.z;
+		keys[off + 7] = scale.x;
+		keys[off + 8] = scale.y;
+		keys[off + 9] = scale.z;
+	}
+	/**
+	 * Read This Transform From PACKED_SIZE Floats Of An Array
+	 * @param keys Packed Transforms
+	 * @param off Index Of The First Float
+	 * @return This
+	 */
+	public Transform unpack(float[] keys, int off) {
+		translation.set(keys[off], keys[off + 1], keys[off + 2]);
+		rotation.set(keys[off + 3], keys[off + 4], keys[off + 5], keys[off + 6]);
+		scale.set(keys[off + 7], keys[off + 8], keys[off + 9]);
+		return this;
+	}
+
+	/**
+	 * Interpolates Many Transforms Between Keyframes Into A Palette Of Matrices
+	 * <br>Transform i Is Interpolated From Packed Keyframe from[i] To Packed Keyframe to[i] Of keys
+	 * By Ratio t[i], And Its Column Major Matrix Written To 16 Floats At paletteOff + 16 * i, Ready For Upload.
+	 * Works Entirely In Local Variables, So Nothing Is Allocated.</br>
+	 * @param keys Keyframes, PACKED_SIZE Floats Each
+	 * @param from Keyframe At t = 0 For Each Transform
+	 * @param to Keyframe At t = 1 For Each Transform
+	 * @param t Interpolation Ratio For Each Transform
+	 * @param count Number Of Transforms
+	 * @param rotationMode ROTATION_SLERP, ROTATION_NLERP Or ROTATION_SLERP_FAST
+	 * @param palette Output Matrices
+	 * @param paletteOff Index Of The First Matrix
+	 */
+	public static void interpolateTRS(float[] keys, int[] from, int[] to, float[] t, int count,
+			int rotationMode, float[] palette, int paletteOff) {
+		for(int i = 0;i < count;i++) {
+			final int a = from[i] * PACKED_SIZE, b = to[i] * PACKED_SIZE;
+			final float r = t[i], s = 1 - r;
+
+			// Rotation Along The Shorter Arc
+			float cosTheta = keys[a + 3] * keys[b + 3] + keys[a + 4] * keys[b + 4] + keys[a + 5] * keys[b + 5] + keys[a + 6] * keys[b + 6];
+			float sign = 1;
+			if(cosTheta < 0) {
+				cosTheta = -cosTheta;
+				sign = -1;
+			}
+			float wa, wb;
+			if(rotationMode == ROTATION_NLERP) {
+				wa = s;
+				wb = r;
+			}
+			else if(rotationMode == ROTATION_SLERP_FAST) {
+				wa = Quat.slerpFastWeight(cosTheta, s);
+				wb = Quat.slerpFastWeight(cosTheta, r);
+			}
+			else {
+				float theta = (float)Math.acos(Math.min(cosTheta, 1));
+				float sinTheta = (float)Math.sin(theta);
+				wa = Quat.slerpWeight(theta, sinTheta, s);
+				wb = Quat.slerpWeight(theta, sinTheta, r);
+			}
+			wb *= sign;
+
+			write(
+					s * keys[a]     + r * keys[b],
+					s * keys[a + 1] + r * keys[b + 1],
+					s * keys[a + 2] + r * keys[b + 2],
+					wa * keys[a + 3] + wb * keys[b + 3],
+					wa * keys[a + 4] + wb * keys[b + 4],
+					wa * keys[a + 5] + wb * keys[b + 5],
+					wa * keys[a + 6] + wb * keys[b + 6],
+					s * keys[a + 7] + r * keys[b + 7],
+					s * keys[a + 8] + r * keys[b + 8],
+					s * keys[a + 9] + r * keys[b + 9],
+					palette, paletteOff + 16 * i);
+		}
+	}
+	/**
+	 * Helper To Write T * R * S As 16 Column Major Floats
+	 * <br>The Rotation Need Not Be Normalized; Its Matrix Is Orthonormal Either Way, As In {@link Quat#toRotationMatrix(Matrix4)}.</br>
+	 */
+	private static void write(float tx, float ty, float tz, float qw, float qx, float qy, float qz,
+			float sx, float sy, float sz, float[] out, int off) {
+		float sq = qw * qw + qx * qx + qy * qy + qz * qz;
+		float f = sq > 0 ? (2 / sq) : 0;
+
+		float xs = qx * f, ys = qy * f, zs = qz * f;
+		float wx = qw * xs, wy = qw * ys, wz = qw * zs;
+		float xx = qx * xs, xy = qx * ys, xz = qx * zs;
+		float yy = qy * ys, yz = qy * zs, zz = qz * zs;
+
+		out[off]      = (1 - (yy + zz)) * sx;
+		out[off + 1]  = (xy + wz) * sx;
+		out[off + 2]  = (xz - wy) * sx;
+		out[off + 3]  = 0;
+		out[off + 4]  = (xy - wz) * sy;
+		out[off + 5]  = (1 - (xx + zz)) * sy;
+		out[off + 6]  = (yz + wx) * sy;
+		out[off + 7]  = 0;
+		out[off + 8]  = (xz + wy) * sz;
+		out[off + 9]  = (yz - wx) * sz;
+		out[off + 10] = (1 - (xx + yy)) * sz;
+		out[off + 11] = 0;
+		out[off + 12] = tx;
+		out[off + 13] = ty;
+		out[off + 14] = tz;
+		out[off + 15] = 1;
+	}
+
+	/**
+	 * @return A Copy Of This
+	 */
+	@Override
+	public Transform clone() {
+		return new Transform(this);
+	}
+}
@@ -58,7 +58,7 @@ public class RenderCamera extends RenderObject {
 		
 		// TODO#A3 SOLUTION START
 
-		// Create viewing matrix
+		// Create viewing matrix (camera transformations are usually rigid, so this is usually invertRigid)
 		mView.set(mWorldTransform).invert();
 
 		// Correct Image Aspect Ratio By Enlarging Image
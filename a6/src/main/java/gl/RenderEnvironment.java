@@ -15,6 +15,7 @@ import common.Texture;
 import common.texture.TexCubeMap;
 import mesh.MeshConverter;
 import mesh.MeshData;
+import mesh.MeshOptimizer;
 import mesh.OBJMesh_Archive;
 import mesh.OBJParser;
 import egl.GL.PixelFormat;
@@ -133,6 +134,15 @@ public class RenderEnvironment implements IDisposable {
 		}
 	}
 	
+	/**
+	 * Loads A Mesh And Uploads It To OpenGL
+	 * <p>
+	 * The vertices are reordered by MeshOptimizer, so vertex i of the source mesh is not vertex
+	 * i of the RenderMesh. Per-vertex data supplied later, such as skinning indices and weights,
+	 * must be in the source order; RenderMesh.vertexRemap maps it to the new order, as
+	 * addSkinningInformation does.
+	 * @param m Scene Mesh To Load
+	 */
 	public void addMesh(Mesh m) {
 		MeshData md = new MeshData();
 		switch (m.type) {
@@ -213,9 +223,13 @@ public class RenderEnvironment implements IDisposable {
 			return;
 		}
 
+		// Reorder For The Post-Transform Cache, Overdraw And Vertex Fetches; The RenderMesh
+		// Keeps The Remap, Since Per-Vertex Data Added Later (Skinning) Is In The Old Order
+		int[] remap = MeshOptimizer.optimize(md);
+
 		// Create OpenGL Resource
 		RenderMesh rm = new RenderMesh(m);
-		rm.build(md);
+		rm.build(md, remap);
 
 		// Add To Dictionary
 		meshes.put(m.getID().name, rm);
@@ -128,7 +128,7 @@ public class RenderTreeBuilder {
 	private static void rippleTransformationsImpl(RenderObject ro) {
 		if(ro.parent != null) {
 			ro.mWorldTransform.set(ro.sceneObject.transformation).mulAfter(ro.parent.mWorldTransform);
-			ro.mWorldTransformIT.set(ro.mWorldTransform.getAxes()).invert().transpose();
+			ro.mWorldTransform.normalMatrix(ro.mWorldTransformIT);
 		}
 		for(RenderObject cro : ro.children) {
 			rippleTransformationsImpl(cro);
@@ -0,0 +1,433 @@
+package mesh;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+import egl.NativeMem;
+
+/**
+ * Reorders The Index And Vertex Buffers Of A Mesh For Faster Drawing
+ * <p>
+ * Three passes are applied in order, none of which changes the rendered image:
+ * <ol>
+ * <li>Triangles are reordered with Tom Forsyth's linear-speed vertex cache optimization, so that the
+ * vertices of each triangle are likely still in the GPU's post-transform cache and the vertex shader
+ * reruns less often.</li>
+ * <li>The cache-friendly order is cut into clusters where the cache would be flushed anyway, and clusters
+ * facing away from the center of the mesh are drawn first, so that they tend to occlude the rest and less
+ * fragment work is wasted on overdraw. A cluster is only split off where this costs the vertex cache at
+ * most a given factor.</li>
+ * <li>Vertices are renumbered in the order the triangles first use them, so vertex fetches walk the vertex
+ * buffer front to back.</li>
+ * </ol>
+ * analyzeVertexCache() simulates a FIFO post-transform cache on the CPU, so the gains can be measured
+ * without a GPU.
+ */
+public class MeshOptimizer {
+	/**
+	 * Size Of The LRU Cache That The Vertex Cache Optimization Models
+	 */
+	public static final int OPTIMIZER_CACHE_SIZE = 32;
+	/**
+	 * Default Size Of The Simulated FIFO Post-Transform Cache
+	 */
+	public static final int DEFAULT_CACHE_SIZE = 16;
+	/**
+	 * Default Factor By Which The Overdraw Pass May Raise The Average Cache Miss Ratio Within A Cluster
+	 */
+	public static final float DEFAULT_OVERDRAW_THRESHOLD = 1.05f;
+
+	// Forsyth's Scoring Constants
+	private static final float CACHE_DECAY_POWER = 1.5f;
+	private static final float LAST_TRIANGLE_SCORE = 0.75f;
+	private static final float VALENCE_BOOST_SCALE = 2.0f;
+	private static final float VALENCE_BOOST_POWER = 0.5f;
+	/**
+	 * Valences Whose Scores Are Tabulated; Higher Valences Are Computed When Needed
+	 */
+	private static final int VALENCE_TABLE_SIZE = 32;
+
+	private static final float[] CACHE_SCORES = new float[OPTIMIZER_CACHE_SIZE];
+	private static final float[] VALENCE_SCORES = new float[VALENCE_TABLE_SIZE];
+	static {
+		for(int i = 0;i < OPTIMIZER_CACHE_SIZE;i++) {
+			// The Vertices Of The Last Triangle Score The Same, So Its Orientation Does Not Matter
+			CACHE_SCORES[i] = i < 3 ? LAST_TRIANGLE_SCORE :
+				(float)Math.pow(1.0 - (double)(i - 3) / (OPTIMIZER_CACHE_SIZE - 3), CACHE_DECAY_POWER);
+		}
+		for(int i = 1;i < VALENCE_TABLE_SIZE;i++) {
+			VALENCE_SCORES[i] = valenceScore(i);
+		}
+	}
+
+	/**
+	 * Cache Behavior Of An Index Buffer, As Reported By analyzeVertexCache()
+	 */
+	public static class CacheStatistics {
+		/**
+		 * Size Of The Simulated Cache
+		 */
+		public final int cacheSize;
+		/**
+		 * Number Of Triangles Drawn
+		 */
+		public final int triangleCount;
+		/**
+		 * Number Of Distinct Vertices The Triangles Use
+		 */
+		public final int vertexCount;
+		/**
+		 * Number Of Times A Vertex Was Not Found In The Cache And Had To Be Transformed
+		 */
+		public final int transforms;
+
+		public CacheStatistics(int cacheSize, int triangleCount, int vertexCount, int transforms) {
+			this.cacheSize = cacheSize;
+			this.triangleCount = triangleCount;
+			this.vertexCount = vertexCount;
+			this.transforms = transforms;
+		}
+
+		/**
+		 * Average Cache Miss Ratio: Vertex Transforms Per Triangle, Between 0.5 For A Large Regular Grid And 3
+		 * @return Transforms Divided By Triangles
+		 */
+		public double getACMR() {
+			return triangleCount == 0 ? 0 : (double)transforms / triangleCount;
+		}
+		/**
+		 * Average Transform To Vertex Ratio: How Often Each Vertex Is Transformed, At Best 1
+		 * @return Transforms Divided By Vertices
+		 */
+		public double getATVR() {
+			return vertexCount == 0 ? 0 : (double)transforms / vertexCount;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("ACMR %.3f, ATVR %.3f (%d transforms, %d triangles, %d vertices, %d entry FIFO)",
+				getACMR(), getATVR(), transforms, triangleCount, vertexCount, cacheSize);
+		}
+	}
+
+	/**
+	 * Applies All Passes With Their Default Settings
+	 * @param data Mesh To Reorder In Place
+	 * @return The New Index Of Each Old Vertex, For Reordering Any Other Per-Vertex Data
+	 */
+	public static int[] optimize(MeshData data) {
+		optimizeVertexCache(data);
+		optimizeOverdraw(data, DEFAULT_OVERDRAW_THRESHOLD);
+		return optimizeVertexFetch(data);
+	}
+
+	/**
+	 * Simulates A FIFO Post-Transform Cache Of The Default Size On A Mesh's Index Buffer
+	 * @param data Mesh To Analyze
+	 * @return Cache Statistics
+	 */
+	public static CacheStatistics analyzeVertexCache(MeshData data) {
+		return analyzeVertexCache(data, DEFAULT_CACHE_SIZE);
+	}
+	/**
+	 * Simulates A FIFO Post-Transform Cache On A Mesh's Index Buffer
+	 * @param data Mesh To Analyze
+	 * @param cacheSize Number Of Vertices The Cache Holds
+	 * @return Cache Statistics
+	 */
+	public static CacheStatistics analyzeVertexCache(MeshData data, int cacheSize) {
+		if(cacheSize < 3) throw new IllegalArgumentException("Cache Must Hold At Least One Triangle");
+		int[] indices = readIndices(data);
+
+		// A Vertex Is Cached If Fewer Than cacheSize Misses Have Happened Since It Was Loaded
+		int[] loadedAt = new int[data.vertexCount];
+		boolean[] used = new boolean[data.vertexCount];
+		int clock = cacheSize + 1, vertexCount = 0;
+		for(int v : indices) {
+			if(clock - loadedAt[v] > cacheSize) {
+				loadedAt[v] = ++clock;
+			}
+			if(!used[v]) {
+				used[v] = true;
+				vertexCount++;
+			}
+		}
+		return new CacheStatistics(cacheSize, indices.length / 3, vertexCount, clock - cacheSize - 1);
+	}
+
+	/**
+	 * Reorders Triangles So That Their Vertices Are Likely Still In The Post-Transform Cache
+	 * <p>
+	 * The original order is kept if it already simulates better in a cache of the default size.
+	 * @param data Mesh Whose Index Buffer Is Reordered In Place
+	 */
+	public static void optimizeVertexCache(MeshData data) {
+		int[] indices = readIndices(data);
+		int original = analyzeVertexCache(data).transforms;
+		int triCount = indices.length / 3;
+		int vertexCount = data.vertexCount;
+
+		// Triangles Of Each Vertex, With The Ones Not Yet Drawn Kept At The Front Of Each Range
+		int[] liveTriangles = new int[vertexCount];
+		for(int v : indices) liveTriangles[v]++;
+		int[] adjacencyStart = new int[vertexCount + 1];
+		for(int v = 0;v < vertexCount;v++) adjacencyStart[v + 1] = adjacencyStart[v] + liveTriangles[v];
+		int[] adjacency = new int[indices.length];
+		int[] fill = Arrays.copyOf(adjacencyStart, vertexCount);
+		for(int i = 0;i < indices.length;i++) adjacency[fill[indices[i]]++] = i / 3;
+
+		int[] cachePosition = new int[vertexCount];
+		Arrays.fill(cachePosition, -1);
+		float[] vertexScores = new float[vertexCount];
+		for(int v = 0;v < vertexCount;v++) vertexScores[v] = vertexScore(-1, liveTriangles[v]);
+		float[] triangleScores = new float[triCount];
+		for(int t = 0;t < triCount;t++) {
+			triangleScores[t] = vertexScores[indices[t * 3]] + vertexScores[indices[t * 3 + 1]] + vertexScores[indices[t * 3 + 2]];
+		}
+		boolean[] drawn = new boolean[triCount];
+
+		// The Model Cache Has Room For One Extra Triangle Before Its Oldest Entries Fall Out
+		int[] cache = new int[OPTIMIZER_CACHE_SIZE + 3], newCache = new int[OPTIMIZER_CACHE_SIZE + 3];
+		int cacheCount = 0;
+
+		int[] order = new int[indices.length];
+		int nextUndrawn = 0;
+		int best = -1;
+		for(int out = 0;out < triCount;out++) {
+			// With Nothing Near The Cache Worth Drawing, Start Again From The First Triangle Not Yet Drawn
+			if(best < 0) {
+				while(drawn[nextUndrawn]) nextUndrawn++;
+				best = nextUndrawn;
+			}
+			drawn[best] = true;
+
+			// Put The Triangle's Vertices At The Front Of The Cache
+			int newCount = 0;
+			for(int c = 0;c < 3;c++) {
+				int v = indices[best * 3 + c];
+				order[out * 3 + c] = v;
+
+				// Retire The Triangle From The Vertex's Live Range
+				int end = adjacencyStart[v] + --liveTriangles[v];
+				for(int a = adjacencyStart[v];a <= end;a++) {
+					if(adjacency[a] == best) {
+						adjacency[a] = adjacency[end];
+						adjacency[end] = best;
+						break;
+					}
+				}
+
+				if(newCount == 0 || newCache[0] != v && (newCount == 1 || newCache[1] != v)) newCache[newCount++] = v;
+			}
+			for(int i = 0;i < cacheCount;i++) {
+				if(!isCorner(indices, best, cache[i])) newCache[newCount++] = cache[i];
+			}
+			for(int i = 0;i < newCount;i++) cachePosition[newCache[i]] = i;
+			int[] swap = cache;
+			cache = newCache;
+			newCache = swap;
+			cacheCount = newCount;
+
+			// Rescore Every Vertex The Cache Touched, Dropping Those That Fell Out
+			best = -1;
+			float bestScore = -1;
+			for(int i = 0;i < cacheCount;i++) {
+				int v = cache[i];
+				if(i >= OPTIMIZER_CACHE_SIZE) cachePosition[v] = -1;
+				float score = vertexScore(cachePosition[v], liveTriangles[v]);
+				float delta = score - vertexScores[v];
+				vertexScores[v] = score;
+				for(int a = adjacencyStart[v], end = a + liveTriangles[v];a < end;a++) {
+					int t = adjacency[a];
+					float s = triangleScores[t] += delta;
+					if(i < OPTIMIZER_CACHE_SIZE && s > bestScore) {
+						bestScore = s;
+						best = t;
+					}
+				}
+			}
+			// Triangles Of Evicted Vertices Are Only Candidates Through Vertices Still Cached
+			if(cacheCount > OPTIMIZER_CACHE_SIZE) cacheCount = OPTIMIZER_CACHE_SIZE;
+		}
+
+		writeIndices(data, order);
+		if(analyzeVertexCache(data).transforms > original) writeIndices(data, indices);
+	}
+	private static boolean isCorner(int[] indices, int tri, int v) {
+		return indices[tri * 3] == v || indices[tri * 3 + 1] == v || indices[tri * 3 + 2] == v;
+	}
+	private static float vertexScore(int cachePosition, int liveTriangles) {
+		// Vertices With No Triangles Left To Draw Add Nothing
+		if(liveTriangles == 0) return -1;
+		float score = cachePosition < 0 ? 0 : CACHE_SCORES[cachePosition];
+		return score + (liveTriangles < VALENCE_TABLE_SIZE ? VALENCE_SCORES[liveTriangles] : valenceScore(liveTriangles));
+	}
+	private static float valenceScore(int liveTriangles) {
+		// Vertices With Few Triangles Left Are Boosted, So That They Get Finished Off Instead Of Left Behind
+		return VALENCE_BOOST_SCALE * (float)Math.pow(liveTriangles, -VALENCE_BOOST_POWER);
+	}
+
+	/**
+	 * Reorders Clusters Of Triangles So That Those Facing Outward Are Drawn First
+	 * <p>
+	 * Best run after optimizeVertexCache(), whose order the clusters are cut from. The cache miss ratio of each
+	 * cluster may rise by up to the threshold.
+	 * @param data Mesh Whose Index Buffer Is Reordered In Place
+	 * @param threshold Factor By Which The Average Cache Miss Ratio May Grow, At Least 1
+	 */
+	public static void optimizeOverdraw(MeshData data, float threshold) {
+		int[] indices = readIndices(data);
+		int triCount = indices.length / 3;
+		if(triCount == 0) return;
+		int[] loadedAt = new int[data.vertexCount];
+
+		// The Cache Order Already Restarts Where A Triangle Shares No Cached Vertex, Costing Nothing To Cut
+		int[] clusters = new int[triCount + 1];
+		int clusterCount = 0;
+		int[] clock = {DEFAULT_CACHE_SIZE + 1};
+		for(int t = 0;t < triCount;t++) {
+			if(simulateTriangle(indices, t, loadedAt, clock) == 3 || t == 0) clusters[clusterCount++] = t;
+		}
+		clusters[clusterCount] = triCount;
+
+		// Cut Each Of Those Wherever The Part So Far Has A Cache Miss Ratio Within The Threshold
+		int[] cuts = new int[triCount + 1];
+		int cutCount = 0;
+		for(int c = 0;c < clusterCount;c++) {
+			int start = clusters[c], end = clusters[c + 1];
+			clock[0] += DEFAULT_CACHE_SIZE + 1;
+			int misses = 0;
+			for(int t = start;t < end;t++) misses += simulateTriangle(indices, t, loadedAt, clock);
+			double limit = threshold * (double)misses / (end - start);
+
+			cuts[cutCount++] = start;
+			clock[0] += DEFAULT_CACHE_SIZE + 1;
+			int runMisses = 0, runTriangles = 0;
+			for(int t = start;t < end - 1;t++) {
+				runMisses += simulateTriangle(indices, t, loadedAt, clock);
+				runTriangles++;
+				if(runMisses <= limit * runTriangles) {
+					cuts[cutCount++] = t + 1;
+					clock[0] += DEFAULT_CACHE_SIZE + 1;
+					runMisses = runTriangles = 0;
+				}
+			}
+		}
+		cuts[cutCount] = triCount;
+
+		// Sort Clusters By How Far Their Area-Weighted Center Lies Out Along Their Area-Weighted Normal
+		double[] center = new double[3];
+		for(int v : indices) {
+			for(int d = 0;d < 3;d++) center[d] += data.positions.get(v * 3 + d);
+		}
+		for(int d = 0;d < 3;d++) center[d] /= indices.length;
+		final double[] keys = new double[cutCount];
+		Integer[] sorted = new Integer[cutCount];
+		for(int c = 0;c < cutCount;c++) {
+			double[] centroid = new double[3], normal = new double[3];
+			double area = 0;
+			for(int t = cuts[c];t < cuts[c + 1];t++) {
+				int a = indices[t * 3] * 3, b = indices[t * 3 + 1] * 3, e = indices[t * 3 + 2] * 3;
+				double e1x = data.positions.get(b) - data.positions.get(a);
+				double e1y = data.positions.get(b + 1) - data.positions.get(a + 1);
+				double e1z = data.positions.get(b + 2) - data.positions.get(a + 2);
+				double e2x = data.positions.get(e) - data.positions.get(a);
+				double e2y = data.positions.get(e + 1) - data.positions.get(a + 1);
+				double e2z = data.positions.get(e + 2) - data.positions.get(a + 2);
+				double nx = e1y * e2z - e1z * e2y, ny = e1z * e2x - e1x * e2z, nz = e1x * e2y - e1y * e2x;
+				double w = Math.sqrt(nx * nx + ny * ny + nz * nz);
+				normal[0] += nx; normal[1] += ny; normal[2] += nz;
+				for(int d = 0;d < 3;d++) {
+					centroid[d] += w * (data.positions.get(a + d) + data.positions.get(b + d) + data.positions.get(e + d)) / 3;
+				}
+				area += w;
+			}
+			double len = Math.sqrt(normal[0] * normal[0] + normal[1] * normal[1] + normal[2] * normal[2]);
+			double key = 0;
+			if(area > 0 && len > 0) {
+				for(int d = 0;d < 3;d++) key += (centroid[d] / area - center[d]) * normal[d] / len;
+			}
+			keys[c] = key;
+			sorted[c] = c;
+		}
+		// The Sort Is Stable, So Clusters With Equal Keys Keep Their Cache Order
+		Arrays.sort(sorted, (c1, c2) -> Double.compare(keys[c2], keys[c1]));
+
+		int[] order = new int[indices.length];
+		int out = 0;
+		for(int c : sorted) {
+			int n = (cuts[c + 1] - cuts[c]) * 3;
+			System.arraycopy(indices, cuts[c] * 3, order, out, n);
+			out += n;
+		}
+		writeIndices(data, order);
+	}
+	/**
+	 * Runs One Triangle Through A Simulated FIFO Cache Of The Default Size
+	 * @return Number Of Cache Misses
+	 */
+	private static int simulateTriangle(int[] indices, int tri, int[] loadedAt, int[] clock) {
+		int misses = 0;
+		for(int c = 0;c < 3;c++) {
+			int v = indices[tri * 3 + c];
+			if(clock[0] - loadedAt[v] > DEFAULT_CACHE_SIZE) {
+				loadedAt[v] = ++clock[0];
+				misses++;
+			}
+		}
+		return misses;
+	}
+
+	/**
+	 * Renumbers Vertices In The Order The Index Buffer First Uses Them
+	 * <p>
+	 * Vertices no triangle uses are kept, after all the others.
+	 * @param data Mesh Whose Vertex And Index Buffers Are Reordered In Place
+	 * @return The New Index Of Each Old Vertex, For Reordering Any Other Per-Vertex Data
+	 */
+	public static int[] optimizeVertexFetch(MeshData data) {
+		int[] indices = readIndices(data);
+		int[] remap = new int[data.vertexCount];
+		Arrays.fill(remap, -1);
+		int next = 0;
+		for(int i = 0;i < indices.length;i++) {
+			int v = indices[i];
+			if(remap[v] < 0) remap[v] = next++;
+			indices[i] = remap[v];
+		}
+		for(int v = 0;v < remap.length;v++) {
+			if(remap[v] < 0) remap[v] = next++;
+		}
+
+		data.positions = remapVertices(data.positions, 3, remap);
+		if(data.hasNormals()) data.normals = remapVertices(data.normals, 3, remap);
+		if(data.hasUVs()) data.uvs = remapVertices(data.uvs, 2, remap);
+		writeIndices(data, indices);
+		return remap;
+	}
+	private static FloatBuffer remapVertices(FloatBuffer src, int components, int[] remap) {
+		FloatBuffer dst = NativeMem.createFloatBuffer(remap.length * components);
+		for(int v = 0;v < remap.length;v++) {
+			for(int c = 0;c < components;c++) {
+				dst.put(remap[v] * components + c, src.get(v * components + c));
+			}
+		}
+		return dst;
+	}
+
+	private static int[] readIndices(MeshData data) {
+		int[] indices = new int[data.indexCount - data.indexCount % 3];
+		for(int i = 0;i < indices.length;i++) {
+			indices[i] = data.indices.get(i);
+			if(indices[i] < 0 || indices[i] >= data.vertexCount) {
+				throw new IndexOutOfBoundsException("Index " + i + " Refers To Vertex " + indices[i] + " Of " + data.vertexCount);
+			}
+		}
+		return indices;
+	}
+	private static void writeIndices(MeshData data, int[] indices) {
+		IntBuffer ib = data.indices;
+		for(int i = 0;i < indices.length;i++) ib.put(i, indices[i]);
+	}
+}
@@ -0,0 +1,78 @@
+package util;
+
+import java.io.IOException;
+
+import mesh.MeshSimplifier;
+import mesh.OBJMesh;
+import egl.math.Vector3;
+
+/**
+ * Command Line Level Of Detail Generator
+ *
+ * Simplifies an OBJ mesh into a chain of levels with decreasing triangle budgets, writing each level to its
+ * own OBJ file and reporting its triangle count and Hausdorff distance from the input.
+ */
+public class MeshLOD {
+
+	/**
+	 * @param args[0] inputFile
+	 * @param args[1] output prefix; level i is written to prefix_lod{i}.obj
+	 * @param args[2...] triangle budget of each level
+	 */
+	public static void main(String[] args) {
+		// Check Arguments
+		if(args == null || args.length < 3) {
+			System.out.println("Arguments To Program Must Be:");
+			System.out.println("MeshLOD <inputFile>.obj <outputPrefix> <triangles> [<triangles> ...]");
+			return;
+		}
+
+		int[] targets = new int[args.length - 2];
+		try {
+			for(int i = 0;i < targets.length;i++) {
+				targets[i] = Integer.parseInt(args[i + 2]);
+			}
+		} catch (NumberFormatException e) {
+			System.out.println("Expected A Triangle Count: " + e.getMessage());
+			return;
+		}
+		java.util.Arrays.sort(targets);
+
+		OBJMesh input;
+		try {
+			input = new OBJMesh(args[0]);
+		} catch (IOException e) {
+			System.out.println("Could Not Read Input File: " + e.getMessage());
+			return;
+		}
+
+		// Errors Are Also Reported Relative To The Size Of The Mesh
+		Vector3 min = new Vector3(Float.POSITIVE_INFINITY), max = new Vector3(Float.NEGATIVE_INFINITY);
+		for(Vector3 p : input.positions) {
+			min.set(Math.min(min.x, p.x), Math.min(min.y, p.y), Math.min(min.z, p.z));
+			max.set(Math.max(max.x, p.x), Math.max(max.y, p.y), Math.max(max.z, p.z));
+		}
+		double diagonal = max.clone().sub(min).len();
+
+		MeshSimplifier simplifier = new MeshSimplifier(input);
+		System.out.println("Input: " + simplifier.getTriangleCount() + " triangles");
+		for(int level = 0;level < targets.length;level++) {
+			int target = targets[targets.length - 1 - level];
+			long start = System.nanoTime();
+			boolean reached = simplifier.simplify(target);
+			double seconds = (System.nanoTime() - start) / 1e9;
+			double error = simplifier.getHausdorffError();
+
+			String fileOut = args[1] + "_lod" + level + ".obj";
+			try {
+				simplifier.toOBJMesh().writeOBJ(fileOut);
+			} catch (IOException e) {
+				System.out.println("Could Not Write Output File: " + fileOut);
+				return;
+			}
+			System.out.printf("LOD %d: %d triangles%s, Hausdorff error %.6f (%.3f%% of the bounding diagonal), %.2f s -> %s\n",
+				level, simplifier.getTriangleCount(), reached ? "" : " (target " + target + " not reached)",
+				error, diagonal > 0 ? 100 * error / diagonal : 0, seconds, fileOut);
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package util;
+
+import mesh.MeshData;
+import mesh.MeshOptimizer;
+import mesh.OBJMesh_Archive;
+import mesh.OBJParser;
+
+/**
+ * Command Line Vertex Cache Report
+ *
+ * Loads an OBJ mesh the way the renderer does, runs each pass of MeshOptimizer on it in turn, and prints the
+ * simulated post-transform cache behavior before and after every pass.
+ */
+public class MeshOptimize {
+
+	/**
+	 * @param args[0] inputFile
+	 * @param args[1...] sizes of the simulated FIFO caches (default 16)
+	 */
+	public static void main(String[] args) {
+		// Check Arguments
+		if(args == null || args.length < 1) {
+			System.out.println("Arguments To Program Must Be:");
+			System.out.println("MeshOptimize <inputFile>.obj [<cacheSize> ...]");
+			return;
+		}
+
+		int[] cacheSizes = { MeshOptimizer.DEFAULT_CACHE_SIZE };
+		try {
+			if(args.length > 1) {
+				cacheSizes = new int[args.length - 1];
+				for(int i = 0;i < cacheSizes.length;i++) {
+					cacheSizes[i] = Integer.parseInt(args[i + 1]);
+					if(cacheSizes[i] < 3) {
+						System.out.println("Cache Must Hold At Least One Triangle: " + cacheSizes[i]);
+						return;
+					}
+				}
+			}
+		} catch (NumberFormatException e) {
+			System.out.println("Expected A Cache Size: " + e.getMessage());
+			return;
+		}
+
+		OBJMesh_Archive om = OBJParser.parse(args[0]);
+		MeshData md = om == null ? null : om.flatten();
+		if(md == null) {
+			System.out.println("Could Not Read Input File: " + args[0]);
+			return;
+		}
+
+		report("Input", md, cacheSizes, 0);
+		long start = System.nanoTime();
+		MeshOptimizer.optimizeVertexCache(md);
+		report("Vertex cache", md, cacheSizes, start);
+		start = System.nanoTime();
+		MeshOptimizer.optimizeOverdraw(md, MeshOptimizer.DEFAULT_OVERDRAW_THRESHOLD);
+		report("Overdraw", md, cacheSizes, start);
+		start = System.nanoTime();
+		MeshOptimizer.optimizeVertexFetch(md);
+		report("Vertex fetch", md, cacheSizes, start);
+	}
+
+	private static void report(String pass, MeshData md, int[] cacheSizes, long start) {
+		String time = start == 0 ? "" : String.format(" (%.2f s)", (System.nanoTime() - start) / 1e9);
+		System.out.println(pass + time + ":");
+		for(int cacheSize : cacheSizes) {
+			System.out.println("  " + MeshOptimizer.analyzeVertexCache(md, cacheSize));
+		}
+	}
+}
@@ -1,5 +1,7 @@
 package egl.math;
 
+import java.nio.FloatBuffer;
+
 /**
  * 4x4 Matrix With Column Major Ordering
  * <br>Single Precision</br>
@@ -15,10 +17,28 @@ public class Matrix4 implements Cloneable {
 	 * Number Of Elements (SIZE * SIZE)
 	 */
 	public static final int ELEMENTS = SIZE * SIZE;
+	/**
+	 * Flag For Matrices Whose Bottom Row Is [0 0 0 1]
+	 */
+	public static final int FLAG_AFFINE = 1;
+	/**
+	 * Flag For Affine Matrices Whose Axes Are Orthogonal And Of Equal Length (Rotation, Uniform Scale And Translation)
+	 */
+	public static final int FLAG_UNIFORM_SCALE = 2;
+	/**
+	 * Flag For Affine Matrices Whose Axes Are Orthonormal (Rotation And Translation)
+	 */
+	public static final int FLAG_RIGID = 4;
 	/**
 	 * Array Containing The Elements
 	 */
 	public final float[] m = new float[ELEMENTS];
+	/**
+	 * FLAG_* Bits For The Structure Known To Hold For The Elements
+	 * <br>The Setters, Products, Inverses And Factories Of This Class Keep Them Up To Date.
+	 * Code That Writes m Directly Must Call {@link #setFlags(int)} Or {@link #detectFlags()} Afterwards.</br>
+	 */
+	private int flags;
 
 	/**
 	 * Inline Constructor
@@ -75,6 +95,7 @@ public class Matrix4 implements Cloneable {
 	 */
 	public Matrix4(Matrix4 _m) {
 		this(_m.m);
+		flags = _m.flags;
 	}
 	/**
 	 * Minor Constructor extends with zeros and a one
@@ -87,6 +108,7 @@ public class Matrix4 implements Cloneable {
 				_m.m[2], _m.m[5], _m.m[8], 0,
 				   0   ,    0   ,    0   , 1
 				);
+		flags = FLAG_AFFINE;
 	}
 	/**
 	 * Row Constructor
@@ -117,6 +139,7 @@ public class Matrix4 implements Cloneable {
 				x.z, y.z, z.z, t.z,
 				0, 0, 0, 1
 				);
+		flags = FLAG_AFFINE;
 	}
 	/**
 	 * Identity Matrix Constructor
@@ -128,6 +151,7 @@ public class Matrix4 implements Cloneable {
 				0, 0, 1, 0,
 				0, 0, 0, 1
 				);
+		flags = FLAG_AFFINE | FLAG_UNIFORM_SCALE | FLAG_RIGID;
 	}
 
 	@Override
@@ -167,6 +191,7 @@ public class Matrix4 implements Cloneable {
 	 */
 	public void set(int r, int c, float v) {
 		m[index(r,c)] = v;
+		flags = 0;
 	}
 	
 	/**
@@ -329,6 +354,7 @@ public class Matrix4 implements Cloneable {
 		m[13] = m13;
 		m[14] = m23;
 		m[15] = m33;
+		flags = 0;
 		return this;
 	}
 	/**
@@ -341,7 +367,7 @@ public class Matrix4 implements Cloneable {
 				0, 1, 0, 0,
 				0, 0, 1, 0,
 				0, 0, 0, 1
-				);
+				).setFlags(FLAG_RIGID);
 	}
 	/**
 	 * Copy Matrix Into This Matrix
@@ -350,9 +376,77 @@ public class Matrix4 implements Cloneable {
 	 */
 	public Matrix4 set(Matrix4 mat) {
 		for(int i = 0;i < ELEMENTS;i++) m[i] = mat.m[i];
+		flags = mat.flags;
 		return this;
 	}
 
+	/**
+	 * @return FLAG_* Bits For The Structure Known To Hold
+	 */
+	public int getFlags() {
+		return flags;
+	}
+	/**
+	 * Declares The Structure Of The Elements, Adding Flags Implied By Others
+	 * <br>Rigid Implies Uniform Scale, Which Implies Affine. The Flags Are Trusted, Not Checked.</br>
+	 * @param f FLAG_* Bits
+	 * @return This
+	 */
+	public Matrix4 setFlags(int f) {
+		if((f & FLAG_RIGID) != 0) f |= FLAG_UNIFORM_SCALE;
+		if((f & FLAG_UNIFORM_SCALE) != 0) f |= FLAG_AFFINE;
+		flags = f;
+		return this;
+	}
+	/**
+	 * Sets The Flags From The Elements
+	 * <br>The Axes Count As Orthogonal And Of Equal Length When Their Squared Lengths And Dot Products
+	 * Agree To Within epsilon Times The Squared Length Of The X-Axis, And As Unit Length When That Is Within epsilon Of 1.</br>
+	 * @param epsilon Relative Tolerance
+	 * @return This
+	 */
+	public Matrix4 detectFlags(float epsilon) {
+		flags = 0;
+		if(m[3] != 0 || m[7] != 0 || m[11] != 0 || m[15] != 1) return this;
+		float xx = m[0] * m[0] + m[1] * m[1] + m[2]  * m[2];
+		float yy = m[4] * m[4] + m[5] * m[5] + m[6]  * m[6];
+		float zz = m[8] * m[8] + m[9] * m[9] + m[10] * m[10];
+		float xy = m[0] * m[4] + m[1] * m[5] + m[2]  * m[6];
+		float xz = m[0] * m[8] + m[1] * m[9] + m[2]  * m[10];
+		float yz = m[4] * m[8] + m[5] * m[9] + m[6]  * m[10];
+		float tol = epsilon * xx;
+		if(xx > 0 && Math.abs(yy - xx) <= tol && Math.abs(zz - xx) <= tol &&
+				Math.abs(xy) <= tol && Math.abs(xz) <= tol && Math.abs(yz) <= tol) {
+			return setFlags(Math.abs(xx - 1) <= epsilon ? FLAG_RIGID : FLAG_UNIFORM_SCALE);
+		}
+		return setFlags(FLAG_AFFINE);
+	}
+	/**
+	 * @see {@link #detectFlags(float) Mat4.detectFlags(1e-5f)}
+	 * @return This
+	 */
+	public Matrix4 detectFlags() {
+		return detectFlags(1e-5f);
+	}
+	/**
+	 * @return True If The Bottom Row Is Known To Be [0 0 0 1]
+	 */
+	public boolean isAffine() {
+		return (flags & FLAG_AFFINE) != 0;
+	}
+	/**
+	 * @return True If The Matrix Is Known To Be A Rotation, Uniform Scale And Translation
+	 */
+	public boolean isUniformScale() {
+		return (flags & FLAG_UNIFORM_SCALE) != 0;
+	}
+	/**
+	 * @return True If The Matrix Is Known To Be A Rotation And Translation
+	 */
+	public boolean isRigid() {
+		return (flags & FLAG_RIGID) != 0;
+	}
+
 	/**
 	 * Composes A Matrix M Onto This So That M Applies After This
 	 * <pre>
@@ -362,6 +456,7 @@ public class Matrix4 implements Cloneable {
 	 * @return This
 	 */
 	public Matrix4 mulAfter(Matrix4 mat) {
+		final int f = flags & mat.flags;
 		return set(
 				innerProduct(mat, this, 0, 0),
 				innerProduct(mat, this, 0, 1),
@@ -379,7 +474,7 @@ public class Matrix4 implements Cloneable {
 				innerProduct(mat, this, 3, 1),
 				innerProduct(mat, this, 3, 2),
 				innerProduct(mat, this, 3, 3)
-				);
+				).setFlags(f);
 	}
 
 	/**
@@ -391,6 +486,7 @@ public class Matrix4 implements Cloneable {
 	 * @return This
 	 */
 	public Matrix4 mulBefore(Matrix4 mat) {
+		final int f = flags & mat.flags;
 		return set(
 				innerProduct(this, mat, 0, 0),
 				innerProduct(this, mat, 0, 1),
@@ -408,7 +504,7 @@ public class Matrix4 implements Cloneable {
 				innerProduct(this, mat, 3, 1),
 				innerProduct(this, mat, 3, 2),
 				innerProduct(this, mat, 3, 3)
-				);
+				).setFlags(f);
 	}
 
 	/**
@@ -421,6 +517,7 @@ public class Matrix4 implements Cloneable {
 	 * @return Out
 	 */
 	public Matrix4 mulAfter(Matrix4 mat, Matrix4 out) {
+		final int f = flags & mat.flags;
 		return out.set(
 				innerProduct(mat, this, 0, 0),
 				innerProduct(mat, this, 0, 1),
@@ -438,7 +535,7 @@ public class Matrix4 implements Cloneable {
 				innerProduct(mat, this, 3, 1),
 				innerProduct(mat, this, 3, 2),
 				innerProduct(mat, this, 3, 3)
-				);
+				).setFlags(f);
 	}
 
 	/**
@@ -451,6 +548,7 @@ public class Matrix4 implements Cloneable {
 	 * @return Out
 	 */
 	public Matrix4 mulBefore(Matrix4 mat, Matrix4 out) {
+		final int f = flags & mat.flags;
 		return out.set(
 				innerProduct(this, mat, 0, 0),
 				innerProduct(this, mat, 0, 1),
@@ -468,7 +566,7 @@ public class Matrix4 implements Cloneable {
 				innerProduct(this, mat, 3, 1),
 				innerProduct(this, mat, 3, 2),
 				innerProduct(this, mat, 3, 3)
-				);
+				).setFlags(f);
 	}
 
 	/**
@@ -520,6 +618,267 @@ public class Matrix4 implements Cloneable {
 				m[2] * v.x + m[6] * v.y + m[10] * v.z);
 	}
 
+	/**
+	 * Transforms And Homogenizes Many Positions Stored In An Array
+	 * <pre>
+	 * {V, w} = This * {V, 1}
+	 * V = V / w
+	 * </pre>
+	 * Position i Is Read From src[srcOff + i * stride] And Written To dst[dstOff + i * stride],
+	 * So Interleaved Vertex Data Can Be Transformed Without Copying It Out.
+	 * src And dst May Be The Same Array.
+	 * @param src Source Positions
+	 * @param srcOff Index Of The First Source X
+	 * @param dst Destination Positions
+	 * @param dstOff Index Of The First Destination X
+	 * @param count Number Of Positions
+	 * @param stride Elements From One Position To The Next (At Least 3)
+	 */
+	public void transformPositions(float[] src, int srcOff, float[] dst, int dstOff, int count, int stride) {
+		final float m0 = m[0], m1 = m[1], m2 = m[2], m3 = m[3];
+		final float m4 = m[4], m5 = m[5], m6 = m[6], m7 = m[7];
+		final float m8 = m[8], m9 = m[9], m10 = m[10], m11 = m[11];
+		final float m12 = m[12], m13 = m[13], m14 = m[14], m15 = m[15];
+		if(m3 == 0 && m7 == 0 && m11 == 0 && m15 == 1) {
+			for(int i = 0, s = srcOff, d = dstOff; i < count; i++, s += stride, d += stride) {
+				float x = src[s], y = src[s + 1], z = src[s + 2];
+				dst[d]     = m0 * x + m4 * y + m8  * z + m12;
+				dst[d + 1] = m1 * x + m5 * y + m9  * z + m13;
+				dst[d + 2] = m2 * x + m6 * y + m10 * z + m14;
+			}
+		}
+		else {
+			for(int i = 0, s = srcOff, d = dstOff; i < count; i++, s += stride, d += stride) {
+				float x = src[s], y = src[s + 1], z = src[s + 2];
+				float w = 1 / (m3 * x + m7 * y + m11 * z + m15);
+				dst[d]     = (m0 * x + m4 * y + m8  * z + m12) * w;
+				dst[d + 1] = (m1 * x + m5 * y + m9  * z + m13) * w;
+				dst[d + 2] = (m2 * x + m6 * y + m10 * z + m14) * w;
+			}
+		}
+	}
+	/**
+	 * Transforms And Homogenizes Many Positions Stored In A Buffer
+	 * <pre>
+	 * {V, w} = This * {V, 1}
+	 * V = V / w
+	 * </pre>
+	 * Uses Absolute Indices, So The Buffers' Positions And Limits Are Unchanged.
+	 * @param src Source Positions
+	 * @param srcOff Index Of The First Source X
+	 * @param dst Destination Positions
+	 * @param dstOff Index Of The First Destination X
+	 * @param count Number Of Positions
+	 * @param stride Elements From One Position To The Next (At Least 3)
+	 */
+	public void transformPositions(FloatBuffer src, int srcOff, FloatBuffer dst, int dstOff, int count, int stride) {
+		final float m0 = m[0], m1 = m[1], m2 = m[2], m3 = m[3];
+		final float m4 = m[4], m5 = m[5], m6 = m[6], m7 = m[7];
+		final float m8 = m[8], m9 = m[9], m10 = m[10], m11 = m[11];
+		final float m12 = m[12], m13 = m[13], m14 = m[14], m15 = m[15];
+		final boolean affine = m3 == 0 && m7 == 0 && m11 == 0 && m15 == 1;
+		for(int i = 0, s = srcOff, d = dstOff; i < count; i++, s += stride, d += stride) {
+			float x = src.get(s), y = src.get(s + 1), z = src.get(s + 2);
+			float w = affine ? 1 : 1 / (m3 * x + m7 * y + m11 * z + m15);
+			dst.put(d,     (m0 * x + m4 * y + m8  * z + m12) * w);
+			dst.put(d + 1, (m1 * x + m5 * y + m9  * z + m13) * w);
+			dst.put(d + 2, (m2 * x + m6 * y + m10 * z + m14) * w);
+		}
+	}
+	/**
+	 * Transforms Many Directions Stored In An Array (Does Not Homogenize)
+	 * <pre>
+	 * {V, _} = This * {V, 0}
+	 * </pre>
+	 * Same Layout As {@link #transformPositions(float[], int, float[], int, int, int)}
+	 * @param src Source Directions
+	 * @param srcOff Index Of The First Source X
+	 * @param dst Destination Directions
+	 * @param dstOff Index Of The First Destination X
+	 * @param count Number Of Directions
+	 * @param stride Elements From One Direction To The Next (At Least 3)
+	 */
+	public void transformDirections(float[] src, int srcOff, float[] dst, int dstOff, int count, int stride) {
+		final float m0 = m[0], m1 = m[1], m2 = m[2];
+		final float m4 = m[4], m5 = m[5], m6 = m[6];
+		final float m8 = m[8], m9 = m[9], m10 = m[10];
+		for(int i = 0, s = srcOff, d = dstOff; i < count; i++, s += stride, d += stride) {
+			float x = src[s], y = src[s + 1], z = src[s + 2];
+			dst[d]     = m0 * x + m4 * y + m8  * z;
+			dst[d + 1] = m1 * x + m5 * y + m9  * z;
+			dst[d + 2] = m2 * x + m6 * y + m10 * z;
+		}
+	}
+	/**
+	 * Transforms Many Directions Stored In A Buffer (Does Not Homogenize)
+	 * <pre>
+	 * {V, _} = This * {V, 0}
+	 * </pre>
+	 * Same Layout As {@link #transformPositions(FloatBuffer, int, FloatBuffer, int, int, int)}
+	 * @param src Source Directions
+	 * @param srcOff Index Of The First Source X
+	 * @param dst Destination Directions
+	 * @param dstOff Index Of The First Destination X
+	 * @param count Number Of Directions
+	 * @param stride Elements From One Direction To The Next (At Least 3)
+	 */
+	public void transformDirections(FloatBuffer src, int srcOff, FloatBuffer dst, int dstOff, int count, int stride) {
+		final float m0 = m[0], m1 = m[1], m2 = m[2];
+		final float m4 = m[4], m5 = m[5], m6 = m[6];
+		final float m8 = m[8], m9 = m[9], m10 = m[10];
+		for(int i = 0, s = srcOff, d = dstOff; i < count; i++, s += stride, d += stride) {
+			float x = src.get(s), y = src.get(s + 1), z = src.get(s + 2);
+			dst.put(d,     m0 * x + m4 * y + m8  * z);
+			dst.put(d + 1, m1 * x + m5 * y + m9  * z);
+			dst.put(d + 2, m2 * x + m6 * y + m10 * z);
+		}
+	}
+	/**
+	 * Helper To Build The Inverse Transpose Of The Upper-Left 3x3 Block
+	 * @return 9 Entries In Row Major Order
+	 * @throws AssertionError When Determinant Is Zero
+	 */
+	private float[] normalBlock() throws AssertionError {
+		float c00 = m[5] * m[10] - m[9] * m[6];
+		float c01 = m[9] * m[2]  - m[1] * m[10];
+		float c02 = m[1] * m[6]  - m[5] * m[2];
+		float det = m[0] * c00 + m[4] * c01 + m[8] * c02;
+		if(det == 0) throw new AssertionError("Determinant Of 0");
+		float f = 1 / det;
+		return new float[] {
+				f * c00,
+				f * c01,
+				f * c02,
+				f * (m[8] * m[6]  - m[4] * m[10]),
+				f * (m[0] * m[10] - m[8] * m[2]),
+				f * (m[4] * m[2]  - m[0] * m[6]),
+				f * (m[4] * m[9]  - m[8] * m[5]),
+				f * (m[8] * m[1]  - m[0] * m[9]),
+				f * (m[0] * m[5]  - m[4] * m[1])
+		};
+	}
+	/**
+	 * Transforms Many Normals Stored In An Array By The Inverse Transpose (Does Not Normalize)
+	 * <pre>
+	 * {N, _} = Inverse(Transpose(This)) * {N, 0}
+	 * </pre>
+	 * Only The Upper-Left 3x3 Block Is Used, And Its Inverse Is Computed Once For The Whole Batch.
+	 * Same Layout As {@link #transformPositions(float[], int, float[], int, int, int)}
+	 * @param src Source Normals
+	 * @param srcOff Index Of The First Source X
+	 * @param dst Destination Normals
+	 * @param dstOff Index Of The First Destination X
+	 * @param count Number Of Normals
+	 * @param stride Elements From One Normal To The Next (At Least 3)
+	 * @throws AssertionError When The Upper-Left 3x3 Block Is Singular
+	 */
+	public void transformNormals(float[] src, int srcOff, float[] dst, int dstOff, int count, int stride) throws AssertionError {
+		final float[] n = normalBlock();
+		final float n0 = n[0], n1 = n[1], n2 = n[2];
+		final float n3 = n[3], n4 = n[4], n5 = n[5];
+		final float n6 = n[6], n7 = n[7], n8 = n[8];
+		for(int i = 0, s = srcOff, d = dstOff; i < count; i++, s += stride, d += stride) {
+			float x = src[s], y = src[s + 1], z = src[s + 2];
+			dst[d]     = n0 * x + n1 * y + n2 * z;
+			dst[d + 1] = n3 * x + n4 * y + n5 * z;
+			dst[d + 2] = n6 * x + n7 * y + n8 * z;
+		}
+	}
+	/**
+	 * Transforms Many Normals Stored In A Buffer By The Inverse Transpose (Does Not Normalize)
+	 * <pre>
+	 * {N, _} = Inverse(Transpose(This)) * {N, 0}
+	 * </pre>
+	 * Same Layout As {@link #transformPositions(FloatBuffer, int, FloatBuffer, int, int, int)}
+	 * @param src Source Normals
+	 * @param srcOff Index Of The First Source X
+	 * @param dst Destination Normals
+	 * @param dstOff Index Of The First Destination X
+	 * @param count Number Of Normals
+	 * @param stride Elements From One Normal To The Next (At Least 3)
+	 * @throws AssertionError When The Upper-Left 3x3 Block Is Singular
+	 */
+	public void transformNormals(FloatBuffer src, int srcOff, FloatBuffer dst, int dstOff, int count, int stride) throws AssertionError {
+		final float[] n = normalBlock();
+		final float n0 = n[0], n1 = n[1], n2 = n[2];
+		final float n3 = n[3], n4 = n[4], n5 = n[5];
+		final float n6 = n[6], n7 = n[7], n8 = n[8];
+		for(int i = 0, s = srcOff, d = dstOff; i < count; i++, s += stride, d += stride) {
+			float x = src.get(s), y = src.get(s + 1), z = src.get(s + 2);
+			dst.put(d,     n0 * x + n1 * y + n2 * z);
+			dst.put(d + 1, n3 * x + n4 * y + n5 * z);
+			dst.put(d + 2, n6 * x + n7 * y + n8 * z);
+		}
+	}
+	/**
+	 * Computes The Bounding Box Of Many Positions After Transformation, Without Storing Them
+	 * <br>Same Layout As {@link #transformPositions(float[], int, float[], int, int, int)}</br>
+	 * @param src Source Positions
+	 * @param srcOff Index Of The First Source X
+	 * @param count Number Of Positions
+	 * @param stride Elements From One Position To The Next (At Least 3)
+	 * @param outMin [{@link Vector3 POS}] Receives The Minimum Corner
+	 * @param outMax [{@link Vector3 POS}] Receives The Maximum Corner
+	 */
+	public void transformBounds(float[] src, int srcOff, int count, int stride, Vector3 outMin, Vector3 outMax) {
+		final float m0 = m[0], m1 = m[1], m2 = m[2], m3 = m[3];
+		final float m4 = m[4], m5 = m[5], m6 = m[6], m7 = m[7];
+		final float m8 = m[8], m9 = m[9], m10 = m[10], m11 = m[11];
+		final float m12 = m[12], m13 = m[13], m14 = m[14], m15 = m[15];
+		final boolean affine = m3 == 0 && m7 == 0 && m11 == 0 && m15 == 1;
+		float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY, minZ = Float.POSITIVE_INFINITY;
+		float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY, maxZ = Float.NEGATIVE_INFINITY;
+		for(int i = 0, s = srcOff; i < count; i++, s += stride) {
+			float x = src[s], y = src[s + 1], z = src[s + 2];
+			float w = affine ? 1 : 1 / (m3 * x + m7 * y + m11 * z + m15);
+			float tx = (m0 * x + m4 * y + m8  * z + m12) * w;
+			float ty = (m1 * x + m5 * y + m9  * z + m13) * w;
+			float tz = (m2 * x + m6 * y + m10 * z + m14) * w;
+			if(tx < minX) minX = tx;
+			if(tx > maxX) maxX = tx;
+			if(ty < minY) minY = ty;
+			if(ty > maxY) maxY = ty;
+			if(tz < minZ) minZ = tz;
+			if(tz > maxZ) maxZ = tz;
+		}
+		outMin.set(minX, minY, minZ);
+		outMax.set(maxX, maxY, maxZ);
+	}
+	/**
+	 * Computes The Bounding Box Of A Transformed Axis-Aligned Box
+	 * <br>Affine Matrices Take Each Row's Extremes Directly From The Signs Of Its Entries
+	 * [Arvo 1990]; Others Transform All 8 Corners.</br>
+	 * @param min [{@link Vector3 POS}] Minimum Corner Of The Box
+	 * @param max [{@link Vector3 POS}] Maximum Corner Of The Box
+	 * @param outMin [{@link Vector3 POS}] Receives The Minimum Corner (May Be min)
+	 * @param outMax [{@link Vector3 POS}] Receives The Maximum Corner (May Be max)
+	 */
+	public void transformBox(Vector3 min, Vector3 max, Vector3 outMin, Vector3 outMax) {
+		final float x0 = min.x, y0 = min.y, z0 = min.z;
+		final float x1 = max.x, y1 = max.y, z1 = max.z;
+		if(m[3] == 0 && m[7] == 0 && m[11] == 0 && m[15] == 1) {
+			float lx = m[12], ly = m[13], lz = m[14];
+			float hx = lx, hy = ly, hz = lz;
+			for(int c = 0; c < 3; c++) {
+				float a = c == 0 ? x0 : c == 1 ? y0 : z0;
+				float b = c == 0 ? x1 : c == 1 ? y1 : z1;
+				float e, f;
+				e = m[c * 4] * a;     f = m[c * 4] * b;     lx += Math.min(e, f); hx += Math.max(e, f);
+				e = m[c * 4 + 1] * a; f = m[c * 4 + 1] * b; ly += Math.min(e, f); hy += Math.max(e, f);
+				e = m[c * 4 + 2] * a; f = m[c * 4 + 2] * b; lz += Math.min(e, f); hz += Math.max(e, f);
+			}
+			outMin.set(lx, ly, lz);
+			outMax.set(hx, hy, hz);
+		}
+		else {
+			float[] corners = {
+					x0, y0, z0, x1, y0, z0, x0, y1, z0, x1, y1, z0,
+					x0, y0, z1, x1, y0, z1, x0, y1, z1, x1, y1, z1
+			};
+			transformBounds(corners, 0, 8, 3, outMin, outMax);
+		}
+	}
+
 	/**
 	 * Transpose In Place
 	 * @return This
@@ -532,6 +891,7 @@ public class Matrix4 implements Cloneable {
 		t = m[6];  m[6]  = m[9];  m[9] = t;
 		t = m[7];  m[7]  = m[13]; m[13] = t;
 		t = m[11]; m[11] = m[14]; m[14] = t;
+		flags = 0;
 		return this;
 	}
 	/**
@@ -567,10 +927,86 @@ public class Matrix4 implements Cloneable {
 	}
 	/**
 	 * Inverts In Place If Inverse Exists
+	 * <br>Uses {@link #invertRigid()} Or {@link #invertAffine()} When The Flags Allow It.</br>
 	 * @return This
 	 * @throws AssertionError When Determinant Is Zero
 	 */
 	public Matrix4 invert() throws AssertionError {
+		if((flags & FLAG_RIGID) != 0) return invertRigid();
+		if((flags & FLAG_UNIFORM_SCALE) != 0) {
+			float s = m[0] * m[0] + m[1] * m[1] + m[2] * m[2];
+			if(s == 0) throw new AssertionError("Determinant Of 0");
+			return invertOrthogonal(1 / s, flags);
+		}
+		if((flags & FLAG_AFFINE) != 0) return invertAffine();
+		return invertGeneral();
+	}
+	/**
+	 * Inverts In Place, Assuming The Bottom Row Is [0 0 0 1]
+	 * <pre>
+	 * | A  t |^-1   | A^-1  -A^-1 * t |
+	 * | 0  1 |    = |  0       1      |
+	 * </pre>
+	 * Only The 3x3 Block Needs Its Cofactors.
+	 * @return This
+	 * @throws AssertionError When Determinant Is Zero
+	 */
+	public Matrix4 invertAffine() throws AssertionError {
+		final float[] n = normalBlock();
+		return setAffineInverse(
+				n[0], n[3], n[6],
+				n[1], n[4], n[7],
+				n[2], n[5], n[8],
+				flags | FLAG_AFFINE);
+	}
+	/**
+	 * Inverts In Place, Assuming The Matrix Is A Rotation And Translation
+	 * <pre>
+	 * | R  t |^-1   | R^T  -R^T * t |
+	 * | 0  1 |    = |  0      1     |
+	 * </pre>
+	 * @return This
+	 */
+	public Matrix4 invertRigid() {
+		return invertOrthogonal(1, FLAG_RIGID);
+	}
+	/**
+	 * Helper To Invert A Matrix Whose Axes Are Orthogonal With Squared Length 1 / s
+	 * @param s Inverse Squared Scale
+	 * @param f Flags Of The Result
+	 * @return This
+	 */
+	private Matrix4 invertOrthogonal(float s, int f) {
+		return setAffineInverse(
+				s * m[0], s * m[1], s * m[2],
+				s * m[4], s * m[5], s * m[6],
+				s * m[8], s * m[9], s * m[10],
+				f);
+	}
+	/**
+	 * Helper To Set This Affine Matrix To Its Inverse, Given The Inverse Of Its 3x3 Block
+	 * @return This
+	 */
+	private Matrix4 setAffineInverse(
+			float i00, float i01, float i02,
+			float i10, float i11, float i12,
+			float i20, float i21, float i22,
+			int f) {
+		float tx = m[12], ty = m[13], tz = m[14];
+		return set(
+				i00, i01, i02, -(i00 * tx + i01 * ty + i02 * tz),
+				i10, i11, i12, -(i10 * tx + i11 * ty + i12 * tz),
+				i20, i21, i22, -(i20 * tx + i21 * ty + i22 * tz),
+				0, 0, 0, 1
+				).setFlags(f);
+	}
+	/**
+	 * Helper To Invert Any Matrix By Its 16 Cofactors
+	 * @return This
+	 * @throws AssertionError When Determinant Is Zero
+	 */
+	private Matrix4 invertGeneral() throws AssertionError {
+		final int flg = flags;
 		float cof00 = coFactor(0, 0);
 		float cof01 = coFactor(0, 1);
 		float cof02 = coFactor(0, 2);
@@ -587,8 +1023,44 @@ public class Matrix4 implements Cloneable {
 				f * coFactor(1, 0), f * coFactor(1, 1), f * coFactor(1, 2), f * coFactor(1, 3),
 				f * coFactor(2, 0), f * coFactor(2, 1), f * coFactor(2, 2), f * coFactor(2, 3),
 				f * coFactor(3, 0), f * coFactor(3, 1), f * coFactor(3, 2), f * coFactor(3, 3)
+				).setFlags(flg);
+	}
+	/**
+	 * Computes The Matrix That Transforms Normals, The Inverse Transpose Of The XYZ-Axes
+	 * <br>Rigid Matrices Give Their Axes And Uniform Scales Their Axes Over The Squared Scale,
+	 * Without Any Inversion.</br>
+	 * @param out [{@link Matrix3 OUT}] Matrix
+	 * @return Out
+	 * @throws AssertionError When Determinant Is Zero
+	 */
+	public Matrix3 normalMatrix(Matrix3 out) throws AssertionError {
+		if((flags & FLAG_RIGID) != 0) return getAxes(out);
+		if((flags & FLAG_UNIFORM_SCALE) != 0) {
+			float s = m[0] * m[0] + m[1] * m[1] + m[2] * m[2];
+			if(s == 0) throw new AssertionError("Determinant Of 0");
+			s = 1 / s;
+			return out.set(
+					s * m[0], s * m[4], s * m[8],
+					s * m[1], s * m[5], s * m[9],
+					s * m[2], s * m[6], s * m[10]
+					);
+		}
+		final float[] n = normalBlock();
+		return out.set(
+				n[0], n[1], n[2],
+				n[3], n[4], n[5],
+				n[6], n[7], n[8]
 				);
 	}
+	/**
+	 * Computes The Inverse Transpose Of This Matrix Into Out, Using The Fast Inverses When The Flags Allow It
+	 * @param out Non-Null Output Matrix (May Be This)
+	 * @return Out
+	 * @throws AssertionError When Determinant Is Zero
+	 */
+	public Matrix4 normalMatrix(Matrix4 out) throws AssertionError {
+		return out.set(this).invert().transpose();
+	}
 	
 	/**
 	 * @return A Copy Of This
@@ -618,7 +1090,7 @@ public class Matrix4 implements Cloneable {
 				0, y, 0, 0,
 				0, 0, z, 0,
 				0, 0, 0, 1
-				);
+				).setFlags(x == y && y == z ? (x * x == 1 ? FLAG_RIGID : FLAG_UNIFORM_SCALE) : FLAG_AFFINE);
 	}
 	/**
 	 * @see {@link #createScale(float, float, float, Matrix4) Mat4.createScale(v.x, v.y, v.z, out)}
@@ -685,7 +1157,7 @@ public class Matrix4 implements Cloneable {
 				0, 1, 0, y,
 				0, 0, 1, z,
 				0, 0, 0, 1
-				);
+				).setFlags(FLAG_RIGID);
 	}
 	/**
 	 * @see {@link #createTranslation(float, float, float, Matrix4) Mat4.createTranslation(v.x, v.y, v.z, out)}
@@ -734,7 +1206,7 @@ public class Matrix4 implements Cloneable {
 				0, cosT, -sinT, 0,
 				0, sinT, cosT, 0,
 				0, 0, 0, 1
-				);
+				).setFlags(FLAG_RIGID);
 	}
 	/**
 	 * Create A Y-Axis Rotation Matrix Into Out
@@ -755,7 +1227,7 @@ public class Matrix4 implements Cloneable {
 				0, 1, 0, 0,
 				-sinT, 0, cosT, 0,
 				0, 0, 0, 1
-				);
+				).setFlags(FLAG_RIGID);
 	}
 	/**
 	 * Create A Z-Axis Rotation Matrix Into Out
@@ -776,7 +1248,7 @@ public class Matrix4 implements Cloneable {
 				sinT, cosT, 0, 0,
 				0, 0, 1, 0,
 				0, 0, 0, 1
-				);
+				).setFlags(FLAG_RIGID);
 	}
 	/**
 	 * @see {@link #createRotationX(float, Matrix4) Mat4.createRotationX(t, new Mat4())}
@@ -912,7 +1384,7 @@ public class Matrix4 implements Cloneable {
 				0, 2.f / h, 0, 0,
 				0, 0, a, znear * a,
 				0, 0, 0, 1
-				);
+				).setFlags(FLAG_AFFINE);
 	}
 	/**
 	 * @see {@link #createOrthographic(float, float, float, float, Matrix4) Mat4.createOrthographic(w, h, znear, zfar, new Mat4())}
@@ -948,7 +1420,7 @@ public class Matrix4 implements Cloneable {
 				2 / w, 0, 0, -(l + r) / w,
 				0, 2 / h, 0, -(b + t) / h,
 				0, 0, 1, 0, 
-				0, 0, 0, 1);
+				0, 0, 0, 1).setFlags(FLAG_AFFINE);
 	}
 	
 	/**
@@ -989,7 +1461,7 @@ public class Matrix4 implements Cloneable {
 				y.x, y.y, y.z, -y.dot(eye),
 				z.x, z.y, z.z, -z.dot(eye),
 				0, 0, 0, 1
-				);
+				).setFlags(FLAG_RIGID);
 	}
 	/**
 	 * @see {@link #createLookAt(Vector3, Vector3, Vector3, Matrix4) Mat4.createLookAt(eye, target, up, new Mat4())}
@@ -1027,7 +1499,7 @@ public class Matrix4 implements Cloneable {
 				y.x, y.y, y.z, -y.dot(eye),
 				z.x, z.y, z.z, -z.dot(eye),
 				0, 0, 0, 1
-				);
+				).setFlags(FLAG_RIGID);
 	}
 	/**
 	 * @see {@link #createView(Vector3, Vector3, Vector3, Matrix4) Mat4.createView(eye, viewDir, up, new Mat4())}
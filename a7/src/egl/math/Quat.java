@@ -366,40 +366,117 @@ public class Quat extends AbstractList<Float> implements Cloneable {
 		return addScaled(s, q.w, q.x, q.y, q.z);
 	}
 	
-        public static Quat slerp(Quat i1, Quat i2, float t)
-        {
-            Quat q1 = (Quat) i1.clone();
-            Quat q2 = (Quat) i2.clone();
-            
-            float cosTheta = q1.x * q2.x + q1.y * q2.y + q1.z * q2.z + q1.w * q2.w;
-            if (cosTheta < 0)
-            {
-              cosTheta = -cosTheta;
-              q2.negate();
-            }
-            if (cosTheta > 1) cosTheta = 1;
-            
-            float theta = (float) Math.acos(cosTheta);
-            
-            Quat q = new Quat();
-            if (theta < 0.01f)
-            {
-              q.set(q1);
-              q.scale(1 - t);
-              q2.scale(t);
-              q.add(q2);
-            }
-            else
-            {
-              float sinTheta = (float) Math.sin(theta);
-              q.set(q1);
-              q.scale((float) Math.sin((1 - t) * theta) / sinTheta);
-              q2.scale((float) Math.sin(t * theta) / sinTheta);
-              q.add(q2);
-            }
-            
-            return q;
-        }
+	/**
+	 * @see {@link #slerp(Quat, Quat, float, Quat) Quat.slerp(q1, q2, t, new Quat())}
+	 * @param q1 Rotation At t = 0
+	 * @param q2 Rotation At t = 1
+	 * @param t Interpolation Ratio
+	 * @return New Quaternion
+	 */
+	public static Quat slerp(Quat q1, Quat q2, float t) {
+		return slerp(q1, q2, t, new Quat());
+	}
+	/**
+	 * Spherical Linear Interpolation Along The Shorter Arc Into Out
+	 * <br>Angles Under 0.01 Radians Fall Back To Linear Interpolation. Out May Be q1 Or q2.</br>
+	 * @param q1 Rotation At t = 0
+	 * @param q2 Rotation At t = 1
+	 * @param t Interpolation Ratio
+	 * @param out Non-null Output Quaternion
+	 * @return Out
+	 */
+	public static Quat slerp(Quat q1, Quat q2, float t, Quat out) {
+		float cosTheta = q1.w * q2.w + q1.x * q2.x + q1.y * q2.y + q1.z * q2.z;
+		float sign = 1;
+		if(cosTheta < 0) {
+			cosTheta = -cosTheta;
+			sign = -1;
+		}
+		if(cosTheta > 1) cosTheta = 1;
+		float theta = (float)Math.acos(cosTheta);
+		float sinTheta = (float)Math.sin(theta);
+		return blend(q1, slerpWeight(theta, sinTheta, 1 - t), q2, sign * slerpWeight(theta, sinTheta, t), out);
+	}
+	/**
+	 * Approximate Spherical Linear Interpolation Along The Shorter Arc Into Out
+	 * <br>Evaluates The slerp Weights With A Polynomial In cos(theta) Instead Of acos And sin
+	 * [Eberly 2011, A Fast And Accurate Algorithm For Computing SLERP], With Errors Near 1e-6 Like slerp Itself. Out May Be q1 Or q2.</br>
+	 * @param q1 Rotation At t = 0
+	 * @param q2 Rotation At t = 1
+	 * @param t Interpolation Ratio In [0, 1]
+	 * @param out Non-null Output Quaternion
+	 * @return Out
+	 */
+	public static Quat slerpFast(Quat q1, Quat q2, float t, Quat out) {
+		float cosTheta = q1.w * q2.w + q1.x * q2.x + q1.y * q2.y + q1.z * q2.z;
+		float sign = 1;
+		if(cosTheta < 0) {
+			cosTheta = -cosTheta;
+			sign = -1;
+		}
+		return blend(q1, slerpFastWeight(cosTheta, 1 - t), q2, sign * slerpFastWeight(cosTheta, t), out);
+	}
+	/**
+	 * Normalized Linear Interpolation Along The Shorter Arc Into Out
+	 * <br>Cheaper Than slerp, But The Rotation Speeds Up Towards The Middle Of Large Arcs. Out May Be q1 Or q2.</br>
+	 * @param q1 Rotation At t = 0
+	 * @param q2 Rotation At t = 1
+	 * @param t Interpolation Ratio
+	 * @param out Non-null Output Quaternion
+	 * @return Out
+	 */
+	public static Quat nlerp(Quat q1, Quat q2, float t, Quat out) {
+		float cosTheta = q1.w * q2.w + q1.x * q2.x + q1.y * q2.y + q1.z * q2.z;
+		return blend(q1, 1 - t, q2, cosTheta < 0 ? -t : t, out).normalize();
+	}
+	/**
+	 * Helper To Set Out To s1 * q1 + s2 * q2
+	 * @return Out
+	 */
+	private static Quat blend(Quat q1, float s1, Quat q2, float s2, Quat out) {
+		return out.set(
+				s1 * q1.w + s2 * q2.w,
+				s1 * q1.x + s2 * q2.x,
+				s1 * q1.y + s2 * q2.y,
+				s1 * q1.z + s2 * q2.z
+				);
+	}
+	/**
+	 * Weight Of The Rotation At t = 1 In slerp
+	 * @param theta Angle Between The Rotations
+	 * @param sinTheta sin(theta)
+	 * @param t Interpolation Ratio
+	 * @return sin(t * theta) / sin(theta), Or t For Angles Under 0.01
+	 */
+	static float slerpWeight(float theta, float sinTheta, float t) {
+		return theta < 0.01f ? t : (float)Math.sin(t * theta) / sinTheta;
+	}
+	/**
+	 * Coefficients Of The Polynomial Approximation To The slerp Weights
+	 */
+	private static final float[] SLERP_U = new float[12], SLERP_V = new float[12];
+	static {
+		for(int i = 0;i < SLERP_U.length;i++) {
+			SLERP_U[i] = 1f / ((i + 1) * (2 * i + 3));
+			SLERP_V[i] = (i + 1f) / (2 * i + 3);
+		}
+		// The Last Term Is Scaled To Absorb The Truncated Tail Of The Series, Which Converges Slowest At theta = PI/2
+		final float onePlusMu = 1.894f;
+		SLERP_U[SLERP_U.length - 1] *= onePlusMu;
+		SLERP_V[SLERP_V.length - 1] *= onePlusMu;
+	}
+	/**
+	 * Polynomial Approximation To {@link #slerpWeight(float, float, float)}
+	 * @param cosTheta Cosine Of The Angle Between The Rotations, In [0, 1]
+	 * @param t Interpolation Ratio In [0, 1]
+	 * @return Approximately sin(t * theta) / sin(theta)
+	 */
+	static float slerpFastWeight(float cosTheta, float t) {
+		float xm1 = cosTheta - 1, tt = t * t;
+		float c = 1;
+		for(int i = SLERP_U.length - 1;i >= 0;i--) c = 1 + (SLERP_U[i] * tt - SLERP_V[i]) * xm1 * c;
+		return t * c;
+	}
 
 	/**
 	 * Return The Normalized Axis And The Angle Of This Rotation
@@ -474,7 +551,7 @@ public class Quat extends AbstractList<Float> implements Cloneable {
 	    m.m[8] = xz + wy;
 	    m.m[6] = yz + wx;
 	    m.m[9] = yz - wx;
-		return m;
+		return m.detectFlags();
 	}
 
 	/**
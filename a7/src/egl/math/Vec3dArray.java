@@ -0,0 +1,416 @@
+package egl.math;
+
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A growable array of 3-component double-precision vectors, stored interleaved in one double[]
+ * <br>Vector i occupies data()[3 * i] to data()[3 * i + 2]. An {@code ArrayList<Vector3d>} spends
+ * a reference, an object header and a modCount on every element, several times the 24 bytes
+ * of coordinates this keeps, and scatters them through the heap.</br>
+ * <br>Elements are read and written through their coordinates, through out-parameters, or
+ * through a reusable {@link Cursor}, none of which allocate.</br>
+ *
+ */
+public final class Vec3dArray {
+	private static final double[] EMPTY = new double[0];
+
+	private double[] data;
+	private int size;
+
+	/**
+	 * Empty array constructor
+	 */
+	public Vec3dArray() {
+		data = EMPTY;
+	}
+
+	/**
+	 * Empty array constructor
+	 * @param capacity Number of vectors to make room for
+	 */
+	public Vec3dArray(int capacity) {
+		data = capacity == 0 ? EMPTY : new double[capacity * 3];
+	}
+
+	/**
+	 * Copy constructor
+	 * @param a Array
+	 */
+	public Vec3dArray(Vec3dArray a) {
+		this(a.size);
+		addAll(a);
+	}
+
+	/**
+	 * Copy constructor
+	 * @param list Vectors
+	 */
+	public Vec3dArray(List<Vector3d> list) {
+		this(list.size());
+		for(Vector3d v : list) add(v.x, v.y, v.z);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("[");
+		for(int i = 0;i < size;i++) {
+			if(i > 0) sb.append(", ");
+			sb.append("{").append(data[3 * i]).append(", ").append(data[3 * i + 1]).append(", ").append(data[3 * i + 2]).append("}d");
+		}
+		return sb.append("]").toString();
+	}
+
+	/**
+	 * @return Number of vectors
+	 */
+	public int size() {
+		return size;
+	}
+	/**
+	 * @return True if there are no vectors
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	/**
+	 * @return Number of vectors that fit before the backing array grows
+	 */
+	public int capacity() {
+		return data.length / 3;
+	}
+	/**
+	 * The backing array, valid up to 3 * size()
+	 * <br>It is replaced when the array grows, so do not hold on to it across additions.
+	 * Suited to the bulk kernels of {@link Matrix4d} and to buffer uploads.</br>
+	 * @return Backing array
+	 */
+	public double[] data() {
+		return data;
+	}
+
+	/**
+	 * Make room for at least capacity vectors
+	 * @param capacity Number of vectors
+	 */
+	public void ensureCapacity(int capacity) {
+		if(capacity * 3 > data.length) {
+			double[] newData = new double[Math.max(capacity, Math.max(8, data.length / 3 * 2)) * 3];
+			System.arraycopy(data, 0, newData, 0, size * 3);
+			data = newData;
+		}
+	}
+	/**
+	 * Shrink the backing array to the number of vectors
+	 */
+	public void trimToSize() {
+		if(data.length > size * 3) {
+			double[] newData = size == 0 ? EMPTY : new double[size * 3];
+			System.arraycopy(data, 0, newData, 0, size * 3);
+			data = newData;
+		}
+	}
+	/**
+	 * Remove all vectors, keeping the backing array
+	 */
+	public void clear() {
+		size = 0;
+	}
+	/**
+	 * Change the number of vectors, zeroing any new ones
+	 * @param newSize Number of vectors
+	 */
+	public void resize(int newSize) {
+		ensureCapacity(newSize);
+		if(newSize > size) Arrays.fill(data, size * 3, newSize * 3, 0);
+		size = newSize;
+	}
+
+	/**
+	 * Append a vector
+	 * @param x X coordinate
+	 * @param y Y coordinate
+	 * @param z Z coordinate
+	 * @return Index of the new vector
+	 */
+	public int add(double x, double y, double z) {
+		if(size * 3 == data.length) ensureCapacity(size + 1);
+		int i = size * 3;
+		data[i] = x;
+		data[i + 1] = y;
+		data[i + 2] = z;
+		return size++;
+	}
+	/**
+	 * Append a vector
+	 * @param v Vector
+	 * @return Index of the new vector
+	 */
+	public int add(Vec3d v) {
+		return add(v.x, v.y, v.z);
+	}
+	/**
+	 * Append a vector
+	 * @param v Vector
+	 * @return Index of the new vector
+	 */
+	public int add(Vector3d v) {
+		return add(v.x, v.y, v.z);
+	}
+	/**
+	 * Append all vectors of another array
+	 * @param a Array (may be this)
+	 */
+	public void addAll(Vec3dArray a) {
+		int n = a.size;
+		ensureCapacity(size + n);
+		System.arraycopy(a.data, 0, data, size * 3, n * 3);
+		size += n;
+	}
+
+	/**
+	 * Helper to check an index against the size
+	 * @return Index of the X coordinate
+	 */
+	private int offset(int i) {
+		if(i < 0 || i >= size) throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+		return i * 3;
+	}
+
+	/**
+	 * @param i Index
+	 * @return X coordinate of vector i
+	 */
+	public double x(int i) {
+		return data[offset(i)];
+	}
+	/**
+	 * @param i Index
+	 * @return Y coordinate of vector i
+	 */
+	public double y(int i) {
+		return data[offset(i) + 1];
+	}
+	/**
+	 * @param i Index
+	 * @return Z coordinate of vector i
+	 */
+	public double z(int i) {
+		return data[offset(i) + 2];
+	}
+	/**
+	 * Copy vector i into out
+	 * @param i Index
+	 * @param out Non-null output vector
+	 * @return Out
+	 */
+	public Vec3d get(int i, Vec3d out) {
+		int o = offset(i);
+		return out.set(data[o], data[o + 1], data[o + 2]);
+	}
+	/**
+	 * Copy vector i into out
+	 * @param i Index
+	 * @param out Non-null output vector
+	 * @return Out
+	 */
+	public Vector3d get(int i, Vector3d out) {
+		int o = offset(i);
+		return out.set(data[o], data[o + 1], data[o + 2]);
+	}
+	/**
+	 * Overwrite vector i
+	 * @param i Index
+	 * @param x X coordinate
+	 * @param y Y coordinate
+	 * @param z Z coordinate
+	 */
+	public void set(int i, double x, double y, double z) {
+		int o = offset(i);
+		data[o] = x;
+		data[o + 1] = y;
+		data[o + 2] = z;
+	}
+	/**
+	 * Overwrite vector i
+	 * @param i Index
+	 * @param v Vector
+	 */
+	public void set(int i, Vec3d v) {
+		set(i, v.x, v.y, v.z);
+	}
+	/**
+	 * Overwrite vector i
+	 * @param i Index
+	 * @param v Vector
+	 */
+	public void set(int i, Vector3d v) {
+		set(i, v.x, v.y, v.z);
+	}
+
+	/**
+	 * Transform all vectors as positions
+	 * @param m Transformation
+	 * @see Matrix4d#transformPositions(double[], int, double[], int, int, int)
+	 */
+	public void transformPositions(Matrix4d m) {
+		m.transformPositions(data, 0, data, 0, size, 3);
+	}
+	/**
+	 * Transform all vectors as directions
+	 * @param m Transformation
+	 * @see Matrix4d#transformDirections(double[], int, double[], int, int, int)
+	 */
+	public void transformDirections(Matrix4d m) {
+		m.transformDirections(data, 0, data, 0, size, 3);
+	}
+	/**
+	 * Transform all vectors as normals
+	 * @param m Transformation of the positions
+	 * @see Matrix4d#transformNormals(double[], int, double[], int, int, int)
+	 */
+	public void transformNormals(Matrix4d m) {
+		m.transformNormals(data, 0, data, 0, size, 3);
+	}
+	/**
+	 * Compute the bounding box of all vectors
+	 * @param outMin [{@link Vector3d POS}] Receives the minimum corner (infinite when empty)
+	 * @param outMax [{@link Vector3d POS}] Receives the maximum corner (negative infinite when empty)
+	 */
+	public void getBounds(Vector3d outMin, Vector3d outMax) {
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+		for(int o = 0, n = size * 3;o < n;o += 3) {
+			double x = data[o], y = data[o + 1], z = data[o + 2];
+			if(x < minX) minX = x;
+			if(x > maxX) maxX = x;
+			if(y < minY) minY = y;
+			if(y > maxY) maxY = y;
+			if(z < minZ) minZ = z;
+			if(z > maxZ) maxZ = z;
+		}
+		outMin.set(minX, minY, minZ);
+		outMax.set(maxX, maxY, maxZ);
+	}
+
+	/**
+	 * Copy all vectors into a buffer at its position, advancing it
+	 * @param buf Buffer with room for 3 * size() doubles
+	 * @return Buf
+	 */
+	public DoubleBuffer put(DoubleBuffer buf) {
+		return buf.put(data, 0, size * 3);
+	}
+	/**
+	 * @return A new array holding the 3 * size() coordinates
+	 */
+	public double[] toArray() {
+		double[] a = new double[size * 3];
+		System.arraycopy(data, 0, a, 0, a.length);
+		return a;
+	}
+
+	/**
+	 * @return A new cursor before the first vector
+	 */
+	public Cursor cursor() {
+		return new Cursor();
+	}
+
+	/**
+	 * A movable view of one vector of the array
+	 * <br>One cursor can walk the whole array, or be reset and reused, so loops over it allocate nothing:
+	 * <pre>
+	 * Vec3dArray.Cursor c = positions.cursor();
+	 * while(c.next()) c.set(c.x() * 2, c.y(), c.z());
+	 * </pre>
+	 * It reads the backing array at each access, so it stays valid as the array grows.</br>
+	 */
+	public final class Cursor {
+		private int index = -1;
+
+		private Cursor() {
+		}
+
+		/**
+		 * @return Index of the current vector
+		 */
+		public int index() {
+			return index;
+		}
+		/**
+		 * Move to a vector
+		 * @param i Index
+		 * @return This
+		 */
+		public Cursor seek(int i) {
+			offset(i);
+			index = i;
+			return this;
+		}
+		/**
+		 * Move back before the first vector
+		 * @return This
+		 */
+		public Cursor reset() {
+			index = -1;
+			return this;
+		}
+		/**
+		 * Move to the next vector
+		 * @return True if there was a next vector
+		 */
+		public boolean next() {
+			if(index + 1 >= size) return false;
+			index++;
+			return true;
+		}
+
+		/**
+		 * @return X coordinate of the current vector
+		 */
+		public double x() {
+			return data[index * 3];
+		}
+		/**
+		 * @return Y coordinate of the current vector
+		 */
+		public double y() {
+			return data[index * 3 + 1];
+		}
+		/**
+		 * @return Z coordinate of the current vector
+		 */
+		public double z() {
+			return data[index * 3 + 2];
+		}
+		/**
+		 * Copy the current vector into out
+		 * @param out Non-null output vector
+		 * @return Out
+		 */
+		public Vec3d get(Vec3d out) {
+			return Vec3dArray.this.get(index, out);
+		}
+		/**
+		 * Copy the current vector into out
+		 * @param out Non-null output vector
+		 * @return Out
+		 */
+		public Vector3d get(Vector3d out) {
+			return Vec3dArray.this.get(index, out);
+		}
+		/**
+		 * Overwrite the current vector
+		 * @param x X coordinate
+		 * @param y Y coordinate
+		 * @param z Z coordinate
+		 * @return This
+		 */
+		public Cursor set(double x, double y, double z) {
+			Vec3dArray.this.set(index, x, y, z);
+			return this;
+		}
+	}
+}
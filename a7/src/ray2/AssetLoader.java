@@ -0,0 +1,82 @@
+package ray2;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Loads scene assets (meshes, environment maps, textures) in the background
+ * while the parser continues through the scene file.  Objects that read a file
+ * in one of their setters submit the read here instead of doing it inline, and
+ * Scene.init waits for all outstanding loads before it uses any of the data.
+ */
+public final class AssetLoader {
+
+	/** Threads used for loading; daemons so they never keep the program alive. */
+	private static final ExecutorService pool = Executors.newFixedThreadPool(
+			Runtime.getRuntime().availableProcessors(), (r) -> {
+				Thread t = new Thread(r, "asset-loader");
+				t.setDaemon(true);
+				return t;
+			});
+
+	/** Loads that have been submitted but not yet waited for. */
+	private static final ArrayList<Future<?>> pending = new ArrayList<Future<?>>();
+
+	private AssetLoader() { }
+
+	/**
+	 * A load task, which may fail with any exception.
+	 */
+	@FunctionalInterface
+	public interface Task {
+		void run() throws Exception;
+	}
+
+	/**
+	 * Start loading an asset in the background.
+	 *
+	 * @param description What is being loaded, used in error messages
+	 * @param task The loading work
+	 */
+	public static void load(String description, Task task) {
+		Future<?> f = pool.submit(() -> {
+			try {
+				task.run();
+			} catch (Exception e) {
+				throw new Error("Error loading " + description + ": " + e, e);
+			}
+		});
+		synchronized (pending) {
+			pending.add(f);
+		}
+	}
+
+	/**
+	 * Wait for every load submitted so far to finish.  If a load failed, its
+	 * error is rethrown here.
+	 */
+	public static void awaitAll() {
+		while (true) {
+			Future<?> f;
+			synchronized (pending) {
+				if (pending.isEmpty())
+					return;
+				f = pending.remove(pending.size() - 1);
+			}
+			try {
+				f.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new Error("Interrupted while loading assets");
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof Error)
+					throw (Error) cause;
+				throw new Error(cause);
+			}
+		}
+	}
+}
@@ -1,21 +1,23 @@
 package ray2;
 
-import java.io.File;
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import egl.math.Colord;
 import egl.math.Vector3d;
@@ -98,6 +100,12 @@ import egl.math.Vector3d;
  * methods for each child type and they must take exactly one parameter
  * of the type of the child node.
  *
+ * The file is read with a streaming (StAX) reader rather than built into a
+ * DOM first.  The method used for each (class, tag) pair, the class named by
+ * each type attribute and the constructor of each class are looked up once
+ * and cached, so large generated scenes do not repeat the reflective search
+ * for every node.  Numbers are parsed without tokenizing or boxing.
+ *
  * @author arbree Aug 18, 2005
  * Parser.java
  * Copyright 2005 Program of Computer Graphics, Cornell University
@@ -105,17 +113,59 @@ import egl.math.Vector3d;
 @SuppressWarnings("rawtypes")
 public class Parser {
 
-	/** Java document builder used to parse XML * */
-	private DocumentBuilder db;
+	/** Factory for the streaming XML readers used to parse files * */
+	private XMLInputFactory factory;
 
 	/** Map of references to their names **/
 	public static HashMap<String, Object> references = new HashMap<String, Object>();
 
+	/**
+	 * How to add a child to an object of some class: the setXXX or addXXX
+	 * method, and the type the child is parsed as.
+	 */
+	private static class Binding {
+		final Method method;
+		final MethodHandle setter;
+		final Class<?> parameterType;
+
+		Binding(Method method, MethodHandle setter, Class<?> parameterType) {
+			this.method = method;
+			this.setter = setter;
+			this.parameterType = parameterType;
+		}
+
+		void invoke(Object target, Object value) {
+			try {
+				if (setter != null)
+					setter.invokeExact(target, value);
+				else
+					method.invoke(target, new Object[] { value });
+			} catch (Throwable e) {
+				System.err.println("Error invoking the method "
+						+ method.getName() + ".");
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/** Bindings for each class, by child tag name. */
+	private static final ConcurrentHashMap<Class<?>, ConcurrentHashMap<String, Binding>> bindings
+		= new ConcurrentHashMap<Class<?>, ConcurrentHashMap<String, Binding>>();
+
+	/** Classes named by type attributes, by base class and attribute value. */
+	private static final ConcurrentHashMap<Class<?>, ConcurrentHashMap<String, Class<?>>> types
+		= new ConcurrentHashMap<Class<?>, ConcurrentHashMap<String, Class<?>>>();
+
+	/** The zero-argument constructor of each class. */
+	private static final ConcurrentHashMap<Class<?>, Constructor<?>> constructors
+		= new ConcurrentHashMap<Class<?>, Constructor<?>>();
+
 	/** Creates a new Parser. */
 	public Parser() {
 
 		try {
-			db = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+			factory = XMLInputFactory.newInstance();
+			factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
 		} catch (Exception e) {
 
 			throw new Error("Error instantiating the parser.");
@@ -133,9 +183,9 @@ public class Parser {
 	 */
 	private Object parsePrimitive(Class c, String text) {
 		if (c == Integer.TYPE) {
-			return new Integer(text);
+			return Integer.valueOf(text);
 		} else if (c == Double.TYPE) {
-			return new Double(text);
+			return Double.valueOf(text);
 		} else {
 			throw new Error("Cannot parse primitive of type " + c);
 		}
@@ -151,13 +201,100 @@ public class Parser {
 	 */
 	private ArrayList<Object> parseArray(Class componentType, String text) {
 
-		StringTokenizer t = new StringTokenizer(text);
 		ArrayList<Object> result = new ArrayList<Object>();
-		while (t.hasMoreTokens()) {
-			String token = t.nextToken();
-			result.add(parsePrimitive(componentType, token));
+		int i = 0, n = text.length();
+		while (true) {
+			while (i < n && isSpace(text.charAt(i))) i++;
+			if (i == n)
+				return result;
+			int start = i;
+			while (i < n && !isSpace(text.charAt(i))) i++;
+			result.add(parsePrimitive(componentType, text.substring(start, i)));
 		}
-		return result;
+	}
+
+	/**
+	 * Parse a whitespace-separated list of doubles.
+	 */
+	static double[] parseDoubles(String text) {
+		double[] result = new double[4];
+		int count = 0;
+		int i = 0, n = text.length();
+		while (true) {
+			while (i < n && isSpace(text.charAt(i))) i++;
+			if (i == n)
+				return count == result.length ? result : Arrays.copyOf(result, count);
+			int start = i;
+			while (i < n && !isSpace(text.charAt(i))) i++;
+			if (count == result.length)
+				result = Arrays.copyOf(result, 2 * count);
+			result[count++] = parseDouble(text, start, i);
+		}
+	}
+
+	/**
+	 * Parse a whitespace-separated list of ints.
+	 */
+	static int[] parseInts(String text) {
+		int[] result = new int[4];
+		int count = 0;
+		int i = 0, n = text.length();
+		while (true) {
+			while (i < n && isSpace(text.charAt(i))) i++;
+			if (i == n)
+				return count == result.length ? result : Arrays.copyOf(result, count);
+			int start = i;
+			while (i < n && !isSpace(text.charAt(i))) i++;
+			if (count == result.length)
+				result = Arrays.copyOf(result, 2 * count);
+			result[count++] = Integer.parseInt(text.substring(start, i));
+		}
+	}
+
+	/** Exactly representable powers of ten. */
+	private static final double[] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+		1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	/**
+	 * Parse the double in text[start, end).  Plain decimals with up to 15 or so
+	 * significant digits are converted directly, which gives the correctly
+	 * rounded result because both the digits and the power of ten are exact
+	 * doubles; anything else is passed to Double.parseDouble.
+	 */
+	static double parseDouble(String text, int start, int end) {
+		int i = start;
+		boolean negative = false;
+		if (i < end && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+			negative = text.charAt(i) == '-';
+			i++;
+		}
+		long digits = 0;
+		int scale = 0;
+		boolean any = false, point = false;
+		for (; i < end; i++) {
+			char ch = text.charAt(i);
+			if (ch >= '0' && ch <= '9') {
+				if (digits >= (1L << 53) / 10)
+					break;
+				digits = 10 * digits + (ch - '0');
+				if (point)
+					scale++;
+				any = true;
+			} else if (ch == '.' && !point) {
+				point = true;
+			} else {
+				break;
+			}
+		}
+		if (i != end || !any || scale >= POWERS_OF_TEN.length)
+			return Double.parseDouble(text.substring(start, end));
+		double value = digits / POWERS_OF_TEN[scale];
+		return negative ? -value : value;
+	}
+
+	private static boolean isSpace(char ch) {
+		return ch == ' ' || ch == '\t' || ch == '\n' || ch == '\r' || ch == '\f';
 	}
 
 	/**
@@ -175,11 +312,19 @@ public class Parser {
 		}
 
 		else if (c == Integer.class) {
-			return new Integer(text);
+			return Integer.valueOf(text);
 		}
 
 		else if (c == Double.class) {
-			return new Double(text);
+			return Double.valueOf(text);
+		}
+
+		else if (c == double[].class) {
+			return parseDoubles(text);
+		}
+
+		else if (c == int[].class) {
+			return parseInts(text);
 		}
 
 		else if ((c.isArray() && c.getComponentType().isPrimitive())) {
@@ -193,46 +338,34 @@ public class Parser {
 		}
 
 		else if (Vector3d.class.isAssignableFrom(c)) {
-			ArrayList tempArray = parseArray(Double.TYPE, text);
-			if (tempArray.size() != 3) {
+			double[] values = parseDoubles(text);
+			if (values.length != 3) {
 				throw new Error("Vector is not of length 3 ("
-						+ tempArray.size() + ")");
-			}
-			Vector3d result;
-			try {
-				result = (Vector3d) c.newInstance();
-			} catch (Exception e) {
-				throw new Error("Error instantiating object of class: "
-						+ c.getName());
+						+ values.length + ")");
 			}
-			result.x = ((Double) tempArray.get(0)).doubleValue();
-			result.y = ((Double) tempArray.get(1)).doubleValue();
-			result.z = ((Double) tempArray.get(2)).doubleValue();
+			Vector3d result = (Vector3d) newInstance(c);
+			result.x = values[0];
+			result.y = values[1];
+			result.z = values[2];
 			return result;
 		}
 
 		else if (Colord.class.isAssignableFrom(c)) {
-			ArrayList tempArray = parseArray(Double.TYPE, text);
-			if (tempArray.size() != 3) {
-				throw new Error("Color is not of length 3 (" + tempArray.size()
+			double[] values = parseDoubles(text);
+			if (values.length != 3) {
+				throw new Error("Color is not of length 3 (" + values.length
 						+ ")");
 			}
-			Colord result;
-			try {
-				result = (Colord) c.newInstance();
-			} catch (Exception e) {
-				throw new Error("Error instantiating object of class: "
-						+ c.getName());
-			}
-			result.x = ((Double) tempArray.get(0)).doubleValue();
-			result.y = ((Double) tempArray.get(1)).doubleValue();
-			result.z = ((Double) tempArray.get(2)).doubleValue();
+			Colord result = (Colord) newInstance(c);
+			result.x = values[0];
+			result.y = values[1];
+			result.z = values[2];
 			return result;
 		}
 
 		else if (Image.class.isAssignableFrom(c)) {
-			ArrayList tempArray = parseArray(Integer.TYPE, text);
-			if (tempArray.size() != 2) {
+			int[] values = parseInts(text);
+			if (values.length != 2) {
 				throw new Error(
 						"Image declaration specifies only width and height");
 			}
@@ -241,8 +374,7 @@ public class Parser {
 				Constructor imageConstructor = c.getConstructor(new Class[] {
 						Integer.TYPE, Integer.TYPE });
 				result = (Image) imageConstructor
-						.newInstance(new Object[] { (Integer) tempArray.get(0),
-								(Integer) tempArray.get(1) });
+						.newInstance(new Object[] { values[0], values[1] });
 			} catch (Exception e) {
 				throw new Error("Error instantiating object of class: "
 						+ c.getName());
@@ -255,6 +387,34 @@ public class Parser {
 		}
 	}
 
+	/**
+	 * Return true if nodes of class c are parsed from their text.
+	 */
+	private static boolean isParsedFromText(Class<?> c) {
+		return (c.isArray() && c.getComponentType().isPrimitive())
+				|| c == String.class || c == Integer.class || c == Double.class
+				|| c == Colord.class || Vector3d.class.isAssignableFrom(c)
+				|| Image.class.isAssignableFrom(c);
+	}
+
+	/**
+	 * Create an object using its class's zero-argument constructor, which is
+	 * looked up only the first time.
+	 */
+	private static Object newInstance(Class<?> c) {
+		try {
+			Constructor<?> constructor = constructors.get(c);
+			if (constructor == null) {
+				constructor = c.getDeclaredConstructor();
+				constructors.put(c, constructor);
+			}
+			return constructor.newInstance();
+		} catch (Exception e) {
+			throw new Error("Error instantiating object of class: "
+					+ c.getName() + ": " + e.getMessage());
+		}
+	}
+
 	/**
 	 * Return the Method object representing the string methodName in Class c.
 	 * Return null if no such method if found.
@@ -263,7 +423,7 @@ public class Parser {
 	 * @param methodName the name of the method to find
 	 * @return the Method object if a method is found, null otherwise
 	 */
-	private Method findMethod(Class c, String methodName) {
+	private static Method findMethod(Class c, String methodName) {
 
 		// Get the method list
 		Method[] methods = c.getMethods();
@@ -278,67 +438,130 @@ public class Parser {
 	}
 
 	/**
-	 * Parse an object node. The node is assumed to be of Class c and is
-	 * represented by Node n.
-	 *
-	 * @param c Class type to read from node n
-	 * @param n the node to parse into an instance of c
-	 * @return the object read
+	 * Return the binding used to add a child named childName to an object of
+	 * class c, finding it the first time it is needed.
 	 */
-	private Object parseObject(Class<?> c, Node n) {
+	private static Binding getBinding(Class<?> c, String childName) {
+		ConcurrentHashMap<String, Binding> classBindings = bindings.get(c);
+		if (classBindings == null) {
+			bindings.putIfAbsent(c, new ConcurrentHashMap<String, Binding>());
+			classBindings = bindings.get(c);
+		}
+		Binding binding = classBindings.get(childName);
+		if (binding != null)
+			return binding;
+
+		// Check setXXX
+		Method foundMethod = findMethod(c, "set" + childName);
+
+		// If can't find setXXX method, look for addXXX method instead
+		if (foundMethod == null)
+			foundMethod = findMethod(c, "add" + childName);
+
+		// Its an error if no method was found
+		if (foundMethod == null) {
+			throw new Error("Could not find a method to use to add "
+					+ childName + " to the class type " + c.getName()
+					+ ".");
+		}
 
-		Object resultingObject = null;
-		NamedNodeMap attributes = n.getAttributes();
-		Node typeAttribute = attributes.getNamedItem("type");
-		Node nameAttribute = attributes.getNamedItem("name");
-		Node refAttribute = attributes.getNamedItem("ref");
+		// Check that the method has the right number of parameters
+		Class[] parameterTypes = foundMethod.getParameterTypes();
+		if (parameterTypes.length != 1) {
+			throw new Error("Method " + foundMethod.getName()
+					+ " must take exactly one parameter.");
+		}
 
-		if (typeAttribute != null) {
-			String className = typeAttribute.getNodeValue();
+		// If the type is primitive, switch to corresponding Object type
+		// to parse. Method invocation will automatically take care of
+		// converting Object types back into primitives.
+		Class parameterType = parameterTypes[0];
+		if (parameterType.isPrimitive()) {
+			if (parameterType == Integer.TYPE) {
+				parameterType = Integer.class;
+			} else if (parameterType == Float.TYPE) {
+				parameterType = Float.class;
+			} else if (parameterType == Double.TYPE) {
+				parameterType = Double.class;
+			} else {
+				throw new Error("Cannot parse primitives of type "
+						+ parameterType);
+			}
+		}
+
+		// Adapt the method to take (Object, Object); if it is not accessible
+		// this way, fall back to calling it reflectively
+		MethodHandle setter;
+		try {
+			setter = MethodHandles.lookup().unreflect(foundMethod)
+				.asType(MethodType.methodType(void.class, Object.class, Object.class));
+		} catch (IllegalAccessException e) {
+			setter = null;
+		}
+
+		binding = new Binding(foundMethod, setter, parameterType);
+		classBindings.put(childName, binding);
+		return binding;
+	}
+
+	/**
+	 * Return the class named by a type attribute on a node whose type is
+	 * otherwise c, resolving the name only the first time.
+	 */
+	private static Class<?> resolveType(Class<?> c, String className) {
+		ConcurrentHashMap<String, Class<?>> classTypes = types.get(c);
+		if (classTypes == null) {
+			types.putIfAbsent(c, new ConcurrentHashMap<String, Class<?>>());
+			classTypes = types.get(c);
+		}
+		Class<?> resolved = classTypes.get(className);
+		if (resolved != null)
+			return resolved;
+
+		try {
+			Class<?> possibleClass;
+			// Try to look up the class; if it fails, try looking in the package
+			// of the given base type
 			try {
-				Class<?> possibleClass;
-				// Try to look up the class; if it fails, try looking in the package
-				// of the given base type
-				try {
-					possibleClass = Class.forName(className);
-				} catch (ClassNotFoundException e) {
-					possibleClass = Class.forName(c.getPackage().getName()
-							+ "." + className);
-				}
-				if (c.isAssignableFrom(possibleClass)) {
-					c = possibleClass; // Set the current active class to user specified type
-				} else {
-					throw new Error("Type " + className
-							+ " does not extend or implement " + c.getName());
-				}
+				possibleClass = Class.forName(className);
 			} catch (ClassNotFoundException e) {
-				throw new Error("Class could not be found: " + className);
+				possibleClass = Class.forName(c.getPackage().getName()
+						+ "." + className);
+			}
+			if (c.isAssignableFrom(possibleClass)) {
+				resolved = possibleClass; // Set the current active class to user specified type
+			} else {
+				throw new Error("Type " + className
+						+ " does not extend or implement " + c.getName());
 			}
+		} catch (ClassNotFoundException e) {
+			throw new Error("Class could not be found: " + className);
 		}
 
+		classTypes.put(className, resolved);
+		return resolved;
+	}
+
+	/**
+	 * Parse an element. The element is assumed to be of Class c, and the
+	 * reader is positioned at its start tag; on return the reader is
+	 * positioned at its end tag.
+	 *
+	 * @param c Class type to read from the element
+	 * @param reader the reader, positioned at the start of the element
+	 * @return the object read
+	 */
+	private Object parseObject(Class<?> c, XMLStreamReader reader) throws XMLStreamException {
+
+		Object resultingObject = null;
+		String typeAttribute = reader.getAttributeValue(null, "type");
+		String nameAttribute = reader.getAttributeValue(null, "name");
+		String refAttribute = reader.getAttributeValue(null, "ref");
+
 		// If the node specifies a type, check that it is assignable to the current
 		// output type for this node
 		if (typeAttribute != null) {
-			String className = typeAttribute.getNodeValue();
-			try {
-				Class<?> possibleClass;
-				// Try to look up the class; if it fails, try looking in the package
-				// of the given base type
-				try {
-					possibleClass = Class.forName(className);
-				} catch (ClassNotFoundException e) {
-					possibleClass = Class.forName(c.getPackage().getName()
-							+ "." + className);
-				}
-				if (c.isAssignableFrom(possibleClass)) {
-					c = possibleClass; // Set the current active class to user specified type
-				} else {
-					throw new Error("Type " + className
-							+ " does not extend or implement " + c.getName());
-				}
-			} catch (ClassNotFoundException e) {
-				throw new Error("Class could not be found: " + className);
-			}
+			c = resolveType(c, typeAttribute);
 		}
 
 		// Check that our current type is valid
@@ -346,29 +569,25 @@ public class Parser {
 			throw new Error("Cannot parse arrays of non-primitive types");
 		}
 
-		// Get the sub elements of this node
-		NodeList children = n.getChildNodes();
-
 		//If the object is a reference, just return the value referenced
 		if (refAttribute != null) {
-			String name = refAttribute.getNodeValue();
-			resultingObject = references.get(name);
+			resultingObject = references.get(refAttribute);
 			if (resultingObject == null) {
-				throw new Error("Unresolved reference: " + name);
+				throw new Error("Unresolved reference: " + refAttribute);
 			}
+			skipElement(reader);
 		}
 
 		// Check for certain special classes of the current node
-		else if ((c.isArray() && c.getComponentType().isPrimitive())
-				|| c == String.class || c == Integer.class || c == Double.class
-				|| c == Colord.class || Vector3d.class.isAssignableFrom(c)
-				|| Image.class.isAssignableFrom(c)) {
+		else if (isParsedFromText(c)) {
 
 			// Interpret the text values of all children nodes as objects
-			for (int i = 0; i < children.getLength(); i++) {
-				Node child = children.item(i);
-				if (child.getNodeType() == Node.TEXT_NODE) {
-					resultingObject = parseObject(c, child.getNodeValue());
+			while (true) {
+				int event = reader.next();
+				if (event == XMLStreamConstants.END_ELEMENT) {
+					break;
+				} else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.SPACE) {
+					resultingObject = parseObject(c, reader.getText());
 				} else {
 					throw new Error(
 							"Found a non-text node while trying to parse a "
@@ -381,93 +600,51 @@ public class Parser {
 		else {
 
 			// Create one!
-			try {
-				resultingObject = c.newInstance();
-			} catch (Exception e) {
-				throw new Error("Error instantiating object of class: "
-						+ c.getName() + ": " + e.getMessage());
-			}
-
-			// For each child
-			for (int i = 0; i < children.getLength(); i++) {
-				Node child = children.item(i);
-
-				// Skip non-element nodes
-				if (child.getNodeType() != Node.ELEMENT_NODE) {
+			resultingObject = newInstance(c);
+
+			// For each child element
+			while (true) {
+				int event = reader.next();
+				if (event == XMLStreamConstants.END_ELEMENT) {
+					break;
+				} else if (event != XMLStreamConstants.START_ELEMENT) {
 					continue;
 				}
 
 				//Find the method to use for adding
-				Method foundMethod = null;
-				String childName = child.getNodeName();
-
-				// Check setXXX
-				foundMethod = findMethod(c, "set" + childName);
-
-				// If can't find setXXX method, look for addXXX method instead
-				if (foundMethod == null)
-					foundMethod = findMethod(c, "add" + childName);
-
-				// Its an error if no method was found
-				if (foundMethod == null) {
-					throw new Error("Could not find a method to use to add "
-							+ childName + " to the class type " + c.getName()
-							+ ".");
-				}
-
-				// Check that the method has the right number of parameters
-				Class[] parameterTypes = foundMethod.getParameterTypes();
-				if (parameterTypes.length != 1) {
-					throw new Error("Method " + foundMethod.getName()
-							+ " must take exactly one parameter.");
-				}
-
-				// If the type is primitive, switch to corresponding Object type
-				// to parse. Method invocation will automatically take care of
-				// converting Object types back into primitives.
-				Class parameterType = parameterTypes[0];
-				if (parameterType.isPrimitive()) {
-					if (parameterType == Integer.TYPE) {
-						parameterType = Integer.class;
-					} else if (parameterType == Float.TYPE) {
-						parameterType = Float.class;
-					} else if (parameterType == Double.TYPE) {
-						parameterType = Double.class;
-					} else {
-						throw new Error("Cannot parse primitives of type "
-								+ parameterType);
-					}
-				}
+				Binding binding = getBinding(c, reader.getLocalName());
 
 				// Recursively parse value of child element
-				Object childValue = parseObject(parameterType, child);
-
-				// Call the setter method with the parsed value;
-				try {
-
-					//System.out.println(foundMethod.getName());
-					//Invoke the setter method
-					foundMethod.invoke(resultingObject,
-							new Object[] { childValue });
+				Object childValue = parseObject(binding.parameterType, reader);
 
-				} catch (Exception e) {
-					System.err.println("Error invoking the method "
-							+ foundMethod.getName() + ".");
-					e.printStackTrace();
-				}
+				// Call the setter method with the parsed value
+				binding.invoke(resultingObject, childValue);
 			}
 		}
 
 		//Place the object in the reference list
 		if (nameAttribute != null) {
-			String name = nameAttribute.getNodeValue();
-			references.put(name, resultingObject);
+			references.put(nameAttribute, resultingObject);
 		}
 
 		return resultingObject;
 
 	}
 
+	/**
+	 * Advance the reader from the start of an element to its end.
+	 */
+	private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+		int depth = 1;
+		while (depth > 0) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT)
+				depth++;
+			else if (event == XMLStreamConstants.END_ELEMENT)
+				depth--;
+		}
+	}
+
 	/**
 	 * Parses a given file to generate an object of the given class.
 	 *
@@ -477,15 +654,14 @@ public class Parser {
 	 */
 	public Object parse(String filename, Class<?> c) {
 
-		File file = new File(filename);
-
 		// Parse the XML
 		Object result = null;
-		try {
+		try (InputStream in = new BufferedInputStream(new FileInputStream(filename))) {
 
-			Document doc = db.parse(file);
-			Element root = doc.getDocumentElement();
-			result = parseObject(c, root);
+			XMLStreamReader reader = factory.createXMLStreamReader(in);
+			while (reader.next() != XMLStreamConstants.START_ELEMENT) { }
+			result = parseObject(c, reader);
+			reader.close();
 
 		} catch (Exception e) {
 			System.out.println("Exception occurred while parsing: " + filename);
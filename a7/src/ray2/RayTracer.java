@@ -1,9 +1,13 @@
 package ray2;
 
+import java.awt.GraphicsEnvironment;
 import java.io.File;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import egl.math.Colord;
 import ray2.accel.Bvh;
@@ -15,9 +19,11 @@ import ray2.viewer.QuickViewer;
 public class RayTracer {
 
 	/**
-	 * Turn the display window on or off
+	 * Turn the display window on or off.  It is off when running without a
+	 * display (java.awt.headless, or no X server), and may be turned off by
+	 * programs such as RegressionHarness that render without showing anything.
 	 */
-	public static final boolean DISPLAY = true;
+	public static boolean DISPLAY = !GraphicsEnvironment.isHeadless();
 
 	/**
 	 * Output HDR image (using openEXR)
@@ -34,6 +40,17 @@ public class RayTracer {
 	 */
 	public static final boolean PROGRESS = false;
 
+	/**
+	 * The number of threads used to render each image
+	 */
+	public static final int NUM_THREADS = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Whether to order blocks by a cost estimate from a low-resolution pre-pass
+	 * (rendering on NUM_THREADS threads) instead of in a spiral on one thread
+	 */
+	public static final boolean PREDICT_TILE_COST = true;
+
 	// Size of image sub-blocks
 	protected static int SUB_WIDTH = 32;
 	protected static int SUB_HEIGHT = 32;
@@ -43,6 +60,11 @@ public class RayTracer {
 	 */
 	private static final BlockSpiral spiral = new BlockSpiral();
 
+	/**
+	 * Scheduler that hands out blocks in order of decreasing predicted cost.
+	 */
+	private static final TileScheduler scheduler = new TileScheduler();
+
 	/**
 	 * Useful little display window that shows rendering progress.
 	 * The window actually take a bit of time to render itself, so
@@ -102,6 +124,16 @@ public class RayTracer {
 	 */
 	public static ScenePath sceneWorkspace = null;
 
+	/**
+	 * When loading of the current scene started, for reporting time to first pixel
+	 */
+	private static long loadStartTime;
+
+	/**
+	 * Set once the first block of the current image has been finished
+	 */
+	private static final AtomicBoolean firstBlockDone = new AtomicBoolean();
+
 	/**
 	 * This directory precedes the arguments passed in via the command line.
 	 */
@@ -198,12 +230,15 @@ public class RayTracer {
 			sceneWorkspace = p;
 
 			System.err.println("Loading " + p.file + "...");
+			loadStartTime = System.currentTimeMillis();
 
 			// Parse the input file
 			Scene scene = (Scene) parser.parse(sceneWorkspace.getFile(), Scene.class);
 
 			// Initialize the scene
 			scene.init();
+			System.out.println("Scene loaded and initialized in "
+					+ ((System.currentTimeMillis() - loadStartTime) / 1000.0) + " seconds");
 			
 			// Render the scene
 			renderImage(scene);
@@ -236,11 +271,37 @@ public class RayTracer {
 		int width = image.getWidth();
 		int height = image.getHeight();
 
-		//Setup the sub-block spiral
-		spiral.initSubblockSpiral(width, height);
-
 		// Timing counters
 		long startTime = System.currentTimeMillis();
+		long startRays = Scene.rayCount.sum();
+		firstBlockDone.set(false);
+
+		if (PREDICT_TILE_COST)
+			renderTiles(scene, image, width, height);
+		else
+			renderSpiral(scene, image, width, height);
+
+		// Output time
+		long totalTime = (System.currentTimeMillis() - startTime);
+		long rays = Scene.rayCount.sum() - startRays;
+		System.out.println("Done.  Total rendering time: "
+				+ (totalTime / 1000.0) + " seconds");
+		System.out.println("Rays traced: " + rays + " ("
+				+ Math.round(rays / Math.max(totalTime / 1000.0, 1e-3)) + " per second)");
+		
+		System.out.println("Bbox hit count : " + Bvh.hitCount);
+		System.out.println("Bbox miss count : " + Bvh.missCount);
+		System.out.println("Total triangle intersections: " + Triangle.intersectionCount);
+	}
+
+
+	/**
+	 * Render the image block by block in a spiral moving outward from the center.
+	 */
+	private void renderSpiral(Scene scene, Image image, int width, int height) {
+
+		//Setup the sub-block spiral
+		spiral.initSubblockSpiral(width, height);
 
 		// Loop over all blocks and render
 		int offsetX, offsetY, sizeX, sizeY;
@@ -254,6 +315,7 @@ public class RayTracer {
 			sizeY = Math.min(height-offsetY,SUB_HEIGHT);
 
 			renderBlock(scene, image, offsetX, offsetY, sizeX, sizeY);
+			reportFirstBlock();
 
 			// Update display
 			if (DISPLAY)
@@ -263,17 +325,91 @@ public class RayTracer {
 				System.out.println("finished " + (i+1) + "/" + spiral.totalSubblocks + " blocks");
 
 		}
+	}
 
-		// Output time
-		long totalTime = (System.currentTimeMillis() - startTime);
-		System.out.println("Done.  Total rendering time: "
-				+ (totalTime / 1000.0) + " seconds");
-		
-		System.out.println("Bbox hit count : " + Bvh.hitCount);
-		System.out.println("Bbox miss count : " + Bvh.missCount);
-		System.out.println("Total triangle intersections: " + Triangle.intersectionCount);
+	/**
+	 * Render the image on NUM_THREADS threads, taking blocks from the scheduler
+	 * most expensive first.
+	 */
+	private void renderTiles(Scene scene, Image image, int width, int height) {
+
+		// Estimate the cost of each block and sort them
+		long startTime = System.currentTimeMillis();
+		scheduler.initTiles(scene, width, height, NUM_THREADS);
+		System.out.println("Cost pre-pass: " + scheduler.getTileCount() + " blocks in "
+				+ ((System.currentTimeMillis() - startTime) / 1000.0) + " seconds");
+
+		final AtomicInteger finished = new AtomicInteger();
+		runParallel(NUM_THREADS, () -> {
+			TileScheduler.Tile tile;
+			while ((tile = scheduler.nextTile()) != null) {
+				renderBlock(scene, image, tile.offsetX, tile.offsetY, tile.sizeX, tile.sizeY);
+				reportFirstBlock();
+
+				// Update display
+				if (DISPLAY)
+					viewer.setImage(image, tile.offsetX, tile.offsetY, tile.offsetX+tile.sizeX, tile.offsetY+tile.sizeY);
+
+				int done = finished.incrementAndGet();
+				if (PROGRESS)
+					System.out.println("finished " + done + "/" + scheduler.getTileCount() + " blocks");
+			}
+		});
+	}
+
+	/**
+	 * Print the time from the start of scene loading to the first finished block,
+	 * the first time this is called for an image.
+	 */
+	private static void reportFirstBlock() {
+		if (firstBlockDone.compareAndSet(false, true))
+			System.out.println("Time to first pixel: "
+					+ ((System.currentTimeMillis() - loadStartTime) / 1000.0) + " seconds");
 	}
 
+	/**
+	 * Run the same task on numThreads threads (the calling thread being one of
+	 * them) and wait for all of them to finish.  If any thread throws, the first
+	 * exception is rethrown on the calling thread once all threads have stopped,
+	 * with any later ones attached as suppressed exceptions.
+	 *
+	 * @param numThreads the number of threads
+	 * @param task the work each thread performs
+	 */
+	static void runParallel(int numThreads, Runnable task) {
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		Runnable guarded = () -> {
+			try {
+				task.run();
+			} catch (Throwable t) {
+				if (!failure.compareAndSet(null, t))
+					failure.get().addSuppressed(t);
+			}
+		};
+
+		Thread[] workers = new Thread[numThreads - 1];
+		for (int i = 0; i < workers.length; i++) {
+			workers[i] = new Thread(guarded, "render-" + (i + 1));
+			workers[i].start();
+		}
+		guarded.run();
+		for (Thread t : workers) {
+			try {
+				t.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("Interrupted while waiting for render threads", e);
+			}
+		}
+
+		Throwable t = failure.get();
+		if (t instanceof RuntimeException)
+			throw (RuntimeException) t;
+		if (t instanceof Error)
+			throw (Error) t;
+		if (t != null)
+			throw new RuntimeException(t);
+	}
 
 	/**
 	 * This method returns the color along a single ray in outColor.
@@ -0,0 +1,336 @@
+package ray2;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import edu.cornell.graphics.exr.EXRSimpleImage;
+import egl.math.Colord;
+
+/**
+ * Renders every scene that has a reference image and checks that neither the
+ * image quality nor the speed has regressed.
+ *
+ * For each directory under the scene root (data/scenes/ by default), every
+ * scene file with a matching image reference/<scene>.xml.exr is rendered
+ * without the display window, and the result is compared to the reference:
+ * the RMSE over all pixels and channels, and the relative MSE (the squared
+ * error divided by the squared reference value plus 0.01, which keeps dark
+ * pixels from dominating).  Along with the load and render times, the rays
+ * traced per second and the peak heap use, these go into a tab-separated
+ * history file, one line per scene per run.
+ *
+ * A scene fails if its relative MSE is above an absolute limit, or if its
+ * RMSE or render time is more than a given fraction above the median of its
+ * last few passing runs at the same sample count.  The program exits with
+ * status 1 if any scene failed, so it can gate changes to the tracer.
+ *
+ * Usage: java ray2.RegressionHarness [options] [directory ...]
+ *   -p path          the scene root (default data/scenes/)
+ *   -samples n       render with n samples per pixel instead of the scene's count
+ *   -slow            also render the scenes in each slow/ directory
+ *   -history file    the history file (default regression-history.tsv)
+ *   -maxRelMSE x     fail any scene with a relative MSE above x (default 0.05)
+ *   -errorTol x      allowed fractional increase in RMSE (default 0.25)
+ *   -timeTol x       allowed fractional increase in render time (default 0.25)
+ * With no directories given, every directory under the scene root is used.
+ */
+public class RegressionHarness {
+
+	/** The number of past passing runs the baselines are the median of. */
+	private static final int BASELINE_RUNS = 5;
+
+	private static final String HISTORY_HEADER =
+			"date\tscene\tsamples\tloadSeconds\trenderSeconds\traysPerSecond\tpeakHeapMB\trmse\trelMSE\tresult";
+
+	private String root = RayTracer.directory;
+	private int samples = 0;
+	private boolean slow = false;
+	private String historyFile = "regression-history.tsv";
+	private double maxRelMSE = 0.05;
+	private double errorTolerance = 0.25;
+	private double timeTolerance = 0.25;
+
+	/** The result of rendering one scene. */
+	private static class Result {
+		String scene;
+		int samples;
+		double loadSeconds, renderSeconds, raysPerSecond, peakHeapMB;
+		double rmse = Double.NaN, relMSE = Double.NaN;
+		String failure = null;
+
+		String toHistoryLine(String date) {
+			return date + "\t" + scene + "\t" + samples + "\t" + loadSeconds + "\t" + renderSeconds
+					+ "\t" + Math.round(raysPerSecond) + "\t" + Math.round(peakHeapMB) + "\t" + rmse
+					+ "\t" + relMSE + "\t" + (failure == null ? "pass" : "fail");
+		}
+	}
+
+	public static void main(String[] args) {
+		RegressionHarness harness = new RegressionHarness();
+		ArrayList<String> dirs = new ArrayList<String>();
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+			case "-p": harness.root = args[++i]; break;
+			case "-samples": harness.samples = Integer.parseInt(args[++i]); break;
+			case "-slow": harness.slow = true; break;
+			case "-history": harness.historyFile = args[++i]; break;
+			case "-maxRelMSE": harness.maxRelMSE = Double.parseDouble(args[++i]); break;
+			case "-errorTol": harness.errorTolerance = Double.parseDouble(args[++i]); break;
+			case "-timeTol": harness.timeTolerance = Double.parseDouble(args[++i]); break;
+			default: dirs.add(args[i]); break;
+			}
+		}
+		System.exit(harness.run(dirs) ? 0 : 1);
+	}
+
+	/**
+	 * Render all the scenes, check them and record them in the history.
+	 *
+	 * @param dirs the scene directories, relative to the root, or empty for all of them
+	 * @return true if every scene passed
+	 */
+	public boolean run(List<String> dirs) {
+		RayTracer.DISPLAY = false;
+
+		List<File> sceneFiles = findScenes(dirs);
+		if (sceneFiles.isEmpty()) {
+			System.out.println("No scenes with reference images found under " + root);
+			return false;
+		}
+
+		List<String[]> history = readHistory();
+		String date = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss").format(new Date());
+		ArrayList<Result> results = new ArrayList<Result>();
+		RayTracer rayTracer = new RayTracer();
+		Parser parser = new Parser();
+		for (File f : sceneFiles) {
+			Result r = render(rayTracer, parser, f);
+			if (r.failure == null)
+				check(r, history);
+			results.add(r);
+		}
+
+		appendHistory(results, date);
+
+		// Summary
+		boolean allPassed = true;
+		System.out.println();
+		System.out.println(String.format("%-40s %8s %8s %12s %8s %10s %10s",
+				"scene", "load s", "render s", "rays/s", "heap MB", "rmse", "relMSE"));
+		for (Result r : results) {
+			System.out.println(String.format("%-40s %8.2f %8.2f %12.0f %8.0f %10.5f %10.5f  %s",
+					r.scene, r.loadSeconds, r.renderSeconds, r.raysPerSecond, r.peakHeapMB,
+					r.rmse, r.relMSE, r.failure == null ? "pass" : "FAIL: " + r.failure));
+			allPassed &= r.failure == null;
+		}
+		return allPassed;
+	}
+
+	/**
+	 * List the scene files that have a reference image, in the given directories
+	 * (and their slow/ directories, if requested).
+	 */
+	private List<File> findScenes(List<String> dirs) {
+		ArrayList<File> dirFiles = new ArrayList<File>();
+		if (dirs.isEmpty()) {
+			File[] all = new File(root).listFiles(File::isDirectory);
+			if (all != null)
+				dirFiles.addAll(Arrays.asList(all));
+		} else {
+			for (String d : dirs)
+				dirFiles.add(new File(root, d));
+		}
+		Collections.sort(dirFiles);
+
+		ArrayList<File> scenes = new ArrayList<File>();
+		for (File dir : dirFiles) {
+			File reference = new File(dir, "reference");
+			addScenes(dir, reference, scenes);
+			if (slow)
+				addScenes(new File(dir, "slow"), reference, scenes);
+		}
+		return scenes;
+	}
+
+	private static void addScenes(File dir, File reference, List<File> out) {
+		File[] files = dir.listFiles((f) -> f.getName().endsWith(".xml")
+				&& new File(reference, f.getName() + ".exr").exists());
+		if (files == null)
+			return;
+		Arrays.sort(files);
+		out.addAll(Arrays.asList(files));
+	}
+
+	/**
+	 * Render one scene and compare it to its reference image.
+	 */
+	private Result render(RayTracer rayTracer, Parser parser, File sceneFile) {
+		Result r = new Result();
+		File dir = sceneFile.getParentFile();
+		if (dir.getName().equals("slow"))
+			dir = dir.getParentFile();
+		r.scene = dir.getName() + "/" + sceneFile.getName();
+
+		try {
+			RayTracer.sceneWorkspace = new RayTracer.ScenePath(root, sceneFile.getAbsolutePath());
+			resetPeakHeap();
+			System.out.println("Rendering " + r.scene);
+
+			long startTime = System.nanoTime();
+			Parser.references.clear();
+			Scene scene = (Scene) parser.parse(sceneFile.getAbsolutePath(), Scene.class);
+			if (samples > 0)
+				scene.setSamples(samples);
+			scene.init();
+			r.samples = scene.getSamples() * scene.getSamples();
+			r.loadSeconds = (System.nanoTime() - startTime) / 1e9;
+
+			long startRays = Scene.rayCount.sum();
+			startTime = System.nanoTime();
+			rayTracer.renderImage(scene);
+			r.renderSeconds = (System.nanoTime() - startTime) / 1e9;
+			r.raysPerSecond = (Scene.rayCount.sum() - startRays) / Math.max(r.renderSeconds, 1e-9);
+			r.peakHeapMB = peakHeap() / (1024.0 * 1024.0);
+
+			File reference = new File(new File(dir, "reference"), sceneFile.getName() + ".exr");
+			compare(scene.getImage(), reference, r);
+		} catch (Throwable e) {
+			e.printStackTrace();
+			r.failure = e.toString();
+		}
+		return r;
+	}
+
+	/**
+	 * Compute the RMSE and relative MSE of an image against a reference EXR file.
+	 * Image.writeHDR writes the top row first, so row y of the image is row
+	 * height - 1 - y of the file.
+	 */
+	private static void compare(Image image, File reference, Result r) throws IOException {
+		EXRSimpleImage ref = new EXRSimpleImage(reference, EXRSimpleImage.Channels.RGB);
+		int width = image.getWidth(), height = image.getHeight();
+		if (ref.getWidth() != width || ref.getHeight() != height) {
+			r.failure = "image is " + width + "x" + height + " but the reference is "
+					+ ref.getWidth() + "x" + ref.getHeight();
+			return;
+		}
+
+		Colord pixel = new Colord();
+		float[] refPixel = new float[3];
+		double squaredError = 0, relativeError = 0;
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				image.getPixelColor(pixel, x, y);
+				ref.getPixel(x, height - 1 - y, refPixel);
+				for (int c = 0; c < 3; c++) {
+					double d = pixel.get(c) - refPixel[c];
+					squaredError += d * d;
+					relativeError += d * d / (refPixel[c] * refPixel[c] + 0.01);
+				}
+			}
+		}
+		int n = 3 * width * height;
+		r.rmse = Math.sqrt(squaredError / n);
+		r.relMSE = relativeError / n;
+	}
+
+	/**
+	 * Check a result against the absolute error limit and against the median of
+	 * the last BASELINE_RUNS passing runs of the same scene and sample count.
+	 */
+	private void check(Result r, List<String[]> history) {
+		if (Double.isNaN(r.relMSE) || r.relMSE > maxRelMSE) {
+			r.failure = "relative MSE " + r.relMSE + " is above " + maxRelMSE;
+			return;
+		}
+
+		ArrayList<Double> rmses = new ArrayList<Double>(), times = new ArrayList<Double>();
+		for (int i = history.size() - 1; i >= 0 && rmses.size() < BASELINE_RUNS; i--) {
+			String[] h = history.get(i);
+			if (h[1].equals(r.scene) && Integer.parseInt(h[2]) == r.samples && h[9].equals("pass")) {
+				times.add(Double.parseDouble(h[4]));
+				rmses.add(Double.parseDouble(h[7]));
+			}
+		}
+		if (rmses.isEmpty())
+			return;
+
+		double rmseBaseline = median(rmses), timeBaseline = median(times);
+		if (r.rmse > rmseBaseline * (1 + errorTolerance))
+			r.failure = String.format("RMSE %.5f is more than %.0f%% above the baseline %.5f",
+					r.rmse, 100 * errorTolerance, rmseBaseline);
+		else if (r.renderSeconds > timeBaseline * (1 + timeTolerance))
+			r.failure = String.format("render time %.2fs is more than %.0f%% above the baseline %.2fs",
+					r.renderSeconds, 100 * timeTolerance, timeBaseline);
+	}
+
+	private static double median(List<Double> values) {
+		Collections.sort(values);
+		int n = values.size();
+		return n % 2 == 1 ? values.get(n / 2) : (values.get(n / 2 - 1) + values.get(n / 2)) / 2;
+	}
+
+	/**
+	 * Read the past runs from the history file, skipping the header.
+	 */
+	private List<String[]> readHistory() {
+		ArrayList<String[]> history = new ArrayList<String[]>();
+		File f = new File(historyFile);
+		if (!f.exists())
+			return history;
+		try {
+			for (String line : Files.readAllLines(f.toPath())) {
+				String[] fields = line.split("\t");
+				if (fields.length == 10 && !line.equals(HISTORY_HEADER))
+					history.add(fields);
+			}
+		} catch (IOException e) {
+			System.out.println("Error reading the history file " + historyFile + ": " + e);
+		}
+		return history;
+	}
+
+	private void appendHistory(List<Result> results, String date) {
+		File f = new File(historyFile);
+		boolean isNew = !f.exists();
+		try (PrintWriter out = new PrintWriter(new FileWriter(f, true))) {
+			if (isNew)
+				out.println(HISTORY_HEADER);
+			for (Result r : results)
+				out.println(r.toHistoryLine(date));
+		} catch (IOException e) {
+			System.out.println("Error writing the history file " + historyFile + ": " + e);
+		}
+	}
+
+	private static void resetPeakHeap() {
+		System.gc();
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+			if (pool.getType() == MemoryType.HEAP)
+				pool.resetPeakUsage();
+	}
+
+	/**
+	 * The peak heap use since the last reset.  This is the sum of each pool's
+	 * peak, so it can overestimate when the pools peaked at different times.
+	 */
+	private static long peakHeap() {
+		long total = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+			if (pool.getType() == MemoryType.HEAP)
+				total += pool.getPeakUsage().getUsed();
+		return total;
+	}
+}
@@ -3,6 +3,8 @@ package ray2;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
 
 import egl.math.Colord;
 import egl.math.Matrix4d;
@@ -23,6 +25,9 @@ import ray2.surface.Surface;
  * @author ags, pramook, zechenz
  */
 public class Scene {
+
+	/** The number of rays intersected with any scene, for reporting tracing speed. */
+	public static final LongAdder rayCount = new LongAdder();
 	
 	/** The camera for this scene. */
 	protected Camera camera;
@@ -101,24 +106,32 @@ public class Scene {
 	public void setTransform() {
 		Matrix4d id = new Matrix4d();
 		id.setIdentity();
-		for (Iterator<Surface> iter = surfaces.iterator(); iter.hasNext();) {
-			Surface currSurface = iter.next();
-			currSurface.setTransformation(id, id, id);
-		}
+		// Top-level surfaces are independent subtrees
+		surfaces.parallelStream().forEach((currSurface) -> currSurface.setTransformation(id, id, id));
 	}
 
 	public void init() {
+		// Wait for meshes, environment maps and textures still loading in the background
+		AssetLoader.awaitAll();
+
+		// Prepare the environment, now that it is loaded and its options are all set
+		if (getEnvironment() != null)
+			getEnvironment().init();
+
 		// Propagate transformation matrix through the tree hierarchy
 		setTransform();
 
 		// initialize camera
 		getCamera().init();
 
-		// initialize lights
+		// initialize lights (this may add surfaces to the scene, so it is done serially)
 		for (Light light : getLights()) {
 			light.init(this);
 		}
 
+		// The integrator does not depend on the geometry, so initialize it meanwhile
+		CompletableFuture<Void> integratorInit = CompletableFuture.runAsync(() -> getIntegrator().init());
+
 		// Create the acceleration structure.
 		ArrayList<Surface> renderableSurfaces = new ArrayList<Surface>();
 		List<Surface> surfaces = getSurfaces();
@@ -131,12 +144,9 @@ public class Scene {
 		getAccelStruct().build(surfaceArray);
 
 		// initialize surfaces
-		for ( Surface surface : getSurfaces()) {
-			surface.init();
-		}
+		getSurfaces().parallelStream().forEach((surface) -> surface.init());
 
-		// initialize integrator
-		getIntegrator().init();
+		integratorInit.join();
 	}
 
 	/**
@@ -149,6 +159,7 @@ public class Scene {
 	 * @return true if and intersection is found.
 	 */
 	public boolean getFirstIntersection(IntersectionRecord outRecord, Ray ray) {
+		rayCount.increment();
 		return accelStruct.intersect(outRecord, ray, false);
 		
 	}
@@ -161,6 +172,7 @@ public class Scene {
 	 * @return true if any intersection is found
 	 */
 	public boolean getAnyIntersection(Ray ray) {
+		rayCount.increment();
 		return accelStruct.intersect(new IntersectionRecord(), ray, true);	
 	}
 	
@@ -0,0 +1,185 @@
+package ray2;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import egl.math.Colord;
+import ray2.camera.Camera;
+
+/**
+ * A class that hands out blocks of the image to rendering threads in order of
+ * decreasing predicted cost.  The cost of each block is estimated by a cheap
+ * pre-pass that traces one ray through a sparse grid of its pixels and times
+ * the result.  An untimed warm-up pass over the whole image runs first, so that
+ * JIT compilation and integrator state built on the first shaded rays (photon
+ * maps, guiding trees, caches) are not charged to whichever blocks happen to be
+ * timed first.  Blocks whose predicted cost is far above the average are split
+ * into sub-blocks, and the most expensive blocks are dispatched first, so that
+ * the last blocks to be rendered are cheap ones and all threads stay busy until
+ * the end of the render.
+ */
+public final class TileScheduler {
+
+	/**
+	 * A rectangular block of the image together with its predicted cost.
+	 */
+	public static final class Tile implements Comparable<Tile> {
+		public final int offsetX, offsetY, sizeX, sizeY;
+		double cost;
+
+		Tile(int offsetX, int offsetY, int sizeX, int sizeY) {
+			this.offsetX = offsetX;
+			this.offsetY = offsetY;
+			this.sizeX = sizeX;
+			this.sizeY = sizeY;
+		}
+
+		/** Most expensive tiles sort first. */
+		@Override
+		public int compareTo(Tile other) {
+			return Double.compare(other.cost, cost);
+		}
+	}
+
+	/** Spacing, in pixels, of the pre-pass sample grid within each block. */
+	public static int PREPASS_STRIDE = 4;
+
+	/** Spacing, in pixels, of the untimed warm-up sample grid within each block. */
+	public static int WARMUP_STRIDE = 8;
+
+	/** Blocks costing more than this multiple of the mean are split. */
+	public static double SPLIT_FACTOR = 2.0;
+
+	/** Blocks are never split below this size in either dimension. */
+	public static int MIN_TILE_SIZE = 8;
+
+	// The tiles in dispatch order, and the index of the next one to hand out
+	private final ArrayList<Tile> tiles = new ArrayList<Tile>();
+	private final AtomicInteger next = new AtomicInteger();
+
+	/**
+	 * Partition the image into blocks of RayTracer.SUB_WIDTH by RayTracer.SUB_HEIGHT,
+	 * estimate the cost of each using numThreads threads, split the outliers and sort
+	 * the result so that nextTile() returns the most expensive blocks first.
+	 *
+	 * @param scene The scene to be rendered
+	 * @param width The width of the output image
+	 * @param height The height of the output image
+	 * @param numThreads The number of threads to use for the pre-pass
+	 */
+	public void initTiles(Scene scene, int width, int height, int numThreads) {
+		tiles.clear();
+		next.set(0);
+
+		for (int y = 0; y < height; y += RayTracer.SUB_HEIGHT)
+			for (int x = 0; x < width; x += RayTracer.SUB_WIDTH)
+				tiles.add(new Tile(x, y, Math.min(RayTracer.SUB_WIDTH, width - x), Math.min(RayTracer.SUB_HEIGHT, height - y)));
+
+		// Warm-up: trace an even sparser sampling of every tile without timing it
+		final AtomicInteger warmupNext = new AtomicInteger();
+		RayTracer.runParallel(numThreads, () -> {
+			int i;
+			while ((i = warmupNext.getAndIncrement()) < tiles.size())
+				traceSamples(scene, width, height, tiles.get(i), WARMUP_STRIDE);
+		});
+
+		// Pre-pass: threads claim tiles in raster order and time a sparse sampling of each
+		final AtomicInteger prepassNext = new AtomicInteger();
+		RayTracer.runParallel(numThreads, () -> {
+			int i;
+			while ((i = prepassNext.getAndIncrement()) < tiles.size())
+				estimateCost(scene, width, height, tiles.get(i));
+		});
+
+		splitOutliers();
+		Collections.sort(tiles);
+	}
+
+	/**
+	 * @return the number of tiles to be rendered
+	 */
+	public int getTileCount() {
+		return tiles.size();
+	}
+
+	/**
+	 * Return the next tile to render, or null if all tiles have been handed out.
+	 * This method may be called concurrently from several threads.
+	 */
+	public Tile nextTile() {
+		int i = next.getAndIncrement();
+		return i < tiles.size() ? tiles.get(i) : null;
+	}
+
+	/**
+	 * Trace one ray through every PREPASS_STRIDE'th pixel of the tile and record the
+	 * elapsed time, scaled to the tile's full pixel count, as its cost.
+	 */
+	private static void estimateCost(Scene scene, int width, int height, Tile tile) {
+		long startTime = System.nanoTime();
+		int count = traceSamples(scene, width, height, tile, PREPASS_STRIDE);
+		long elapsed = System.nanoTime() - startTime;
+
+		tile.cost = count == 0 ? 0 : elapsed * (tile.sizeX * tile.sizeY / (double) count);
+	}
+
+	/**
+	 * Trace one ray through every stride'th pixel of the tile.
+	 *
+	 * @return the number of rays traced
+	 */
+	private static int traceSamples(Scene scene, int width, int height, Tile tile, int stride) {
+		Ray ray = new Ray();
+		Colord rayColor = new Colord();
+		Camera cam = scene.getCamera();
+		int count = 0;
+
+		for (int x = tile.offsetX + stride / 2; x < tile.offsetX + tile.sizeX; x += stride) {
+			for (int y = tile.offsetY + stride / 2; y < tile.offsetY + tile.sizeY; y += stride) {
+				cam.getRay(ray, (x + 0.5) / width, (y + 0.5) / height);
+				RayTracer.shadeRay(rayColor, scene, ray, 1);
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Replace every tile whose cost exceeds SPLIT_FACTOR times the mean cost with its
+	 * four quadrants, repeating until no tile is both expensive and large enough to split.
+	 * The parent's cost is shared among the quadrants by area.
+	 */
+	private void splitOutliers() {
+		if (tiles.isEmpty())
+			return;
+
+		double total = 0;
+		for (Tile t : tiles)
+			total += t.cost;
+		double threshold = SPLIT_FACTOR * total / tiles.size();
+
+		for (int i = 0; i < tiles.size(); i++) {
+			Tile t = tiles.get(i);
+			if (t.cost <= threshold || t.sizeX < 2 * MIN_TILE_SIZE || t.sizeY < 2 * MIN_TILE_SIZE)
+				continue;
+
+			int halfX = t.sizeX / 2;
+			int halfY = t.sizeY / 2;
+			Tile[] quads = {
+				new Tile(t.offsetX, t.offsetY, halfX, halfY),
+				new Tile(t.offsetX + halfX, t.offsetY, t.sizeX - halfX, halfY),
+				new Tile(t.offsetX, t.offsetY + halfY, halfX, t.sizeY - halfY),
+				new Tile(t.offsetX + halfX, t.offsetY + halfY, t.sizeX - halfX, t.sizeY - halfY)
+			};
+			for (Tile q : quads)
+				q.cost = t.cost * (q.sizeX * q.sizeY) / (double) (t.sizeX * t.sizeY);
+
+			// Replace the parent in place and revisit it, since a quadrant may still be an outlier
+			tiles.set(i, quads[0]);
+			for (int k = 1; k < quads.length; k++)
+				tiles.add(quads[k]);
+			i--;
+		}
+	}
+}
@@ -0,0 +1,245 @@
+package ray2.integrator;
+
+import java.util.ArrayList;
+import java.util.stream.IntStream;
+
+import egl.math.Colord;
+import egl.math.Vector2d;
+import egl.math.Vector3d;
+import ray2.IntersectionRecord;
+import ray2.Ray;
+import ray2.RayTracer;
+import ray2.Scene;
+import ray2.camera.Camera;
+import ray2.light.Light;
+import ray2.light.LightSamplingRecord;
+import ray2.light.PointLight;
+import ray2.material.BSDF;
+import ray2.material.BSDFSamplingRecord;
+import ray2.material.GlassBSDF;
+import ray2.surface.Surface;
+
+/**
+ * A path tracer that learns where indirect light comes from and samples those directions
+ * more often, using an SD-tree [Muller et al. 2017].
+ *
+ * Before rendering, a number of training iterations trace paths from random points on the
+ * image, recording the incident radiance found at every path vertex in the SD-tree; each
+ * iteration traces twice as many paths as the last, and learns from a distribution refined
+ * by the one before.  When rendering, each bounce chooses its direction from the BSDF with
+ * probability bsdfSamplingFraction and from the learned distribution otherwise, weighting
+ * the result by the combined pdf of the two (one-sample MIS with the balance heuristic).
+ * Light sources are also sampled directly at every vertex, combined with the bounce
+ * directions by MIS as in MISIntegrator.
+ *
+ * Perfectly specular BSDFs (glass) are never guided, and discrete directions chosen by
+ * other BSDFs are followed without MIS and are not recorded.
+ */
+public class GuidedPathIntegrator extends Integrator {
+
+	/** The number of training iterations run before rendering. */
+	protected int trainingIterations = 6;
+	public void setTrainingIterations(int trainingIterations) { this.trainingIterations = trainingIterations; }
+
+	/** The number of paths traced in the first training iteration; it doubles each iteration. */
+	protected int trainingPaths = 1 << 14;
+	public void setTrainingPaths(int trainingPaths) { this.trainingPaths = trainingPaths; }
+
+	/** The probability of choosing a direction from the BSDF rather than the guide. */
+	protected double bsdfSamplingFraction = 0.5;
+	public void setBsdfSamplingFraction(double bsdfSamplingFraction) { this.bsdfSamplingFraction = bsdfSamplingFraction; }
+
+	/**
+	 * After iteration k, spatial leaves that received more than
+	 * spatialThreshold * sqrt(2^k) samples are split.
+	 */
+	protected double spatialThreshold = 4000;
+	public void setSpatialThreshold(double spatialThreshold) { this.spatialThreshold = spatialThreshold; }
+
+	/** The learned distribution, created on first use. */
+	private volatile SDTree tree = null;
+
+	@Override
+	public void init() {
+		tree = null;
+	}
+
+	@Override
+	public void shade(Colord outRadiance, Scene scene, Ray ray, IntersectionRecord iRec, int depth) {
+		SDTree t = getTree(scene);
+		shadeHit(outRadiance, scene, t, ray, iRec, depth, 0, false);
+	}
+
+	/**
+	 * Return the trained tree, training it if this is the first call.
+	 */
+	private SDTree getTree(Scene scene) {
+		SDTree t = tree;
+		if (t == null) {
+			synchronized (this) {
+				t = tree;
+				if (t == null)
+					tree = t = train(scene);
+			}
+		}
+		return t;
+	}
+
+	/**
+	 * Run the training iterations.  Paths start from random points on the image and are
+	 * traced in parallel, all recording into the same tree.
+	 */
+	protected SDTree train(Scene scene) {
+		long startTime = System.currentTimeMillis();
+
+		Vector3d min = new Vector3d(Double.POSITIVE_INFINITY);
+		Vector3d max = new Vector3d(Double.NEGATIVE_INFINITY);
+		ArrayList<Surface> renderable = new ArrayList<Surface>();
+		for (Surface s : scene.getSurfaces())
+			s.appendRenderableSurfaces(renderable);
+		for (Surface s : renderable) {
+			if (s.getMinBound() == null)
+				continue;
+			min.set(Math.min(min.x, s.getMinBound().x), Math.min(min.y, s.getMinBound().y), Math.min(min.z, s.getMinBound().z));
+			max.set(Math.max(max.x, s.getMaxBound().x), Math.max(max.y, s.getMaxBound().y), Math.max(max.z, s.getMaxBound().z));
+		}
+		if (min.x > max.x) {
+			min.setZero();
+			max.setZero();
+		}
+
+		SDTree t = new SDTree(min, max);
+		Camera cam = scene.getCamera();
+		for (int k = 0; k < trainingIterations; k++) {
+			IntStream.range(0, trainingPaths << k).parallel().forEach((i) -> {
+				Ray ray = new Ray();
+				cam.getRay(ray, Math.random(), Math.random());
+				IntersectionRecord iRec = new IntersectionRecord();
+				if (scene.getFirstIntersection(iRec, ray))
+					shadeHit(new Colord(), scene, t, ray, iRec, 1, 0, true);
+			});
+			t.refine((long) (spatialThreshold * Math.sqrt(1 << k)));
+		}
+
+		System.out.println("Path guiding: trained " + trainingIterations + " iterations, "
+				+ t.getLeafCount() + " spatial leaves, in "
+				+ ((System.currentTimeMillis() - startTime) / 1000.0) + " seconds");
+		return t;
+	}
+
+	/**
+	 * Estimate the radiance arriving along a ray.
+	 *
+	 * @param prevPdf The solid angle pdf with which the ray's direction was chosen, or 0
+	 *   if it was not chosen by a strategy that competes with light sampling
+	 * @param train Whether to record the radiance found at each vertex in the tree
+	 */
+	private void incident(Colord outRadiance, Scene scene, SDTree t, Ray ray, int depth, double prevPdf, boolean train) {
+		outRadiance.setZero();
+		if (depth > RayTracer.MAX_DEPTH)
+			return;
+
+		IntersectionRecord iRec = new IntersectionRecord();
+		if (!scene.getFirstIntersection(iRec, ray)) {
+			if (scene.getEnvironment() != null)
+				scene.getEnvironment().eval(ray.direction, outRadiance);
+			return;
+		}
+		shadeHit(outRadiance, scene, t, ray, iRec, depth, prevPdf, train);
+	}
+
+	/**
+	 * Compute the radiance leaving a hit point toward the ray origin: emission, direct
+	 * illumination from each light, and a single guided bounce.
+	 */
+	private void shadeHit(Colord outRadiance, Scene scene, SDTree t, Ray ray, IntersectionRecord iRec,
+			int depth, double prevPdf, boolean train) {
+		outRadiance.setZero();
+		Vector3d wo = new Vector3d(ray.direction).negate().normalize();
+		Vector3d normal = iRec.normal;
+		BSDF bsdf = iRec.surface.getBSDF();
+
+		// The distribution to guide with here, and how often to use it
+		SDTree.DTree guide = bsdf instanceof GlassBSDF ? null : t.getDistribution(iRec.location);
+		double guideFraction = guide != null ? 1 - bsdfSamplingFraction : 0;
+
+		// 0. Emission, weighted against the chance that light sampling found the same point
+		Light source = iRec.surface.getLight();
+		if (source != null) {
+			Colord emitted = new Colord();
+			source.eval(ray, emitted);
+			if (prevPdf > 0) {
+				double lightPdf = source.pdf(ray) * iRec.t * iRec.t * ray.direction.lenSq()
+						/ Math.abs(wo.dot(normal));
+				emitted.mul(prevPdf / (prevPdf + lightPdf));
+			}
+			outRadiance.add(emitted);
+			return;
+		}
+
+		// 1. Light sources
+		LightSamplingRecord lRec = new LightSamplingRecord();
+		Ray shadowRay = new Ray();
+		Colord value = new Colord();
+		Colord radiance = new Colord();
+		for (Light light : scene.getLights()) {
+			light.sample(lRec, iRec.location);
+			if (lRec.attenuation <= 0 || lRec.probability <= 0)
+				continue;
+
+			shadowRay.origin.set(iRec.location);
+			shadowRay.direction.set(lRec.direction).normalize();
+			shadowRay.makeOffsetSegment(lRec.distance);
+			if (scene.getAnyIntersection(shadowRay))
+				continue;
+
+			value.setZero();
+			bsdf.eval(wo, lRec.direction, normal, value);
+			light.eval(shadowRay, radiance);
+			radiance.mul(value).mul(Math.abs(lRec.direction.dot(normal)) * lRec.attenuation / lRec.probability);
+
+			if (!(light instanceof PointLight)) {
+				double lightPdf = lRec.probability / lRec.attenuation;
+				double bouncePdf = (1 - guideFraction) * bsdf.pdf(wo, lRec.direction, normal)
+						+ (guide != null ? guideFraction * SDTree.pdf(guide, lRec.direction) : 0);
+				radiance.mul(lightPdf / (lightPdf + bouncePdf));
+			}
+			outRadiance.add(radiance);
+		}
+
+		// 2. One bounce, from the BSDF or the guide
+		if (depth >= RayTracer.MAX_DEPTH)
+			return;
+
+		Vector3d wi = new Vector3d();
+		double pdf;
+		boolean discrete = false;
+		value.setZero();
+		if (Math.random() >= guideFraction) {
+			BSDFSamplingRecord sRec = new BSDFSamplingRecord(wo, normal);
+			double prob = bsdf.sample(sRec, new Vector2d(Math.random(), Math.random()), value);
+			if (prob <= 0)
+				return;
+			wi.set(sRec.dir2);
+			discrete = sRec.isDiscrete;
+			pdf = discrete ? (1 - guideFraction) * prob
+					: (1 - guideFraction) * prob + (guide != null ? guideFraction * SDTree.pdf(guide, wi) : 0);
+		} else {
+			if (!SDTree.sample(guide, new Vector2d(Math.random(), Math.random()), wi))
+				return;
+			bsdf.eval(wo, wi, normal, value);
+			pdf = (1 - guideFraction) * bsdf.pdf(wo, wi, normal) + guideFraction * SDTree.pdf(guide, wi);
+		}
+		if (pdf <= 0)
+			return;
+
+		Ray next = new Ray(iRec.location, wi);
+		next.makeOffsetRay();
+		incident(radiance, scene, t, next, depth + 1, discrete ? 0 : pdf, train);
+
+		if (train && !discrete)
+			t.record(iRec.location, wi, (radiance.x + radiance.y + radiance.z) / 3 / pdf);
+
+		outRadiance.add(radiance.mul(value).mul(Math.abs(wi.dot(normal)) / pdf));
+	}
+}
@@ -0,0 +1,80 @@
+package ray2.integrator;
+
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import egl.math.Colord;
+import egl.math.Vector3d;
+import ray2.IntersectionRecord;
+import ray2.Ray;
+import ray2.Scene;
+import ray2.camera.PerspectiveCamera;
+import ray2.light.PointLight;
+import ray2.material.LambertianBSDF;
+import ray2.surface.Sphere;
+
+public class GuidedPathIntegratorTests {
+
+	static Sphere makeSphere(Vector3d center, double radius) {
+		Sphere sphere = new Sphere();
+		sphere.setCenter(center);
+		sphere.setRadius(radius);
+		sphere.setBSDF(new LambertianBSDF(new Colord(0.7, 0.7, 0.7)));
+		return sphere;
+	}
+
+	/** A diffuse ball resting on a diffuse floor (a large sphere), lit by a point light. */
+	static Scene makeDiffuseScene(Integrator integrator) {
+		Scene scene = new Scene();
+		scene.addSurface(makeSphere(new Vector3d(0, 0, 0), 1));
+		scene.addSurface(makeSphere(new Vector3d(0, -1001, 0), 1000));
+
+		PointLight light = new PointLight();
+		light.setPosition(new Vector3d(2, 4, 3));
+		light.setIntensity(new Colord(20, 20, 20));
+		scene.addLight(light);
+
+		PerspectiveCamera camera = new PerspectiveCamera();
+		camera.setViewPoint(new Vector3d(0, 1, 6));
+		camera.setViewDir(new Vector3d(0, -0.15, -1));
+		camera.setViewUp(new Vector3d(0, 1, 0));
+		camera.setprojDistance(1);
+		camera.setViewWidth(1);
+		camera.setViewHeight(1);
+		scene.setCamera(camera);
+
+		scene.setIntegrator(integrator);
+		scene.init();
+		return scene;
+	}
+
+	@Test
+	public void testTrainAndShadeDiffuseScene() {
+		// The first training iteration shades every hit before the tree has any
+		// distributions, so each bounce must be chosen from the BSDF alone
+		GuidedPathIntegrator integrator = new GuidedPathIntegrator();
+		integrator.setTrainingIterations(2);
+		integrator.setTrainingPaths(1 << 10);
+		Scene scene = makeDiffuseScene(integrator);
+
+		Ray ray = new Ray();
+		IntersectionRecord iRec = new IntersectionRecord();
+		Colord radiance = new Colord();
+		double total = 0;
+		int hits = 0;
+		for (int i = 0; i < 200; i++) {
+			scene.getCamera().getRay(ray, Math.random(), Math.random());
+			if (!scene.getFirstIntersection(iRec, ray))
+				continue;
+			hits++;
+			integrator.shade(radiance, scene, ray, iRec, 1);
+			for (double value : new double[] { radiance.r(), radiance.g(), radiance.b() }) {
+				assertTrue("radiance " + radiance, !Double.isNaN(value) && !Double.isInfinite(value) && value >= 0);
+				total += value;
+			}
+		}
+		assertTrue(hits > 0);
+		assertTrue(total > 0);
+	}
+}
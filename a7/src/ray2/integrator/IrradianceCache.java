@@ -0,0 +1,202 @@
+package ray2.integrator;
+
+import java.util.ArrayList;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import egl.math.Colord;
+import egl.math.Vector3d;
+
+/**
+ * A cache of irradiance values at sparse points in the scene, in the style of
+ * [Ward et al. 1988] with the gradients of [Ward & Heckbert 1992].  Each record
+ * stores the irradiance at a point together with its rotational and translational
+ * gradients and the harmonic mean distance to the surrounding geometry, which
+ * determines how far the record can be reused.  Records are kept in an octree
+ * that grows to contain whatever points are added.
+ *
+ * Lookups may run concurrently with each other; insertions are exclusive.
+ */
+public class IrradianceCache {
+
+	/**
+	 * A single irradiance sample.
+	 */
+	public static class Record {
+		/** Position and normal of the point where irradiance was computed. */
+		public final Vector3d position = new Vector3d();
+		public final Vector3d normal = new Vector3d();
+
+		/** The irradiance. */
+		public final Colord irradiance = new Colord();
+
+		/** Harmonic mean distance to the surfaces seen from the point. */
+		public double radius;
+
+		/** Rotational and translational gradients of each color channel, in world space. */
+		public final Vector3d[] rotGrad = { new Vector3d(), new Vector3d(), new Vector3d() };
+		public final Vector3d[] transGrad = { new Vector3d(), new Vector3d(), new Vector3d() };
+	}
+
+	/**
+	 * An octree node holding the records whose region of influence overlaps it.
+	 */
+	private static class Node {
+		final Vector3d center = new Vector3d();
+		final double halfSize;
+		final Node[] children = new Node[8];
+		final ArrayList<Record> records = new ArrayList<Record>();
+
+		Node(Vector3d center, double halfSize) {
+			this.center.set(center);
+			this.halfSize = halfSize;
+		}
+
+		/** Index of the child octant containing p. */
+		int octant(Vector3d p) {
+			return (p.x > center.x ? 1 : 0) | (p.y > center.y ? 2 : 0) | (p.z > center.z ? 4 : 0);
+		}
+
+		/** Create or return the child in octant i. */
+		Node child(int i) {
+			if (children[i] == null) {
+				double h = halfSize / 2;
+				Vector3d c = new Vector3d(
+						center.x + ((i & 1) != 0 ? h : -h),
+						center.y + ((i & 2) != 0 ? h : -h),
+						center.z + ((i & 4) != 0 ? h : -h));
+				children[i] = new Node(c, h);
+			}
+			return children[i];
+		}
+
+		boolean contains(Vector3d p) {
+			return Math.abs(p.x - center.x) <= halfSize && Math.abs(p.y - center.y) <= halfSize
+					&& Math.abs(p.z - center.z) <= halfSize;
+		}
+	}
+
+	/** The accuracy parameter a of Ward's error estimate; smaller means more records. */
+	protected final double errorThreshold;
+
+	private Node root = null;
+	private int recordCount = 0;
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	public IrradianceCache(double errorThreshold) {
+		this.errorThreshold = errorThreshold;
+	}
+
+	/**
+	 * @return the number of records in the cache
+	 */
+	public int getRecordCount() {
+		lock.readLock().lock();
+		try {
+			return recordCount;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Estimate the irradiance at a point by interpolating the records that are valid
+	 * there, extrapolated with their gradients.
+	 *
+	 * @param p The shading point
+	 * @param n The surface normal at p (normalized)
+	 * @param outIrradiance The interpolated irradiance
+	 * @return false if no record is valid at p, in which case outIrradiance is unchanged
+	 */
+	public boolean lookup(Vector3d p, Vector3d n, Colord outIrradiance) {
+		double sumWeight = 0;
+		double r = 0, g = 0, b = 0;
+		Vector3d d = new Vector3d();
+		Vector3d nCross = new Vector3d();
+
+		lock.readLock().lock();
+		try {
+			for (Node node = root; node != null && node.contains(p); node = node.children[node.octant(p)]) {
+				for (Record rec : node.records) {
+					d.set(p).sub(rec.position);
+					double nDot = Math.min(1.0, n.dot(rec.normal));
+
+					// Ward's error estimate; records are usable where it is below the threshold
+					double err = d.len() / rec.radius + Math.sqrt(Math.max(0.0, 1.0 - nDot));
+					if (err >= errorThreshold)
+						continue;
+
+					// Reject records whose point lies in front of p, since they may see different geometry
+					double front = d.x * (n.x + rec.normal.x) + d.y * (n.y + rec.normal.y) + d.z * (n.z + rec.normal.z);
+					if (front < -0.01 * rec.radius)
+						continue;
+
+					double w = 1.0 / Math.max(err, 1e-9) - 1.0 / errorThreshold;
+					nCross.set(rec.normal).cross(n);
+					r += w * Math.max(0.0, rec.irradiance.x + nCross.dot(rec.rotGrad[0]) + d.dot(rec.transGrad[0]));
+					g += w * Math.max(0.0, rec.irradiance.y + nCross.dot(rec.rotGrad[1]) + d.dot(rec.transGrad[1]));
+					b += w * Math.max(0.0, rec.irradiance.z + nCross.dot(rec.rotGrad[2]) + d.dot(rec.transGrad[2]));
+					sumWeight += w;
+				}
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+
+		if (sumWeight <= 0)
+			return false;
+
+		outIrradiance.set(r / sumWeight, g / sumWeight, b / sumWeight);
+		return true;
+	}
+
+	/**
+	 * Add a record.  It is stored in every node that its region of influence
+	 * (radius a * R around its position) overlaps, at the depth where the nodes
+	 * are about the size of that region.
+	 *
+	 * @param rec The record, which must not be modified afterwards
+	 */
+	public void add(Record rec) {
+		double extent = errorThreshold * rec.radius;
+
+		lock.writeLock().lock();
+		try {
+			if (root == null)
+				root = new Node(rec.position, Math.max(4 * extent, 1e-3));
+
+			// Grow the tree upwards until it contains the region of influence
+			while (!root.contains(rec.position) || root.halfSize < extent) {
+				int away = root.octant(rec.position);
+				Vector3d c = new Vector3d(
+						root.center.x + ((away & 1) != 0 ? root.halfSize : -root.halfSize),
+						root.center.y + ((away & 2) != 0 ? root.halfSize : -root.halfSize),
+						root.center.z + ((away & 4) != 0 ? root.halfSize : -root.halfSize));
+				Node newRoot = new Node(c, 2 * root.halfSize);
+				newRoot.children[newRoot.octant(root.center)] = root;
+				root = newRoot;
+			}
+
+			insert(root, rec, extent);
+			recordCount++;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void insert(Node node, Record rec, double extent) {
+		if (node.halfSize < 2 * extent) {
+			node.records.add(rec);
+			return;
+		}
+		for (int i = 0; i < 8; i++) {
+			double h = node.halfSize / 2;
+			Vector3d c = new Vector3d(
+					node.center.x + ((i & 1) != 0 ? h : -h),
+					node.center.y + ((i & 2) != 0 ? h : -h),
+					node.center.z + ((i & 4) != 0 ? h : -h));
+			if (Math.abs(rec.position.x - c.x) <= h + extent && Math.abs(rec.position.y - c.y) <= h + extent
+					&& Math.abs(rec.position.z - c.z) <= h + extent)
+				insert(node.child(i), rec, extent);
+		}
+	}
+}
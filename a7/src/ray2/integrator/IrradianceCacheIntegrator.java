@@ -0,0 +1,219 @@
+package ray2.integrator;
+
+import egl.math.Colord;
+import egl.math.Vector3d;
+import ray2.IntersectionRecord;
+import ray2.Ray;
+import ray2.Scene;
+import ray2.material.BSDF;
+import ray2.material.LambertianBSDF;
+
+/**
+ * An Integrator that adds one bounce of diffuse interreflection to another integrator,
+ * using an irradiance cache [Ward et al. 1988] to avoid computing it at every pixel.
+ *
+ * At a point on a Lambertian surface, the irradiance due to light reflected from other
+ * surfaces is looked up in the cache.  If no cached record is close enough, it is computed
+ * by tracing a stratified, cosine-weighted set of rays over the hemisphere and shading
+ * their hits with the direct integrator, and the result is added to the cache with its
+ * gradients.  Irradiance varies slowly over smooth surfaces, so once the cache has filled
+ * most points are shaded by interpolation at a fraction of the cost of sampling.
+ *
+ * Light arriving directly from sources and the environment is left to the direct integrator,
+ * so the hemisphere rays only count radiance reflected by surfaces that are not sources.
+ */
+public class IrradianceCacheIntegrator extends Integrator {
+
+	/**
+	 * The integrator used for direct illumination and for shading hemisphere rays.  The
+	 * default is an SHEnvironmentIntegrator in controlVariate mode, which samples lights and
+	 * shades environment light without bias, since LightSamplingIntegrator is still an
+	 * assignment skeleton in this tree and would leave only the cached indirect term.
+	 */
+	protected Integrator directIntegrator;
+	public void setDirectIntegrator(Integrator directIntegrator) { this.directIntegrator = directIntegrator; }
+
+	public IrradianceCacheIntegrator() {
+		SHEnvironmentIntegrator unbiased = new SHEnvironmentIntegrator();
+		unbiased.setMode("controlVariate");
+		directIntegrator = unbiased;
+	}
+
+	/** Ward's accuracy parameter a.  Smaller values create more records. */
+	protected double errorThreshold = 0.2;
+	public void setErrorThreshold(double errorThreshold) { this.errorThreshold = errorThreshold; }
+
+	/** Approximate number of rays used to compute each record. */
+	protected int hemisphereSamples = 512;
+	public void setHemisphereSamples(int hemisphereSamples) { this.hemisphereSamples = hemisphereSamples; }
+
+	/** Limits on a record's harmonic mean distance, in world units. */
+	protected double minSpacing = 0.0;
+	public void setMinSpacing(double minSpacing) { this.minSpacing = minSpacing; }
+	protected double maxSpacing = Double.POSITIVE_INFINITY;
+	public void setMaxSpacing(double maxSpacing) { this.maxSpacing = maxSpacing; }
+
+	/** Spacing used for records that see no geometry at all. */
+	protected static final double UNOCCLUDED_SPACING = 1e6;
+
+	/** The cache, created at initialization. */
+	protected IrradianceCache cache;
+
+	@Override
+	public void init() {
+		directIntegrator.init();
+		cache = new IrradianceCache(errorThreshold);
+	}
+
+	@Override
+	public void shade(Colord outRadiance, Scene scene, Ray ray, IntersectionRecord iRec, int depth) {
+		directIntegrator.shade(outRadiance, scene, ray, iRec, depth);
+
+		BSDF bsdf = iRec.surface.getBSDF();
+		if (!(bsdf instanceof LambertianBSDF) || iRec.surface.getLight() != null)
+			return;
+
+		// Use the normal facing the viewer, so both sides of a surface can be cached
+		Vector3d normal = new Vector3d(iRec.normal);
+		if (normal.dot(ray.direction) > 0)
+			normal.negate();
+
+		Colord irradiance = new Colord();
+		if (!cache.lookup(iRec.location, normal, irradiance)) {
+			IrradianceCache.Record rec = computeRecord(scene, iRec.location, normal, depth);
+			cache.add(rec);
+			irradiance.set(rec.irradiance);
+		}
+
+		outRadiance.add(irradiance.mul(bsdf.getDiffuseReflectance()).div(Math.PI));
+	}
+
+	/**
+	 * Compute a new cache record at a point by stratified hemisphere sampling, using the
+	 * irradiance and gradient estimates of [Ward & Heckbert 1992].  The hemisphere is divided
+	 * into M strata in theta (uniform in sin^2 theta, so cosine-weighted) and N = pi * M strata
+	 * in phi, with one ray per stratum.
+	 */
+	protected IrradianceCache.Record computeRecord(Scene scene, Vector3d p, Vector3d n, int depth) {
+		int M = Math.max(2, (int) Math.round(Math.sqrt(hemisphereSamples / Math.PI)));
+		int N = Math.max(3, (int) Math.round(Math.PI * M));
+
+		Vector3d u = new Vector3d(), v = new Vector3d();
+		basisFromW(n, u, v);
+
+		// Incident radiance (per channel) and hit distance for each stratum
+		double[][][] L = new double[3][M][N];
+		double[][] dist = new double[M][N];
+		double[] theta = new double[M];
+		double[] phi = new double[N];
+
+		Ray r = new Ray();
+		Colord radiance = new Colord();
+		IntersectionRecord hit = new IntersectionRecord();
+		double invDistSum = 0;
+
+		for (int j = 0; j < M; j++) {
+			for (int k = 0; k < N; k++) {
+				double sinTheta = Math.sqrt((j + Math.random()) / M);
+				double cosTheta = Math.sqrt(Math.max(0.0, 1 - sinTheta * sinTheta));
+				double ph = 2 * Math.PI * (k + Math.random()) / N;
+				theta[j] = Math.asin(Math.sqrt((j + 0.5) / M));
+				phi[k] = 2 * Math.PI * (k + 0.5) / N;
+
+				r.origin.set(p);
+				r.direction.set(n).mul(cosTheta)
+					.addMultiple(sinTheta * Math.cos(ph), u)
+					.addMultiple(sinTheta * Math.sin(ph), v);
+				r.makeOffsetRay();
+
+				radiance.setZero();
+				if (scene.getFirstIntersection(hit, r)) {
+					dist[j][k] = hit.t;
+					// Sources are direct illumination, already accounted for
+					if (hit.surface.getLight() == null)
+						directIntegrator.shade(radiance, scene, r, hit, depth + 1);
+				} else {
+					dist[j][k] = Double.POSITIVE_INFINITY;
+				}
+				L[0][j][k] = radiance.x;
+				L[1][j][k] = radiance.y;
+				L[2][j][k] = radiance.z;
+				invDistSum += 1 / dist[j][k];
+			}
+		}
+
+		IrradianceCache.Record rec = new IrradianceCache.Record();
+		rec.position.set(p);
+		rec.normal.set(n);
+		// If every ray escaped there is nothing nearby to reflect light; the record is
+		// valid over a large (but finite, so it can be stored) region
+		rec.radius = invDistSum > 0 ? M * N / invDistSum : UNOCCLUDED_SPACING;
+		rec.radius = Math.min(maxSpacing, Math.max(minSpacing, rec.radius));
+
+		for (int c = 0; c < 3; c++) {
+			double E = 0;
+			// Gradients in the local (u, v, n) frame; only the tangential parts are nonzero
+			double rotU = 0, rotV = 0, transU = 0, transV = 0;
+
+			for (int k = 0; k < N; k++) {
+				double cosPhi = Math.cos(phi[k]), sinPhi = Math.sin(phi[k]);
+				double phiMinus = 2 * Math.PI * k / N;
+				double cosPhiMinus = Math.cos(phiMinus), sinPhiMinus = Math.sin(phiMinus);
+
+				double rotSum = 0, radialSum = 0, azimuthSum = 0;
+				for (int j = 0; j < M; j++) {
+					E += L[c][j][k];
+					rotSum -= Math.tan(theta[j]) * L[c][j][k];
+
+					// Change across the boundary between strata (j-1, k) and (j, k)
+					if (j > 0) {
+						double sinThetaMinus = Math.sqrt(j / (double) M);
+						double cosThetaMinus2 = 1 - j / (double) M;
+						radialSum += sinThetaMinus * cosThetaMinus2 / Math.min(dist[j][k], dist[j-1][k])
+								* (L[c][j][k] - L[c][j-1][k]);
+					}
+
+					// Change across the boundary between strata (j, k-1) and (j, k)
+					int kPrev = (k + N - 1) % N;
+					double cosThetaMinus = Math.sqrt(1 - j / (double) M);
+					double cosThetaPlus = Math.sqrt(1 - (j + 1) / (double) M);
+					azimuthSum += Math.cos(theta[j]) * (cosThetaMinus - cosThetaPlus)
+							/ (Math.sin(theta[j]) * Math.min(dist[j][k], dist[j][kPrev]))
+							* (L[c][j][k] - L[c][j][kPrev]);
+				}
+
+				// Rotational gradient points along phi + pi/2
+				rotU += -sinPhi * rotSum;
+				rotV += cosPhi * rotSum;
+
+				transU += cosPhi * (2 * Math.PI / N) * radialSum - sinPhiMinus * azimuthSum;
+				transV += sinPhi * (2 * Math.PI / N) * radialSum + cosPhiMinus * azimuthSum;
+			}
+
+			double scale = Math.PI / (M * N);
+			setChannel(rec.irradiance, c, E * scale);
+			rec.rotGrad[c].set(u).mul(rotU * scale).addMultiple(rotV * scale, v);
+			rec.transGrad[c].set(u).mul(transU).addMultiple(transV, v);
+		}
+
+		return rec;
+	}
+
+	private static void setChannel(Colord color, int c, double value) {
+		if (c == 0) color.x = value;
+		else if (c == 1) color.y = value;
+		else color.z = value;
+	}
+
+	/** Construct a frame using a single vector. */
+	static void basisFromW(Vector3d w, Vector3d outU, Vector3d outV) {
+		if (Math.abs(w.x) <= Math.abs(w.y) && Math.abs(w.x) <= Math.abs(w.z))
+			outV.set(1, 0, 0);
+		else if (Math.abs(w.y) <= Math.abs(w.x) && Math.abs(w.y) <= Math.abs(w.z))
+			outV.set(0, 1, 0);
+		else
+			outV.set(0, 0, 1);
+		outU.set(outV).cross(w).normalize();
+		outV.set(w).cross(outU).normalize();
+	}
+}
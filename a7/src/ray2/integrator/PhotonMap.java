@@ -0,0 +1,270 @@
+package ray2.integrator;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import egl.math.Colord;
+import egl.math.Vector3d;
+
+/**
+ * A set of photons stored in a balanced kd-tree for nearest-neighbor queries [Jensen 1996].
+ *
+ * The tree is implicit: after building, the photons in any index range [lo, hi) are split
+ * by the photon at mid = (lo + hi) / 2, with photons on the low side of the splitting plane
+ * in [lo, mid) and those on the high side in (mid, hi).  The axis of each split is stored
+ * at its median index.  Building partitions the two halves of each range in parallel.
+ */
+public class PhotonMap {
+
+	/**
+	 * Photons as they are collected, before being built into a map.  Photons are
+	 * stored in flat arrays, three floats per vector, to keep large maps compact.
+	 */
+	public static class PhotonList {
+		float[] position = new float[3 * 64];
+		float[] direction = new float[3 * 64];
+		float[] power = new float[3 * 64];
+		int size = 0;
+
+		/**
+		 * Add a photon.
+		 *
+		 * @param p Where the photon landed
+		 * @param dir The direction it came from (pointing away from the surface)
+		 * @param phi The power it carries
+		 */
+		public void add(Vector3d p, Vector3d dir, Colord phi) {
+			if (3 * size == position.length) {
+				position = Arrays.copyOf(position, 2 * position.length);
+				direction = Arrays.copyOf(direction, 2 * direction.length);
+				power = Arrays.copyOf(power, 2 * power.length);
+			}
+			position[3*size] = (float) p.x; position[3*size+1] = (float) p.y; position[3*size+2] = (float) p.z;
+			direction[3*size] = (float) dir.x; direction[3*size+1] = (float) dir.y; direction[3*size+2] = (float) dir.z;
+			power[3*size] = (float) phi.x; power[3*size+1] = (float) phi.y; power[3*size+2] = (float) phi.z;
+			size++;
+		}
+
+		public int size() {
+			return size;
+		}
+	}
+
+	/** Ranges smaller than this are partitioned on the calling thread. */
+	private static final int PARALLEL_CUTOFF = 4096;
+
+	private final float[] position;
+	private final float[] direction;
+	private final float[] power;
+	private final byte[] axis;
+	private final int size;
+
+	/**
+	 * Build a map from lists of photons, each of which has its power scaled by powerScale.
+	 *
+	 * @param lists The photons, typically one list per batch of emitted photons
+	 * @param powerScale Factor applied to every photon's power
+	 */
+	public PhotonMap(List<PhotonList> lists, double powerScale) {
+		int n = 0;
+		for (PhotonList l : lists)
+			n += l.size;
+		size = n;
+		position = new float[3 * n];
+		direction = new float[3 * n];
+		power = new float[3 * n];
+		axis = new byte[n];
+
+		int offset = 0;
+		for (PhotonList l : lists) {
+			System.arraycopy(l.position, 0, position, 3 * offset, 3 * l.size);
+			System.arraycopy(l.direction, 0, direction, 3 * offset, 3 * l.size);
+			for (int i = 0; i < 3 * l.size; i++)
+				power[3 * offset + i] = (float) (l.power[i] * powerScale);
+			offset += l.size;
+		}
+
+		ForkJoinPool.commonPool().invoke(new Build(0, n));
+	}
+
+	/**
+	 * @return the number of photons in the map
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Parallel recursive construction of the subtree for photons [lo, hi).
+	 */
+	@SuppressWarnings("serial")
+	private class Build extends RecursiveAction {
+		final int lo, hi;
+
+		Build(int lo, int hi) {
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		@Override
+		protected void compute() {
+			if (hi - lo <= 1)
+				return;
+
+			// Split along the axis of greatest extent
+			float[] min = { Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY };
+			float[] max = { Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY };
+			for (int i = lo; i < hi; i++) {
+				for (int c = 0; c < 3; c++) {
+					min[c] = Math.min(min[c], position[3*i+c]);
+					max[c] = Math.max(max[c], position[3*i+c]);
+				}
+			}
+			int a = 0;
+			if (max[1] - min[1] > max[a] - min[a]) a = 1;
+			if (max[2] - min[2] > max[a] - min[a]) a = 2;
+
+			int mid = (lo + hi) >>> 1;
+			select(lo, hi - 1, mid, a);
+			axis[mid] = (byte) a;
+
+			if (hi - lo > PARALLEL_CUTOFF) {
+				invokeAll(new Build(lo, mid), new Build(mid + 1, hi));
+			} else {
+				new Build(lo, mid).compute();
+				new Build(mid + 1, hi).compute();
+			}
+		}
+	}
+
+	/**
+	 * Rearrange photons [left, right] so that the photon at index k has the k'th smallest
+	 * coordinate along axis a, with no larger coordinates before it and no smaller ones after.
+	 */
+	private void select(int left, int right, int k, int a) {
+		while (right > left) {
+			float pivot = position[3 * ((left + right) >>> 1) + a];
+			int i = left, j = right;
+			while (i <= j) {
+				while (position[3*i+a] < pivot) i++;
+				while (position[3*j+a] > pivot) j--;
+				if (i <= j) {
+					swap(i, j);
+					i++;
+					j--;
+				}
+			}
+			if (k <= j) right = j;
+			else if (k >= i) left = i;
+			else return;
+		}
+	}
+
+	private void swap(int i, int j) {
+		for (int c = 0; c < 3; c++) {
+			float t;
+			t = position[3*i+c]; position[3*i+c] = position[3*j+c]; position[3*j+c] = t;
+			t = direction[3*i+c]; direction[3*i+c] = direction[3*j+c]; direction[3*j+c] = t;
+			t = power[3*i+c]; power[3*i+c] = power[3*j+c]; power[3*j+c] = t;
+		}
+	}
+
+	/**
+	 * The result of a nearest-neighbor query: the indices of up to k photons, kept as a
+	 * max-heap on squared distance so the farthest can be replaced.
+	 */
+	public static class Neighbors {
+		final int[] index;
+		final double[] distSq;
+		int count = 0;
+		double maxDistSq;
+
+		public Neighbors(int k) {
+			index = new int[k];
+			distSq = new double[k];
+		}
+
+		void reset(double maxDist) {
+			count = 0;
+			maxDistSq = maxDist * maxDist;
+		}
+
+		void offer(int i, double d2) {
+			if (count < index.length) {
+				// Sift up
+				int c = count++;
+				while (c > 0 && distSq[(c - 1) / 2] < d2) {
+					index[c] = index[(c - 1) / 2];
+					distSq[c] = distSq[(c - 1) / 2];
+					c = (c - 1) / 2;
+				}
+				index[c] = i;
+				distSq[c] = d2;
+				if (count == index.length)
+					maxDistSq = distSq[0];
+			} else {
+				// Replace the root and sift down
+				int c = 0;
+				while (true) {
+					int child = 2 * c + 1;
+					if (child >= count) break;
+					if (child + 1 < count && distSq[child + 1] > distSq[child]) child++;
+					if (distSq[child] <= d2) break;
+					index[c] = index[child];
+					distSq[c] = distSq[child];
+					c = child;
+				}
+				index[c] = i;
+				distSq[c] = d2;
+				maxDistSq = distSq[0];
+			}
+		}
+	}
+
+	/**
+	 * Find the photons nearest to p, up to the capacity of out and within maxDist.
+	 */
+	public void nearest(Vector3d p, double maxDist, Neighbors out) {
+		out.reset(maxDist);
+		if (size > 0)
+			nearest(0, size, p.x, p.y, p.z, out);
+	}
+
+	private void nearest(int lo, int hi, double px, double py, double pz, Neighbors out) {
+		if (hi <= lo)
+			return;
+		int mid = (lo + hi) >>> 1;
+
+		double dx = position[3*mid] - px, dy = position[3*mid+1] - py, dz = position[3*mid+2] - pz;
+		if (hi - lo > 1) {
+			int a = axis[mid];
+			double delta = a == 0 ? -dx : (a == 1 ? -dy : -dz);
+			// Search the side containing p first, then the other if it could hold closer photons
+			if (delta < 0) {
+				nearest(lo, mid, px, py, pz, out);
+				if (delta * delta < out.maxDistSq)
+					nearest(mid + 1, hi, px, py, pz, out);
+			} else {
+				nearest(mid + 1, hi, px, py, pz, out);
+				if (delta * delta < out.maxDistSq)
+					nearest(lo, mid, px, py, pz, out);
+			}
+		}
+
+		double d2 = dx * dx + dy * dy + dz * dz;
+		if (d2 < out.maxDistSq)
+			out.offer(mid, d2);
+	}
+
+	/** Read the incoming direction of photon i. */
+	public void getDirection(int i, Vector3d outDir) {
+		outDir.set(direction[3*i], direction[3*i+1], direction[3*i+2]);
+	}
+
+	/** Read the power of photon i. */
+	public void getPower(int i, Colord outPower) {
+		outPower.set(power[3*i], power[3*i+1], power[3*i+2]);
+	}
+}
@@ -0,0 +1,263 @@
+package ray2.integrator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import egl.math.Colord;
+import egl.math.Vector2d;
+import egl.math.Vector3d;
+import ray2.IntersectionRecord;
+import ray2.Ray;
+import ray2.RayTracer;
+import ray2.Scene;
+import ray2.light.Environment;
+import ray2.light.Light;
+import ray2.material.BSDF;
+import ray2.material.BSDFSamplingRecord;
+import ray2.material.GlassBSDF;
+import ray2.material.GlazedBSDF;
+import ray2.surface.Surface;
+
+/**
+ * An Integrator that adds caustics to another integrator using a caustic photon map
+ * [Jensen 1996].
+ *
+ * Light that reaches a diffuse surface after passing through discrete (mirror or glass)
+ * reflections cannot be found by sampling light sources, because the shadow ray is blocked
+ * by the specular object, and is found only rarely by sampling the BSDF.  Instead, before
+ * rendering, photons are shot from the light sources and the environment; photons that
+ * arrive at a non-discrete surface after one or more discrete bounces are stored.  At
+ * shading time the caustic radiance is estimated from the density of nearby photons.
+ *
+ * The photon map is built the first time a ray is shaded, since that is the first time
+ * the scene is available to the integrator.  Photons are traced and the kd-tree is built
+ * in parallel.
+ */
+public class PhotonMapIntegrator extends Integrator {
+
+	/**
+	 * The integrator used for everything except caustics.  The default is an
+	 * SHEnvironmentIntegrator in controlVariate mode, which samples lights and shades
+	 * environment light without bias, since LightSamplingIntegrator is still an assignment
+	 * skeleton in this tree and would leave only the caustics.
+	 */
+	protected Integrator baseIntegrator;
+	public void setBaseIntegrator(Integrator baseIntegrator) { this.baseIntegrator = baseIntegrator; }
+
+	public PhotonMapIntegrator() {
+		SHEnvironmentIntegrator unbiased = new SHEnvironmentIntegrator();
+		unbiased.setMode("controlVariate");
+		baseIntegrator = unbiased;
+	}
+
+	/** The number of photons emitted, shared among all light sources and the environment. */
+	protected int photons = 200000;
+	public void setPhotons(int photons) { this.photons = photons; }
+
+	/** The number of photons used in each radiance estimate. */
+	protected int lookupCount = 50;
+	public void setLookupCount(int lookupCount) { this.lookupCount = lookupCount; }
+
+	/** The largest radius searched for photons, in world units. */
+	protected double maxRadius = 0.1;
+	public void setMaxRadius(double maxRadius) { this.maxRadius = maxRadius; }
+
+	/** Photons are emitted and stored in batches of this size, one batch per task. */
+	private static final int BATCH_SIZE = 1024;
+
+	/** The caustic photon map, built on first use. */
+	private volatile PhotonMap causticMap = null;
+
+	@Override
+	public void init() {
+		baseIntegrator.init();
+		causticMap = null;
+	}
+
+	@Override
+	public void shade(Colord outRadiance, Scene scene, Ray ray, IntersectionRecord iRec, int depth) {
+		baseIntegrator.shade(outRadiance, scene, ray, iRec, depth);
+
+		PhotonMap map = getCausticMap(scene);
+		if (map.size() == 0)
+			return;
+
+		Vector3d wo = new Vector3d(ray.direction).negate().normalize();
+		BSDF bsdf = iRec.surface.getBSDF();
+
+		PhotonMap.Neighbors nbrs = new PhotonMap.Neighbors(lookupCount);
+		map.nearest(iRec.location, maxRadius, nbrs);
+		if (nbrs.count == 0)
+			return;
+
+		// Density estimate over the disc containing the photons found
+		Vector3d wi = new Vector3d();
+		Colord phi = new Colord();
+		Colord f = new Colord();
+		Colord sum = new Colord();
+		for (int i = 0; i < nbrs.count; i++) {
+			map.getDirection(nbrs.index[i], wi);
+			// Only photons arriving on the side being viewed contribute
+			if (wi.dot(iRec.normal) * wo.dot(iRec.normal) <= 0)
+				continue;
+			bsdf.eval(wi, wo, iRec.normal, f);
+			map.getPower(nbrs.index[i], phi);
+			sum.add(f.mul(phi));
+		}
+		double radiusSq = nbrs.count < lookupCount ? maxRadius * maxRadius : nbrs.maxDistSq;
+		outRadiance.add(sum.div(Math.PI * radiusSq));
+	}
+
+	/**
+	 * Return the caustic map, building it if this is the first call.
+	 */
+	private PhotonMap getCausticMap(Scene scene) {
+		PhotonMap map = causticMap;
+		if (map == null) {
+			synchronized (this) {
+				map = causticMap;
+				if (map == null)
+					causticMap = map = buildCausticMap(scene);
+			}
+		}
+		return map;
+	}
+
+	/**
+	 * Emit photons from every light and the environment, trace them through discrete
+	 * bounces and store the caustic photons.
+	 */
+	protected PhotonMap buildCausticMap(Scene scene) {
+		long startTime = System.currentTimeMillis();
+
+		// Emitters share the photon budget equally
+		List<Light> lights = scene.getLights();
+		int emitters = lights.size() + (scene.getEnvironment() != null ? 1 : 0);
+		if (emitters == 0)
+			return new PhotonMap(new ArrayList<PhotonMap.PhotonList>(), 1.0);
+		int perEmitter = Math.max(1, photons / emitters);
+		int batches = (perEmitter + BATCH_SIZE - 1) / BATCH_SIZE;
+
+		// Environment photons are aimed at a disc covering the objects that make caustics
+		double[] target = scene.getEnvironment() != null ? specularBoundingSphere(scene) : null;
+
+		List<PhotonMap.PhotonList> lists = IntStream.range(0, emitters * batches).parallel().mapToObj((b) -> {
+			int emitter = b / batches;
+			int count = Math.min(BATCH_SIZE, perEmitter - (b % batches) * BATCH_SIZE);
+			PhotonMap.PhotonList list = new PhotonMap.PhotonList();
+			Ray photonRay = new Ray();
+			Colord power = new Colord();
+			for (int i = 0; i < count; i++) {
+				boolean emitted = emitter < lights.size()
+					? lights.get(emitter).emit(new Vector2d(Math.random(), Math.random()),
+							new Vector2d(Math.random(), Math.random()), photonRay, power)
+					: emitFromEnvironment(scene.getEnvironment(), target, photonRay, power);
+				if (emitted)
+					tracePhoton(scene, photonRay, power, list);
+			}
+			return list;
+		}).collect(Collectors.toList());
+
+		PhotonMap map = new PhotonMap(lists, 1.0 / perEmitter);
+		System.out.println("Caustic photon map: " + map.size() + " photons stored in "
+				+ ((System.currentTimeMillis() - startTime) / 1000.0) + " seconds");
+		return map;
+	}
+
+	/**
+	 * Follow a photon through discrete bounces.  When it first reaches a surface where the
+	 * BSDF sample is not discrete, it is stored if it bounced at least once before.
+	 */
+	private void tracePhoton(Scene scene, Ray ray, Colord power, PhotonMap.PhotonList list) {
+		IntersectionRecord iRec = new IntersectionRecord();
+		Colord value = new Colord();
+		Vector3d incoming = new Vector3d();
+
+		for (int depth = 0; depth < RayTracer.MAX_DEPTH; depth++) {
+			if (!scene.getFirstIntersection(iRec, ray))
+				return;
+
+			incoming.set(ray.direction).negate().normalize();
+			BSDFSamplingRecord sRec = new BSDFSamplingRecord(incoming, iRec.normal);
+			value.setZero();
+			double prob = iRec.surface.getBSDF().sample(sRec, new Vector2d(Math.random(), Math.random()), value);
+
+			if (!sRec.isDiscrete) {
+				if (depth > 0)
+					list.add(iRec.location, incoming, power);
+				return;
+			}
+			if (prob <= 0)
+				return;
+
+			// Continue along the discrete direction with the appropriate throughput
+			double cos = Math.abs(sRec.dir2.dot(iRec.normal));
+			power.mul(value).mul(cos / prob);
+
+			ray.origin.set(iRec.location);
+			ray.direction.set(sRec.dir2);
+			ray.makeOffsetRay();
+		}
+	}
+
+	/**
+	 * Emit a photon from the environment: choose an incoming direction by importance
+	 * sampling the environment, then a starting point on a disc perpendicular to it that
+	 * covers the target sphere.
+	 */
+	private boolean emitFromEnvironment(Environment env, double[] target, Ray outRay, Colord outPower) {
+		if (target == null)
+			return false;
+
+		Vector3d dir = new Vector3d();
+		double pdf = env.sample(new Vector2d(Math.random(), Math.random()), dir, outPower);
+		if (pdf <= 0)
+			return false;
+		dir.normalize();
+
+		Vector3d u = new Vector3d(), v = new Vector3d();
+		IrradianceCacheIntegrator.basisFromW(dir, u, v);
+		double r = target[3];
+		double s = Math.sqrt(Math.random()) * r;
+		double phi = 2 * Math.PI * Math.random();
+
+		outRay.origin.set(target[0], target[1], target[2])
+			.addMultiple(2 * r, dir)
+			.addMultiple(s * Math.cos(phi), u)
+			.addMultiple(s * Math.sin(phi), v);
+		outRay.direction.set(dir).negate();
+		outRay.makeOffsetRay();
+
+		outPower.mul(Math.PI * r * r / pdf);
+		return true;
+	}
+
+	/**
+	 * Compute a bounding sphere (center x, y, z and radius) of the surfaces with discrete
+	 * BSDFs, or null if there are none.
+	 */
+	private static double[] specularBoundingSphere(Scene scene) {
+		ArrayList<Surface> renderable = new ArrayList<Surface>();
+		for (Surface s : scene.getSurfaces())
+			s.appendRenderableSurfaces(renderable);
+
+		Vector3d min = new Vector3d(Double.POSITIVE_INFINITY);
+		Vector3d max = new Vector3d(Double.NEGATIVE_INFINITY);
+		boolean found = false;
+		for (Surface s : renderable) {
+			BSDF b = s.getBSDF();
+			if (!(b instanceof GlassBSDF || b instanceof GlazedBSDF) || s.getMinBound() == null)
+				continue;
+			found = true;
+			min.set(Math.min(min.x, s.getMinBound().x), Math.min(min.y, s.getMinBound().y), Math.min(min.z, s.getMinBound().z));
+			max.set(Math.max(max.x, s.getMaxBound().x), Math.max(max.y, s.getMaxBound().y), Math.max(max.z, s.getMaxBound().z));
+		}
+		if (!found)
+			return null;
+
+		Vector3d center = new Vector3d(min).add(max).mul(0.5);
+		return new double[] { center.x, center.y, center.z, max.dist(min) / 2 };
+	}
+}
@@ -0,0 +1,416 @@
+package ray2.integrator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import egl.math.Vector2d;
+import egl.math.Vector3d;
+
+/**
+ * A spatio-directional tree ("SD-tree") that learns the distribution of incident radiance
+ * in a scene, following "Practical Path Guiding for Efficient Light-Transport Simulation"
+ * [Muller et al. 2017].
+ *
+ * Space is subdivided by a binary tree over a cube containing the scene, alternating the
+ * splitting axis at each level.  Each leaf holds two directional quadtrees: one that is
+ * being built from radiance samples recorded during the current training iteration, and one
+ * learned in the previous iteration that is used for sampling.  After each iteration the
+ * spatial tree is refined where many samples were recorded, the built quadtrees become the
+ * sampling quadtrees, and fresh quadtrees are created whose structure is refined where the
+ * previous iteration found the most energy.
+ *
+ * Recording is thread safe: counts and energies are accumulated atomically, so many render
+ * threads can record into the tree at once.  Refinement must not run concurrently with
+ * anything else.
+ */
+public class SDTree {
+
+	/**
+	 * A quadtree over the square [0,1]^2, which is mapped to the sphere of directions by an
+	 * equal-area cylindrical projection (see toSquare and fromSquare).  Every node has four
+	 * quadrants, each of which is either a leaf or has a child node; node i's quadrants are
+	 * stored at 4*i .. 4*i+3, with quadrant q covering x in the (q & 1) half and y in the
+	 * (q >> 1) half.  The energy of a quadrant is the sum of everything recorded inside it.
+	 */
+	public static class DTree {
+
+		/** Index of each quadrant's child node, or 0 if it is a leaf. */
+		private final int[] children;
+
+		/** Energy recorded in each quadrant, as the bits of a double, while building. */
+		private final AtomicLongArray building;
+
+		/** Energy of each quadrant, once frozen for sampling. */
+		private double[] energy = null;
+
+		/** A tree with a single node. */
+		public DTree() {
+			this(new int[4]);
+		}
+
+		private DTree(int[] children) {
+			this.children = children;
+			this.building = new AtomicLongArray(children.length);
+		}
+
+		/**
+		 * @return the number of nodes in the tree
+		 */
+		public int getNodeCount() {
+			return children.length / 4;
+		}
+
+		/**
+		 * Add energy at a point of the square, to every quadrant containing it.
+		 */
+		public void record(double x, double y, double value) {
+			int node = 0;
+			while (true) {
+				int q = quadrant(x, y);
+				addAtomic(building, 4 * node + q, value);
+				if (children[4 * node + q] == 0)
+					return;
+				x = 2 * x - (q & 1);
+				y = 2 * y - (q >> 1);
+				node = children[4 * node + q];
+			}
+		}
+
+		/**
+		 * Stop building and prepare the tree for sampling.
+		 */
+		public void freeze() {
+			energy = new double[children.length];
+			for (int i = 0; i < energy.length; i++)
+				energy[i] = Double.longBitsToDouble(building.get(i));
+		}
+
+		/**
+		 * @return the total energy, which is 0 if nothing was recorded
+		 */
+		public double getTotal() {
+			return energy[0] + energy[1] + energy[2] + energy[3];
+		}
+
+		/**
+		 * The density, with respect to area on the square, of sample() at a point.
+		 */
+		public double pdf(double x, double y) {
+			double p = 1;
+			int node = 0;
+			while (true) {
+				int i = 4 * node;
+				double total = energy[i] + energy[i + 1] + energy[i + 2] + energy[i + 3];
+				if (total <= 0)
+					return 0;
+				int q = quadrant(x, y);
+				p *= 4 * energy[i + q] / total;
+				if (children[i + q] == 0 || p == 0)
+					return p;
+				x = 2 * x - (q & 1);
+				y = 2 * y - (q >> 1);
+				node = children[i + q];
+			}
+		}
+
+		/**
+		 * Choose a point on the square with probability proportional to the energy.  The
+		 * tree is descended by choosing the horizontal half, then the vertical half, at each
+		 * level, reusing the seed each time; the point is uniform within the leaf reached.
+		 *
+		 * @return false if the tree has no energy, in which case outPoint is unchanged
+		 */
+		public boolean sample(Vector2d seed, Vector2d outPoint) {
+			double sx = seed.x, sy = seed.y;
+			double ox = 0, oy = 0, scale = 1;
+			int node = 0;
+			while (true) {
+				int i = 4 * node;
+				double left = energy[i] + energy[i + 2], right = energy[i + 1] + energy[i + 3];
+				if (left + right <= 0)
+					return false;
+
+				int qx;
+				double pLeft = left / (left + right);
+				if (sx < pLeft) { qx = 0; sx = sx / pLeft; }
+				else { qx = 1; sx = (sx - pLeft) / (1 - pLeft); }
+
+				double bottom = energy[i + qx], top = energy[i + qx + 2];
+				int qy;
+				double pBottom = bottom / (bottom + top);
+				if (sy < pBottom) { qy = 0; sy = sy / pBottom; }
+				else { qy = 1; sy = (sy - pBottom) / (1 - pBottom); }
+
+				// Guard against seeds rescaled to exactly 1
+				sx = Math.min(sx, 1 - 1e-12);
+				sy = Math.min(sy, 1 - 1e-12);
+
+				int q = qx | (qy << 1);
+				scale *= 0.5;
+				ox += qx * scale;
+				oy += qy * scale;
+				if (children[i + q] == 0) {
+					outPoint.set(ox + sx * scale, oy + sy * scale);
+					return true;
+				}
+				node = children[i + q];
+			}
+		}
+
+		/**
+		 * Create an empty tree for the next iteration, subdivided wherever a quadrant of this
+		 * (frozen) tree holds more than the fraction rho of the total energy.  Quadrants that
+		 * hold less are merged, so the tree follows the energy as it is learned.
+		 */
+		public DTree refine(double rho, int maxDepth) {
+			double total = getTotal();
+			ArrayList<double[]> pending = new ArrayList<double[]>();
+
+			// Breadth-first over the new tree, so node n of the new tree is pending[n].  Each
+			// entry holds the node's depth, the old node that covers it exactly (or -1 where
+			// this tree has none), and the energy of its quadrants according to this tree.
+			int[] newChildren = new int[4 * 16];
+			int count = 1;
+			pending.add(new double[] { 1, 0, energy[0], energy[1], energy[2], energy[3] });
+
+			for (int n = 0; n < pending.size(); n++) {
+				double[] e = pending.get(n);
+				int depth = (int) e[0], oldNode = (int) e[1];
+				for (int q = 0; q < 4; q++) {
+					if (total <= 0 || e[2 + q] / total <= rho || depth >= maxDepth)
+						continue;
+
+					int oldChild = oldNode >= 0 ? children[4 * oldNode + q] : 0;
+					double[] child = new double[6];
+					child[0] = depth + 1;
+					if (oldChild != 0) {
+						child[1] = oldChild;
+						for (int c = 0; c < 4; c++)
+							child[2 + c] = energy[4 * oldChild + c];
+					} else {
+						// Split a leaf, assuming the energy is spread evenly within it
+						child[1] = -1;
+						for (int c = 0; c < 4; c++)
+							child[2 + c] = e[2 + q] / 4;
+					}
+
+					if (4 * count == newChildren.length)
+						newChildren = Arrays.copyOf(newChildren, 2 * newChildren.length);
+					newChildren[4 * n + q] = count++;
+					pending.add(child);
+				}
+			}
+
+			return new DTree(Arrays.copyOf(newChildren, 4 * count));
+		}
+
+		/**
+		 * @return a copy of this tree's structure with no energy recorded
+		 */
+		public DTree emptyCopy() {
+			return new DTree(children.clone());
+		}
+
+		private static int quadrant(double x, double y) {
+			return (x < 0.5 ? 0 : 1) | (y < 0.5 ? 0 : 2);
+		}
+	}
+
+	/**
+	 * A node of the spatial tree.  Interior nodes split their box in half along one axis;
+	 * leaves hold directional distributions.
+	 */
+	private static class SNode {
+		int axis;
+		SNode[] children = null;
+
+		DTree sampling = null;
+		DTree building = new DTree();
+		final AtomicLong samples = new AtomicLong();
+	}
+
+	/** Quadrants with more than this fraction of the energy are subdivided. */
+	protected double rho = 0.01;
+	public void setRho(double rho) { this.rho = rho; }
+
+	/** Maximum depth of the directional quadtrees. */
+	protected static final int MAX_DTREE_DEPTH = 20;
+
+	/** Maximum depth of the spatial tree. */
+	protected static final int MAX_STREE_DEPTH = 48;
+
+	/** The cube covered by the spatial tree. */
+	private final Vector3d origin = new Vector3d();
+	private final double size;
+
+	private final SNode root = new SNode();
+	private int leafCount = 1;
+
+	/**
+	 * Create a tree covering (a cube containing) the given box.
+	 */
+	public SDTree(Vector3d min, Vector3d max) {
+		size = Math.max(1e-6, Math.max(max.x - min.x, Math.max(max.y - min.y, max.z - min.z))) * (1 + 1e-3);
+		origin.set(min).add(max).mul(0.5).sub(size / 2, size / 2, size / 2);
+	}
+
+	/**
+	 * @return the number of leaves of the spatial tree
+	 */
+	public int getLeafCount() {
+		return leafCount;
+	}
+
+	/**
+	 * Record an estimate of the incident radiance at a point from a direction.
+	 *
+	 * @param p The point
+	 * @param dir The direction the radiance arrives from (pointing away from p, need not be normalized)
+	 * @param value The estimate, usually the luminance of the radiance divided by the pdf of dir
+	 */
+	public void record(Vector3d p, Vector3d dir, double value) {
+		SNode leaf = leaf(p);
+		leaf.samples.incrementAndGet();
+		if (value > 0 && !Double.isInfinite(value) && !Double.isNaN(value)) {
+			Vector2d s = toSquare(dir);
+			leaf.building.record(s.x, s.y, value);
+		}
+	}
+
+	/**
+	 * Find the learned distribution at a point.
+	 *
+	 * @return the distribution, or null if nothing has been learned there yet
+	 */
+	public DTree getDistribution(Vector3d p) {
+		DTree d = leaf(p).sampling;
+		return d != null && d.getTotal() > 0 ? d : null;
+	}
+
+	/**
+	 * The density, with respect to solid angle, of choosing a direction from a distribution.
+	 */
+	public static double pdf(DTree d, Vector3d dir) {
+		Vector2d s = toSquare(dir);
+		return d.pdf(s.x, s.y) / (4 * Math.PI);
+	}
+
+	/**
+	 * Choose a direction from a distribution.
+	 *
+	 * @return false if no direction could be chosen
+	 */
+	public static boolean sample(DTree d, Vector2d seed, Vector3d outDir) {
+		Vector2d s = new Vector2d();
+		if (!d.sample(seed, s))
+			return false;
+		fromSquare(s, outDir);
+		return true;
+	}
+
+	/**
+	 * End a training iteration.  Leaves that received more than the given number of samples
+	 * are split, and every leaf's built distribution becomes its sampling distribution.
+	 *
+	 * @param splitThreshold The number of samples above which a leaf is split
+	 */
+	public void refine(long splitThreshold) {
+		refine(root, 0, splitThreshold);
+	}
+
+	private void refine(SNode node, int depth, long splitThreshold) {
+		if (node.children == null) {
+			node.building.freeze();
+			node.sampling = node.building;
+			node.building = node.sampling.refine(rho, MAX_DTREE_DEPTH);
+
+			splitLeaf(node, depth, splitThreshold);
+			return;
+		}
+		for (SNode child : node.children)
+			refine(child, depth + 1, splitThreshold);
+	}
+
+	/**
+	 * Split a leaf in half along the next axis, and keep splitting the halves, while its
+	 * share of the samples is above the threshold.  The samples are assumed to be spread
+	 * evenly over the leaf.
+	 */
+	private void splitLeaf(SNode node, int depth, long splitThreshold) {
+		long samples = node.samples.getAndSet(0);
+		if (samples <= splitThreshold || depth >= MAX_STREE_DEPTH)
+			return;
+		node.children = new SNode[2];
+		for (int i = 0; i < 2; i++) {
+			SNode child = new SNode();
+			child.axis = (node.axis + 1) % 3;
+			child.sampling = node.sampling;
+			child.building = node.building.emptyCopy();
+			child.samples.set(samples / 2);
+			node.children[i] = child;
+		}
+		node.building = null;
+		node.sampling = null;
+		leafCount++;
+		for (SNode child : node.children)
+			splitLeaf(child, depth + 1, splitThreshold);
+	}
+
+	private SNode leaf(Vector3d p) {
+		double x = clamp01((p.x - origin.x) / size);
+		double y = clamp01((p.y - origin.y) / size);
+		double z = clamp01((p.z - origin.z) / size);
+		SNode node = root;
+		while (node.children != null) {
+			double c = node.axis == 0 ? x : (node.axis == 1 ? y : z);
+			int i = c < 0.5 ? 0 : 1;
+			c = 2 * c - i;
+			if (node.axis == 0) x = c;
+			else if (node.axis == 1) y = c;
+			else z = c;
+			node = node.children[i];
+		}
+		return node;
+	}
+
+	private static double clamp01(double v) {
+		return Math.min(Math.max(v, 0.0), 1.0 - 1e-12);
+	}
+
+	/**
+	 * Map a direction to the square: x = (cos theta + 1) / 2 and y = phi / 2 pi.  This
+	 * projection preserves area, up to the factor 4 pi.
+	 */
+	static Vector2d toSquare(Vector3d dir) {
+		double len = dir.len();
+		double cosTheta = Math.min(1.0, Math.max(-1.0, dir.z / len));
+		double phi = Math.atan2(dir.y, dir.x);
+		if (phi < 0)
+			phi += 2 * Math.PI;
+		return new Vector2d(clamp01((cosTheta + 1) / 2), clamp01(phi / (2 * Math.PI)));
+	}
+
+	/**
+	 * Map a point on the square to a unit direction; the inverse of toSquare.
+	 */
+	static void fromSquare(Vector2d s, Vector3d outDir) {
+		double cosTheta = 2 * s.x - 1;
+		double sinTheta = Math.sqrt(Math.max(0.0, 1 - cosTheta * cosTheta));
+		double phi = 2 * Math.PI * s.y;
+		outDir.set(sinTheta * Math.cos(phi), sinTheta * Math.sin(phi), cosTheta);
+	}
+
+	/**
+	 * Atomically add to a double stored as bits in an AtomicLongArray.
+	 */
+	private static void addAtomic(AtomicLongArray array, int i, double value) {
+		while (true) {
+			long old = array.get(i);
+			long updated = Double.doubleToRawLongBits(Double.longBitsToDouble(old) + value);
+			if (array.compareAndSet(i, old, updated))
+				return;
+		}
+	}
+}
@@ -0,0 +1,218 @@
+package ray2.integrator;
+
+import egl.math.Colord;
+import egl.math.Vector2d;
+import egl.math.Vector3d;
+import ray2.IntersectionRecord;
+import ray2.Ray;
+import ray2.RayTracer;
+import ray2.Scene;
+import ray2.light.Environment;
+import ray2.light.Light;
+import ray2.light.LightSamplingRecord;
+import ray2.light.SHProjection;
+import ray2.material.BSDF;
+import ray2.material.BSDFSamplingRecord;
+
+/**
+ * An Integrator for quick previews of scenes lit by an environment, which gets the
+ * environment's diffuse lighting from its spherical harmonic projection (see SHProjection)
+ * rather than from importance-sampled shadow rays.  Light sources are sampled directly, and
+ * mirror reflections and refractions are followed, as in LightSamplingIntegrator.
+ *
+ * The mode option chooses how the environment is used:
+ *
+ *   "irradiance" (the default) adds the diffuse reflectance times the irradiance of the
+ *   projected environment, evaluated in closed form at the surface normal.  This traces no
+ *   rays and has no noise, but it ignores shadowing, glossy reflection of the environment,
+ *   and detail beyond the projection's bands.
+ *
+ *   "controlVariate" adds the same closed-form term, plus a one-sample estimate of the
+ *   difference between the true reflected environment light (with BSDF and shadowing) and
+ *   the projected diffuse term.  The result is unbiased, and where the projection is a good
+ *   model the difference is small, so far fewer samples are needed than to estimate all of
+ *   it.  The difference is sampled from a mixture of the environment's own distribution and
+ *   a cosine distribution, because the projection can be nonzero where the environment is
+ *   black and so is never sampled.
+ *
+ * Environments that cannot be projected are sampled in either mode, as if the projection
+ * were zero.
+ */
+public class SHEnvironmentIntegrator extends Integrator {
+
+	/** How the environment's projection is used: "irradiance" or "controlVariate". */
+	protected String mode = "irradiance";
+	public void setMode(String mode) {
+		if (!mode.equals("irradiance") && !mode.equals("controlVariate"))
+			throw new Error("SHEnvironmentIntegrator: unknown mode " + mode);
+		this.mode = mode;
+	}
+
+	/** The number of spherical harmonic bands to project the environment onto (3 or 4). */
+	protected int shBands = 3;
+	public void setShBands(int shBands) { this.shBands = shBands; }
+
+	/** In controlVariate mode, the probability of a cosine-distributed sample. */
+	protected double cosineSamplingFraction = 0.25;
+	public void setCosineSamplingFraction(double cosineSamplingFraction) { this.cosineSamplingFraction = cosineSamplingFraction; }
+
+	/** An environment and its projection, replaced together when the environment changes. */
+	private static final class Projected {
+		final Environment environment;
+		final SHProjection projection;
+		Projected(Environment environment, SHProjection projection) {
+			this.environment = environment;
+			this.projection = projection;
+		}
+	}
+
+	private volatile Projected projected = null;
+
+	@Override
+	public void init() {
+		projected = null;
+	}
+
+	/**
+	 * Return the projection of an environment, projecting it if this is the first call for it.
+	 */
+	private SHProjection getProjection(Environment environment) {
+		Projected p = projected;
+		if (p == null || p.environment != environment) {
+			synchronized (this) {
+				p = projected;
+				if (p == null || p.environment != environment)
+					projected = p = new Projected(environment, environment.getSHProjection(shBands));
+			}
+		}
+		return p.projection;
+	}
+
+	@Override
+	public void shade(Colord outRadiance, Scene scene, Ray ray, IntersectionRecord iRec, int depth) {
+		outRadiance.setZero();
+		Vector3d wo = new Vector3d(ray.direction).negate().normalize();
+		Vector3d normal = iRec.normal;
+		BSDF bsdf = iRec.surface.getBSDF();
+
+		// 0. Emission
+		Light source = iRec.surface.getLight();
+		if (source != null) {
+			source.eval(ray, outRadiance);
+			return;
+		}
+
+		// 1. Light sources
+		LightSamplingRecord lRec = new LightSamplingRecord();
+		Ray shadowRay = new Ray();
+		Colord value = new Colord();
+		Colord radiance = new Colord();
+		for (Light light : scene.getLights()) {
+			light.sample(lRec, iRec.location);
+			if (lRec.attenuation <= 0 || lRec.probability <= 0)
+				continue;
+
+			shadowRay.origin.set(iRec.location);
+			shadowRay.direction.set(lRec.direction).normalize();
+			shadowRay.makeOffsetSegment(lRec.distance);
+			if (scene.getAnyIntersection(shadowRay))
+				continue;
+
+			value.setZero();
+			bsdf.eval(wo, lRec.direction, normal, value);
+			light.eval(shadowRay, radiance);
+			outRadiance.add(radiance.mul(value).mul(Math.abs(lRec.direction.dot(normal)) * lRec.attenuation / lRec.probability));
+		}
+
+		// 2. Environment
+		Environment environment = scene.getEnvironment();
+		if (environment != null) {
+			SHProjection sh = getProjection(environment);
+
+			// The normal on the side the ray arrived from
+			Vector3d n = new Vector3d(normal);
+			if (n.dot(wo) < 0)
+				n.negate();
+
+			Colord rho = bsdf.getDiffuseReflectance();
+			if (sh != null) {
+				sh.evalIrradiance(n, radiance);
+				outRadiance.add(radiance.mul(rho).div(Math.PI));
+			}
+			if (sh == null || mode.equals("controlVariate"))
+				addEnvironmentResidual(outRadiance, scene, environment, sh, iRec, wo, n, bsdf, rho);
+		}
+
+		// 3. Mirror reflections and refractions
+		if (depth >= RayTracer.MAX_DEPTH)
+			return;
+		BSDFSamplingRecord sRec = new BSDFSamplingRecord(wo, normal);
+		value.setZero();
+		double prob = bsdf.sample(sRec, new Vector2d(Math.random(), Math.random()), value);
+		if (!sRec.isDiscrete || prob <= 0)
+			return;
+
+		Ray next = new Ray(iRec.location, sRec.dir2);
+		next.makeOffsetRay();
+		IntersectionRecord hit = new IntersectionRecord();
+		if (scene.getFirstIntersection(hit, next))
+			shade(radiance, scene, next, hit, depth + 1);
+		else if (environment != null)
+			environment.eval(next.direction, radiance);
+		else
+			radiance.set(scene.getBackColor());
+		outRadiance.add(radiance.mul(value).mul(Math.abs(sRec.dir2.dot(normal)) / prob));
+	}
+
+	/**
+	 * Add a one-sample estimate of the environment light reflected by the BSDF, with
+	 * shadowing, minus the projected diffuse term rho/pi * L_sh(wi) * max(cos theta, 0)
+	 * whose integral the caller has added in closed form.
+	 *
+	 * @param sh The projection, or null to estimate the full reflected environment light
+	 * @param n The normal on the side the ray arrived from
+	 */
+	private void addEnvironmentResidual(Colord outRadiance, Scene scene, Environment environment, SHProjection sh,
+			IntersectionRecord iRec, Vector3d wo, Vector3d n, BSDF bsdf, Colord rho) {
+		Vector3d wi = new Vector3d();
+		Colord radiance = new Colord();
+		double envPdf;
+		if (Math.random() < cosineSamplingFraction) {
+			Vector3d u = new Vector3d(), v = new Vector3d();
+			IrradianceCacheIntegrator.basisFromW(n, u, v);
+			double sinTheta = Math.sqrt(Math.random());
+			double cosTheta = Math.sqrt(1 - sinTheta * sinTheta);
+			double phi = 2 * Math.PI * Math.random();
+			wi.set(n).mul(cosTheta)
+				.addMultiple(sinTheta * Math.cos(phi), u)
+				.addMultiple(sinTheta * Math.sin(phi), v)
+				.normalize();
+			environment.eval(wi, radiance);
+			envPdf = environment.pdf(wi);
+		} else {
+			envPdf = environment.sample(new Vector2d(Math.random(), Math.random()), wi, radiance);
+		}
+		double cosTheta = wi.dot(n);
+		double pdf = cosineSamplingFraction * Math.max(cosTheta, 0) / Math.PI
+				+ (1 - cosineSamplingFraction) * envPdf;
+		if (pdf <= 0)
+			return;
+
+		Colord estimate = new Colord();
+		bsdf.eval(wo, wi, iRec.normal, estimate);
+		if (estimate.lenSq() > 0) {
+			Ray shadowRay = new Ray(iRec.location, wi);
+			shadowRay.makeOffsetRay();
+			if (scene.getAnyIntersection(shadowRay))
+				estimate.setZero();
+			else
+				estimate.mul(radiance).mul(Math.abs(wi.dot(iRec.normal)));
+		}
+
+		if (sh != null && cosTheta > 0) {
+			sh.evalRadiance(wi, radiance);
+			estimate.sub(radiance.mul(rho).mul(cosTheta / Math.PI));
+		}
+		outRadiance.add(estimate.div(pdf));
+	}
+}
@@ -8,9 +8,12 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.channels.FileChannel;
+import java.util.stream.IntStream;
+
 import egl.math.Vector2d;
 import egl.math.Vector3d;
 import egl.math.Colord;
+import ray2.AssetLoader;
 
 public class Cubemap implements Environment {
 
@@ -34,16 +37,37 @@ public class Cubemap implements Environment {
 	// Number of bits in representation of pixel count
 	int mapBits; // 2^(mapBits-1) < width*height <= 2^mapBits
 
+	// Number of spherical harmonic bands to project the map onto in init, or 0
+	// to project only if an integrator asks for it
+	int shBands = 0;
+
+	// Spherical harmonic projection of the map, not including scaleFactor
+	SHProjection shProjection;
+
 	public Cubemap() { }
 
 	public void setFilename(String filename) {
 		this.filename = filename;
+		AssetLoader.load(filename, () -> load());
+	}
 
+	/**
+	 * Read the image and build the sampling table.  Runs in the background;
+	 * Scene.init waits for it to finish.
+	 */
+	private void load() {
 		PNMHeaderInfo hdr = new PNMHeaderInfo();
-		imageData = readPFM(new File(filename), hdr);
+		setImage(readPFM(new File(filename), hdr), hdr.width, hdr.height);
+	}
 
-		width = hdr.width;
-		height = hdr.height;
+	/**
+	 * Use the given image data, in the layout of a cross-shaped PFM file, and build the
+	 * sampling table.
+	 */
+	protected void setImage(float[] imageData, int width, int height) {
+		this.imageData = imageData;
+		this.width = width;
+		this.height = height;
 		blockSz = width / 3;
 
 		// Set up cumulative probability table for sampling with binary search
@@ -57,12 +81,70 @@ public class Cubemap implements Environment {
 			cumProb[k] /= cumProb[width*height];
 
 		for (mapBits = 0; (1 << mapBits) < width*height; mapBits++);
+
+		shProjection = null;
 	}
 
 	public void setScaleFactor(double scaleFactor) {
 		this.scaleFactor = scaleFactor;
 	}
 
+	public void setShBands(int shBands) {
+		this.shBands = shBands;
+	}
+
+	/*
+	 * @see ray2.light.Environment#init()
+	 * Project the map if shBands asks for it, so that rendering does not pay for the
+	 * projection.  This runs after parsing, so shBands is read only once it is final,
+	 * wherever it appears in the scene file.
+	 */
+	@Override
+	public synchronized void init() {
+		if (shBands > 0 && (shProjection == null || shProjection.getBands() < shBands))
+			shProjection = projectSH(shBands);
+	}
+
+	/*
+	 * @see ray2.light.Environment#getSHProjection(int)
+	 * The projection made in init is used if it has enough bands; otherwise a new one is
+	 * made now and kept for later calls.
+	 */
+	@Override
+	public synchronized SHProjection getSHProjection(int bands) {
+		if (shProjection == null || shProjection.getBands() < bands)
+			shProjection = projectSH(bands);
+		return shProjection.scaled(scaleFactor);
+	}
+
+	/**
+	 * Project the map onto spherical harmonics by summing over its texels, each weighted
+	 * by its solid angle.  Rows of the map are projected in parallel and the partial sums
+	 * added together.
+	 */
+	protected SHProjection projectSH(int bands) {
+		return IntStream.range(0, height).parallel()
+			.mapToObj((iy) -> {
+				SHProjection row = new SHProjection(bands);
+				double[] scratch = new double[bands * bands];
+				Vector2d faceUV = new Vector2d();
+				Vector3d dir = new Vector3d();
+				for (int ix = 0; ix < width; ix++) {
+					int k = ix + width * iy;
+					int iFace = indexToFace(k, faceUV);
+					if (iFace == -1)
+						continue;
+					faceToDir(iFace, faceUV, dir);
+					double u = faceUV.x, v = faceUV.y;
+					double solidAngle = 4.0 / (blockSz * blockSz) / Math.pow(1 + u*u + v*v, 1.5);
+					row.accumulate(dir, solidAngle * imageData[0 + 3*k],
+							solidAngle * imageData[1 + 3*k], solidAngle * imageData[2 + 3*k], scratch);
+				}
+				return row;
+			})
+			.reduce((a, b) -> a.add(b))
+			.orElseGet(() -> new SHProjection(bands));
+	}
 
 	/*
 	 * @see ray2.light.Environment#eval(egl.math.Vector3d, egl.math.Colord)
@@ -91,6 +91,100 @@ public class CubemapTests extends Cubemap {
 	}
 
 	
+	/**
+	 * Make a cubemap of the given face size whose radiance in each direction is given
+	 * by a function, evaluated at the texel centers.
+	 */
+	static Cubemap syntheticCubemap(int blockSz, Function<Vector3d, Double> radiance) {
+		int width = 3 * blockSz, height = 4 * blockSz;
+		float[] data = new float[3 * width * height];
+		Cubemap cm = new Cubemap();
+		cm.width = width;
+		cm.blockSz = blockSz;
+		Vector2d faceUV = new Vector2d();
+		Vector3d dir = new Vector3d();
+		for (int k = 0; k < width * height; k++) {
+			int iFace = cm.indexToFace(k, faceUV);
+			if (iFace == -1)
+				continue;
+			Cubemap.faceToDir(iFace, faceUV, dir);
+			data[3*k] = data[3*k + 1] = data[3*k + 2] = radiance.apply(dir).floatValue();
+		}
+		cm.setImage(data, width, height);
+		return cm;
+	}
+
+	@Test
+	public void testSHProjection() {
+		// Radiance 1 + z is in the first two bands, so the projection should reproduce
+		// it, and its irradiance is pi + (2 pi / 3) n.z
+		Cubemap cm = syntheticCubemap(32, (dir) -> 1 + dir.z);
+		cm.setScaleFactor(2);
+		SHProjection sh = cm.getSHProjection(3);
+		assertEquals(3, sh.getBands());
+		assertEquals(2 * Math.sqrt(4 * Math.PI), sh.getCoefficient(0, 0, 0), 1e-2);
+		assertEquals(0, sh.getCoefficient(1, 1, 1), 1e-3);
+		assertEquals(0, sh.getCoefficient(2, 2, 0), 1e-3);
+
+		Colord value = new Colord();
+		for (int i = 0; i < 100; i++) {
+			Vector3d dir = new Vector3d(2 * rand() - 1, 2 * rand() - 1, 2 * rand() - 1).normalize();
+			sh.evalRadiance(dir, value);
+			assertEquals(2 * (1 + dir.z), value.r(), 1e-2);
+			sh.evalIrradiance(dir, value);
+			assertEquals(2 * (Math.PI + 2 * Math.PI / 3 * dir.z), value.g(), 1e-2);
+		}
+
+		// Asking for more bands than were projected projects again
+		assertEquals(4, cm.getSHProjection(4).getBands());
+	}
+
+	@Test
+	public void testSHBandsAfterLoad() {
+		// shBands set after the image (as when it follows <filename> in a scene file)
+		// is projected in init, and requests for fewer bands use that projection
+		Cubemap cm = syntheticCubemap(8, (dir) -> 1 + dir.z);
+		cm.setShBands(4);
+		assertEquals(null, cm.shProjection);
+		cm.init();
+		assertEquals(4, cm.shProjection.getBands());
+		assertEquals(4, cm.getSHProjection(2).getBands());
+	}
+
+	@Test
+	public void testSHIrradiance() {
+		// For a map with detail in every band, the closed-form irradiance should match
+		// a brute-force integral of the projected (band-limited) radiance over the texels
+		Cubemap cm = syntheticCubemap(32, (dir) -> Math.exp(4 * dir.x) + (dir.y > 0.9 ? 5.0 : 0.0));
+		SHProjection sh = cm.getSHProjection(3);
+		Colord value = new Colord();
+		Vector2d faceUV = new Vector2d();
+		Vector3d dir = new Vector3d();
+		Vector3d[] normals = {
+			new Vector3d(1, 0, 0), new Vector3d(-1, 0, 0), new Vector3d(0, 1, 0),
+			new Vector3d(0, -1, 0), new Vector3d(0, 0, 1), new Vector3d(0, 0, -1),
+			new Vector3d(1, 1, 1), new Vector3d(-1, 2, 0.5), new Vector3d(0.3, -0.7, 2),
+			new Vector3d(2, -1, -3)
+		};
+		for (Vector3d n : normals) {
+			n.normalize();
+			double irradiance = 0;
+			for (int k = 0; k < cm.width * cm.height; k++) {
+				int iFace = cm.indexToFace(k, faceUV);
+				if (iFace == -1)
+					continue;
+				Cubemap.faceToDir(iFace, faceUV, dir);
+				double u = faceUV.x, v = faceUV.y;
+				double solidAngle = 4.0 / (cm.blockSz * cm.blockSz) / Math.pow(1 + u*u + v*v, 1.5);
+				sh.evalRadiance(dir, value);
+				irradiance += value.r() * Math.max(dir.dot(n), 0) * solidAngle;
+			}
+			sh.evalIrradiance(n, value);
+			// Only the quadrature, across the kink of the clamped cosine, is approximate
+			assertEquals("irradiance at " + n, irradiance, value.r(), 1e-3 * irradiance + 1e-3);
+		}
+	}
+
 	static double rand() {
 		return Math.random();
 	}
@@ -46,4 +46,22 @@ public interface Environment {
 	 */
 	double pdf(Vector3d dir);
 
+	/**
+	 * Prepare the environment for rendering.  Scene.init calls this once the scene has been
+	 * parsed and everything loading in the background has finished.
+	 */
+	default void init() {
+	}
+
+	/**
+	 * Project the environment onto spherical harmonics, for integrators that approximate
+	 * environment lighting in closed form.  Environments that cannot be projected return null.
+	 *
+	 * @param bands The number of bands wanted, from 1 to SHProjection.MAX_BANDS
+	 * @return The projection, with at least that many bands, or null
+	 */
+	default SHProjection getSHProjection(int bands) {
+		return null;
+	}
+
 }
\ No newline at end of file
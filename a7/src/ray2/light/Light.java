@@ -1,6 +1,7 @@
 package ray2.light;
 
 import egl.math.Colord;
+import egl.math.Vector2d;
 import egl.math.Vector3d;
 import ray2.Ray;
 import ray2.Scene;
@@ -59,6 +60,23 @@ public abstract class Light {
 	 * @return The probability of selecting the light source point.
 	 */
 	public abstract double pdf(Ray shadowRay);
+
+	/**
+	 * Emit a photon from this light source: choose a random ray leaving the source
+	 * and compute the power it carries, as the source's total power divided by the
+	 * probability density of the chosen ray.  Averaging outPower over many emitted
+	 * rays gives the source's total power.  Lights that cannot emit photons return
+	 * false.
+	 *
+	 * @param seedPos A pair of uniform random numbers used to choose the position
+	 * @param seedDir A pair of uniform random numbers used to choose the direction
+	 * @param outRay The emitted ray
+	 * @param outPower The power carried along the ray
+	 * @return true if a photon was emitted
+	 */
+	public boolean emit(Vector2d seedPos, Vector2d seedDir, Ray outRay, Colord outPower) {
+		return false;
+	}
 		
 	/**
 	 * @see Object#toString()
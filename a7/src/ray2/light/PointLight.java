@@ -2,6 +2,7 @@ package ray2.light;
 
 
 import egl.math.Colord;
+import egl.math.Vector2d;
 import egl.math.Vector3d;
 import ray2.Ray;
 import ray2.Scene;
@@ -58,6 +59,24 @@ public class PointLight extends Light {
 		return 1.0;
 	}
 
+	/**
+	 * Emit a photon in a uniformly chosen direction.  The total power of a point
+	 * source is 4 pi times its intensity.
+	 *
+	 * @see ray2.light.Light#emit(egl.math.Vector2d, egl.math.Vector2d, ray2.Ray, egl.math.Colord)
+	 */
+	@Override
+	public boolean emit(Vector2d seedPos, Vector2d seedDir, Ray outRay, Colord outPower) {
+		double z = 1 - 2 * seedDir.x;
+		double r = Math.sqrt(Math.max(0, 1 - z * z));
+		double phi = 2 * Math.PI * seedDir.y;
+		outRay.origin.set(position);
+		outRay.direction.set(r * Math.cos(phi), r * Math.sin(phi), z);
+		outRay.makeOffsetRay();
+		outPower.set(intensity).mul(4 * Math.PI);
+		return true;
+	}
+
 	/**
 	 * Default constructor.  Produces a unit intensity light at the origin.
 	 */
@@ -5,6 +5,7 @@ import java.io.IOException;
 
 import egl.math.Colord;
 import egl.math.Matrix4d;
+import egl.math.Vector2d;
 import egl.math.Vector3d;
 import ray2.Ray;
 import ray2.Scene;
@@ -82,7 +83,7 @@ public class RectangleLight extends Light {
 	    Matrix4d tMat = Matrix4d.createLookAt(position, position.clone().add(normalDir), upDir).invert();
 	    tMat.mulBefore(Matrix4d.createScale(width, height, 1.0));
 	    Matrix4d tMatInv = new Matrix4d(tMat).invert();
-	    Matrix4d tMatTInv = new Matrix4d(tMat).transpose().invert();
+	    Matrix4d tMatTInv = new Matrix4d(tMatInv).transpose();
 	    
 	    geom.setTransformation(tMat, tMatInv, tMatTInv);
 	    
@@ -100,12 +101,104 @@ public class RectangleLight extends Light {
 			outRadiance.set(0.0);
 	}
 
+	/**
+	 * Below this solid angle, in steradians, points are chosen uniformly by area rather than
+	 * by solid angle: the light is so small or distant that the two hardly differ, and the
+	 * spherical rectangle computations lose precision.
+	 */
+	protected double minSolidAngle = 1e-4;
+	public void setMinSolidAngle(double minSolidAngle) { this.minSolidAngle = minSolidAngle; }
+
+	/**
+	 * The rectangle as seen from a point, set up for sampling it by solid angle as in
+	 * [Urena et al. 2013].  Coordinates are in a frame with axes basisU, basisV and
+	 * +/- basisW, centered at the point, in which the rectangle spans [x0, x1] x [y0, y1]
+	 * at z = z0 <= 0.
+	 */
+	protected class SphericalRectangle {
+		final Vector3d z = new Vector3d();
+		double x0, y0, x1, y1, z0;
+		double b0, b1, k;
+		/** The solid angle subtended by the rectangle. */
+		double S;
+
+		SphericalRectangle(Vector3d o) {
+			Vector3d d = position.clone()
+				.addMultiple(-0.5 * width, basisU)
+				.addMultiple(-0.5 * height, basisV)
+				.sub(o);
+			z.set(basisW);
+			z0 = d.dot(z);
+			if (z0 > 0) {
+				z.negate();
+				z0 = -z0;
+			}
+			x0 = d.dot(basisU);
+			y0 = d.dot(basisV);
+			x1 = x0 + width;
+			y1 = y0 + height;
+
+			// Normals of the planes through the point and each edge
+			Vector3d v00 = new Vector3d(x0, y0, z0), v01 = new Vector3d(x0, y1, z0);
+			Vector3d v10 = new Vector3d(x1, y0, z0), v11 = new Vector3d(x1, y1, z0);
+			Vector3d n0 = v00.clone().cross(v10).normalize();
+			Vector3d n1 = v10.clone().cross(v11).normalize();
+			Vector3d n2 = v11.clone().cross(v01).normalize();
+			Vector3d n3 = v01.clone().cross(v00).normalize();
+
+			// Internal angles of the spherical rectangle
+			double g0 = Math.acos(clamp(-n0.dot(n1)));
+			double g1 = Math.acos(clamp(-n1.dot(n2)));
+			double g2 = Math.acos(clamp(-n2.dot(n3)));
+			double g3 = Math.acos(clamp(-n3.dot(n0)));
+
+			b0 = n0.z;
+			b1 = n2.z;
+			k = 2 * Math.PI - g2 - g3;
+			S = g0 + g1 - k;
+		}
+
+		/**
+		 * Choose a point on the rectangle uniformly by solid angle.
+		 *
+		 * @param o The point the rectangle was set up for
+		 */
+		void sample(Vector3d o, double u, double v, Vector3d outPoint) {
+			// Choose the x coordinate so the sub-rectangle [x0, xu] has solid angle u S
+			double au = u * S + k;
+			double fu = (Math.cos(au) * b0 - b1) / Math.sin(au);
+			double cu = clamp((fu > 0 ? 1 : -1) / Math.sqrt(fu * fu + b0 * b0));
+			double xu = -(cu * z0) / Math.max(Math.sqrt(1 - cu * cu), 1e-12);
+			xu = Math.min(Math.max(xu, x0), x1);
+
+			// Then the y coordinate, uniformly in the sine of the elevation
+			double dd = Math.sqrt(xu * xu + z0 * z0);
+			double h0 = y0 / Math.sqrt(dd * dd + y0 * y0);
+			double h1 = y1 / Math.sqrt(dd * dd + y1 * y1);
+			double hv = h0 + v * (h1 - h0);
+			double yv = hv * hv < 1 - 1e-6 ? hv * dd / Math.sqrt(1 - hv * hv) : y1;
+
+			// In the frame of the light, the point is at (xu, yv, z0) from o; the z axis
+			// may point against basisW, but z0 was negated along with it
+			outPoint.set(o).addMultiple(xu, basisU).addMultiple(yv, basisV).addMultiple(z0, z);
+		}
+	}
+
+	private static double clamp(double x) {
+		return Math.max(-1, Math.min(1, x));
+	}
+
 	/*
 	 * Sample the illumination due to this light source at a given shading point.
 	 * A rectangle light provides illumination from a range of directions; a direction
 	 * is chosen by selecting a point on the source.  A rectangle source is one-sided;
 	 * it provides no illumination to points that are behind it.
 	 *
+	 * The point is chosen uniformly in the solid angle the source subtends, which removes
+	 * the variance due to the 1/r^2 and source cosine factors, unless that solid angle is
+	 * below minSolidAngle, in which case it is chosen uniformly by area.  Either way the
+	 * probability is reported as a density over the source's area.
+	 *
 	 *    lRec.direction is the direction from the shading point to the source
 	 *    lRec.distance is the distance between the shading point and the source
 	 *    lRec.attenuation is the inverse square of the distance to the source
@@ -115,19 +208,71 @@ public class RectangleLight extends Light {
 	 */
 	@Override
 	public void sample(LightSamplingRecord lRec, Vector3d shadingPoint) {
-		Vector3d lightPoint = position.clone()
-			.addMultiple(width * (Math.random() - 0.5), basisU)
-			.addMultiple(height * (Math.random() - 0.5), basisV);
+		SphericalRectangle rect = new SphericalRectangle(shadingPoint);
+		boolean bySolidAngle = rect.S >= minSolidAngle;
+
+		Vector3d lightPoint = new Vector3d();
+		if (bySolidAngle) {
+			rect.sample(shadingPoint, Math.random(), Math.random(), lightPoint);
+		} else {
+			lightPoint.set(position)
+				.addMultiple(width * (Math.random() - 0.5), basisU)
+				.addMultiple(height * (Math.random() - 0.5), basisV);
+		}
 		lRec.direction.set(lightPoint).sub(shadingPoint);
 		lRec.distance = lRec.direction.len();
 		lRec.direction.normalize();
-		lRec.attenuation = Math.max(0, lRec.direction.dot(basisW)) / shadingPoint.distSq(lightPoint);
-		lRec.probability = 1.0 / (width * height);
+		double distSq = shadingPoint.distSq(lightPoint);
+		lRec.attenuation = Math.max(0, lRec.direction.dot(basisW)) / distSq;
+		lRec.probability = bySolidAngle
+				? Math.abs(lRec.direction.dot(basisW)) / (distSq * rect.S)
+				: 1.0 / (width * height);
 	}
 
+	/*
+	 * The density over the source's area with which sample() chooses the point where a ray
+	 * from the shading point hits the source.
+	 *
+	 * @see ray2.light.Light#pdf(ray2.Ray)
+	 */
 	@Override
 	public double pdf(Ray shadowRay) {
-		return 1.0 / (width * height);
+		SphericalRectangle rect = new SphericalRectangle(shadowRay.origin);
+		if (rect.S < minSolidAngle)
+			return 1.0 / (width * height);
+
+		// The solid angle density 1/S, converted to area by cos theta_source / r^2
+		double cosDist = shadowRay.direction.dot(basisW);
+		if (cosDist == 0)
+			return 0;
+		double t = position.clone().sub(shadowRay.origin).dot(basisW) / cosDist;
+		double distSq = t * t * shadowRay.direction.lenSq();
+		return Math.abs(cosDist) / Math.sqrt(shadowRay.direction.lenSq()) / (distSq * rect.S);
+	}
+
+	/**
+	 * Emit a photon from a uniformly chosen point on the source, in a cosine-weighted
+	 * direction about the normal.  The total power of the source is pi times its
+	 * radiance times its area.
+	 *
+	 * @see ray2.light.Light#emit(egl.math.Vector2d, egl.math.Vector2d, ray2.Ray, egl.math.Colord)
+	 */
+	@Override
+	public boolean emit(Vector2d seedPos, Vector2d seedDir, Ray outRay, Colord outPower) {
+		outRay.origin.set(position)
+			.addMultiple(width * (seedPos.x - 0.5), basisU)
+			.addMultiple(height * (seedPos.y - 0.5), basisV);
+
+		// basisW points into the back of the source, so light leaves along -basisW
+		double r = Math.sqrt(seedDir.x);
+		double phi = 2 * Math.PI * seedDir.y;
+		outRay.direction.set(basisW).mul(-Math.sqrt(1 - seedDir.x))
+			.addMultiple(r * Math.cos(phi), basisU)
+			.addMultiple(r * Math.sin(phi), basisV);
+		outRay.makeOffsetRay();
+
+		outPower.set(intensity).mul(Math.PI * width * height);
+		return true;
 	}
 
 	/**
@@ -0,0 +1,109 @@
+package ray2.light;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import egl.math.Vector3d;
+import ray2.Ray;
+import ray2.Scene;
+
+public class RectangleLightTests {
+
+	static RectangleLight makeLight(Vector3d position, double width, double height) {
+		RectangleLight light = new RectangleLight();
+		light.setPosition(position);
+		light.setNormalDir(new Vector3d(0, -1, 0));
+		light.setUpDir(new Vector3d(0, 0, 1));
+		light.setWidth(width);
+		light.setHeight(height);
+		light.init(new Scene());
+		return light;
+	}
+
+	/**
+	 * Check that samples are on the light, that pdf() agrees with the reported probability,
+	 * and return the mean of attenuation / probability, which estimates the solid angle.
+	 */
+	static double sampleSolidAngle(RectangleLight light, Vector3d p, int sampleCount) {
+		LightSamplingRecord lRec = new LightSamplingRecord();
+		double sum = 0;
+		for (int i = 0; i < sampleCount; i++) {
+			light.sample(lRec, p);
+			Vector3d q = p.clone().addMultiple(lRec.distance, lRec.direction).sub(light.position);
+			assertEquals(0, q.dot(light.basisW), 1e-9);
+			assertTrue(Math.abs(q.dot(light.basisU)) <= light.width / 2 + 1e-9);
+			assertTrue(Math.abs(q.dot(light.basisV)) <= light.height / 2 + 1e-9);
+
+			Ray ray = new Ray(p, lRec.direction);
+			assertEquals(lRec.probability, light.pdf(ray), 1e-9 * lRec.probability);
+			sum += lRec.attenuation / lRec.probability;
+		}
+		return sum / sampleCount;
+	}
+
+	@Test
+	public void testNearbyLight() {
+		RectangleLight light = makeLight(new Vector3d(0, 1, 0), 4, 3);
+		Vector3d p = new Vector3d(0.7, 0.2, -0.4);
+		double S = light.new SphericalRectangle(p).S;
+
+		// Every solid angle sample gives exactly the solid angle
+		assertEquals(S, sampleSolidAngle(light, p, 1000), 1e-6);
+
+		// which area sampling estimates only on average
+		light.setMinSolidAngle(Double.POSITIVE_INFINITY);
+		int N = 400000;
+		double area = sampleSolidAngle(light, p, N);
+		assertEquals(S, area, 0.01 * S);
+	}
+
+	@Test
+	public void testUniformInSolidAngle() {
+		// Count samples in each quadrant of the light; they should be in proportion to
+		// the solid angles of the quadrants, seen as lights of their own
+		Vector3d center = new Vector3d(0, 1, 0);
+		RectangleLight light = makeLight(center, 4, 2);
+		Vector3d p = new Vector3d(-1.5, 0.3, 0.6);
+		double S = light.new SphericalRectangle(p).S;
+
+		final int N = 100000;
+		int[] counts = new int[4];
+		LightSamplingRecord lRec = new LightSamplingRecord();
+		for (int i = 0; i < N; i++) {
+			light.sample(lRec, p);
+			Vector3d q = p.clone().addMultiple(lRec.distance, lRec.direction).sub(center);
+			counts[(q.dot(light.basisU) > 0 ? 1 : 0) + (q.dot(light.basisV) > 0 ? 2 : 0)]++;
+		}
+		for (int quadrant = 0; quadrant < 4; quadrant++) {
+			Vector3d qCenter = center.clone()
+				.addMultiple((quadrant % 2 == 1 ? 1 : -1), light.basisU)
+				.addMultiple((quadrant / 2 == 1 ? 0.5 : -0.5), light.basisV);
+			double fraction = makeLight(qCenter, 2, 1).new SphericalRectangle(p).S / S;
+			double stdDev = Math.sqrt(fraction * (1 - fraction) / N);
+			assertEquals(fraction, counts[quadrant] / (double) N, 5 * stdDev);
+		}
+	}
+
+	@Test
+	public void testDistantLight() {
+		// A small, distant light is sampled by area
+		RectangleLight light = makeLight(new Vector3d(0, 100, 0), 0.5, 0.5);
+		Vector3d p = new Vector3d(0, 0, 0);
+		LightSamplingRecord lRec = new LightSamplingRecord();
+		light.sample(lRec, p);
+		assertEquals(4.0, lRec.probability, 1e-12);
+		assertEquals(4.0, light.pdf(new Ray(p, lRec.direction)), 1e-12);
+		assertEquals(0.25 / 10000, sampleSolidAngle(light, p, 1000), 1e-7);
+	}
+
+	@Test
+	public void testBehindLight() {
+		// Points behind the one-sided light get no illumination
+		RectangleLight light = makeLight(new Vector3d(0, 1, 0), 1, 1);
+		LightSamplingRecord lRec = new LightSamplingRecord();
+		light.sample(lRec, new Vector3d(0.2, 2, 0.1));
+		assertEquals(0, lRec.attenuation, 0);
+	}
+}
@@ -0,0 +1,164 @@
+package ray2.light;
+
+import egl.math.Colord;
+import egl.math.Vector3d;
+
+/**
+ * The projection of an environment's radiance onto real spherical harmonics, with one set of
+ * coefficients per color channel.  A projection with n bands holds the n^2 coefficients of
+ * degrees l = 0 ... n-1; 3 bands are enough for diffuse lighting, and 4 (the most supported)
+ * follow the radiance itself a little more closely.
+ *
+ * Besides the band-limited radiance, the projection gives the irradiance it produces on a
+ * surface in closed form [Ramamoorthi & Hanrahan 2001]: convolving with the clamped cosine
+ * scales band l by A_l = pi, 2pi/3, pi/4, 0 for l = 0 ... 3.  This is exactly the integral
+ * of the band-limited radiance times max(cos theta, 0) over the sphere, which is what lets
+ * integrators use it as a control variate.
+ */
+public class SHProjection {
+
+	/** The largest number of bands supported. */
+	public static final int MAX_BANDS = 4;
+
+	/** The clamped-cosine convolution factor for each band. */
+	private static final double[] A = { Math.PI, 2 * Math.PI / 3, Math.PI / 4, 0 };
+
+	/** The number of bands. */
+	protected final int bands;
+
+	/** The coefficients, indexed by channel and then by l * (l + 1) + m. */
+	protected final double[][] coeffs;
+
+	/**
+	 * Create a projection with all coefficients zero.
+	 */
+	public SHProjection(int bands) {
+		if (bands < 1 || bands > MAX_BANDS)
+			throw new Error("SHProjection: number of bands must be between 1 and " + MAX_BANDS + ", not " + bands);
+		this.bands = bands;
+		coeffs = new double[3][bands * bands];
+	}
+
+	public int getBands() { return bands; }
+
+	/**
+	 * Return one coefficient.
+	 *
+	 * @param channel The color channel (0, 1 or 2)
+	 * @param l The degree
+	 * @param m The order, from -l to l
+	 */
+	public double getCoefficient(int channel, int l, int m) {
+		return coeffs[channel][l * (l + 1) + m];
+	}
+
+	/**
+	 * Evaluate the real spherical harmonic basis functions for the first n bands.
+	 *
+	 * @param n The number of bands
+	 * @param x The x component of a unit direction
+	 * @param y The y component
+	 * @param z The z component
+	 * @param out Receives the n^2 basis values, indexed by l * (l + 1) + m
+	 */
+	public static void basis(int n, double x, double y, double z, double[] out) {
+		out[0] = 0.282094791773878;
+		if (n < 2) return;
+		out[1] = 0.488602511902920 * y;
+		out[2] = 0.488602511902920 * z;
+		out[3] = 0.488602511902920 * x;
+		if (n < 3) return;
+		out[4] = 1.092548430592079 * x * y;
+		out[5] = 1.092548430592079 * y * z;
+		out[6] = 0.315391565252520 * (3 * z * z - 1);
+		out[7] = 1.092548430592079 * x * z;
+		out[8] = 0.546274215296040 * (x * x - y * y);
+		if (n < 4) return;
+		out[9] = 0.590043589926644 * y * (3 * x * x - y * y);
+		out[10] = 2.890611442640554 * x * y * z;
+		out[11] = 0.457045799464466 * y * (5 * z * z - 1);
+		out[12] = 0.373176332590115 * z * (5 * z * z - 3);
+		out[13] = 0.457045799464466 * x * (5 * z * z - 1);
+		out[14] = 1.445305721320277 * z * (x * x - y * y);
+		out[15] = 0.590043589926644 * x * (x * x - 3 * y * y);
+	}
+
+	/**
+	 * Add radiance arriving from a small solid angle around a direction to the projection.
+	 *
+	 * @param dir A unit direction
+	 * @param r The red radiance times the solid angle
+	 * @param g The green radiance times the solid angle
+	 * @param b The blue radiance times the solid angle
+	 * @param scratch An array of at least bands^2 elements to work in
+	 */
+	public void accumulate(Vector3d dir, double r, double g, double b, double[] scratch) {
+		basis(bands, dir.x, dir.y, dir.z, scratch);
+		for (int i = 0; i < bands * bands; i++) {
+			coeffs[0][i] += r * scratch[i];
+			coeffs[1][i] += g * scratch[i];
+			coeffs[2][i] += b * scratch[i];
+		}
+	}
+
+	/**
+	 * Add another projection with the same number of bands to this one, for instance one
+	 * computed over a different part of the sphere.
+	 *
+	 * @return this projection
+	 */
+	public SHProjection add(SHProjection other) {
+		for (int c = 0; c < 3; c++)
+			for (int i = 0; i < bands * bands; i++)
+				coeffs[c][i] += other.coeffs[c][i];
+		return this;
+	}
+
+	/**
+	 * Return a copy of this projection with every coefficient multiplied by s.
+	 */
+	public SHProjection scaled(double s) {
+		SHProjection result = new SHProjection(bands);
+		for (int c = 0; c < 3; c++)
+			for (int i = 0; i < bands * bands; i++)
+				result.coeffs[c][i] = s * coeffs[c][i];
+		return result;
+	}
+
+	/**
+	 * Evaluate the band-limited radiance in a direction.  Away from bright features this
+	 * approximates the environment; near them it rings and can even be negative.
+	 *
+	 * @param dir A unit direction
+	 * @param outRadiance The approximate radiance seen in direction dir
+	 */
+	public void evalRadiance(Vector3d dir, Colord outRadiance) {
+		eval(dir, false, outRadiance);
+	}
+
+	/**
+	 * Evaluate the irradiance that the band-limited radiance produces, without any occlusion,
+	 * on a surface with a given normal.
+	 *
+	 * @param normal The unit surface normal
+	 * @param outIrradiance The irradiance
+	 */
+	public void evalIrradiance(Vector3d normal, Colord outIrradiance) {
+		eval(normal, true, outIrradiance);
+	}
+
+	private void eval(Vector3d dir, boolean convolve, Colord out) {
+		double[] y = new double[bands * bands];
+		basis(bands, dir.x, dir.y, dir.z, y);
+		double r = 0, g = 0, b = 0;
+		for (int l = 0; l < bands; l++) {
+			double a = convolve ? A[l] : 1;
+			for (int i = l * l; i < (l + 1) * (l + 1); i++) {
+				r += a * coeffs[0][i] * y[i];
+				g += a * coeffs[1][i] * y[i];
+				b += a * coeffs[2][i] * y[i];
+			}
+		}
+		out.set(r, g, b);
+	}
+}
@@ -202,6 +202,75 @@ public class BSDFTests {
 	}
 	
 	
+	@Test
+	public void testMicrofacetVisibleSampleB() {
+	    System.out.println("\nTesting Microfacet Beckmann visible normal sample.");
+        System.out.println("==============================================");
+        
+		MicrofacetBSDF bsdf = new MicrofacetBSDF(new Colord(0.0,0.0,0.0), new Colord(1.0,1.0,1.0), 0.5, 1.5, 0);
+		bsdf.setSamplingtype(1);
+		
+		testSample((sr, seed, outValue)->bsdf.sample(sr, seed, outValue), 
+				(dir1, dir2, normal)->bsdf.pdf(dir1, dir2, normal));
+	}
+	
+	@Test
+	public void testMicrofacetVisibleSampleG() {
+	    System.out.println("\nTesting Microfacet GGX visible normal sample.");
+        System.out.println("==============================================");
+        
+		MicrofacetBSDF bsdf = new MicrofacetBSDF(new Colord(0.0,0.0,0.0), new Colord(1.0,1.0,1.0), 0.5, 1.5, 1);
+		bsdf.setSamplingtype(1);
+		
+		testSample((sr, seed, outValue)->bsdf.sample(sr, seed, outValue), 
+				(dir1, dir2, normal)->bsdf.pdf(dir1, dir2, normal));
+	}
+	
+	/**
+	 * Estimate the reflectance of a BSDF for light arriving at a grazing angle, and return
+	 * the mean and variance of the one-sample estimator f cos theta / pdf.
+	 */
+	static double[] reflectanceEstimate(BSDF bsdf, double cosTheta, int sampleCount) {
+		Vector3d normal = new Vector3d(0, 0, 1);
+		Vector3d dir1 = new Vector3d(Math.sqrt(1 - cosTheta * cosTheta), 0, cosTheta);
+		double sum = 0, sumSq = 0;
+		for (int i = 0; i < sampleCount; i++) {
+			BSDFSamplingRecord sr = new BSDFSamplingRecord(dir1, normal, false);
+			Colord value = new Colord();
+			double prob = bsdf.sample(sr, new Vector2d(rand(), rand()), value);
+			double estimate = prob > 0 ? value.r() * sr.dir2.dot(normal) / prob : 0;
+			sum += estimate;
+			sumSq += estimate * estimate;
+		}
+		double mean = sum / sampleCount;
+		return new double[] { mean, sumSq / sampleCount - mean * mean };
+	}
+	
+	@Test
+	public void testMicrofacetVisibleVariance() {
+	    System.out.println("\nComparing variance of normal and visible normal sampling.");
+        System.out.println("==============================================");
+        
+        final int N = 200000;
+        for (int type = 0; type <= 1; type++) {
+        	for (double cosTheta : new double[] { 0.7, 0.2 }) {
+				MicrofacetBSDF bsdf = new MicrofacetBSDF(new Colord(0.0,0.0,0.0), new Colord(1.0,1.0,1.0), 0.5, 1.5, type);
+				double[] plain = reflectanceEstimate(bsdf, cosTheta, N);
+				bsdf.setSamplingtype(1);
+				double[] visible = reflectanceEstimate(bsdf, cosTheta, N);
+				System.out.printf("%s cos theta %.1f: reflectance %.4f / %.4f, variance %.4g / %.4g, %.1fx fewer samples%n",
+						type == 0 ? "Beckmann" : "GGX", cosTheta, plain[0], visible[0], plain[1], visible[1], plain[1] / visible[1]);
+				
+				// Both estimate the same reflectance...
+				double stdErr = Math.sqrt((plain[1] + visible[1]) / N);
+				assertEquals(plain[0], visible[0], 5 * stdErr);
+				// ...but visible normals need fewer samples for the same noise
+				assertTrue(visible[1] < plain[1]);
+        	}
+        }
+	}
+	
+	
 	// ----- Test for Fresnel utility function -----
 	
     @Test
@@ -82,6 +82,126 @@ public class Beckmann extends MicrofacetDistribution {
 	}
 	
 	
+	/** The exact Smith masking function for the Beckmann distribution. */
+	@Override
+	double G1(double costheta) {
+		double sintheta = Math.sqrt(Math.max(0.0, 1.0 - costheta * costheta));
+		if (sintheta == 0)
+			return 1.0;
+		double a = costheta / (alpha * sintheta);
+		double lambda = 0.5 * (erf(a) - 1.0) + Math.exp(-a * a) / (2.0 * a * Math.sqrt(Math.PI));
+		return 1.0 / (1.0 + lambda);
+	}
+
+	/**
+	 * Sample the visible normals by sampling slopes in the configuration with roughness 1
+	 * and normal incidence in y [Heitz & d'Eon 2014], then rotating and stretching them.
+	 * The slope in the plane of incidence is found by inverting its CDF numerically, as in
+	 * Mitsuba and pbrt, which avoids the discontinuities of the paper's fitted inversion.
+	 */
+	@Override
+	Vector3d sampleVisible_helper(Vector3d wiLocal, Vector2d seed) {
+		// Stretch the view direction to the configuration with roughness 1
+		Vector3d wi = new Vector3d(alpha * wiLocal.x, alpha * wiLocal.y, wiLocal.z).normalize();
+		double sintheta = Math.sqrt(wi.x * wi.x + wi.y * wi.y);
+		double cosphi = sintheta > 0 ? wi.x / sintheta : 1;
+		double sinphi = sintheta > 0 ? wi.y / sintheta : 0;
+
+		double[] slope = sampleSlopes(wi.z, seed.x, seed.y);
+
+		// Rotate to the azimuth of the view direction, then unstretch
+		double slopeX = alpha * (cosphi * slope[0] - sinphi * slope[1]);
+		double slopeY = alpha * (sinphi * slope[0] + cosphi * slope[1]);
+		return new Vector3d(-slopeX, -slopeY, 1.0).normalize();
+	}
+
+	/**
+	 * Sample the slopes of visible normals for roughness 1 and a view direction at angle
+	 * theta in the xz plane.
+	 */
+	private static double[] sampleSlopes(double costheta, double u1, double u2) {
+		// At normal incidence the visible slopes have the distribution of all slopes
+		if (costheta > 0.9999) {
+			double r = Math.sqrt(-Math.log(1.0 - u1));
+			return new double[] { r * Math.cos(2 * Math.PI * u2), r * Math.sin(2 * Math.PI * u2) };
+		}
+
+		double sintheta = Math.sqrt(Math.max(0.0, 1.0 - costheta * costheta));
+		double tantheta = sintheta / costheta;
+		double cottheta = 1.0 / tantheta;
+
+		// Search in the erf domain, over [a, c], starting from a fitted guess
+		double a = -1.0, c = erf(cottheta);
+		double sample = Math.max(u1, 1e-6);
+		double theta = Math.acos(costheta);
+		double fit = 1.0 + theta * (-0.876 + theta * (0.4265 - 0.0594 * theta));
+		double b = c - (1.0 + c) * Math.pow(1.0 - sample, fit);
+
+		final double SQRT_PI_INV = 1.0 / Math.sqrt(Math.PI);
+		double normalization = 1.0 / (1.0 + c + SQRT_PI_INV * tantheta * Math.exp(-cottheta * cottheta));
+
+		// Newton's method on the CDF, falling back to bisection when a step leaves the interval
+		for (int it = 1; it < 10; it++) {
+			if (!(b >= a && b <= c))
+				b = 0.5 * (a + c);
+
+			double invErf = erfInv(b);
+			double value = normalization * (1.0 + b + SQRT_PI_INV * tantheta * Math.exp(-invErf * invErf)) - sample;
+			double derivative = normalization * (1.0 - invErf * tantheta);
+			if (Math.abs(value) < 1e-5)
+				break;
+
+			if (value > 0)
+				c = b;
+			else
+				a = b;
+			b -= value / derivative;
+		}
+
+		return new double[] { erfInv(b), erfInv(2.0 * Math.max(u2, 1e-6) - 1.0) };
+	}
+
+	/** The error function, to within 1.5e-7 [Abramowitz & Stegun 7.1.26]. */
+	static double erf(double x) {
+		double sign = x < 0 ? -1.0 : 1.0;
+		x = Math.abs(x);
+		double t = 1.0 / (1.0 + 0.3275911 * x);
+		double y = 1.0 - ((((1.061405429 * t - 1.453152027) * t + 1.421413741) * t - 0.284496736) * t + 0.254829592)
+				* t * Math.exp(-x * x);
+		return sign * y;
+	}
+
+	/** The inverse of the error function [Giles 2010]. */
+	static double erfInv(double x) {
+		x = Math.max(-0.99999, Math.min(0.99999, x));
+		double w = -Math.log((1.0 - x) * (1.0 + x));
+		double p;
+		if (w < 5.0) {
+			w = w - 2.5;
+			p = 2.81022636e-08;
+			p = 3.43273939e-07 + p * w;
+			p = -3.5233877e-06 + p * w;
+			p = -4.39150654e-06 + p * w;
+			p = 0.00021858087 + p * w;
+			p = -0.00125372503 + p * w;
+			p = -0.00417768164 + p * w;
+			p = 0.246640727 + p * w;
+			p = 1.50140941 + p * w;
+		} else {
+			w = Math.sqrt(w) - 3.0;
+			p = -0.000200214257;
+			p = 0.000100950558 + p * w;
+			p = 0.00134934322 + p * w;
+			p = -0.00367342844 + p * w;
+			p = 0.00573950773 + p * w;
+			p = -0.0076224613 + p * w;
+			p = 0.00943887047 + p * w;
+			p = 1.00167406 + p * w;
+			p = 2.83297682 + p * w;
+		}
+		return p * x;
+	}
+
 	@Override
 	public String toString() {
 		return "Beckmann" + this.alpha + " " + this.nt;
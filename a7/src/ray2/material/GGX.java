@@ -65,6 +65,40 @@ public class GGX extends MicrofacetDistribution{
 	}
 
 
+	@Override
+	double G1(double costheta) {
+		double tantheta2 = Math.max(0.0, 1.0 - costheta * costheta) / (costheta * costheta);
+		return 2.0 / (1.0 + Math.sqrt(1.0 + alpha * alpha * tantheta2));
+	}
+
+	/**
+	 * Sample the visible normals by sampling the projected area of a hemisphere in the
+	 * stretched configuration, where the distribution is that of a unit sphere [Heitz 2018].
+	 */
+	@Override
+	Vector3d sampleVisible_helper(Vector3d wiLocal, Vector2d seed) {
+		// Stretch the view direction to the configuration with roughness 1
+		Vector3d Vh = new Vector3d(alpha * wiLocal.x, alpha * wiLocal.y, wiLocal.z).normalize();
+
+		// An orthonormal basis around it
+		double lensq = Vh.x * Vh.x + Vh.y * Vh.y;
+		Vector3d T1 = lensq > 0 ? new Vector3d(-Vh.y, Vh.x, 0).div(Math.sqrt(lensq)) : new Vector3d(1, 0, 0);
+		Vector3d T2 = new Vector3d(Vh).cross(T1);
+
+		// Sample the projected hemisphere: a disk, with its lower half squashed by Vh.z
+		double r = Math.sqrt(seed.x);
+		double phi = 2 * Math.PI * seed.y;
+		double t1 = r * Math.cos(phi);
+		double t2 = r * Math.sin(phi);
+		double s = 0.5 * (1.0 + Vh.z);
+		t2 = (1.0 - s) * Math.sqrt(1.0 - t1 * t1) + s * t2;
+
+		// Lift the point onto the hemisphere, then unstretch
+		Vector3d Nh = new Vector3d(T1).mul(t1).addMultiple(t2, T2)
+				.addMultiple(Math.sqrt(Math.max(0.0, 1.0 - t1 * t1 - t2 * t2)), Vh);
+		return new Vector3d(alpha * Nh.x, alpha * Nh.y, Math.max(0.0, Nh.z)).normalize();
+	}
+
 	@Override
 	public String toString() {
 		return "GGX" + this.alpha + " " + this.nt;
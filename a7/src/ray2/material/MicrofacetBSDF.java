@@ -40,8 +40,20 @@ public class MicrofacetBSDF extends BSDF {
 		}else if(disttype == 1) {
 			this.dist = new GGX(roughness, refractiveIndex);
 		}
+		if (this.dist != null)
+			this.dist.setVisibleNormals(samplingtype == 1);
 	}
 	
+	/** How half vectors are sampled
+	 *  0 - from the distribution of normals
+	 *  1 - from the distribution of visible normals. */
+	protected int samplingtype = 0;
+	public void setSamplingtype(int samplingtype) {
+		this.samplingtype = samplingtype;
+		if (dist != null)
+			dist.setVisibleNormals(samplingtype == 1);
+	}
+
 	/** Default constructor for Microfacet*/
 	public MicrofacetBSDF() { 
 		setRefractiveIndex(1.5);
@@ -73,6 +73,21 @@ public abstract class MicrofacetDistribution {
 
 	}
 	abstract Vector3d sample_helper(Vector2d seed);
+
+	/**
+	 * Sample a half vector, in local coordinates, from the distribution of normals visible
+	 * from a direction: D_wi(m) = G1(wi) max(0, wi.m) D(m) / (wi.n).
+	 *
+	 * @param wiLocal the unit direction, in local coordinates, with wiLocal.z > 0
+	 */
+	abstract Vector3d sampleVisible_helper(Vector3d wiLocal, Vector2d seed);
+
+	/**
+	 * Smith masking function for a direction at an angle theta from the normal.  This has
+	 * to be the exact function that goes with D, or the pdf of visible normal sampling
+	 * will not match the samples.
+	 */
+	abstract double G1(double costheta);
 	double SIGN(double a) {
 		if (a>0)return 1;
 		else if (a==0)return 0;
@@ -93,15 +108,20 @@ public abstract class MicrofacetDistribution {
 	/** Sample function */
 	double sample(BSDFSamplingRecord sampleRecord, Vector2d seed, Colord outValue) {
 		double prob = 0;
-		Vector3d HalfVecLocal = sample_helper(seed);
-		
-		// convert half vector from local coordinates to world coordinates
 		Vector3d n = new Vector3d();
 		n.set(sampleRecord.normal);
 		Vector3d u = new Vector3d();
 		Vector3d v = new Vector3d();
 		basisFromW(n, u, v);
+
+		Vector3d HalfVecLocal;
+		Vector3d IncomingVecLocal = new Vector3d(sampleRecord.dir1.dot(u), sampleRecord.dir1.dot(v), sampleRecord.dir1.dot(n));
+		if (visibleNormals && IncomingVecLocal.z > 0)
+			HalfVecLocal = sampleVisible_helper(IncomingVecLocal.normalize(), seed);
+		else
+			HalfVecLocal = sample_helper(seed);
 		
+		// convert half vector from local coordinates to world coordinates
 		Vector3d HalfVec = new Vector3d();
 		HalfVec.set(n).mul(HalfVecLocal.z);
 		HalfVec.addMultiple(HalfVecLocal.x, u);
@@ -139,9 +159,14 @@ public abstract class MicrofacetDistribution {
 			
 			if (LdotH==0) return 0.0;
 			
-			double costheta = Math.abs(HalfVec.dot(SurfaceNormal));
 			double jacobian = 1.0 / ( 4.0 * Math.abs(LdotH )); 
-			prob = chi_plus(VdotH/VdotN) * chi_plus(LdotH/LdotN) * Dvalue * costheta * jacobian;
+			if (visibleNormals) {
+				// D_wi(m) = G1(wi) (wi.m) D(m) / (wi.n), and wi.m cancels the jacobian's
+				prob = chi_plus(VdotH/VdotN) * chi_plus(LdotH) * G1(LdotN) * Dvalue / (4.0 * LdotN);
+			} else {
+				double costheta = Math.abs(HalfVec.dot(SurfaceNormal));
+				prob = chi_plus(VdotH/VdotN) * chi_plus(LdotH/LdotN) * Dvalue * costheta * jacobian;
+			}
 
 		}
 		
@@ -155,6 +180,16 @@ public abstract class MicrofacetDistribution {
 	public void setAlpha(double t) { alpha = t; }
 	public double getAlpha() { return alpha; }
 	
+	/**
+	 * Whether to sample half vectors from the distribution of normals visible from the
+	 * incoming direction [Heitz 2018], instead of from D.  Visible normals never face away
+	 * from the incoming direction, so at grazing angles far fewer samples are wasted or
+	 * carry large weights.
+	 */
+	protected boolean visibleNormals = false;
+	public void setVisibleNormals(boolean visibleNormals) { this.visibleNormals = visibleNormals; }
+	public boolean getVisibleNormals() { return visibleNormals; }
+
 	/**refractive index of material */
 	protected double nt;
 	public void setNt(double nt) {this.nt = nt;}
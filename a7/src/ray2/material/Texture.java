@@ -2,9 +2,11 @@ package ray2.material;
 
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.IOException;
 
 import javax.imageio.ImageIO;
 
+import ray2.AssetLoader;
 import ray2.RayTracer;
 import egl.math.Colord;
 import egl.math.Vector2d;
@@ -21,16 +23,16 @@ public abstract class Texture {
 	protected BufferedImage image;
 	/** Return the BufferedImage used for lookup. */
 	public BufferedImage getImage() { return image; }
-	/** Set the BufferedImage from a given file on disk. */
+	/** Set the BufferedImage from a given file on disk.  The file is read in the background. */
 	public void setImage(String filename) {
-		System.out.println("Loading: " + RayTracer.sceneWorkspace.resolve(filename));
-		try {
-			File f = new File(RayTracer.sceneWorkspace.resolve(filename));
-			image = ImageIO.read(f);
-		} catch (Exception e) {
-			System.err.println("Error loading texture: " + e);
-			System.exit(1);
-		}
+		final String path = RayTracer.sceneWorkspace.resolve(filename);
+		System.out.println("Loading: " + path);
+		AssetLoader.load(path, () -> {
+			BufferedImage loaded = ImageIO.read(new File(path));
+			if (loaded == null)
+				throw new IOException("unsupported image format");
+			image = loaded;
+		});
 	}
 	
 	/** Default constructor. Creates an empty Texture object. */
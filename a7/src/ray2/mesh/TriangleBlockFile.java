@@ -0,0 +1,456 @@
+package ray2.mesh;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A file of triangles grouped into spatially coherent blocks, for meshes too large to load
+ * into memory.  Only a small table describing the blocks (their bounds and where they are
+ * stored) is read into memory; the triangles themselves are memory-mapped, so the operating
+ * system pages them in when they are first touched and can drop them again under memory
+ * pressure.
+ *
+ * Triangles are sorted along a Morton (Z-order) curve through their centroids before being
+ * cut into blocks, so each block covers a compact region of space and blocks that are near
+ * each other in space are mostly near each other in the file.
+ *
+ * The file is little-endian: a header (magic, block size, block count, triangle count,
+ * offset of the table), then nine floats (three vertex positions) per triangle, then the
+ * table of blocks, each entry holding six floats of bounds (min, then max), the index of
+ * its first triangle and its number of triangles.
+ *
+ * Files are created from OBJ files by convert(), which streams through the OBJ and keeps
+ * only a bounded amount of data in memory; it can also be run from the command line.
+ */
+public class TriangleBlockFile {
+
+	/** The number of triangles in a full block. */
+	public static final int BLOCK_SIZE = 256;
+
+	private static final int MAGIC = 0x424F4F43;
+	private static final int HEADER_BYTES = 32;
+	private static final int TRIANGLE_BYTES = 36;
+	private static final int ENTRY_BYTES = 36;
+
+	/** Largest region mapped at once (mappings are limited to 2 GB). */
+	private static final long SEGMENT_BYTES = 1L << 30;
+
+	/** Bits of the Morton code used to partition triangles before sorting. */
+	private static final int BUCKET_BITS = 12;
+
+	/** Largest number of triangles sorted in memory at once while converting. */
+	private static final int SORT_CHUNK = 1 << 21;
+
+	/** Bounds of each block, six floats per block: min x, y, z, then max x, y, z. */
+	private final float[] bounds;
+
+	/** Number of triangles in each block. */
+	private final int[] counts;
+
+	/** For each block, the mapped segment holding it and its byte offset in that segment. */
+	private final int[] segmentIndex;
+	private final int[] segmentOffset;
+	private final MappedByteBuffer[] segments;
+
+	private final long triangleCount;
+
+	private TriangleBlockFile(float[] bounds, int[] counts, long[] first, FileChannel channel, long triangleCount)
+			throws IOException {
+		this.bounds = bounds;
+		this.counts = counts;
+		this.triangleCount = triangleCount;
+		int blocks = counts.length;
+		segmentIndex = new int[blocks];
+		segmentOffset = new int[blocks];
+
+		// Group consecutive blocks into segments, never splitting a block
+		ArrayList<MappedByteBuffer> mapped = new ArrayList<MappedByteBuffer>();
+		int b = 0;
+		while (b < blocks) {
+			long start = HEADER_BYTES + first[b] * TRIANGLE_BYTES;
+			long end = start;
+			int firstInSegment = b;
+			while (b < blocks && HEADER_BYTES + (first[b] + counts[b]) * TRIANGLE_BYTES - start <= SEGMENT_BYTES) {
+				segmentIndex[b] = mapped.size();
+				segmentOffset[b] = (int) (HEADER_BYTES + first[b] * TRIANGLE_BYTES - start);
+				end = HEADER_BYTES + (first[b] + counts[b]) * TRIANGLE_BYTES;
+				b++;
+			}
+			if (b == firstInSegment)
+				throw new IOException("Block " + b + " is too large to map");
+			MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+			buf.order(ByteOrder.LITTLE_ENDIAN);
+			mapped.add(buf);
+		}
+		segments = mapped.toArray(new MappedByteBuffer[mapped.size()]);
+	}
+
+	/**
+	 * Open a block file.  The triangle data is mapped, not read.
+	 */
+	public static TriangleBlockFile open(String path) throws IOException {
+		try (RandomAccessFile file = new RandomAccessFile(path, "r")) {
+			FileChannel channel = file.getChannel();
+
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			readFully(channel, header, 0);
+			if (header.getInt(0) != MAGIC)
+				throw new IOException(path + " is not a triangle block file");
+			int blockCount = header.getInt(8);
+			long triangleCount = header.getLong(12);
+			long tableOffset = header.getLong(20);
+
+			ByteBuffer table = ByteBuffer.allocate(blockCount * ENTRY_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			readFully(channel, table, tableOffset);
+			float[] bounds = new float[6 * blockCount];
+			long[] first = new long[blockCount];
+			int[] counts = new int[blockCount];
+			for (int b = 0; b < blockCount; b++) {
+				int e = b * ENTRY_BYTES;
+				for (int c = 0; c < 6; c++)
+					bounds[6 * b + c] = table.getFloat(e + 4 * c);
+				first[b] = table.getLong(e + 24);
+				counts[b] = table.getInt(e + 32);
+			}
+
+			// The mappings stay valid after the channel is closed
+			return new TriangleBlockFile(bounds, counts, first, channel, triangleCount);
+		}
+	}
+
+	/**
+	 * @return the number of blocks
+	 */
+	public int getBlockCount() {
+		return counts.length;
+	}
+
+	/**
+	 * @return the total number of triangles
+	 */
+	public long getTriangleCount() {
+		return triangleCount;
+	}
+
+	/**
+	 * @return the number of triangles in a block
+	 */
+	public int getTriangleCount(int block) {
+		return counts[block];
+	}
+
+	/**
+	 * @return the bounds of every block, six floats per block (min x, y, z, max x, y, z).
+	 *   The array is shared and must not be modified.
+	 */
+	public float[] getBounds() {
+		return bounds;
+	}
+
+	/**
+	 * Read the vertex positions of a triangle, touching its page of the file if it is not
+	 * already in memory.  Safe to call from many threads at once.
+	 *
+	 * @param block The block
+	 * @param i The index of the triangle within the block
+	 * @param out Receives the three positions, x, y, z for each vertex
+	 */
+	public void getTriangle(int block, int i, float[] out) {
+		MappedByteBuffer buf = segments[segmentIndex[block]];
+		int offset = segmentOffset[block] + i * TRIANGLE_BYTES;
+		for (int c = 0; c < 9; c++)
+			out[c] = buf.getFloat(offset + 4 * c);
+	}
+
+	/**
+	 * Convert an OBJ file to a block file.  Polygons are split into fans of triangles;
+	 * everything but vertex positions and faces is ignored.
+	 *
+	 * Conversion makes several streaming passes: vertex positions and triangle indices are
+	 * first copied into temporary files, then triangles are counted into buckets by the top
+	 * bits of their Morton codes, scattered to their buckets in the output, and finally
+	 * sorted within each bucket (in chunks of bounded size) and cut into blocks.
+	 */
+	public static void convert(String objPath, String outPath) throws IOException {
+		File vertexFile = new File(outPath + ".vertices.tmp");
+		File indexFile = new File(outPath + ".indices.tmp");
+		try {
+			// Pass 1: split the OBJ into positions and triangle indices
+			float[] sceneMin = { Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY };
+			float[] sceneMax = { Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY };
+			long vertexCount = 0, triangleCount = 0;
+			try (BufferedReader reader = new BufferedReader(new FileReader(objPath), 1 << 16);
+					DataOutputStream vertices = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(vertexFile), 1 << 16));
+					DataOutputStream indices = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile), 1 << 16))) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					String[] tokens = line.trim().split("\\s+");
+					if (tokens[0].equals("v")) {
+						if (tokens.length < 4)
+							throw new IOException("Malformed vertex position specification: " + line);
+						for (int c = 0; c < 3; c++) {
+							float x = Float.parseFloat(tokens[c + 1]);
+							sceneMin[c] = Math.min(sceneMin[c], x);
+							sceneMax[c] = Math.max(sceneMax[c], x);
+							vertices.writeFloat(x);
+						}
+						vertexCount++;
+					} else if (tokens[0].equals("f")) {
+						if (tokens.length < 4)
+							throw new IOException("Malformed face specification: " + line);
+						long v0 = vertexIndex(tokens[1], vertexCount);
+						long prev = vertexIndex(tokens[2], vertexCount);
+						for (int i = 3; i < tokens.length; i++) {
+							long v = vertexIndex(tokens[i], vertexCount);
+							indices.writeLong(v0);
+							indices.writeLong(prev);
+							indices.writeLong(v);
+							prev = v;
+							triangleCount++;
+						}
+					}
+				}
+			}
+
+			try (RandomAccessFile vertexRaf = new RandomAccessFile(vertexFile, "r");
+					RandomAccessFile out = new RandomAccessFile(outPath, "rw")) {
+				FloatSegments positions = new FloatSegments(vertexRaf.getChannel(), 3 * vertexCount);
+				FileChannel channel = out.getChannel();
+				out.setLength(0);
+				float[] tri = new float[9];
+
+				// Pass 2: count triangles in each bucket
+				long[] bucketStart = new long[(1 << BUCKET_BITS) + 1];
+				try (DataInputStream indices = indexStream(indexFile)) {
+					for (long t = 0; t < triangleCount; t++) {
+						readTriangle(indices, positions, tri);
+						bucketStart[bucket(tri, sceneMin, sceneMax) + 1]++;
+					}
+				}
+				for (int k = 0; k < 1 << BUCKET_BITS; k++)
+					bucketStart[k + 1] += bucketStart[k];
+
+				// Pass 3: scatter triangles to their buckets, through a small buffer per bucket
+				long[] bucketFill = Arrays.copyOf(bucketStart, 1 << BUCKET_BITS);
+				ByteBuffer[] pending = new ByteBuffer[1 << BUCKET_BITS];
+				try (DataInputStream indices = indexStream(indexFile)) {
+					for (long t = 0; t < triangleCount; t++) {
+						readTriangle(indices, positions, tri);
+						int k = bucket(tri, sceneMin, sceneMax);
+						if (pending[k] == null)
+							pending[k] = ByteBuffer.allocate(32 * TRIANGLE_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+						for (int c = 0; c < 9; c++)
+							pending[k].putFloat(tri[c]);
+						if (!pending[k].hasRemaining())
+							bucketFill[k] = flush(channel, pending[k], bucketFill[k]);
+					}
+				}
+				for (int k = 0; k < 1 << BUCKET_BITS; k++)
+					if (pending[k] != null)
+						flush(channel, pending[k], bucketFill[k]);
+
+				// Pass 4: sort each bucket and cut it into blocks
+				ArrayList<float[]> blockBounds = new ArrayList<float[]>();
+				ArrayList<long[]> blockRanges = new ArrayList<long[]>();
+				for (int k = 0; k < 1 << BUCKET_BITS; k++) {
+					for (long start = bucketStart[k]; start < bucketStart[k + 1]; start += SORT_CHUNK) {
+						int n = (int) Math.min(SORT_CHUNK, bucketStart[k + 1] - start);
+						sortChunk(channel, start, n, sceneMin, sceneMax, blockBounds, blockRanges);
+					}
+				}
+
+				// Table and header
+				long tableOffset = HEADER_BYTES + triangleCount * TRIANGLE_BYTES;
+				ByteBuffer table = ByteBuffer.allocate(blockBounds.size() * ENTRY_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+				for (int b = 0; b < blockBounds.size(); b++) {
+					for (float f : blockBounds.get(b))
+						table.putFloat(f);
+					table.putLong(blockRanges.get(b)[0]);
+					table.putInt((int) blockRanges.get(b)[1]);
+				}
+				table.flip();
+				writeFully(channel, table, tableOffset);
+
+				ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+				header.putInt(MAGIC).putInt(BLOCK_SIZE).putInt(blockBounds.size())
+					.putLong(triangleCount).putLong(tableOffset);
+				header.rewind();
+				writeFully(channel, header, 0);
+			}
+		} finally {
+			vertexFile.delete();
+			indexFile.delete();
+		}
+	}
+
+	/**
+	 * Read n triangles starting at triangle index start, sort them by Morton code, write
+	 * them back and add them to the blocks, starting a new block every BLOCK_SIZE triangles.
+	 */
+	private static void sortChunk(FileChannel channel, long start, int n, float[] sceneMin, float[] sceneMax,
+			ArrayList<float[]> blockBounds, ArrayList<long[]> blockRanges) throws IOException {
+		ByteBuffer buf = ByteBuffer.allocate(n * TRIANGLE_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		readFully(channel, buf, HEADER_BYTES + start * TRIANGLE_BYTES);
+		float[] data = new float[9 * n];
+		buf.asFloatBuffer().get(data);
+
+		// Sort (code, index) pairs packed into longs
+		long[] keys = new long[n];
+		float[] tri = new float[9];
+		for (int i = 0; i < n; i++) {
+			System.arraycopy(data, 9 * i, tri, 0, 9);
+			keys[i] = ((long) morton(tri, sceneMin, sceneMax) << 32) | i;
+		}
+		Arrays.sort(keys);
+
+		// Chunks are processed in Morton order, so blocks may continue from one to the next
+		buf.clear();
+		for (int j = 0; j < n; j++) {
+			int i = (int) keys[j];
+			if ((start + j) % BLOCK_SIZE == 0) {
+				blockBounds.add(new float[] { Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY,
+						Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY });
+				blockRanges.add(new long[] { start + j, 0 });
+			}
+			float[] box = blockBounds.get(blockBounds.size() - 1);
+			blockRanges.get(blockRanges.size() - 1)[1]++;
+			for (int c = 0; c < 9; c++) {
+				float x = data[9 * i + c];
+				buf.putFloat(x);
+				box[c % 3] = Math.min(box[c % 3], x);
+				box[3 + c % 3] = Math.max(box[3 + c % 3], x);
+			}
+		}
+		buf.flip();
+		writeFully(channel, buf, HEADER_BYTES + start * TRIANGLE_BYTES);
+	}
+
+	/**
+	 * The 30-bit Morton code of a triangle's centroid within the scene bounds.
+	 */
+	private static int morton(float[] tri, float[] sceneMin, float[] sceneMax) {
+		int code = 0;
+		for (int c = 0; c < 3; c++) {
+			float extent = sceneMax[c] - sceneMin[c];
+			double u = extent > 0 ? ((tri[c] + tri[c + 3] + tri[c + 6]) / 3 - sceneMin[c]) / extent : 0;
+			int q = (int) Math.min(1023, Math.max(0, u * 1024));
+			code |= spreadBits(q) << (2 - c);
+		}
+		return code;
+	}
+
+	/** Insert two zero bits between each of the low 10 bits of x. */
+	private static int spreadBits(int x) {
+		x = (x | (x << 16)) & 0x030000FF;
+		x = (x | (x << 8)) & 0x0300F00F;
+		x = (x | (x << 4)) & 0x030C30C3;
+		x = (x | (x << 2)) & 0x09249249;
+		return x;
+	}
+
+	private static int bucket(float[] tri, float[] sceneMin, float[] sceneMax) {
+		return morton(tri, sceneMin, sceneMax) >>> (30 - BUCKET_BITS);
+	}
+
+	/**
+	 * Resolve an OBJ vertex reference ("i", "i/t", "i/t/n", possibly negative) to a
+	 * zero-based index.
+	 */
+	private static long vertexIndex(String token, long vertexCount) throws IOException {
+		int slash = token.indexOf('/');
+		long i = Long.parseLong(slash < 0 ? token : token.substring(0, slash));
+		long index = i < 0 ? vertexCount + i : i - 1;
+		if (index < 0 || index >= vertexCount)
+			throw new IOException("Vertex index out of range: " + token);
+		return index;
+	}
+
+	private static DataInputStream indexStream(File indexFile) throws IOException {
+		return new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile), 1 << 16));
+	}
+
+	private static void readTriangle(DataInputStream indices, FloatSegments positions, float[] tri) throws IOException {
+		for (int v = 0; v < 3; v++) {
+			long i = indices.readLong();
+			for (int c = 0; c < 3; c++)
+				tri[3 * v + c] = positions.get(3 * i + c);
+		}
+	}
+
+	private static long flush(FileChannel channel, ByteBuffer buf, long triangle) throws IOException {
+		buf.flip();
+		long n = buf.remaining() / TRIANGLE_BYTES;
+		writeFully(channel, buf, HEADER_BYTES + triangle * TRIANGLE_BYTES);
+		buf.clear();
+		return triangle + n;
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buf, long position) throws IOException {
+		while (buf.hasRemaining()) {
+			int n = channel.read(buf, position);
+			if (n < 0)
+				throw new IOException("Unexpected end of file");
+			position += n;
+		}
+		buf.flip();
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buf, long position) throws IOException {
+		while (buf.hasRemaining())
+			position += channel.write(buf, position);
+	}
+
+	/**
+	 * A read-only array of big-endian floats in a file, mapped in segments so it can
+	 * exceed 2 GB.
+	 */
+	private static class FloatSegments {
+		private static final int FLOATS_PER_SEGMENT = (int) (SEGMENT_BYTES / 4);
+		private final MappedByteBuffer[] segments;
+
+		FloatSegments(FileChannel channel, long count) throws IOException {
+			int n = (int) ((count + FLOATS_PER_SEGMENT - 1) / FLOATS_PER_SEGMENT);
+			segments = new MappedByteBuffer[n];
+			for (int s = 0; s < n; s++) {
+				long first = (long) s * FLOATS_PER_SEGMENT;
+				long size = Math.min(FLOATS_PER_SEGMENT, count - first);
+				segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, 4 * first, 4 * size);
+			}
+		}
+
+		float get(long i) {
+			return segments[(int) (i / FLOATS_PER_SEGMENT)].getFloat(4 * (int) (i % FLOATS_PER_SEGMENT));
+		}
+	}
+
+	/**
+	 * Convert an OBJ file from the command line:
+	 * TriangleBlockFile input.obj output.blocks
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.err.println("usage: java ray2.mesh.TriangleBlockFile input.obj output.blocks");
+			System.exit(1);
+		}
+		long startTime = System.currentTimeMillis();
+		convert(args[0], args[1]);
+		TriangleBlockFile f = open(args[1]);
+		System.out.println("Wrote " + f.getTriangleCount() + " triangles in " + f.getBlockCount() + " blocks in "
+				+ ((System.currentTimeMillis() - startTime) / 1000.0) + " seconds");
+	}
+}
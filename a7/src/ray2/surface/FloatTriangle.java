@@ -0,0 +1,194 @@
+package ray2.surface;
+
+import egl.math.Vector3;
+import egl.math.Vector3d;
+import ray2.IntersectionRecord;
+import ray2.Ray;
+import ray2.mesh.OBJFace;
+
+/**
+ * Represents a single triangle, part of a triangle mesh, with its vertices stored
+ * in single precision.  This uses a little over half the memory of a Triangle and
+ * reads no other objects during the intersection test, which matters for large
+ * meshes.  Intersection uses the watertight algorithm of [Woop et al. 2013] so that
+ * rays cannot slip through the shared edges of neighboring triangles despite the
+ * reduced precision, and the bounding box is rounded outwards so that it always
+ * contains the triangle.  Everything computed after a hit is in double precision.
+ */
+public class FloatTriangle extends Surface {
+
+	/** The mesh that contains this triangle */
+	public Mesh owner;
+
+	/** The face that contains this triangle */
+	public OBJFace face = null;
+
+	/** The vertex positions, in object space. */
+	float x0, y0, z0, x1, y1, z1, x2, y2, z2;
+
+	public FloatTriangle(Mesh owner, OBJFace face) {
+		this.owner = owner;
+		this.face = face;
+
+		Vector3 v0 = owner.getMesh().getPosition(face, 0);
+		Vector3 v1 = owner.getMesh().getPosition(face, 1);
+		Vector3 v2 = owner.getMesh().getPosition(face, 2);
+
+		x0 = v0.x; y0 = v0.y; z0 = v0.z;
+		x1 = v1.x; y1 = v1.y; z1 = v1.z;
+		x2 = v2.x; y2 = v2.y; z2 = v2.z;
+	}
+
+	/**
+	 * Tests this surface for intersection with ray. If an intersection is found
+	 * record is filled out with the information about the intersection and the
+	 * method returns true. It returns false otherwise and the information in
+	 * outRecord is not modified.
+	 *
+	 * @param outRecord
+	 *            the output IntersectionRecord
+	 * @param rayIn
+	 *            the ray to intersect
+	 * @return true if the surface intersects the ray
+	 */
+	public boolean intersect(IntersectionRecord outRecord, Ray rayIn) {
+
+		Triangle.intersectionCount++;
+
+		//transform ray into object space
+		Ray ray = untransformRay(rayIn);
+
+		float ox = (float) ray.origin.x, oy = (float) ray.origin.y, oz = (float) ray.origin.z;
+		float dx = (float) ray.direction.x, dy = (float) ray.direction.y, dz = (float) ray.direction.z;
+
+		// Permute the axes so that the largest direction component is z, keeping winding
+		int kz = Math.abs(dx) > Math.abs(dy)
+				? (Math.abs(dx) > Math.abs(dz) ? 0 : 2)
+				: (Math.abs(dy) > Math.abs(dz) ? 1 : 2);
+		int kx = (kz + 1) % 3;
+		int ky = (kx + 1) % 3;
+		if (axis(dx, dy, dz, kz) < 0) {
+			int swap = kx;
+			kx = ky;
+			ky = swap;
+		}
+
+		// Shear constants that map the ray direction to +z
+		float sz = 1.0f / axis(dx, dy, dz, kz);
+		float sx = axis(dx, dy, dz, kx) * sz;
+		float sy = axis(dx, dy, dz, ky) * sz;
+
+		// Vertices relative to the ray origin, then sheared and permuted
+		float az = axis(x0 - ox, y0 - oy, z0 - oz, kz);
+		float bz = axis(x1 - ox, y1 - oy, z1 - oz, kz);
+		float cz = axis(x2 - ox, y2 - oy, z2 - oz, kz);
+		float ax = axis(x0 - ox, y0 - oy, z0 - oz, kx) - sx * az;
+		float ay = axis(x0 - ox, y0 - oy, z0 - oz, ky) - sy * az;
+		float bx = axis(x1 - ox, y1 - oy, z1 - oz, kx) - sx * bz;
+		float by = axis(x1 - ox, y1 - oy, z1 - oz, ky) - sy * bz;
+		float cx = axis(x2 - ox, y2 - oy, z2 - oz, kx) - sx * cz;
+		float cy = axis(x2 - ox, y2 - oy, z2 - oz, ky) - sy * cz;
+
+		// Scaled barycentric coordinates from 2D edge functions
+		double u = cx * by - cy * bx;
+		double v = ax * cy - ay * cx;
+		double w = bx * ay - by * ax;
+
+		// Edge cases are resolved in double precision so shared edges are hit exactly once
+		if (u == 0 || v == 0 || w == 0) {
+			u = (double) cx * by - (double) cy * bx;
+			v = (double) ax * cy - (double) ay * cx;
+			w = (double) bx * ay - (double) by * ax;
+		}
+
+		if ((u < 0 || v < 0 || w < 0) && (u > 0 || v > 0 || w > 0))
+			return false;
+
+		double det = u + v + w;
+		if (det == 0)
+			return false;
+
+		double t = (u * (sz * az) + v * (sz * bz) + w * (sz * cz)) / det;
+		if (t > ray.end || t < ray.start)
+			return false;
+
+		// There was an intersection, fill out the intersection record
+		if (outRecord != null) {
+			double beta = v / det;
+			double gamma = w / det;
+
+			outRecord.t = t;
+			ray.evaluate(outRecord.location, t);
+
+			//transform back into world space
+			tMat.mulPos(outRecord.location);
+
+			outRecord.surface = this;
+
+			if (!face.hasNormals()) {
+				outRecord.normal.set(
+						(double) (y1 - y0) * (z2 - z0) - (double) (z1 - z0) * (y2 - y0),
+						(double) (z1 - z0) * (x2 - x0) - (double) (x1 - x0) * (z2 - z0),
+						(double) (x1 - x0) * (y2 - y0) - (double) (y1 - y0) * (x2 - x0));
+			} else {
+				outRecord.normal
+						.setZero()
+						.addMultiple(1 - beta - gamma, owner.getMesh().getNormal(face,0))
+						.addMultiple(beta, owner.getMesh().getNormal(face,1))
+						.addMultiple(gamma, owner.getMesh().getNormal(face,2));
+			}
+
+			tMatTInv.mulDir(outRecord.normal);
+
+			outRecord.normal.normalize();
+			if (face.hasUVs()) {
+				outRecord.texCoords.setZero()
+						.addMultiple(1 - beta - gamma, owner.getMesh().getUV(face,0))
+						.addMultiple(beta, owner.getMesh().getUV(face,1))
+						.addMultiple(gamma, owner.getMesh().getUV(face,2));
+			}
+		}
+
+		return true;
+
+	}
+
+	/** Select component k of (x, y, z). */
+	private static float axis(float x, float y, float z, int k) {
+		return k == 0 ? x : (k == 1 ? y : z);
+	}
+
+	/**
+	 * Compute the world space bounding box of the three vertices.  The box is
+	 * computed in double precision, then widened by one float ulp on each side
+	 * so that it still contains the triangle if it is stored in single precision.
+	 */
+	public void computeBoundingBox() {
+		Vector3d[] v = {
+			new Vector3d(x0, y0, z0),
+			new Vector3d(x1, y1, z1),
+			new Vector3d(x2, y2, z2)
+		};
+
+		minBound = new Vector3d(Double.POSITIVE_INFINITY);
+		maxBound = new Vector3d(Double.NEGATIVE_INFINITY);
+		averagePosition = new Vector3d();
+		for (Vector3d p : v) {
+			tMat.mulPos(p);
+			minBound.set(Math.min(minBound.x, p.x), Math.min(minBound.y, p.y), Math.min(minBound.z, p.z));
+			maxBound.set(Math.max(maxBound.x, p.x), Math.max(maxBound.y, p.y), Math.max(maxBound.z, p.z));
+			averagePosition.add(p);
+		}
+		averagePosition.div(3);
+
+		minBound.set(Math.nextDown((float) minBound.x), Math.nextDown((float) minBound.y), Math.nextDown((float) minBound.z));
+		maxBound.set(Math.nextUp((float) maxBound.x), Math.nextUp((float) maxBound.y), Math.nextUp((float) maxBound.z));
+	}
+
+	/**
+	 * @see Object#toString()
+	 */
+	public String toString() {
+		return "FloatTriangle ";
+	}
+}
@@ -0,0 +1,172 @@
+package ray2.surface;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import egl.math.Matrix4d;
+import egl.math.Vector3;
+import egl.math.Vector3d;
+import ray2.IntersectionRecord;
+import ray2.Ray;
+import ray2.mesh.OBJFace;
+import ray2.mesh.OBJMesh;
+
+/**
+ * Compares FloatTriangle against the double precision Triangle on a bumpy height
+ * field, whose vertices are exact floats so that both see the same geometry.
+ */
+public class FloatTriangleTests {
+
+	/** Vertices per side of the height field. */
+	static final int N = 6;
+
+	/** Rays passing closer than this to an edge, in barycentric terms, may hit or miss. */
+	static final double EDGE_TOLERANCE = 1e-5;
+
+	/** Tolerance on t, relative to the ray length. */
+	static final double T_TOLERANCE = 1e-5;
+
+	Random random = new Random(4620);
+	OBJMesh obj;
+	Triangle[] doubles;
+	FloatTriangle[] floats;
+
+	@Before
+	public void buildMesh() throws Exception {
+		StringBuilder text = new StringBuilder();
+		for (int j = 0; j < N; j++)
+			for (int i = 0; i < N; i++)
+				text.append("v " + i + " " + j + " " + (float) random.nextDouble() + "\n");
+		for (int j = 0; j + 1 < N; j++) {
+			for (int i = 0; i + 1 < N; i++) {
+				int v = j * N + i + 1;
+				text.append("f " + v + " " + (v + 1) + " " + (v + N + 1) + "\n");
+				text.append("f " + v + " " + (v + N + 1) + " " + (v + N) + "\n");
+			}
+		}
+		obj = new OBJMesh();
+		obj.parseOBJFromString(text.toString());
+
+		Mesh mesh = new Mesh(obj);
+		Matrix4d identity = new Matrix4d();
+		doubles = new Triangle[obj.faces.size()];
+		floats = new FloatTriangle[obj.faces.size()];
+		for (int k = 0; k < doubles.length; k++) {
+			doubles[k] = new Triangle(mesh, obj.faces.get(k));
+			doubles[k].setTransformation(identity, identity, identity);
+			floats[k] = new FloatTriangle(mesh, obj.faces.get(k));
+			floats[k].setTransformation(identity, identity, identity);
+		}
+	}
+
+	static Vector3d position(OBJMesh obj, OBJFace face, int k) {
+		return new Vector3d(obj.getPosition(face, k));
+	}
+
+	/**
+	 * Distance in barycentric terms from the point where the ray meets the triangle's
+	 * plane to the nearest edge, negative if the point is outside.
+	 */
+	double edgeDistance(OBJFace face, Ray ray) {
+		Vector3d v0 = position(obj, face, 0);
+		Vector3d e1 = position(obj, face, 1).sub(v0);
+		Vector3d e2 = position(obj, face, 2).sub(v0);
+		Vector3d p = ray.direction.clone().cross(e2);
+		double det = e1.dot(p);
+		Vector3d s = ray.origin.clone().sub(v0);
+		double beta = s.dot(p) / det;
+		Vector3d q = s.cross(e1);
+		double gamma = ray.direction.dot(q) / det;
+		return Math.min(1 - beta - gamma, Math.min(beta, gamma));
+	}
+
+	/** A ray from a random point above the mesh through target, reaching it at t = 1. */
+	Ray rayThrough(Vector3d target) {
+		Vector3d origin = new Vector3d(
+				target.x + 2 * random.nextDouble() - 1,
+				target.y + 2 * random.nextDouble() - 1,
+				10 + random.nextDouble());
+		Ray ray = new Ray(origin, target.clone().sub(origin));
+		ray.start = 0;
+		ray.end = Double.POSITIVE_INFINITY;
+		return ray;
+	}
+
+	@Test
+	public void testRandomRays() {
+		IntersectionRecord dRec = new IntersectionRecord();
+		IntersectionRecord fRec = new IntersectionRecord();
+		int hits = 0, compared = 0;
+		for (int n = 0; n < 20000; n++) {
+			Vector3d origin = new Vector3d(
+					(N + 2) * random.nextDouble() - 2, (N + 2) * random.nextDouble() - 2,
+					random.nextBoolean() ? 5 * random.nextDouble() + 1.5 : -5 * random.nextDouble() - 0.5);
+			Vector3d direction = new Vector3d(random.nextGaussian(), random.nextGaussian(), random.nextGaussian());
+			Ray ray = new Ray(origin, direction);
+			ray.start = 0;
+			ray.end = Double.POSITIVE_INFINITY;
+
+			for (int k = 0; k < floats.length; k++) {
+				boolean dHit = doubles[k].intersect(dRec, ray);
+				boolean fHit = floats[k].intersect(fRec, ray);
+				if (Math.abs(edgeDistance(floats[k].face, ray)) < EDGE_TOLERANCE)
+					continue;
+				compared++;
+				assertEquals("hit/miss of triangle " + k, dHit, fHit);
+				if (dHit) {
+					hits++;
+					assertEquals(dRec.t, fRec.t, T_TOLERANCE * direction.len() * Math.max(1, dRec.t));
+				}
+			}
+		}
+		assertTrue(compared > 0);
+		assertTrue(hits > 100);
+	}
+
+	@Test
+	public void testSharedEdgesAndVertices() {
+		IntersectionRecord dRec = new IntersectionRecord();
+		IntersectionRecord fRec = new IntersectionRecord();
+		for (int n = 0; n < 5000; n++) {
+			// Aim at a point on an edge of a random face, or at one of its vertices; only
+			// points inside the mesh's outline, where some triangle is on either side, count
+			OBJFace face = obj.faces.get(random.nextInt(obj.faces.size()));
+			int k = random.nextInt(3);
+			Vector3d a = position(obj, face, k);
+			Vector3d b = position(obj, face, (k + 1) % 3);
+			Vector3d target = random.nextInt(4) == 0 ? a : a.clone().lerp(b, random.nextDouble());
+			if (target.x <= 0 || target.x >= N - 1 || target.y <= 0 || target.y >= N - 1)
+				continue;
+			Ray ray = rayThrough(target);
+
+			// Some triangle must be hit at the target: rays cannot leak through the mesh
+			boolean found = false;
+			for (int i = 0; i < floats.length; i++) {
+				if (!floats[i].intersect(fRec, ray))
+					continue;
+				boolean atTarget = Math.abs(fRec.t - 1) < T_TOLERANCE;
+				found |= atTarget;
+				if (atTarget && doubles[i].intersect(dRec, ray))
+					assertEquals(dRec.t, fRec.t, T_TOLERANCE);
+			}
+			assertTrue("ray through " + target + " leaked", found);
+		}
+	}
+
+	@Test
+	public void testBoundingBoxes() {
+		for (FloatTriangle t : floats) {
+			for (int k = 0; k < 3; k++) {
+				Vector3 p = obj.getPosition(t.face, k);
+				assertTrue(t.getMinBound().x <= p.x && p.x <= t.getMaxBound().x);
+				assertTrue(t.getMinBound().y <= p.y && p.y <= t.getMaxBound().y);
+				assertTrue(t.getMinBound().z <= p.z && p.z <= t.getMaxBound().z);
+			}
+		}
+	}
+}
@@ -34,8 +34,9 @@ public class Group extends Surface {
 	    
 	/** To calculate tMatInv, we can also left compose pMatInv with the inverse of transformMat */
 	tMat = new Matrix4d(transformMat).mulAfter(pMat);
+    /** Groups are built from translations, rotations and scales, so invert() takes the affine or rigid path */
     tMatInv = new Matrix4d(tMat).invert();
-    tMatTInv = new Matrix4d(tMat).transpose().invert();
+    tMatTInv = new Matrix4d(tMatInv).transpose();
     
     for (Iterator<Surface> iter = objs.iterator(); iter.hasNext();) {
       Surface currSurface = iter.next();
@@ -1,11 +1,12 @@
 package ray2.surface;
 
-import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.stream.IntStream;
 
 import ray2.mesh.OBJFace;
 import ray2.mesh.OBJMesh;
-import ray2.mesh.OBJMesh.OBJFileFormatException;
+import ray2.AssetLoader;
 import ray2.IntersectionRecord;
 import ray2.Ray;
 import ray2.RayTracer;
@@ -24,6 +25,20 @@ public class Mesh extends Surface {
 	/** The underlying data of this Mesh. */
 	private OBJMesh mesh = null;
 
+	/**
+	 * Whether triangles store their geometry in single precision (see FloatTriangle).
+	 * Set with "single" or "double" (the default).
+	 */
+	private boolean singlePrecision = false;
+	public void setPrecision(String precision) {
+		if (precision.trim().equalsIgnoreCase("single") || precision.trim().equalsIgnoreCase("float"))
+			singlePrecision = true;
+		else if (precision.trim().equalsIgnoreCase("double"))
+			singlePrecision = false;
+		else
+			throw new Error("Unknown mesh precision: " + precision);
+	}
+
 	/**
 	 * Default constructor; creates an empty mesh.
 	 */
@@ -38,12 +53,14 @@ public class Mesh extends Surface {
 	}
 	
 	/**
-	 * Set the data in this mesh to the data of a mesh on disk.
+	 * Set the data in this mesh to the data of a mesh on disk.  The file is read
+	 * in the background; Scene.init waits for it to finish.
 	 * @param fileName the name of a .obj file on disk.
 	 */
-	public void setData(String fileName) throws OBJFileFormatException, IOException {
-		System.out.println("Loading " + RayTracer.sceneWorkspace.resolve(fileName));
-		this.mesh = new OBJMesh(RayTracer.sceneWorkspace.resolve(fileName));
+	public void setData(String fileName) {
+		final String path = RayTracer.sceneWorkspace.resolve(fileName);
+		System.out.println("Loading " + path);
+		AssetLoader.load(path, () -> { this.mesh = new OBJMesh(path); });
 	}
 	
 	public boolean intersect(IntersectionRecord outRecord, Ray rayIn) {	return false; }
@@ -52,15 +69,17 @@ public class Mesh extends Surface {
 	
 	public void appendRenderableSurfaces (ArrayList<Surface> in) {
 
-		for (OBJFace f : mesh.faces) {
-			Triangle t = new Triangle(this, f);
+		// Triangles are independent, so set them up (including their bounding boxes) in parallel
+		Surface[] triangles = new Surface[mesh.faces.size()];
+		IntStream.range(0, triangles.length).parallel().forEach((i) -> {
+			OBJFace f = mesh.faces.get(i);
+			Surface t = singlePrecision ? new FloatTriangle(this, f) : new Triangle(this, f);
 			t.setBSDF(bsdf);
 			t.setLight(light);
 			t.setTransformation(this.tMat, this.tMatInv, this.tMatTInv);
-			
-			t.computeBoundingBox();
-			in.add(t);
-		}
+			triangles[i] = t;
+		});
+		in.addAll(Arrays.asList(triangles));
 	} 
 	
 	public OBJMesh getMesh() {
@@ -0,0 +1,253 @@
+package ray2.surface;
+
+import java.io.File;
+
+import egl.math.Vector3d;
+import ray2.AssetLoader;
+import ray2.IntersectionRecord;
+import ray2.Ray;
+import ray2.RayTracer;
+import ray2.mesh.TriangleBlockFile;
+
+/**
+ * A triangle mesh that is too large to hold in memory, intersected directly from a
+ * memory-mapped TriangleBlockFile.  Unlike Mesh, it is not broken into Triangles for the
+ * scene's acceleration structure; instead it is a single surface with its own hierarchy of
+ * bounding boxes.  The top of the hierarchy, down to the bounds of individual blocks, stays
+ * in memory; the triangles of a block are read from the mapped file only when a ray reaches
+ * that block, so the operating system pages in only the parts of the mesh that rays touch.
+ *
+ * The hierarchy is traversed front to back and stops as soon as no closer hit is possible,
+ * which keeps the number of blocks (and so pages) touched by each ray small.  Because
+ * blocks are laid out along a Morton curve, rays from neighboring pixels mostly touch the
+ * same or adjacent pages.
+ *
+ * Only geometry is stored: normals are geometric and texture coordinates are zero.
+ */
+public class OutOfCoreMesh extends Surface {
+
+	/** The block file, opened when the data has been loaded. */
+	private TriangleBlockFile blocks = null;
+
+	/**
+	 * The hierarchy over blocks.  Node i has bounds nodeBounds[6*i .. 6*i+5]; if
+	 * nodeChild[i] >= 0 its children are nodes nodeChild[i] and nodeChild[i] + 1, otherwise
+	 * it is a leaf holding block -nodeChild[i] - 1.
+	 */
+	private float[] nodeBounds;
+	private int[] nodeChild;
+
+	/** Object-space bounds of the whole mesh. */
+	private final Vector3d objectMin = new Vector3d();
+	private final Vector3d objectMax = new Vector3d();
+
+	public OutOfCoreMesh() { }
+
+	/**
+	 * Set the mesh data.  A .blocks file is used as is; for an OBJ file, the block file
+	 * next to it (with ".blocks" appended) is used, and is created first if it is missing
+	 * or older than the OBJ.  Loading happens in the background.
+	 *
+	 * @param fileName the name of a .obj or .blocks file on disk
+	 */
+	public void setData(String fileName) {
+		final String path = RayTracer.sceneWorkspace.resolve(fileName);
+		System.out.println("Loading " + path);
+		AssetLoader.load(path, () -> {
+			String blockPath = path;
+			if (!path.endsWith(".blocks")) {
+				blockPath = path + ".blocks";
+				File obj = new File(path), blockFile = new File(blockPath);
+				if (!blockFile.exists() || blockFile.lastModified() < obj.lastModified()) {
+					System.out.println("Converting " + path + " to " + blockPath);
+					TriangleBlockFile.convert(path, blockPath);
+				}
+			}
+			blocks = TriangleBlockFile.open(blockPath);
+			buildHierarchy();
+		});
+	}
+
+	/**
+	 * Build a balanced binary hierarchy over the blocks.  Blocks are stored in Morton
+	 * order, so splitting each range of blocks at its middle gives spatially coherent nodes
+	 * without any sorting.
+	 */
+	private void buildHierarchy() {
+		int n = blocks.getBlockCount();
+		int nodeCount = Math.max(1, 2 * n - 1);
+		nodeBounds = new float[6 * nodeCount];
+		nodeChild = new int[nodeCount];
+		if (n == 0) {
+			// An empty mesh: a root that nothing can hit
+			nodeChild[0] = 0;
+			nodeBounds[0] = nodeBounds[1] = nodeBounds[2] = Float.POSITIVE_INFINITY;
+			nodeBounds[3] = nodeBounds[4] = nodeBounds[5] = Float.NEGATIVE_INFINITY;
+			objectMin.set(0);
+			objectMax.set(0);
+			return;
+		}
+
+		int[] next = { 1 };
+		build(0, 0, n, next);
+		objectMin.set(nodeBounds[0], nodeBounds[1], nodeBounds[2]);
+		objectMax.set(nodeBounds[3], nodeBounds[4], nodeBounds[5]);
+	}
+
+	private void build(int node, int lo, int hi, int[] next) {
+		if (hi - lo == 1) {
+			nodeChild[node] = -lo - 1;
+			System.arraycopy(blocks.getBounds(), 6 * lo, nodeBounds, 6 * node, 6);
+			return;
+		}
+		int left = next[0];
+		next[0] += 2;
+		nodeChild[node] = left;
+		int mid = (lo + hi) >>> 1;
+		build(left, lo, mid, next);
+		build(left + 1, mid, hi, next);
+		for (int c = 0; c < 3; c++) {
+			nodeBounds[6 * node + c] = Math.min(nodeBounds[6 * left + c], nodeBounds[6 * (left + 1) + c]);
+			nodeBounds[6 * node + 3 + c] = Math.max(nodeBounds[6 * left + 3 + c], nodeBounds[6 * (left + 1) + 3 + c]);
+		}
+	}
+
+	public boolean intersect(IntersectionRecord outRecord, Ray rayIn) {
+		if (blocks == null || blocks.getBlockCount() == 0)
+			return false;
+
+		Ray ray = untransformRay(rayIn);
+		double ox = ray.origin.x, oy = ray.origin.y, oz = ray.origin.z;
+		double dx = ray.direction.x, dy = ray.direction.y, dz = ray.direction.z;
+		double ix = 1 / dx, iy = 1 / dy, iz = 1 / dz;
+
+		double bestT = ray.end;
+		int bestBlock = -1;
+		float[] tri = new float[9];
+		float[] hit = new float[9];
+
+		int[] stack = new int[128];
+		int top = 0;
+		if (boxEntry(0, ox, oy, oz, ix, iy, iz, ray.start, bestT) < Double.POSITIVE_INFINITY)
+			stack[top++] = 0;
+
+		while (top > 0) {
+			int node = stack[--top];
+			// A closer hit may have been found since this node was pushed
+			if (boxEntry(node, ox, oy, oz, ix, iy, iz, ray.start, bestT) == Double.POSITIVE_INFINITY)
+				continue;
+
+			int child = nodeChild[node];
+			if (child < 0) {
+				int block = -child - 1;
+				int n = blocks.getTriangleCount(block);
+				for (int i = 0; i < n; i++) {
+					blocks.getTriangle(block, i, tri);
+					double t = intersectTriangle(tri, ox, oy, oz, dx, dy, dz);
+					if (t > ray.start && t < bestT) {
+						bestT = t;
+						bestBlock = block;
+						System.arraycopy(tri, 0, hit, 0, 9);
+					}
+				}
+				continue;
+			}
+
+			// Visit the nearer child first by pushing it last
+			double tLeft = boxEntry(child, ox, oy, oz, ix, iy, iz, ray.start, bestT);
+			double tRight = boxEntry(child + 1, ox, oy, oz, ix, iy, iz, ray.start, bestT);
+			if (tLeft <= tRight) {
+				if (tRight < Double.POSITIVE_INFINITY) stack[top++] = child + 1;
+				if (tLeft < Double.POSITIVE_INFINITY) stack[top++] = child;
+			} else {
+				if (tLeft < Double.POSITIVE_INFINITY) stack[top++] = child;
+				if (tRight < Double.POSITIVE_INFINITY) stack[top++] = child + 1;
+			}
+		}
+
+		if (bestBlock < 0)
+			return false;
+
+		if (outRecord != null) {
+			outRecord.t = bestT;
+			ray.evaluate(outRecord.location, bestT);
+			outRecord.surface = this;
+			outRecord.normal.set(
+					(hit[4] - hit[1]) * (hit[8] - hit[2]) - (hit[5] - hit[2]) * (hit[7] - hit[1]),
+					(hit[5] - hit[2]) * (hit[6] - hit[0]) - (hit[3] - hit[0]) * (hit[8] - hit[2]),
+					(hit[3] - hit[0]) * (hit[7] - hit[1]) - (hit[4] - hit[1]) * (hit[6] - hit[0]));
+			outRecord.texCoords.set(0, 0);
+
+			//transform location and normal back to world space
+			tMat.mulPos(outRecord.location);
+			tMatTInv.mulDir(outRecord.normal);
+			outRecord.normal.normalize();
+		}
+		return true;
+	}
+
+	/**
+	 * The parameter at which the ray enters a node's box, or infinity if it misses the box
+	 * within [tMin, tMax].
+	 */
+	private double boxEntry(int node, double ox, double oy, double oz, double ix, double iy, double iz,
+			double tMin, double tMax) {
+		int b = 6 * node;
+		double t0 = (nodeBounds[b] - ox) * ix, t1 = (nodeBounds[b + 3] - ox) * ix;
+		double enter = Math.min(t0, t1), exit = Math.max(t0, t1);
+		t0 = (nodeBounds[b + 1] - oy) * iy; t1 = (nodeBounds[b + 4] - oy) * iy;
+		enter = Math.max(enter, Math.min(t0, t1)); exit = Math.min(exit, Math.max(t0, t1));
+		t0 = (nodeBounds[b + 2] - oz) * iz; t1 = (nodeBounds[b + 5] - oz) * iz;
+		enter = Math.max(enter, Math.min(t0, t1)); exit = Math.min(exit, Math.max(t0, t1));
+
+		// NaN (a zero direction component on a box face) counts as a hit, to be safe
+		if (Double.isNaN(enter) || Double.isNaN(exit))
+			return tMin;
+		enter = Math.max(enter, tMin);
+		exit = Math.min(exit, tMax);
+		return enter <= exit ? enter : Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Moller-Trumbore ray-triangle intersection.
+	 *
+	 * @return the ray parameter of the hit, or NaN if there is none
+	 */
+	private static double intersectTriangle(float[] tri, double ox, double oy, double oz,
+			double dx, double dy, double dz) {
+		double e1x = tri[3] - tri[0], e1y = tri[4] - tri[1], e1z = tri[5] - tri[2];
+		double e2x = tri[6] - tri[0], e2y = tri[7] - tri[1], e2z = tri[8] - tri[2];
+		double px = dy * e2z - dz * e2y, py = dz * e2x - dx * e2z, pz = dx * e2y - dy * e2x;
+		double det = e1x * px + e1y * py + e1z * pz;
+		if (det == 0)
+			return Double.NaN;
+		double inv = 1 / det;
+		double sx = ox - tri[0], sy = oy - tri[1], sz = oz - tri[2];
+		double u = (sx * px + sy * py + sz * pz) * inv;
+		if (u < 0 || u > 1)
+			return Double.NaN;
+		double qx = sy * e1z - sz * e1y, qy = sz * e1x - sx * e1z, qz = sx * e1y - sy * e1x;
+		double v = (dx * qx + dy * qy + dz * qz) * inv;
+		if (v < 0 || u + v > 1)
+			return Double.NaN;
+		return (e2x * qx + e2y * qy + e2z * qz) * inv;
+	}
+
+	/**
+	 * Compute the world-space bounds of the transformed object-space bounds.
+	 */
+	public void computeBoundingBox() {
+		minBound = new Vector3d();
+		maxBound = new Vector3d();
+		tMat.transformBox(objectMin, objectMax, minBound, maxBound);
+		averagePosition = new Vector3d(minBound).add(maxBound).mul(0.5);
+	}
+
+	/**
+	 * @see Object#toString()
+	 */
+	public String toString() {
+		return "out-of-core mesh " + (blocks == null ? "(not loaded)" : blocks.getTriangleCount() + " triangles")
+				+ " " + bsdf + " end";
+	}
+}